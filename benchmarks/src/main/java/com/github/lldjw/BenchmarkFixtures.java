@@ -0,0 +1,131 @@
+/*
+ * This file is part of the LLDJW distribution (https://github.com/LLDJW/LLDJW).
+ * Copyright (c) 2020 LLDJW Contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.lldjw;
+
+import com.github.lldjw.internal.etf.EtfWriter;
+import com.github.lldjw.internal.json.JsonReader;
+import de.arraying.kotys.JSON;
+import de.arraying.kotys.JSONArray;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Loads the bundled gateway payloads. Every fixture is a complete DISPATCH frame, as received from the gateway.
+ */
+final class BenchmarkFixtures {
+
+    static final String READY = "ready";
+    static final String GUILD_CREATE = "guild_create";
+    static final String MESSAGE_CREATE = "message_create";
+    static final String PRESENCE_UPDATE = "presence_update";
+
+    private static final Pattern SNOWFLAKE = Pattern.compile("[0-9]{15,19}");
+
+    private BenchmarkFixtures() {}
+
+    /**
+     * Loads the frame of a fixture.
+     * @param name The name of the fixture.
+     * @return The UTF-8 encoded frame.
+     */
+    static byte[] frame(String name) {
+        try(InputStream in = BenchmarkFixtures.class.getResourceAsStream("/fixtures/" + name + ".json")) {
+            if(in == null) {
+                throw new IllegalArgumentException("unknown fixture " + name);
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return out.toByteArray();
+        } catch(IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+    }
+
+    /**
+     * Loads the data (the d field) of a fixture.
+     * @param name The name of the fixture.
+     * @return The UTF-8 encoded data.
+     */
+    static byte[] data(String name) {
+        byte[] frame = frame(name);
+        JsonReader reader = new JsonReader(frame);
+        reader.beginObject();
+        while(reader.hasNext()) {
+            if(reader.nextName().equals("d")) {
+                int start = reader.slice().position();
+                byte[] data = new byte[reader.position() - start];
+                System.arraycopy(frame, start, data, 0, data.length);
+                return data;
+            }
+            reader.skipValue();
+        }
+        throw new IllegalArgumentException("fixture " + name + " has no data");
+    }
+
+    /**
+     * Gets the data of a fixture as a string.
+     * @param name The name of the fixture.
+     * @return The data.
+     */
+    static String dataString(String name) {
+        return new String(data(name), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Loads the frame of a fixture, and encodes it as ETF, the way Discord would send it:
+     * snowflakes are integers instead of strings.
+     * @param name The name of the fixture.
+     * @return The ETF encoded frame.
+     */
+    static byte[] etfFrame(String name) {
+        return EtfWriter.write(etf(new JSON(new String(frame(name), StandardCharsets.UTF_8))));
+    }
+
+    private static Object etf(Object value) {
+        if(value instanceof JSON) {
+            Map<String, Object> map = new LinkedHashMap<>();
+            for(Map.Entry<String, Object> entry : ((JSON) value).raw().entrySet()) {
+                map.put(entry.getKey(), etf(entry.getValue()));
+            }
+            return map;
+        }
+        if(value instanceof JSONArray) {
+            JSONArray array = (JSONArray) value;
+            Object[] values = new Object[array.length()];
+            for(int i = 0; i < values.length; i++) {
+                values[i] = etf(array.object(i));
+            }
+            return values;
+        }
+        if(value instanceof String && SNOWFLAKE.matcher((String) value).matches()) {
+            return Long.parseLong((String) value);
+        }
+        return value;
+    }
+
+}
@@ -0,0 +1,68 @@
+/*
+ * This file is part of the LLDJW distribution (https://github.com/LLDJW/LLDJW).
+ * Copyright (c) 2020 LLDJW Contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.lldjw;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+
+/**
+ * The entry point of benchmarks.jar. It accepts the same options as JMH, but writes JSON results to
+ * jmh-&lt;version&gt;.json unless another result format or file is specified, so releases can be compared.
+ */
+public final class BenchmarkRunner {
+
+    private BenchmarkRunner() {}
+
+    /**
+     * Runs the benchmarks.
+     * @param args The JMH command line options.
+     * @throws Exception If the options are invalid, or a benchmark fails.
+     */
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions cli = new CommandLineOptions(args);
+        if(cli.shouldHelp() || cli.shouldList() || cli.shouldListProfilers() || cli.shouldListResultFormats()) {
+            org.openjdk.jmh.Main.main(args);
+            return;
+        }
+        ChainedOptionsBuilder options = new OptionsBuilder().parent(cli);
+        if(!cli.getResultFormat().hasValue()) {
+            options.resultFormat(ResultFormatType.JSON);
+        }
+        if(!cli.getResult().hasValue()) {
+            options.result("jmh-" + version() + ".json");
+        }
+        new Runner(options.build()).run();
+    }
+
+    private static String version() throws IOException {
+        Properties properties = new Properties();
+        try(InputStream in = BenchmarkRunner.class.getResourceAsStream("/benchmarks.properties")) {
+            if(in != null) {
+                properties.load(in);
+            }
+        }
+        return properties.getProperty("version", "unknown");
+    }
+
+}
@@ -0,0 +1,107 @@
+/*
+ * This file is part of the LLDJW distribution (https://github.com/LLDJW/LLDJW).
+ * Copyright (c) 2020 LLDJW Contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.lldjw;
+
+import com.github.lldjw.api.entity.Lookup;
+import com.github.lldjw.api.entity.User;
+import com.github.lldjw.internal.rest.RestCoalescer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Checks the coalescing of REST lookups (see {@link RestCoalescer}) against a local {@link FakeRest}, whose responses
+ * take long enough for concurrent lookups to overlap:
+ * <ul>
+ *     <li>{@link #LOOKUPS} concurrent lookups of the same user send a single request, and all get the user;</li>
+ *     <li>as many concurrent lookups of a missing user send a single request, and all get null;</li>
+ *     <li>lookups of the missing user that follow are answered by the negative cache, without a request.</li>
+ * </ul>
+ * Exits with status 1 if any of these does not hold.
+ *
+ * Usage: {@code java -cp benchmarks.jar com.github.lldjw.CoalescingCheck}.
+ */
+public final class CoalescingCheck {
+
+    private static final int LOOKUPS = 32;
+    private static final long LATENCY = 200;
+    private static final long USER = 661720685151912044L;
+    private static final long MISSING = USER + 1;
+
+    private CoalescingCheck() {}
+
+    /**
+     * Runs the check.
+     * @param args Ignored.
+     * @throws Exception If a lookup could not be run.
+     */
+    public static void main(String[] args) throws Exception {
+        boolean passed = true;
+        try(FakeRest server = new FakeRest(Integer.MAX_VALUE, 1000, LATENCY)) {
+            server.missing(MISSING);
+            LLDJW client = new LLDJW("check");
+            client.useApiBase(server.url());
+            ExecutorService threads = Executors.newFixedThreadPool(LOOKUPS);
+            try {
+                List<User> found = lookUp(client, threads, USER);
+                passed &= check("concurrent lookups of a user send 1 request", server.requests("users/" + USER), 1);
+                passed &= check("concurrent lookups of a user find it", found.stream().filter(user -> user != null && user.getId() == USER).count(), LOOKUPS);
+                List<User> missing = lookUp(client, threads, MISSING);
+                passed &= check("concurrent lookups of a missing user send 1 request", server.requests("users/" + MISSING), 1);
+                passed &= check("concurrent lookups of a missing user find nothing", missing.stream().filter(user -> user == null).count(), LOOKUPS);
+                for(int i = 0; i < LOOKUPS; i++) {
+                    client.lookupUser(MISSING, Lookup.REST);
+                }
+                passed &= check("later lookups of a missing user are cached", server.requests("users/" + MISSING), 1);
+            } finally {
+                threads.shutdownNow();
+            }
+        }
+        System.out.println(passed ? "PASSED" : "FAILED");
+        if(!passed) {
+            System.exit(1);
+        }
+    }
+
+    private static List<User> lookUp(LLDJW client, ExecutorService threads, long id) throws InterruptedException, ExecutionException {
+        CyclicBarrier start = new CyclicBarrier(LOOKUPS);
+        List<Future<User>> lookups = new ArrayList<>();
+        for(int i = 0; i < LOOKUPS; i++) {
+            lookups.add(threads.submit(() -> {
+                start.await();
+                return client.lookupUser(id, Lookup.REST);
+            }));
+        }
+        List<User> users = new ArrayList<>();
+        for(Future<User> lookup : lookups) {
+            users.add(lookup.get());
+        }
+        return users;
+    }
+
+    private static boolean check(String description, long actual, long expected) {
+        boolean passed = actual == expected;
+        System.out.printf("%s %s: %d, expected %d%n", passed ? "ok  " : "FAIL", description, actual, expected);
+        return passed;
+    }
+
+}
@@ -0,0 +1,100 @@
+/*
+ * This file is part of the LLDJW distribution (https://github.com/LLDJW/LLDJW).
+ * Copyright (c) 2020 LLDJW Contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.lldjw;
+
+import com.github.lldjw.api.entity.CacheLevel;
+import com.github.lldjw.api.event.Event;
+import com.github.lldjw.api.event.LLDJWEventHandler;
+import com.github.lldjw.internal.json.JsonReader;
+import com.github.lldjw.internal.payload.PayloadReader;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Dispatching of a MESSAGE_CREATE through {@link LLDJW}, from the data of the frame to the event handlers.
+ * The handlers only consume the event, so this measures the overhead of LLDJW, including building the event,
+ * unless they read the content of the message from the event (see {@link Event#getReader()} and
+ * {@link Event#getData()}). Run with {@code -prof gc} for the bytes allocated per event (gc.alloc.rate.norm).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class DispatchBenchmark {
+
+    /**
+     * NONE: no handlers, TYPED: a MessageCreate handler, OTHER: a handler of another type, GENERIC: a Generic handler,
+     * READER: a MessageCreate handler that reads the content field by field, DATA: one that reads it from the tree.
+     */
+    @Param({"NONE", "TYPED", "OTHER", "GENERIC", "READER", "DATA"})
+    public String handlers;
+
+    @Param({"NONE", "ALL"})
+    public CacheLevel cacheLevel;
+
+    private LLDJW client;
+    private byte[] data;
+
+    @Setup
+    public void setup(Blackhole blackhole) {
+        data = BenchmarkFixtures.data(BenchmarkFixtures.MESSAGE_CREATE);
+        client = new LLDJW("benchmark");
+        client.useCacheLevel(cacheLevel);
+        switch(handlers) {
+            case "TYPED":
+                client.setEventHandlers((LLDJWEventHandler.MessageCreate) blackhole::consume);
+                break;
+            case "OTHER":
+                client.setEventHandlers((LLDJWEventHandler.PresenceUpdate) blackhole::consume);
+                break;
+            case "GENERIC":
+                client.setEventHandlers((LLDJWEventHandler.Generic) blackhole::consume);
+                break;
+            case "READER":
+                client.setEventHandlers((LLDJWEventHandler.MessageCreate) event -> blackhole.consume(content(event)));
+                break;
+            case "DATA":
+                client.setEventHandlers((LLDJWEventHandler.MessageCreate) event -> blackhole.consume(event.getData().string("content")));
+                break;
+        }
+    }
+
+    @Benchmark
+    public void dispatch() {
+        client.dispatch("MESSAGE_CREATE", new JsonReader(data));
+    }
+
+    private static String content(Event event) {
+        PayloadReader reader = event.getReader();
+        String content = null;
+        reader.beginObject();
+        while(reader.hasNext()) {
+            if(reader.nextName().equals("content")) {
+                content = reader.nextString();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return content;
+    }
+
+}
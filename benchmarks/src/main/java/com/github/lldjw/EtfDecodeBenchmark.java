@@ -0,0 +1,118 @@
+/*
+ * This file is part of the LLDJW distribution (https://github.com/LLDJW/LLDJW).
+ * Copyright (c) 2020 LLDJW Contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.lldjw;
+
+import com.github.lldjw.api.entity.CacheLevel;
+import com.github.lldjw.api.gateway.GatewayEncoding;
+import com.github.lldjw.internal.etf.EtfReader;
+import com.github.lldjw.internal.json.JsonReader;
+import com.github.lldjw.internal.payload.PayloadReader;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The JSON and ETF gateway encodings, on the same payloads. The ETF frames are converted from the JSON fixtures,
+ * with snowflakes as integers, as Discord sends them.
+ * Both encodings are read through {@link PayloadReader}, so the entities are populated by the same code.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class EtfDecodeBenchmark {
+
+    @Param({BenchmarkFixtures.READY, BenchmarkFixtures.GUILD_CREATE, BenchmarkFixtures.MESSAGE_CREATE, BenchmarkFixtures.PRESENCE_UPDATE})
+    public String fixture;
+
+    @Param({"JSON", "ETF"})
+    public GatewayEncoding encoding;
+
+    private byte[] frame;
+    private LLDJW client;
+
+    @Setup
+    public void setup() {
+        frame = encoding == GatewayEncoding.ETF ? BenchmarkFixtures.etfFrame(fixture) : BenchmarkFixtures.frame(fixture);
+        client = new LLDJW("benchmark");
+        client.useCacheLevel(CacheLevel.ALL);
+    }
+
+    /**
+     * Reads the envelope, and skips over the data.
+     * @param blackhole Consumes the envelope.
+     */
+    @Benchmark
+    public void envelope(Blackhole blackhole) {
+        PayloadReader reader = reader();
+        reader.beginObject();
+        while(reader.hasNext()) {
+            switch(reader.nextName()) {
+                case "op":
+                    blackhole.consume(reader.nextInt());
+                    break;
+                case "t":
+                    blackhole.consume(reader.nextInterned());
+                    break;
+                case "s":
+                    blackhole.consume(reader.nextLong());
+                    break;
+                case "d":
+                    blackhole.consume(reader.slice());
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        reader.endObject();
+    }
+
+    /**
+     * Reads the envelope, and dispatches the data, which populates the cache.
+     */
+    @Benchmark
+    public void dispatch() {
+        PayloadReader reader = reader();
+        String type = null;
+        PayloadReader data = null;
+        reader.beginObject();
+        while(reader.hasNext()) {
+            switch(reader.nextName()) {
+                case "t":
+                    type = reader.nextInterned();
+                    break;
+                case "d":
+                    data = reader.slice();
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        reader.endObject();
+        client.dispatch(type, data);
+    }
+
+    private PayloadReader reader() {
+        return encoding == GatewayEncoding.ETF ? new EtfReader(frame) : new JsonReader(frame);
+    }
+
+}
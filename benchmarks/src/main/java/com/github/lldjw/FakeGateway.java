@@ -0,0 +1,250 @@
+/*
+ * This file is part of the LLDJW distribution (https://github.com/LLDJW/LLDJW).
+ * Copyright (c) 2020 LLDJW Contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.lldjw;
+
+import com.github.lldjw.internal.LLDJWConstants;
+import com.github.lldjw.internal.json.JsonReader;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+
+/**
+ * A local gateway that speaks just enough of the websocket protocol (uncompressed, JSON) to benchmark the client.
+ * On IDENTIFY it sends READY and a GUILD_CREATE per guild; on RESUME it replays MESSAGE_CREATE events followed by
+ * RESUMED. Both end with a TYPING_START, which marks the end of the replay for the benchmark.
+ * Every connection is served by its own thread.
+ */
+final class FakeGateway implements Closeable {
+
+    private static final String WEBSOCKET_GUID = "258EAFA5-E914-47DA-95CA-C5AB0DC85B11";
+    private static final byte[] HELLO = frame(LLDJWConstants.API_GATEWAY_OP_HELLO, null, "{\"heartbeat_interval\":41250}");
+    private static final byte[] ACK = frame(LLDJWConstants.API_GATEWAY_OP_HEARTBEAT_ACK, null, "null");
+    private static final byte[] RESUMED = frame(LLDJWConstants.API_GATEWAY_OP_DISPATCH, "RESUMED", "{\"_trace\":[]}");
+    private static final byte[] FENCE = frame(LLDJWConstants.API_GATEWAY_OP_DISPATCH, "TYPING_START",
+            "{\"user_id\":\"1\",\"timestamp\":0,\"channel_id\":\"1\"}");
+
+    private final ServerSocket server;
+    private final int guilds;
+    private final int missed;
+    private final byte[] ready = BenchmarkFixtures.frame(BenchmarkFixtures.READY);
+    private final byte[] guildCreate = BenchmarkFixtures.frame(BenchmarkFixtures.GUILD_CREATE);
+    private final byte[] messageCreate = BenchmarkFixtures.frame(BenchmarkFixtures.MESSAGE_CREATE);
+
+    /**
+     * Starts a new gateway on a free local port.
+     * @param guilds The amount of GUILD_CREATE payloads after READY.
+     * @param missed The amount of events that are replayed on RESUME.
+     * @throws IOException If the server socket could not be opened.
+     */
+    FakeGateway(int guilds, int missed) throws IOException {
+        this.server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        this.guilds = guilds;
+        this.missed = missed;
+        Thread acceptor = new Thread(this::accept, "FakeGateway-Accept");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    /**
+     * Gets the URL of the gateway.
+     * @return The URL.
+     */
+    String url() {
+        return "ws://127.0.0.1:" + server.getLocalPort() + "/";
+    }
+
+    @Override
+    public void close() throws IOException {
+        server.close();
+    }
+
+    private void accept() {
+        while(!server.isClosed()) {
+            try {
+                Socket socket = server.accept();
+                socket.setTcpNoDelay(true);
+                Thread connection = new Thread(() -> serve(socket), "FakeGateway-Connection");
+                connection.setDaemon(true);
+                connection.start();
+            } catch(IOException ignored) { // Closed.
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        try(Socket ignored = socket) {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            OutputStream out = socket.getOutputStream();
+            handshake(in, out);
+            send(out, HELLO);
+            byte[] payload;
+            while((payload = receive(in, out)) != null) {
+                switch(op(payload)) {
+                    case LLDJWConstants.API_GATEWAY_OP_HEARTBEAT:
+                        send(out, ACK);
+                        break;
+                    case LLDJWConstants.API_GATEWAY_OP_IDENTIFY:
+                        send(out, ready);
+                        for(int i = 0; i < guilds; i++) {
+                            send(out, guildCreate);
+                        }
+                        send(out, FENCE);
+                        break;
+                    case LLDJWConstants.API_GATEWAY_OP_RESUME:
+                        for(int i = 0; i < missed; i++) {
+                            send(out, messageCreate);
+                        }
+                        send(out, RESUMED);
+                        send(out, FENCE);
+                        break;
+                }
+                out.flush();
+            }
+        } catch(IOException ignored) { // The client went away.
+        }
+    }
+
+    private static void handshake(DataInputStream in, OutputStream out) throws IOException {
+        String key = null;
+        String line;
+        while(!(line = readLine(in)).isEmpty()) {
+            if(line.regionMatches(true, 0, "Sec-WebSocket-Key:", 0, 18)) {
+                key = line.substring(18).trim();
+            }
+        }
+        if(key == null) {
+            throw new IOException("not a websocket handshake");
+        }
+        String accept;
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest((key + WEBSOCKET_GUID).getBytes(StandardCharsets.US_ASCII));
+            accept = Base64.getEncoder().encodeToString(digest);
+        } catch(NoSuchAlgorithmException exception) {
+            throw new IllegalStateException(exception);
+        }
+        out.write(("HTTP/1.1 101 Switching Protocols\r\n"
+                + "Upgrade: websocket\r\n"
+                + "Connection: Upgrade\r\n"
+                + "Sec-WebSocket-Accept: " + accept + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+        out.flush();
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        StringBuilder line = new StringBuilder();
+        int next;
+        while((next = in.read()) != '\n') {
+            if(next == -1) {
+                throw new IOException("connection closed during handshake");
+            }
+            if(next != '\r') {
+                line.append((char) next);
+            }
+        }
+        return line.toString();
+    }
+
+    /**
+     * Receives the next text frame from the client. Control frames are answered.
+     * @return The payload, or null if the connection was closed.
+     */
+    private static byte[] receive(DataInputStream in, OutputStream out) throws IOException {
+        while(true) {
+            int first = in.read();
+            if(first == -1) {
+                return null;
+            }
+            int second = in.readUnsignedByte();
+            long length = second & 0x7F;
+            if(length == 126) {
+                length = in.readUnsignedShort();
+            } else if(length == 127) {
+                length = in.readLong();
+            }
+            byte[] mask = new byte[4];
+            if((second & 0x80) != 0) {
+                in.readFully(mask);
+            }
+            byte[] payload = new byte[(int) length];
+            in.readFully(payload);
+            for(int i = 0; i < payload.length; i++) {
+                payload[i] ^= mask[i & 3];
+            }
+            switch(first & 0x0F) {
+                case 0x1: // Text.
+                    return payload;
+                case 0x8: // Close, echoed.
+                    writeFrame(out, 0x8, payload);
+                    out.flush();
+                    return null;
+                case 0x9: // Ping.
+                    writeFrame(out, 0xA, payload);
+                    out.flush();
+                    break;
+            }
+        }
+    }
+
+    private static void send(OutputStream out, byte[] payload) throws IOException {
+        writeFrame(out, 0x1, payload);
+    }
+
+    private static void writeFrame(OutputStream out, int opcode, byte[] payload) throws IOException {
+        out.write(0x80 | opcode);
+        if(payload.length < 126) {
+            out.write(payload.length);
+        } else if(payload.length <= 0xFFFF) {
+            out.write(126);
+            out.write(payload.length >>> 8);
+            out.write(payload.length);
+        } else {
+            out.write(127);
+            for(int shift = 56; shift >= 0; shift -= 8) {
+                out.write((int) ((long) payload.length >>> shift));
+            }
+        }
+        out.write(payload);
+    }
+
+    private static int op(byte[] payload) {
+        JsonReader reader = new JsonReader(payload);
+        reader.beginObject();
+        while(reader.hasNext()) {
+            if("op".equals(reader.nextName())) {
+                return reader.nextInt();
+            }
+            reader.skipValue();
+        }
+        return -1;
+    }
+
+    private static byte[] frame(int op, String type, String data) {
+        String t = type == null ? "null" : "\"" + type + "\"";
+        return ("{\"t\":" + t + ",\"s\":null,\"op\":" + op + ",\"d\":" + data + "}").getBytes(StandardCharsets.UTF_8);
+    }
+
+}
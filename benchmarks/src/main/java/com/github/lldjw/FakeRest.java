@@ -0,0 +1,256 @@
+/*
+ * This file is part of the LLDJW distribution (https://github.com/LLDJW/LLDJW).
+ * Copyright (c) 2020 LLDJW Contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.lldjw;
+
+import com.github.lldjw.internal.rest.RateLimiter;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A local REST API that speaks just enough of Discord's to benchmark and check the REST client.
+ * Every route (per major parameter, see {@link RateLimiter#route(String, String)}) is a bucket that allows a fixed
+ * amount of requests per window, announced in the X-RateLimit headers like Discord does. A request over the limit
+ * is answered with a 429 and counted. The global rate limit is not enforced.
+ *
+ * {@code GET users/<id>} answers a user, or a 404 if the user was marked as missing. Every other request answers
+ * an empty object, except {@code GET gateway/bot} once it is configured (see {@link #gatewayBot}). Every response is
+ * delayed by a fixed latency, and every request is counted per path.
+ */
+final class FakeRest implements Closeable {
+
+    /**
+     * The session starts per day, as answered by {@code GET gateway/bot}.
+     */
+    static final int SESSION_STARTS = 1000;
+
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "FakeRest-Connection");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final int limit;
+    private final long window;
+    private final long latency;
+    private final Map<String, Bucket> buckets = new HashMap<>(); // Guarded by itself.
+    private final Set<String> missing = ConcurrentHashMap.newKeySet();
+    private final ConcurrentHashMap<String, LongAdder> requests = new ConcurrentHashMap<>();
+    private final AtomicInteger rateLimited = new AtomicInteger();
+    private volatile GatewayBot gatewayBot;
+
+    /**
+     * Starts a new REST API on a free local port.
+     * @param limit The amount of requests per window in every bucket.
+     * @param window The length of a window, in milliseconds.
+     * @param latency The delay of every response, in milliseconds.
+     * @throws IOException If the server could not be started.
+     */
+    FakeRest(int limit, long window, long latency) throws IOException {
+        this.limit = limit;
+        this.window = TimeUnit.MILLISECONDS.toNanos(window);
+        this.latency = latency;
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 50);
+        server.setExecutor(executor);
+        server.createContext("/", this::serve);
+        server.start();
+    }
+
+    /**
+     * Gets the base URL of the API.
+     * @return The URL.
+     */
+    String url() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/";
+    }
+
+    /**
+     * Marks a user as missing, so that requesting it answers a 404.
+     * @param id The ID of the user.
+     */
+    void missing(long id) {
+        missing.add("users/" + id);
+    }
+
+    /**
+     * Configures the answer of {@code GET gateway/bot}.
+     * @param url The URL of the gateway.
+     * @param shards The recommended amount of shards.
+     * @param maxConcurrency The max_concurrency of the session start limit.
+     * @param remaining The remaining session starts, until the limit resets.
+     * @param resetAfter The time until the limit resets, in milliseconds, after which {@value #SESSION_STARTS}
+     * sessions remain.
+     */
+    void gatewayBot(String url, int shards, int maxConcurrency, int remaining, long resetAfter) {
+        gatewayBot = new GatewayBot(url, shards, maxConcurrency, remaining,
+                System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(resetAfter));
+    }
+
+    /**
+     * Gets the amount of requests of a path.
+     * @param path The path, relative to the base URL.
+     * @return The amount of requests.
+     */
+    long requests(String path) {
+        LongAdder count = requests.get(path);
+        return count == null ? 0 : count.sum();
+    }
+
+    /**
+     * Gets the amount of requests that were answered with a 429 since this was last called.
+     * @return The amount of requests.
+     */
+    int takeRateLimited() {
+        return rateLimited.getAndSet(0);
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void serve(HttpExchange exchange) throws IOException {
+        try {
+            try(InputStream in = exchange.getRequestBody()) {
+                while(in.read() != -1) { // Drain the body, so that the connection is reused.
+                }
+            }
+            String method = exchange.getRequestMethod().toUpperCase(Locale.ROOT);
+            String path = exchange.getRequestURI().getPath().substring(1);
+            requests.computeIfAbsent(path, key -> new LongAdder()).increment();
+            if(latency > 0) {
+                try {
+                    TimeUnit.MILLISECONDS.sleep(latency);
+                } catch(InterruptedException exception) { // Closed.
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+            String route = RateLimiter.route(method, path);
+            Bucket bucket;
+            synchronized(buckets) {
+                bucket = buckets.computeIfAbsent(route, key -> new Bucket());
+            }
+            long resetAfter; // In nanoseconds.
+            int remaining;
+            synchronized(bucket) {
+                long now = System.nanoTime();
+                if(now - bucket.start >= window) {
+                    bucket.start = now;
+                    bucket.count = 0;
+                }
+                resetAfter = bucket.start + window - now;
+                remaining = limit - bucket.count;
+                if(remaining > 0) {
+                    bucket.count++;
+                    remaining--;
+                } else {
+                    remaining = -1;
+                }
+            }
+            long millis = (resetAfter + 999_999) / 1_000_000; // Rounded up, like Discord.
+            String seconds = String.format(Locale.ROOT, "%.3f", millis / 1000.0);
+            exchange.getResponseHeaders().set("X-RateLimit-Limit", Integer.toString(limit));
+            exchange.getResponseHeaders().set("X-RateLimit-Remaining", Integer.toString(Math.max(remaining, 0)));
+            exchange.getResponseHeaders().set("X-RateLimit-Reset-After", seconds);
+            exchange.getResponseHeaders().set("X-RateLimit-Bucket", Integer.toHexString(route.hashCode()));
+            if(remaining < 0) {
+                rateLimited.incrementAndGet();
+                respond(exchange, 429, "{\"message\":\"You are being rate limited.\",\"retry_after\":"
+                        + millis + ",\"global\":false}");
+            } else if(missing.contains(path)) {
+                respond(exchange, 404, "{\"message\":\"Unknown User\",\"code\":10013}");
+            } else if(method.equals("GET") && path.equals("gateway/bot") && gatewayBot != null) {
+                respond(exchange, 200, gatewayBot.json());
+            } else if(method.equals("GET") && path.startsWith("users/")) {
+                respond(exchange, 200, "{\"id\":\"" + path.substring(6) + "\",\"username\":\"user\",\"discriminator\":\"0001\",\"avatar\":null}");
+            } else {
+                respond(exchange, 200, "{}");
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int code, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(code, bytes.length);
+        try(OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * The answer of {@code GET gateway/bot}.
+     */
+    private static final class GatewayBot {
+
+        private final String url;
+        private final int shards;
+        private final int maxConcurrency;
+        private final int remaining;
+        private final long resetAt; // In System#nanoTime.
+
+        private GatewayBot(String url, int shards, int maxConcurrency, int remaining, long resetAt) {
+            this.url = url;
+            this.shards = shards;
+            this.maxConcurrency = maxConcurrency;
+            this.remaining = remaining;
+            this.resetAt = resetAt;
+        }
+
+        private String json() {
+            long resetAfter = TimeUnit.NANOSECONDS.toMillis(resetAt - System.nanoTime());
+            boolean reset = resetAfter <= 0;
+            return "{\"url\":\"" + url + "\",\"shards\":" + shards + ",\"session_start_limit\":{\"total\":" + SESSION_STARTS
+                    + ",\"remaining\":" + (reset ? SESSION_STARTS : remaining)
+                    + ",\"reset_after\":" + (reset ? TimeUnit.DAYS.toMillis(1) : resetAfter)
+                    + ",\"max_concurrency\":" + maxConcurrency + "}}";
+        }
+
+    }
+
+    /**
+     * The current window of a bucket.
+     */
+    private static final class Bucket {
+
+        private long start = System.nanoTime();
+        private int count;
+
+    }
+
+}
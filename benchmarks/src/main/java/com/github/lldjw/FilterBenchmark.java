@@ -0,0 +1,68 @@
+/*
+ * This file is part of the LLDJW distribution (https://github.com/LLDJW/LLDJW).
+ * Copyright (c) 2020 LLDJW Contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.lldjw;
+
+import com.github.lldjw.api.entity.CacheLevel;
+import com.github.lldjw.api.event.EventType;
+import com.github.lldjw.api.event.LLDJWEventHandler;
+import com.github.lldjw.internal.json.JsonReader;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Handling of complete frames by the gateway, for events that a client does not want.
+ * ALL: every event is dispatched to a generic handler, which builds the event. ALLOWLIST: the same handler,
+ * but only READY is allowed, so the frame is dropped after reading the op, type and sequence.
+ * The cache is disabled, since it would need GUILD_CREATE.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class FilterBenchmark {
+
+    @Param({BenchmarkFixtures.PRESENCE_UPDATE, BenchmarkFixtures.MESSAGE_CREATE, BenchmarkFixtures.GUILD_CREATE})
+    public String fixture;
+
+    @Param({"ALL", "ALLOWLIST"})
+    public String filter;
+
+    private byte[] frame;
+    private LLDJWGateway gateway;
+
+    @Setup
+    public void setup(Blackhole blackhole) {
+        frame = BenchmarkFixtures.frame(fixture);
+        LLDJW client = new LLDJW("benchmark");
+        client.useCacheLevel(CacheLevel.NONE);
+        client.setEventHandlers((LLDJWEventHandler.Generic) blackhole::consume);
+        if(filter.equals("ALLOWLIST")) {
+            client.useEventAllowlist(EventType.READY);
+        }
+        gateway = client.gateway();
+    }
+
+    @Benchmark
+    public void handle() {
+        gateway.handle(new JsonReader(frame));
+    }
+
+}
@@ -0,0 +1,117 @@
+/*
+ * This file is part of the LLDJW distribution (https://github.com/LLDJW/LLDJW).
+ * Copyright (c) 2020 LLDJW Contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.lldjw;
+
+import com.github.lldjw.internal.cache.LongMap;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.BenchmarkParams;
+
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The memory per entry of {@link LongMap}, versus a boxed {@link ConcurrentHashMap}, which complements the lookup
+ * latency of {@link LookupBenchmark}. Every invocation fills a new map with random snowflakes, all mapped to the same
+ * value, so that only the map itself is measured. The retained heap is measured around a forced GC before and
+ * after filling the map, and bytesPerEntry is the difference divided by the amount of entries.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class FootprintBenchmark {
+
+    private static final long BASE = 661720246683566081L;
+    private static final Object VALUE = new Object();
+
+    @Param({"LONG_MAP", "CONCURRENT_HASH_MAP"})
+    public String map;
+
+    @Param({"1000000", "4000000"})
+    public int entries;
+
+    private long[] keys;
+    private Object retained;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Random random = new Random(0);
+        keys = new long[entries];
+        for(int i = 0; i < keys.length; i++) {
+            keys[i] = BASE + ((long) i << 22) + random.nextInt(1 << 22); // One snowflake per millisecond.
+        }
+    }
+
+    @TearDown(Level.Invocation)
+    public void release() {
+        retained = null;
+    }
+
+    @Benchmark
+    public void fill(Counters counters) {
+        long before = retainedHeap();
+        if(map.equals("LONG_MAP")) {
+            LongMap<Object> longMap = new LongMap<>();
+            for(long key : keys) {
+                longMap.put(key, VALUE);
+            }
+            retained = longMap;
+        } else {
+            ConcurrentHashMap<Long, Object> boxedMap = new ConcurrentHashMap<>();
+            for(long key : keys) {
+                boxedMap.put(key, VALUE);
+            }
+            retained = boxedMap;
+        }
+        counters.record((double) (retainedHeap() - before) / entries);
+    }
+
+    /**
+     * The memory per entry, averaged over the iterations.
+     */
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Counters {
+
+        public double bytesPerEntry;
+        private int iterations;
+
+        @Setup(Level.Trial)
+        public void setup(BenchmarkParams params) {
+            iterations = params.getMeasurement().getCount();
+        }
+
+        void record(double value) {
+            bytesPerEntry = value / iterations; // JMH sums events over the iterations, which then is their average.
+        }
+
+    }
+
+    private static long retainedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        long used = Long.MAX_VALUE;
+        for(int i = 0; i < 3; i++) { // Until the heap settles.
+            System.gc();
+            used = Math.min(used, runtime.totalMemory() - runtime.freeMemory());
+        }
+        return used;
+    }
+
+}
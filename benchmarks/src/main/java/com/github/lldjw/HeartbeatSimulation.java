@@ -0,0 +1,159 @@
+/*
+ * This file is part of the LLDJW distribution (https://github.com/LLDJW/LLDJW).
+ * Copyright (c) 2020 LLDJW Contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.lldjw;
+
+import com.github.lldjw.api.metrics.HistogramSnapshot;
+import com.github.lldjw.internal.gateway.TimerWheel;
+import com.github.lldjw.internal.metrics.Histogram;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Simulates the heartbeats of many shards in one process, to compare the shared {@link TimerWheel} with a
+ * scheduled thread per shard. Every shard heartbeats at a fixed rate, and a simulated gateway acknowledges
+ * every heartbeat after a random round trip, except for a few zombie shards that are never acknowledged and
+ * reconnect with a backoff. The lateness of the heartbeats (the jitter) and the amount of live threads are
+ * printed every few seconds.
+ *
+ * Usage: {@code HeartbeatSimulation [wheel|executor] [shards] [interval ms] [seconds]},
+ * by default {@code wheel 500 1000 30}.
+ */
+public final class HeartbeatSimulation {
+
+    private final boolean wheel;
+    private final long interval;
+    private final TimerWheel timers = TimerWheel.shared();
+    private final List<ScheduledExecutorService> executors = new ArrayList<>();
+    private final Histogram jitter = new Histogram();
+    private final AtomicInteger zombies = new AtomicInteger();
+    private final AtomicInteger reconnects = new AtomicInteger();
+
+    private HeartbeatSimulation(boolean wheel, long interval) {
+        this.wheel = wheel;
+        this.interval = interval;
+    }
+
+    /**
+     * Runs the simulation.
+     * @param args See the class documentation.
+     * @throws InterruptedException If interrupted.
+     */
+    public static void main(String[] args) throws InterruptedException {
+        boolean wheel = args.length < 1 || !args[0].equals("executor");
+        int shards = args.length < 2 ? 500 : Integer.parseInt(args[1]);
+        long interval = args.length < 3 ? 1000 : Long.parseLong(args[2]);
+        long seconds = args.length < 4 ? 30 : Long.parseLong(args[3]);
+        HeartbeatSimulation simulation = new HeartbeatSimulation(wheel, interval);
+        int before = ManagementFactory.getThreadMXBean().getThreadCount();
+        for(int i = 0; i < shards; i++) {
+            simulation.new Shard(i % 50 == 49).start(); // 2% zombies.
+        }
+        for(long elapsed = 0; elapsed < seconds; elapsed += 5) {
+            Thread.sleep(5000);
+            HistogramSnapshot snapshot = simulation.jitter.snapshot();
+            System.out.printf("%3ds: threads=%d (+%d) heartbeats=%d jitter p50=%.2fms p99=%.2fms p999=%.2fms "
+                            + "max=%.2fms zombies detected=%d reconnects=%d%n",
+                    elapsed + 5, ManagementFactory.getThreadMXBean().getThreadCount(),
+                    ManagementFactory.getThreadMXBean().getThreadCount() - before, snapshot.getCount(),
+                    snapshot.getP50() / 1e6, snapshot.getP99() / 1e6, snapshot.getP999() / 1e6,
+                    snapshot.getMax() / 1e6, simulation.zombies.get(), simulation.reconnects.get());
+        }
+        for(ScheduledExecutorService executor : simulation.executors) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * A simulated shard, which mirrors the heartbeat logic of the gateway.
+     */
+    private final class Shard {
+
+        private final boolean zombie;
+        private ScheduledExecutorService executor;
+        private volatile boolean acknowledged = true;
+        private volatile long expected; // The deadline of the next heartbeat, in nanoseconds.
+        private Object timer;
+        private int attempts;
+
+        private Shard(boolean zombie) {
+            this.zombie = zombie;
+        }
+
+        private void start() {
+            long delay = (long) (interval * ThreadLocalRandom.current().nextDouble());
+            acknowledged = true;
+            expected = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delay);
+            if(wheel) {
+                timer = timers.scheduleAtFixedRate(this::heartbeat, delay, interval);
+                return;
+            }
+            if(executor == null) {
+                executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                    Thread thread = new Thread(runnable, "Heartbeat");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+                synchronized(executors) {
+                    executors.add(executor);
+                }
+            }
+            timer = executor.scheduleAtFixedRate(this::heartbeat, delay, interval, TimeUnit.MILLISECONDS);
+        }
+
+        private void heartbeat() {
+            jitter.record(System.nanoTime() - expected);
+            expected += TimeUnit.MILLISECONDS.toNanos(interval);
+            if(!acknowledged) {
+                zombies.incrementAndGet();
+                cancel();
+                long backoff = Math.min(60000, 1000L << Math.min(attempts++, 16));
+                schedule(this::start, backoff - ThreadLocalRandom.current().nextLong(backoff / 2 + 1));
+                reconnects.incrementAndGet();
+                return;
+            }
+            acknowledged = false;
+            if(!zombie) { // The gateway acknowledges after a round trip of 20 to 100 ms.
+                schedule(() -> acknowledged = true, ThreadLocalRandom.current().nextLong(20, 101));
+            }
+        }
+
+        private void cancel() {
+            if(timer instanceof TimerWheel.Timeout) {
+                ((TimerWheel.Timeout) timer).cancel();
+            } else {
+                ((java.util.concurrent.Future<?>) timer).cancel(false);
+            }
+        }
+
+        private void schedule(Runnable task, long delay) {
+            if(wheel) {
+                timers.schedule(task, delay);
+            } else {
+                executor.schedule(task, delay, TimeUnit.MILLISECONDS);
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,132 @@
+/*
+ * This file is part of the LLDJW distribution (https://github.com/LLDJW/LLDJW).
+ * Copyright (c) 2020 LLDJW Contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.lldjw;
+
+import com.github.lldjw.internal.json.JsonReader;
+import com.github.lldjw.internal.payload.PayloadReader;
+import de.arraying.kotys.JSON;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decoding of complete gateway frames: a Kotys tree of the frame, versus reading the envelope with the
+ * streaming reader, which is what the gateway does before dispatching. Handlers of an event get a copy of the data
+ * (see {@link #streamEnvelopeCopyData()}), which is decoded into a tree only if they ask for it
+ * (see {@link #streamEnvelopeKotysData()}). Run with {@code -prof gc} for the bytes allocated per frame.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class JsonDecodeBenchmark {
+
+    @Param({BenchmarkFixtures.READY, BenchmarkFixtures.GUILD_CREATE, BenchmarkFixtures.MESSAGE_CREATE, BenchmarkFixtures.PRESENCE_UPDATE})
+    public String fixture;
+
+    private byte[] frame;
+
+    @Setup
+    public void setup() {
+        frame = BenchmarkFixtures.frame(fixture);
+    }
+
+    /**
+     * Builds a Kotys tree of the frame, including the conversion of the received bytes.
+     * @return The tree.
+     */
+    @Benchmark
+    public JSON kotys() {
+        return new JSON(new String(frame, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Reads the envelope, and skips over the data.
+     * @param blackhole Consumes the envelope.
+     */
+    @Benchmark
+    public void streamEnvelope(Blackhole blackhole) {
+        JsonReader reader = new JsonReader(frame);
+        reader.beginObject();
+        while(reader.hasNext()) {
+            switch(reader.nextName()) {
+                case "op":
+                    blackhole.consume(reader.nextInt());
+                    break;
+                case "t":
+                    blackhole.consume(reader.nextInterned());
+                    break;
+                case "s":
+                    blackhole.consume(reader.nextLong());
+                    break;
+                case "d":
+                    blackhole.consume(reader.slice());
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        reader.endObject();
+    }
+
+    /**
+     * Reads the envelope, and then copies the data, which is what handlers of an event receive.
+     * @return The reader over the copy.
+     */
+    @Benchmark
+    public PayloadReader streamEnvelopeCopyData() {
+        JsonReader reader = new JsonReader(frame);
+        reader.beginObject();
+        PayloadReader data = null;
+        while(reader.hasNext()) {
+            if(reader.nextName().equals("d")) {
+                data = reader.copy();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return data;
+    }
+
+    /**
+     * Reads the envelope, and then builds a Kotys tree of only the data, which is what handlers of an event get
+     * from {@link com.github.lldjw.api.event.Event#getData()}.
+     * @return The tree of the data.
+     */
+    @Benchmark
+    public JSON streamEnvelopeKotysData() {
+        JsonReader reader = new JsonReader(frame);
+        reader.beginObject();
+        JSON data = null;
+        while(reader.hasNext()) {
+            if(reader.nextName().equals("d")) {
+                data = reader.nextJSON();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return data;
+    }
+
+}
@@ -0,0 +1,96 @@
+/*
+ * This file is part of the LLDJW distribution (https://github.com/LLDJW/LLDJW).
+ * Copyright (c) 2020 LLDJW Contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.lldjw;
+
+import com.github.lldjw.api.log.LLDJWLogDropPolicy;
+import com.github.lldjw.api.log.LLDJWLogLevel;
+import com.github.lldjw.internal.log.Log;
+import com.github.lldjw.internal.log.LogSLF4J;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Logging with the default logger and the SLF4J logger, for levels that are disabled (the common case, such as
+ * TRACE for every dispatch) and enabled. STDOUT is discarded while the benchmarks run.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class LogBenchmark {
+
+    private final Log log = new Log();
+    private final Log async = new Log(1 << 16, LLDJWLogDropPolicy.DROP);
+    private final LogSLF4J slf4j = new LogSLF4J();
+    private final String type = "MESSAGE_CREATE";
+    private final Long sequence = 4096L;
+    private PrintStream stdout;
+
+    @Setup
+    public void setup() {
+        stdout = System.out;
+        System.setOut(new PrintStream(new OutputStream() {
+            @Override
+            public void write(int b) {}
+
+            @Override
+            public void write(byte[] b, int off, int len) {}
+        }));
+        slf4j.setLevel(LLDJWLogLevel.INFO);
+    }
+
+    @TearDown
+    public void tearDown() {
+        System.setOut(stdout);
+    }
+
+    @Benchmark
+    public void disabledFixed() {
+        log.log(LLDJWLogLevel.TRACE, "Received dispatch %s", type);
+    }
+
+    @Benchmark
+    public void disabledVarargs() {
+        log.log(LLDJWLogLevel.TRACE, "Received dispatch %s at %d from %s", type, sequence, type);
+    }
+
+    @Benchmark
+    public void disabledSupplier() {
+        log.log(LLDJWLogLevel.TRACE, () -> "Received dispatch " + type);
+    }
+
+    @Benchmark
+    public void disabledSLF4J() {
+        slf4j.log(LLDJWLogLevel.TRACE, "Received dispatch %s", type);
+    }
+
+    @Benchmark
+    public void enabled() {
+        log.log(LLDJWLogLevel.INFO, "Received dispatch %s", type);
+    }
+
+    @Benchmark
+    public void enabledAsync() {
+        async.log(LLDJWLogLevel.INFO, "Received dispatch %s", type);
+    }
+
+}
@@ -0,0 +1,120 @@
+/*
+ * This file is part of the LLDJW distribution (https://github.com/LLDJW/LLDJW).
+ * Copyright (c) 2020 LLDJW Contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.lldjw;
+
+import com.github.lldjw.api.entity.CacheLevel;
+import com.github.lldjw.api.entity.Channel;
+import com.github.lldjw.api.entity.Guild;
+import com.github.lldjw.api.entity.GuildMember;
+import com.github.lldjw.api.entity.Lookup;
+import com.github.lldjw.api.entity.User;
+import com.github.lldjw.internal.Snowflake;
+import com.github.lldjw.internal.json.JsonReader;
+import de.arraying.kotys.JSON;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cache hits of the lookup methods. The cache is populated by dispatching the GUILD_CREATE fixture, and the
+ * benchmarks cycle through all cached IDs, so they are not dominated by a single hot slot.
+ * A boxed {@link ConcurrentHashMap} of the same users is the baseline. The memory per entry of both maps is
+ * compared by {@link FootprintBenchmark}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class LookupBenchmark {
+
+    private LLDJW client;
+    private long guild;
+    private long[] users;
+    private long[] channels;
+    private final Map<Long, User> baseline = new ConcurrentHashMap<>();
+
+    @Setup
+    public void setup() {
+        client = new LLDJW("benchmark");
+        client.useCacheLevel(CacheLevel.ALL);
+        client.dispatch("GUILD_CREATE", new JsonReader(BenchmarkFixtures.data(BenchmarkFixtures.GUILD_CREATE)));
+        JSON data = new JSON(BenchmarkFixtures.dataString(BenchmarkFixtures.GUILD_CREATE));
+        guild = Snowflake.of(data, "id");
+        users = new long[data.array("members").length()];
+        for(int i = 0; i < users.length; i++) {
+            users[i] = Snowflake.of(data.array("members").json(i).json("user"), "id");
+            baseline.put(users[i], client.lookupUser(users[i], Lookup.CACHE));
+        }
+        channels = new long[data.array("channels").length()];
+        for(int i = 0; i < channels.length; i++) {
+            channels[i] = Snowflake.of(data.array("channels").json(i), "id");
+        }
+    }
+
+    /**
+     * The position in the ID arrays, per thread.
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+
+        private int index;
+
+        int next(int length) {
+            int next = index++;
+            if(index >= length) {
+                index = 0;
+            }
+            return next;
+        }
+
+    }
+
+    @Benchmark
+    public User user(Cursor cursor) {
+        return client.lookupUser(users[cursor.next(users.length)], Lookup.CACHE);
+    }
+
+    @Benchmark
+    public User userGlobal(Cursor cursor) {
+        return client.lookupUser(users[cursor.next(users.length)], Lookup.GLOBAL);
+    }
+
+    @Benchmark
+    public User userBaseline(Cursor cursor) {
+        return baseline.get(users[cursor.next(users.length)]);
+    }
+
+    @Benchmark
+    public Channel channel(Cursor cursor) {
+        return client.lookupChannel(channels[cursor.next(channels.length)], Lookup.CACHE);
+    }
+
+    @Benchmark
+    public Guild guild() {
+        return client.lookupGuild(guild, Lookup.CACHE);
+    }
+
+    @Benchmark
+    public GuildMember member(Cursor cursor) {
+        return client.lookupGuildMember(guild, users[cursor.next(users.length)], Lookup.CACHE);
+    }
+
+}
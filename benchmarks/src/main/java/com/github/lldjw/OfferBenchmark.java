@@ -0,0 +1,127 @@
+/*
+ * This file is part of the LLDJW distribution (https://github.com/LLDJW/LLDJW).
+ * Copyright (c) 2020 LLDJW Contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.lldjw;
+
+import com.github.lldjw.api.entity.Guild;
+import com.github.lldjw.api.entity.GuildMember;
+import com.github.lldjw.api.entity.User;
+import com.github.lldjw.internal.Snowflake;
+import com.github.lldjw.internal.json.JsonReader;
+import de.arraying.kotys.JSON;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Population of entities, through {@link com.github.lldjw.api.entity.Assignable} (a Kotys tree)
+ * and {@link com.github.lldjw.api.entity.StreamAssignable} (directly from the bytes).
+ * The tree benchmarks exclude the decoding of the tree, see {@link JsonDecodeBenchmark} for that.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class OfferBenchmark {
+
+    private JSON guildTree;
+    private byte[] guildBytes;
+    private JSON userTree;
+    private byte[] userBytes;
+    private JSON memberTree;
+    private byte[] memberBytes;
+    private Guild guild;
+    private User user;
+    private GuildMember member;
+
+    @Setup
+    public void setup() {
+        guildBytes = BenchmarkFixtures.data(BenchmarkFixtures.GUILD_CREATE);
+        guildTree = new JSON(new String(guildBytes, StandardCharsets.UTF_8));
+        JSON message = new JSON(BenchmarkFixtures.dataString(BenchmarkFixtures.MESSAGE_CREATE));
+        userTree = message.json("author");
+        userBytes = userTree.marshal().getBytes(StandardCharsets.UTF_8);
+        memberTree = message.json("member");
+        memberBytes = memberTree.marshal().getBytes(StandardCharsets.UTF_8);
+        guild = new Guild(Snowflake.of(guildTree, "id"));
+        user = new User(Snowflake.of(userTree, "id"));
+        member = new GuildMember(guild.getId(), user.getId());
+    }
+
+    /**
+     * Offers a GUILD_CREATE tree; most of its (large) fields are not guild fields.
+     * @return The guild.
+     */
+    @Benchmark
+    public Guild guildTree() {
+        guild.offer(guildTree);
+        return guild;
+    }
+
+    /**
+     * Streams a GUILD_CREATE payload; the members, channels, etc. are skipped without being decoded.
+     * @return The guild.
+     */
+    @Benchmark
+    public Guild guildStream() {
+        guild.offer(new JsonReader(guildBytes));
+        return guild;
+    }
+
+    /**
+     * Offers a user tree.
+     * @return The user.
+     */
+    @Benchmark
+    public User userTree() {
+        user.offer(userTree);
+        return user;
+    }
+
+    /**
+     * Streams a user.
+     * @return The user.
+     */
+    @Benchmark
+    public User userStream() {
+        user.offer(new JsonReader(userBytes));
+        return user;
+    }
+
+    /**
+     * Offers a member tree, which includes the roles.
+     * @return The member.
+     */
+    @Benchmark
+    public GuildMember memberTree() {
+        member.offer(memberTree);
+        return member;
+    }
+
+    /**
+     * Streams a member.
+     * @return The member.
+     */
+    @Benchmark
+    public GuildMember memberStream() {
+        member.offer(new JsonReader(memberBytes));
+        return member;
+    }
+
+}
@@ -0,0 +1,100 @@
+/*
+ * This file is part of the LLDJW distribution (https://github.com/LLDJW/LLDJW).
+ * Copyright (c) 2020 LLDJW Contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.lldjw;
+
+import com.github.lldjw.api.entity.CacheLevel;
+import com.github.lldjw.api.event.LLDJWEventHandler;
+import com.github.lldjw.internal.json.JsonReader;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Handling of PRESENCE_UPDATE frames, with and without coalescing. A change of a user is sent once per mutual guild,
+ * so the frames cycle through {@link #USERS} users with {@link #GUILDS} presences each, sent back to back.
+ * The handler is counted: handled is the amount of events that reached it, which is the work left for handlers.
+ * Coalesced presences are handled on a control thread, which flushes the windows, since the executor runs them directly.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class PresenceBenchmark {
+
+    private static final int USERS = 1_000;
+    private static final int GUILDS = 10;
+
+    @Param({"0", "50"})
+    public long window;
+
+    private final AtomicLong handled = new AtomicLong();
+    private byte[][] frames;
+    private int next;
+    private LLDJWGateway gateway;
+
+    @Setup
+    public void setup(Blackhole blackhole) {
+        String frame = new String(BenchmarkFixtures.frame(BenchmarkFixtures.PRESENCE_UPDATE), StandardCharsets.UTF_8);
+        frames = new byte[USERS * GUILDS][];
+        for(int user = 0; user < USERS; user++) {
+            for(int guild = 0; guild < GUILDS; guild++) {
+                frames[user * GUILDS + guild] = frame
+                        .replace("661720685151912044", String.valueOf(661720685151912044L + user))
+                        .replace("661720246683566081", String.valueOf(661720246683566081L + guild))
+                        .getBytes(StandardCharsets.UTF_8);
+            }
+        }
+        LLDJW client = new LLDJW("benchmark");
+        client.useCacheLevel(CacheLevel.NONE);
+        client.useExecutor(Runnable::run);
+        client.usePresenceCoalescing(window);
+        client.setEventHandlers((LLDJWEventHandler.PresenceUpdate) event -> {
+            blackhole.consume(event);
+            handled.incrementAndGet();
+        });
+        gateway = client.gateway();
+    }
+
+    @Benchmark
+    public void handle(Counters counters) {
+        gateway.handle(new JsonReader(frames[next]));
+        next = (next + 1) % frames.length;
+        counters.handled += handled.getAndSet(0);
+    }
+
+    /**
+     * Counts the handled events per iteration.
+     */
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Counters {
+
+        public long handled;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            handled = 0;
+        }
+
+    }
+
+}
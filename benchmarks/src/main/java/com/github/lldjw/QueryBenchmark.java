@@ -0,0 +1,167 @@
+/*
+ * This file is part of the LLDJW distribution (https://github.com/LLDJW/LLDJW).
+ * Copyright (c) 2020 LLDJW Contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.lldjw;
+
+import com.github.lldjw.api.entity.Channel;
+import com.github.lldjw.api.entity.GuildMember;
+import com.github.lldjw.api.entity.User;
+import com.github.lldjw.internal.LLDJWConstants;
+import com.github.lldjw.internal.cache.CacheUpdater;
+import com.github.lldjw.internal.cache.EntityCache;
+import com.github.lldjw.internal.json.JsonReader;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Queries of the cache with the secondary indexes, versus scanning all entities of a type: the members of a guild
+ * with a role (one of {@link #ROLES}, two per member), the users with a name prefix (three of eight random
+ * letters), and the channels of one of {@link #GUILDS} guilds with {@link #CHANNELS} channels each.
+ * memberNameIndex finds members with a one letter prefix in a guild of {@link #SMALL_MEMBERS}, whose users are
+ * members of the large guild as well, so most users with the prefix are not members of the small guild.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class QueryBenchmark {
+
+    private static final long GUILD = 661720246683566081L;
+    private static final int ROLES = 50;
+    private static final int GUILDS = 1_000;
+    private static final int CHANNELS = 40;
+    private static final long SMALL_GUILD = GUILD + 4_000_000;
+    private static final int SMALL_MEMBERS = 100;
+
+    @Param({"10000", "100000"})
+    public int members;
+
+    private EntityCache cache;
+    private long role;
+    private String prefix;
+    private long guild;
+
+    @Setup
+    public void setup() {
+        cache = new EntityCache();
+        CacheUpdater updater = new CacheUpdater(cache, new CacheUpdater.Listener() {
+
+            @Override
+            public void guildCreated(long guild, boolean large) {
+            }
+
+            @Override
+            public void membersChunked(long guild, int index, int count, int members) {
+            }
+
+        });
+        Random random = new Random(0);
+        for(int i = 0; i < members; i++) {
+            StringBuilder name = new StringBuilder();
+            for(int c = 0; c < 8; c++) {
+                name.append((char) ('a' + random.nextInt(26)));
+            }
+            String member = "{\"guild_id\":\"" + GUILD + "\",\"nick\":null,\"roles\":[\"" + (GUILD + random.nextInt(ROLES))
+                    + "\",\"" + (GUILD + random.nextInt(ROLES)) + "\"],\"user\":{\"id\":\"" + (GUILD + 1_000_000 + i)
+                    + "\",\"username\":\"" + name + "\"}}";
+            updater.update(LLDJWConstants.API_EVENT_GUILD_MEMBER_ADD, reader(member));
+            if(i < SMALL_MEMBERS) {
+                updater.update(LLDJWConstants.API_EVENT_GUILD_MEMBER_ADD, reader(member.replace(
+                        "\"guild_id\":\"" + GUILD + "\"", "\"guild_id\":\"" + SMALL_GUILD + "\"")));
+            }
+            if(i == 0) {
+                prefix = name.substring(0, 3);
+            }
+        }
+        for(int g = 0; g < GUILDS; g++) {
+            for(int c = 0; c < CHANNELS; c++) {
+                String channel = "{\"id\":\"" + (GUILD + 2_000_000 + g * CHANNELS + c) + "\",\"guild_id\":\""
+                        + (GUILD + 3_000_000 + g) + "\",\"name\":\"channel " + c + "\"}";
+                updater.update(LLDJWConstants.API_EVENT_CHANNEL_CREATE, reader(channel));
+            }
+        }
+        role = GUILD + 7;
+        guild = GUILD + 3_000_000 + GUILDS / 2;
+    }
+
+    @Benchmark
+    public List<GuildMember> roleScan() {
+        List<GuildMember> found = new ArrayList<>();
+        cache.getMembers(GUILD).forEach((id, member) -> {
+            for(long memberRole : member.getRoles()) {
+                if(memberRole == role) {
+                    found.add(member);
+                    break;
+                }
+            }
+        });
+        return found;
+    }
+
+    @Benchmark
+    public List<GuildMember> roleIndex() {
+        return cache.findMembersWithRole(GUILD, role);
+    }
+
+    @Benchmark
+    public List<User> nameScan() {
+        List<User> found = new ArrayList<>();
+        cache.getUsers().forEach((id, user) -> {
+            if(user.getUsername().regionMatches(true, 0, prefix, 0, prefix.length())) {
+                found.add(user);
+            }
+        });
+        return found;
+    }
+
+    @Benchmark
+    public List<User> nameIndex() {
+        return cache.findUsers(prefix, Integer.MAX_VALUE);
+    }
+
+    @Benchmark
+    public List<GuildMember> memberNameIndex() {
+        return cache.findMembers(SMALL_GUILD, prefix.substring(0, 1), 10);
+    }
+
+    @Benchmark
+    public List<Channel> channelScan() {
+        List<Channel> found = new ArrayList<>();
+        cache.getChannels().forEach((id, channel) -> {
+            if(channel.getGuildId() == guild) {
+                found.add(channel);
+            }
+        });
+        return found;
+    }
+
+    @Benchmark
+    public List<Channel> channelIndex() {
+        return cache.findChannels(guild, "");
+    }
+
+    private static JsonReader reader(String json) {
+        return new JsonReader(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+}
@@ -0,0 +1,93 @@
+/*
+ * This file is part of the LLDJW distribution (https://github.com/LLDJW/LLDJW).
+ * Copyright (c) 2020 LLDJW Contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.lldjw;
+
+import com.github.lldjw.internal.rest.RateLimiter;
+import com.github.lldjw.internal.rest.RestHandler;
+import de.arraying.kotys.JSON;
+import okhttp3.OkHttpClient;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The REST client at saturation: more threads than the buckets allow send messages to {@link #CHANNELS} channels
+ * of a local {@link FakeRest}, where every channel allows {@link #LIMIT} requests per {@link #WINDOW} milliseconds.
+ * The throughput should approach the capacity of the buckets, {@code CHANNELS * LIMIT * 1000 / WINDOW} requests
+ * per second, while rateLimited (the requests that the server answered with a 429) stays 0.
+ * The global limit is raised, so that only the buckets limit the throughput.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(16)
+@State(Scope.Benchmark)
+public class RateLimitBenchmark {
+
+    private static final long CHANNEL = 661720246683566081L;
+    private static final int CHANNELS = 4;
+    private static final int LIMIT = 5;
+    private static final long WINDOW = 250;
+    private static final JSON MESSAGE = new JSON().put("content", "benchmark");
+
+    private FakeRest server;
+    private RestHandler handler;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        server = new FakeRest(LIMIT, WINDOW, 1);
+        handler = new RestHandler(new OkHttpClient(), server.url(), "benchmark", new RateLimiter(100_000));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        server.close();
+    }
+
+    @Benchmark
+    public JSON send(Counters counters) throws IOException {
+        JSON result = handler.execute("POST", "channels/" + (CHANNEL + counters.next()) + "/messages", MESSAGE);
+        counters.rateLimited += server.takeRateLimited();
+        return result;
+    }
+
+    /**
+     * Cycles through the channels, and counts the requests that were answered with a 429 per iteration.
+     */
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Counters {
+
+        public long rateLimited;
+        private int channel;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            rateLimited = 0;
+        }
+
+        int next() {
+            channel = (channel + 1) % CHANNELS;
+            return channel;
+        }
+
+    }
+
+}
@@ -0,0 +1,64 @@
+/*
+ * This file is part of the LLDJW distribution (https://github.com/LLDJW/LLDJW).
+ * Copyright (c) 2020 LLDJW Contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.lldjw;
+
+import com.github.lldjw.api.request.RequestResult;
+import com.github.lldjw.internal.rest.RestExecutors;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The overhead of {@link RequestResult} around a task that does nothing, which isolates the cost of the
+ * wrapper and of handing the task to an executor from the cost of the request itself.
+ * The thread per call case is the baseline: it starts a new thread for every task, like async() used to.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class RequestResultBenchmark {
+
+    private static final Object RESULT = new Object();
+    private final Executor direct = Runnable::run;
+    private final Executor pooled = RestExecutors.shared();
+    private final Executor threadPerCall = command -> new Thread(command).start();
+
+    @Benchmark
+    public Object blocking() {
+        return new RequestResult<>(() -> RESULT).blocking();
+    }
+
+    @Benchmark
+    public Object submitDirect() {
+        return new RequestResult<>(() -> RESULT, direct).submit().join();
+    }
+
+    @Benchmark
+    public Object submitPooled() {
+        return new RequestResult<>(() -> RESULT, pooled).submit().join();
+    }
+
+    @Benchmark
+    public Object submitThreadPerCall() {
+        return new RequestResult<>(() -> RESULT, threadPerCall).submit().join();
+    }
+
+}
@@ -0,0 +1,112 @@
+/*
+ * This file is part of the LLDJW distribution (https://github.com/LLDJW/LLDJW).
+ * Copyright (c) 2020 LLDJW Contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.lldjw;
+
+import com.github.lldjw.api.entity.CacheLevel;
+import com.github.lldjw.api.event.Event;
+import com.github.lldjw.api.event.LLDJWEventHandler;
+import com.github.lldjw.internal.gateway.SessionFile;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Restart-to-ready time against a local {@link FakeGateway}: the time from opening the connection until the
+ * replay is handled, when identifying (READY and a GUILD_CREATE per guild) versus resuming a persisted session
+ * (only the missed events). With lazy guilds, the GUILD_CREATE payloads are kept instead of being applied.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 10)
+@Measurement(iterations = 30)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RestartBenchmark {
+
+    @Param({"IDENTIFY", "RESUME"})
+    public String start;
+
+    @Param({"100", "1000"})
+    public int guilds;
+
+    @Param({"100"})
+    public int missed;
+
+    @Param({"false", "true"})
+    public boolean lazy;
+
+    private FakeGateway gateway;
+    private Path directory;
+    private Path sessionFile;
+    private LLDJW client;
+    private CountDownLatch ready;
+
+    @Setup(Level.Trial)
+    public void startGateway() throws IOException {
+        gateway = new FakeGateway(guilds, missed);
+        directory = Files.createTempDirectory("lldjw-benchmark");
+        sessionFile = directory.resolve("session-0.json");
+    }
+
+    @TearDown(Level.Trial)
+    public void stopGateway() throws IOException {
+        gateway.close();
+        Files.deleteIfExists(sessionFile);
+        Files.deleteIfExists(directory);
+    }
+
+    @Setup(Level.Invocation)
+    public void prepare() throws IOException {
+        if(start.equals("RESUME")) { // As left behind by a previous process.
+            new SessionFile(sessionFile).save(new SessionFile.Session("benchmark", 1), 0, 1);
+        } else {
+            Files.deleteIfExists(sessionFile);
+        }
+        ready = new CountDownLatch(1);
+        client = new LLDJW("benchmark");
+        client.useCacheLevel(CacheLevel.ALL);
+        client.useLazyGuilds(lazy);
+        client.setEventHandlers((LLDJWEventHandler.TypingStart) this::fence);
+        client.gateway()
+                .useUrl(gateway.url())
+                .useCompression(false)
+                .useSessionFile(sessionFile);
+    }
+
+    @TearDown(Level.Invocation)
+    public void close() {
+        client.gateway().close();
+    }
+
+    @Benchmark
+    public void restart() throws InterruptedException, TimeoutException {
+        client.gateway().open();
+        if(!ready.await(1, TimeUnit.MINUTES)) {
+            throw new TimeoutException("the replay was not received");
+        }
+    }
+
+    private void fence(Event event) {
+        ready.countDown();
+    }
+
+}
@@ -0,0 +1,109 @@
+/*
+ * This file is part of the LLDJW distribution (https://github.com/LLDJW/LLDJW).
+ * Copyright (c) 2020 LLDJW Contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.lldjw;
+
+import com.github.lldjw.api.event.LLDJWEventHandler;
+import com.github.lldjw.internal.gateway.IdentifyScheduler;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Checks the startup of a {@link LLDJWShardManager} against a local {@link FakeRest}, which answers
+ * {@code GET gateway/bot}, and a local {@link FakeGateway}, which answers every IDENTIFY with READY:
+ * <ul>
+ *     <li>the time until all {@link #SHARDS} shards are READY drops with the max_concurrency of the session start
+ *     limit, to the {@code ceil(shards / max_concurrency) - 1} intervals of the {@link IdentifyScheduler};</li>
+ *     <li>with an exhausted session start limit, the startup waits for the limit to reset, and then succeeds.</li>
+ * </ul>
+ * The IDENTIFY interval is shortened to {@link #INTERVAL}. Exits with status 1 if any of these does not hold.
+ *
+ * Usage: {@code java -cp benchmarks.jar com.github.lldjw.ShardStartupCheck}.
+ */
+public final class ShardStartupCheck {
+
+    private static final int SHARDS = 8;
+    private static final int[] MAX_CONCURRENCIES = {1, 2, 4, 8};
+    private static final long INTERVAL = 500;
+    private static final long RESET_AFTER = 1000;
+
+    private ShardStartupCheck() {}
+
+    /**
+     * Runs the check.
+     * @param args Ignored.
+     * @throws Exception If the shards could not be started.
+     */
+    public static void main(String[] args) throws Exception {
+        boolean passed = true;
+        try(FakeRest rest = new FakeRest(Integer.MAX_VALUE, 1000, 0);
+            FakeGateway gateway = new FakeGateway(0, 0)) {
+            rest.gatewayBot(gateway.url(), SHARDS, SHARDS, FakeRest.SESSION_STARTS, 0);
+            start(rest); // Warms up the connections.
+            long previous = Long.MAX_VALUE;
+            for(int maxConcurrency : MAX_CONCURRENCIES) {
+                rest.gatewayBot(gateway.url(), SHARDS, maxConcurrency, FakeRest.SESSION_STARTS, 0);
+                long millis = start(rest);
+                long expected = ((SHARDS + maxConcurrency - 1) / maxConcurrency - 1) * INTERVAL;
+                passed &= check(String.format("%d shards with max_concurrency %d are READY in %dms, expected %dms",
+                        SHARDS, maxConcurrency, millis, expected), millis >= expected && millis < expected + INTERVAL && millis < previous);
+                previous = millis;
+            }
+            rest.gatewayBot(gateway.url(), SHARDS, SHARDS, 0, RESET_AFTER);
+            long millis = start(rest);
+            passed &= check(String.format("%d shards with an exhausted limit are READY in %dms, after the reset in %dms",
+                    SHARDS, millis, RESET_AFTER), millis >= RESET_AFTER && millis < RESET_AFTER + INTERVAL);
+        }
+        System.out.println(passed ? "PASSED" : "FAILED");
+        if(!passed) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Starts the shards, and stops them once all are READY.
+     * @return The time until all shards are READY, in milliseconds.
+     */
+    private static long start(FakeRest rest) throws IOException, InterruptedException, TimeoutException {
+        CountDownLatch ready = new CountDownLatch(SHARDS);
+        LLDJWShardManager manager = new LLDJWShardManager("check")
+                .useApiBase(rest.url())
+                .useIdentifyInterval(INTERVAL)
+                .useConfigurator(shard -> {
+                    shard.gateway().useCompression(false);
+                    shard.setEventHandlers((LLDJWEventHandler.Ready) event -> ready.countDown());
+                });
+        long start = System.nanoTime();
+        try {
+            manager.start();
+            if(!ready.await(1, TimeUnit.MINUTES)) {
+                throw new TimeoutException("not all shards are READY");
+            }
+            return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        } finally {
+            manager.stop();
+        }
+    }
+
+    private static boolean check(String description, boolean passed) {
+        System.out.printf("%s %s%n", passed ? "ok  " : "FAIL", description);
+        return passed;
+    }
+
+}
@@ -0,0 +1,113 @@
+/*
+ * This file is part of the LLDJW distribution (https://github.com/LLDJW/LLDJW).
+ * Copyright (c) 2020 LLDJW Contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.lldjw;
+
+import com.github.lldjw.api.entity.Guild;
+import com.github.lldjw.api.entity.GuildMember;
+import com.github.lldjw.api.entity.User;
+import com.github.lldjw.internal.cache.CacheSnapshot;
+import com.github.lldjw.internal.cache.EntityCache;
+import com.github.lldjw.internal.cache.MemberStore;
+import com.github.lldjw.internal.json.JsonReader;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Saving and restoring a cache snapshot with a given amount of members (and as many users),
+ * spread over guilds of 10,000 members each. Restoring includes mapping the file.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class SnapshotBenchmark {
+
+    private static final int GUILD_SIZE = 10_000;
+
+    @Param({"1000000"})
+    public int members;
+
+    private Path directory;
+    private Path snapshot;
+    private EntityCache cache;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        cache = populate(members);
+        directory = Files.createTempDirectory("lldjw-benchmark");
+        snapshot = directory.resolve("cache.snapshot");
+        CacheSnapshot.save(cache, snapshot);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(snapshot);
+        Files.deleteIfExists(directory);
+    }
+
+    @Benchmark
+    public void save() throws IOException {
+        CacheSnapshot.save(cache, snapshot);
+    }
+
+    @Benchmark
+    public EntityCache restore() throws IOException {
+        EntityCache restored = new EntityCache();
+        CacheSnapshot.restore(restored, snapshot);
+        return restored;
+    }
+
+    /**
+     * Creates a cache of guilds, users and members, populated the way the gateway populates them.
+     * @param members The amount of members.
+     * @return The cache.
+     */
+    static EntityCache populate(int members) {
+        EntityCache cache = new EntityCache();
+        byte[] guildData = "{\"name\":\"Benchmark Guild\",\"owner_id\":\"661720246683566081\",\"member_count\":10000,\"large\":true}"
+                .getBytes(StandardCharsets.UTF_8);
+        byte[] memberData = "{\"nick\":null,\"roles\":[\"661720246683566082\",\"661720246683566083\"],\"joined_at\":\"2020-01-01T00:00:00.000000+00:00\"}"
+                .getBytes(StandardCharsets.UTF_8);
+        long base = 661720246683566081L;
+        for(int i = 0; i < members; i++) {
+            long guildId = base + (i / GUILD_SIZE);
+            if(i % GUILD_SIZE == 0) {
+                Guild guild = new Guild(guildId);
+                guild.offer(new JsonReader(guildData));
+                cache.getGuilds().put(guildId, guild);
+            }
+            long userId = base + 1_000_000 + i;
+            User user = new User(userId);
+            user.offer(new JsonReader(("{\"username\":\"user" + i + "\",\"discriminator\":\"" + (1000 + i % 9000)
+                    + "\",\"avatar\":null,\"bot\":false}").getBytes(StandardCharsets.UTF_8)));
+            cache.getUsers().put(userId, user);
+            MemberStore guildMembers = cache.getMembers(guildId);
+            int row = guildMembers.add(user);
+            new GuildMember(guildMembers, row, user).offer(new JsonReader(memberData));
+            guildMembers.publish(row, userId);
+        }
+        return cache;
+    }
+
+}
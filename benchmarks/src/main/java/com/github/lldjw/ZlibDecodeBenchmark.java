@@ -0,0 +1,137 @@
+/*
+ * This file is part of the LLDJW distribution (https://github.com/LLDJW/LLDJW).
+ * Copyright (c) 2020 LLDJW Contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.lldjw;
+
+import com.github.lldjw.internal.gateway.ZlibStreamDecoder;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+
+/**
+ * Replays a zlib-stream connection through {@link ZlibStreamDecoder}, one frame per operation.
+ * The stream is compressed the way Discord compresses it: one deflater for the whole connection, and every payload
+ * ends with a sync flush. It consists of {@link #PAYLOADS} copies of a fixture, with different snowflakes in every
+ * copy, so that a copy does not compress to a mere reference to the previous one. After the last frame the decoder
+ * is reset, as if the connection was opened again.
+ *
+ * The inflated counter is the amount of inflated bytes, so its rate is the decoding speed in bytes per second.
+ * Run with -prof gc: gc.alloc.rate.norm is the allocation per frame, which is 0 once the buffers have grown.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class ZlibDecodeBenchmark {
+
+    private static final int PAYLOADS = 64;
+    private static final Pattern SNOWFLAKE = Pattern.compile("[0-9]{15,19}");
+
+    @Param({BenchmarkFixtures.READY, BenchmarkFixtures.GUILD_CREATE, BenchmarkFixtures.MESSAGE_CREATE, BenchmarkFixtures.PRESENCE_UPDATE})
+    public String fixture;
+
+    private byte[][] frames;
+    private int[] lengths;
+    private int next;
+    private ZlibStreamDecoder decoder;
+
+    @Setup
+    public void setup() {
+        String frame = new String(BenchmarkFixtures.frame(fixture), StandardCharsets.UTF_8);
+        Deflater deflater = new Deflater();
+        frames = new byte[PAYLOADS][];
+        lengths = new int[PAYLOADS];
+        for(int i = 0; i < PAYLOADS; i++) {
+            byte[] payload = shift(frame, i).getBytes(StandardCharsets.UTF_8);
+            lengths[i] = payload.length;
+            frames[i] = compress(deflater, payload);
+        }
+        deflater.end();
+        decoder = new ZlibStreamDecoder();
+    }
+
+    @TearDown
+    public void tearDown() {
+        decoder.close();
+    }
+
+    @Benchmark
+    public int inflate(Counters counters) throws DataFormatException {
+        if(next == frames.length) {
+            decoder.reset();
+            next = 0;
+        }
+        if(!decoder.feed(ByteBuffer.wrap(frames[next]))) {
+            throw new IllegalStateException("frame " + next + " is incomplete");
+        }
+        int length = decoder.inflate();
+        if(length != lengths[next]) {
+            throw new IllegalStateException("frame " + next + " inflated to " + length + " bytes");
+        }
+        next++;
+        counters.inflated += length;
+        return length;
+    }
+
+    /**
+     * Counts the inflated bytes.
+     */
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Counters {
+
+        public long inflated;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            inflated = 0;
+        }
+
+    }
+
+    private static String shift(String frame, int copy) {
+        Matcher matcher = SNOWFLAKE.matcher(frame);
+        StringBuffer shifted = new StringBuffer();
+        while(matcher.find()) {
+            matcher.appendReplacement(shifted, Long.toString(Long.parseLong(matcher.group()) + copy * 7919L));
+        }
+        matcher.appendTail(shifted);
+        return shifted.toString();
+    }
+
+    private static byte[] compress(Deflater deflater, byte[] payload) {
+        deflater.setInput(payload);
+        byte[] out = new byte[payload.length + 1024];
+        int length = 0;
+        while(true) {
+            length += deflater.deflate(out, length, out.length - length, Deflater.SYNC_FLUSH);
+            if(length < out.length) { // The flush completed, ending with 00 00 FF FF.
+                return Arrays.copyOf(out, length);
+            }
+            out = Arrays.copyOf(out, out.length * 2);
+        }
+    }
+
+}
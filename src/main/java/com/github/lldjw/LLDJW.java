@@ -17,16 +17,51 @@
 package com.github.lldjw;
 
 import com.github.lldjw.api.entity.*;
+import com.github.lldjw.api.event.Event;
+import com.github.lldjw.api.event.EventType;
 import com.github.lldjw.api.event.LLDJWEventHandler;
 import com.github.lldjw.api.log.LLDJWLog;
+import com.github.lldjw.api.log.LLDJWLogDropPolicy;
+import com.github.lldjw.api.log.LLDJWLogLevel;
+import com.github.lldjw.api.metrics.LLDJWMetricsExporter;
+import com.github.lldjw.api.metrics.MetricsSnapshot;
+import com.github.lldjw.api.request.RequestResult;
+import com.github.lldjw.internal.LLDJWConstants;
+import com.github.lldjw.internal.cache.CacheBound;
+import com.github.lldjw.internal.cache.CacheSnapshot;
+import com.github.lldjw.internal.cache.CacheUpdater;
+import com.github.lldjw.internal.cache.EntityCache;
+import com.github.lldjw.internal.cdn.CdnClient;
+import com.github.lldjw.internal.cdn.DiskCache;
+import com.github.lldjw.internal.event.EventRegistry;
+import com.github.lldjw.internal.event.PresenceCoalescer;
 import com.github.lldjw.internal.log.Log;
 import com.github.lldjw.internal.log.LogSLF4J;
+import com.github.lldjw.internal.metrics.GatewayMetrics;
+import com.github.lldjw.internal.metrics.RestMetrics;
+import com.github.lldjw.internal.payload.PayloadReader;
+import com.github.lldjw.internal.rest.AsyncRestTask;
+import com.github.lldjw.internal.rest.RestExecutors;
+import com.github.lldjw.internal.rest.RestException;
+import com.github.lldjw.internal.rest.MessageDeleteBatcher;
 import com.github.lldjw.internal.rest.RestHandler;
+import de.arraying.kotys.JSON;
 import okhttp3.OkHttpClient;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongFunction;
 
 /**
  * LLDJW is the core object that is used to communicate with Discord's API.
@@ -39,12 +74,29 @@ public final class LLDJW {
     private final String token;
 
     private CacheLevel cacheLevel = CacheLevel.ALL;
+    private int shardId = 0;
+    private int shardTotal = 1;
     private final LLDJWGateway gateway = new LLDJWGateway(this);
+    private final EntityCache cache = new EntityCache();
+    private final CacheUpdater cacheUpdater = new CacheUpdater(cache, new CacheListener());
     private final Object logMutex = new Object();
-    private LLDJWLog log = new Log();
-    private RestHandler restHandler = new RestHandler(new OkHttpClient());
+    private volatile LLDJWLog log = new Log();
+    private OkHttpClient httpClient = new OkHttpClient();
+    private String apiBase = LLDJWConstants.API_BASE;
+    private String cdnBase = LLDJWConstants.API_CDN_BASE;
+    private volatile CdnClient cdnClient;
+    private RestHandler restHandler;
+    private volatile Executor executor = RestExecutors.shared();
     private final Object eventHandlerMutex = new Object();
     private Set<LLDJWEventHandler> eventHandlers = new HashSet<>();
+    private final EventRegistry eventRegistry = new EventRegistry();
+    private volatile Set<EventType> eventAllowlist;
+    private final GatewayMetrics gatewayMetrics = new GatewayMetrics();
+    private final PresenceCoalescer presenceCoalescer = new PresenceCoalescer(
+            data -> process(LLDJWConstants.API_EVENT_PRESENCE_UPDATE, data), this::getExecutor, gatewayMetrics);
+    private final Object metricsMutex = new Object();
+    private ScheduledExecutorService metricsScheduler;
+    private final MessageDeleteBatcher messageDeleteBatcher = new MessageDeleteBatcher(this::getRestHandler, this::getExecutor);
 
     /**
      * Creates a new LLDJW client.
@@ -56,6 +108,7 @@ public final class LLDJW {
             throw new IllegalArgumentException("token is null or empty");
         }
         this.token = token;
+        this.restHandler = new RestHandler(httpClient, apiBase, token);
     }
 
     //
@@ -83,6 +136,91 @@ public final class LLDJW {
         this.cacheLevel = cacheLevel;
     }
 
+    /**
+     * Creates guilds lazily. Every GUILD_CREATE is then kept as a compact copy of the fields that are cached, and
+     * only applied to the cache once the guild, or one of its channels, emojis or members is looked up, or an update
+     * for the guild arrives. This avoids building the entities of guilds that are never used, which dominates the
+     * startup time of clients in many guilds. A copy is only somewhat smaller than the entities it holds, so memory
+     * is not reduced by much.
+     * Until then, users that are only members of lazy guilds are not cached, and neither {@link Lookup#CACHE} nor
+     * {@link #queryUsers} finds them. Members of large guilds are still requested if all members are cached
+     * (see {@link CacheLevel#ALL}), and the first chunk of members materializes the guild, so at that level every
+     * large guild is materialized shortly after startup, and only small guilds stay lazy.
+     * Disabled by default.
+     * @param lazy True if guilds are created lazily, false otherwise.
+     * @return This, for chaining.
+     */
+    public LLDJW useLazyGuilds(boolean lazy) {
+        cacheUpdater.setLazyGuilds(lazy);
+        return this;
+    }
+
+    /**
+     * Gets the ID of the shard this client represents.
+     * @return The shard ID, 0 if the client is not sharded.
+     */
+    public int getShardId() {
+        return shardId;
+    }
+
+    /**
+     * Gets the total amount of shards.
+     * @return The amount of shards, 1 if the client is not sharded.
+     */
+    public int getShardTotal() {
+        return shardTotal;
+    }
+
+    /**
+     * Makes this client represent a singular shard.
+     * This only takes effect when the gateway connection is (re)opened.
+     * To start all shards of a bot, consider using {@link LLDJWShardManager}.
+     * @param id The ID of the shard.
+     * @param total The total amount of shards.
+     * @return This, for chaining.
+     * @throws IllegalArgumentException If the total is not positive, or the ID is not within [0, total).
+     */
+    public LLDJW useShard(int id, int total) {
+        if(total <= 0 || id < 0 || id >= total) {
+            throw new IllegalArgumentException("shard is not within [0, total)");
+        }
+        this.shardId = id;
+        this.shardTotal = total;
+        return this;
+    }
+
+    /**
+     * Gets the token.
+     * @return The token.
+     */
+    String getToken() {
+        return token;
+    }
+
+    /**
+     * Gets the HTTP client used for REST requests and the gateway.
+     * @return The HTTP client.
+     */
+    OkHttpClient getHttpClient() {
+        return httpClient;
+    }
+
+    /**
+     * Gets the REST handler.
+     * @return The REST handler.
+     */
+    RestHandler getRestHandler() {
+        return restHandler;
+    }
+
+    /**
+     * Specifies the REST handler, so that multiple shards can share their rate limits.
+     * @param restHandler The REST handler.
+     */
+    void useRestHandler(RestHandler restHandler) {
+        this.restHandler = restHandler;
+    }
+
     /**
      * Gets the associated gateway object.
      * @return The gateway, never null.
@@ -97,16 +235,17 @@ public final class LLDJW {
 
     /**
      * Gets the current log implementation.
+     * This does not lock, as it is called on every log message.
      * @return The log implementation.
      */
     public LLDJWLog getLog() {
-        synchronized(logMutex) {
-            return log;
-        }
+        return log;
     }
 
     /**
      * Specifies a new log implementation.
+     * If the previous logger is a default logger, it is closed: its pending messages are printed,
+     * and the thread of an asynchronous logger is stopped.
      * @param log The new log implementation.
      * @return This, for chaining.
      * @throws NullPointerException If the log implementation is null.
@@ -115,9 +254,7 @@ public final class LLDJW {
         if(log == null) {
             throw new NullPointerException("log is null");
         }
-        synchronized(logMutex) {
-            this.log = log;
-        }
+        replaceLog(log);
         return this;
     }
 
@@ -127,9 +264,22 @@ public final class LLDJW {
      * @return This, for chaining.
      */
     public LLDJW useLogDefault() {
-        synchronized(logMutex) {
-            this.log = new Log();
-        }
+        replaceLog(new Log());
+        return this;
+    }
+
+    /**
+     * Uses the default logger, which prints from a background thread.
+     * Logging only enqueues the message in a bounded buffer, so it does not block on STDOUT.
+     * @see Log#Log(int, LLDJWLogDropPolicy) for more information.
+     * @param capacity The maximum amount of pending messages.
+     * @param dropPolicy What to do when the buffer is full.
+     * @return This, for chaining.
+     * @throws IllegalArgumentException If the capacity is not positive.
+     * @throws NullPointerException If the drop policy is null.
+     */
+    public LLDJW useLogDefaultAsync(int capacity, LLDJWLogDropPolicy dropPolicy) {
+        replaceLog(new Log(capacity, dropPolicy));
         return this;
     }
 
@@ -139,10 +289,24 @@ public final class LLDJW {
      * @return This, for chaining.
      */
     public LLDJW useLogSLF4J() {
+        replaceLog(new LogSLF4J());
+        return this;
+    }
+
+    /**
+     * Replaces the logger. If the previous logger is a default logger ({@link Log}), it is closed, which prints its
+     * pending messages and stops its thread; other implementations are left to their owner.
+     * @param log The new logger.
+     */
+    private void replaceLog(LLDJWLog log) {
+        LLDJWLog previous;
         synchronized(logMutex) {
-            this.log = new LogSLF4J();
+            previous = this.log;
+            this.log = log;
+        }
+        if(previous instanceof Log && previous != log) { // Outside of the lock, since it waits for the messages.
+            ((Log) previous).close();
         }
-        return this;
     }
 
     //
@@ -160,10 +324,230 @@ public final class LLDJW {
         if(client == null) {
             throw new NullPointerException("client is null");
         }
-        this.restHandler = new RestHandler(client);
+        this.httpClient = client;
+        this.restHandler = new RestHandler(client, apiBase, token);
+        CdnClient current = cdnClient;
+        if(current != null) {
+            this.cdnClient = new CdnClient(client, cdnBase, current.getCache());
+        }
+        return this;
+    }
+
+    /**
+     * Specifies the base URL of the REST API.
+     * By default, this is Discord's API. Changing it is mostly useful to test against a local server.
+     * Note that this resets all rate limit information.
+     * @param base The new base URL.
+     * @return This, for chaining.
+     * @throws NullPointerException If the base URL is null.
+     */
+    public LLDJW useApiBase(String base) {
+        if(base == null) {
+            throw new NullPointerException("base is null");
+        }
+        this.apiBase = base;
+        this.restHandler = new RestHandler(httpClient, base, token);
+        return this;
+    }
+
+    /**
+     * Gets the executor that runs asynchronous requests.
+     * @return The executor, never null.
+     */
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Specifies the executor that runs asynchronous requests.
+     * By default, all clients share a bounded pool, see {@link RestExecutors#shared()}.
+     * The executor is not shut down by LLDJW; this is the responsibility of the caller.
+     * @param executor The new executor.
+     * @return This, for chaining.
+     * @throws NullPointerException If the executor is null.
+     */
+    public LLDJW useExecutor(Executor executor) {
+        if(executor == null) {
+            throw new NullPointerException("executor is null");
+        }
+        this.executor = executor;
+        return this;
+    }
+
+    /**
+     * Uses a bounded pool of daemon threads to run asynchronous requests.
+     * Once the queue is full, requests are run by the calling thread.
+     * @see RestExecutors#pooled(int, int) for more information.
+     * @param threads The maximum amount of threads.
+     * @param queue The maximum amount of queued requests.
+     * @return This, for chaining.
+     * @throws IllegalArgumentException If the amount of threads or queue size is not positive.
+     */
+    public LLDJW useExecutorPooled(int threads, int queue) {
+        this.executor = RestExecutors.pooled(threads, queue);
+        return this;
+    }
+
+    /**
+     * Runs every asynchronous request in its own virtual thread.
+     * @see RestExecutors#virtual() for more information.
+     * @return This, for chaining.
+     * @throws UnsupportedOperationException If the runtime does not support virtual threads (JDK 21 or later).
+     */
+    public LLDJW useExecutorVirtual() {
+        this.executor = RestExecutors.virtual();
+        return this;
+    }
+
+    /**
+     * Saves a snapshot of the cache to a file, see {@link #restoreCacheSnapshot(Path)}.
+     * This is intended to be called when the process shuts down, after the gateway was closed.
+     * Lazy guilds are materialized first, see {@link #useLazyGuilds(boolean)}.
+     * @param path The path of the file, which is replaced atomically.
+     * @throws IOException If the file could not be written.
+     */
+    public void saveCacheSnapshot(Path path) throws IOException {
+        if(path == null) {
+            throw new NullPointerException("path is null");
+        }
+        cacheUpdater.materializeAll();
+        CacheSnapshot.save(cache, path);
+    }
+
+    /**
+     * Restores a snapshot of the cache from a file, so that {@link Lookup#CACHE} can be served before the gateway
+     * sent the guilds and members again. This should be called before the gateway connection is opened.
+     * Gateway data replaces restored entities as it arrives, and guilds that are not part of the next READY
+     * are removed. Members that left while the process was down are only removed when their guild is removed.
+     * @param path The path of the file.
+     * @return The amount of restored entities.
+     * @throws IOException If the file could not be read, or is not a snapshot of a supported version.
+     */
+    public int restoreCacheSnapshot(Path path) throws IOException {
+        if(path == null) {
+            throw new NullPointerException("path is null");
+        }
+        return CacheSnapshot.restore(cache, path);
+    }
+
+    /**
+     * Limits the amount of cached entities of a type. Once the limit is exceeded, the entities that were
+     * used least recently and least often are evicted, in batches; {@link Lookup#GLOBAL} then retrieves them
+     * from the REST API again. Entities are used when they are looked up, or updated by the gateway.
+     * The limit is applied immediately, together with the memory limit, see {@link #useCacheMemoryLimit}.
+     * @param type The type of entity.
+     * @param maxEntries The maximum amount of entities, or {@link Long#MAX_VALUE} (default) for no maximum.
+     * @return This, for chaining.
+     * @throws IllegalArgumentException If the maximum is negative.
+     */
+    public LLDJW useCacheLimit(CacheType type, long maxEntries) {
+        if(type == null) {
+            throw new NullPointerException("type is null");
+        }
+        if(maxEntries < 0) {
+            throw new IllegalArgumentException("maximum is negative");
+        }
+        cache.getBound(type).setMaxEntries(maxEntries);
+        return this;
+    }
+
+    /**
+     * Limits the memory used by cached entities of a type. The budget is converted into an amount of entities
+     * with {@link CacheType#getEstimatedSize()}, and otherwise works like {@link #useCacheLimit}.
+     * For example, a budget of 2 GB allows roughly 13 million members.
+     * @param type The type of entity.
+     * @param maxBytes The budget in bytes, or {@link Long#MAX_VALUE} (default) for no budget.
+     * @return This, for chaining.
+     * @throws IllegalArgumentException If the budget is negative.
+     */
+    public LLDJW useCacheMemoryLimit(CacheType type, long maxBytes) {
+        if(type == null) {
+            throw new NullPointerException("type is null");
+        }
+        if(maxBytes < 0) {
+            throw new IllegalArgumentException("budget is negative");
+        }
+        cache.getBound(type).setMaxBytes(maxBytes);
+        return this;
+    }
+
+    /**
+     * Gets the statistics of the cache of a type of entity, to tune its limits.
+     * @param type The type of entity.
+     * @return A snapshot of the statistics.
+     */
+    public CacheStats getCacheStats(CacheType type) {
+        if(type == null) {
+            throw new NullPointerException("type is null");
+        }
+        return cache.getBound(type).stats();
+    }
+
+    //
+    // Metrics related.
+    //
+
+    /**
+     * Takes a snapshot of the metrics: REST latencies and rate limits, heartbeat latencies and reconnections,
+     * dispatch lags and throughput, and the cache statistics. Metrics are always recorded, which does not allocate.
+     * @return The snapshot.
+     */
+    public MetricsSnapshot getMetrics() {
+        RestMetrics restMetrics = restHandler.getMetrics();
+        Map<CacheType, CacheStats> cacheStats = new EnumMap<>(CacheType.class);
+        for(CacheType type : CacheType.values()) {
+            cacheStats.put(type, cache.getBound(type).stats());
+        }
+        return new MetricsSnapshot(System.currentTimeMillis(), restMetrics.latencies(), restMetrics.rateLimited(),
+                restMetrics.waits(), gatewayMetrics.heartbeats(), gatewayMetrics.reconnects(), gatewayMetrics.lags(),
+                gatewayMetrics.dispatches(), gatewayMetrics.dropped(), gatewayMetrics.merges(),
+                Collections.unmodifiableMap(cacheStats));
+    }
+
+    /**
+     * Specifies an exporter that receives a snapshot of the metrics at a fixed interval, see {@link #getMetrics()}.
+     * The exporter is invoked on a daemon thread of this client, which replaces the previous exporter.
+     * @param exporter The exporter, or null (default) to stop exporting.
+     * @param interval The interval in milliseconds, ignored if the exporter is null.
+     * @return This, for chaining.
+     * @throws IllegalArgumentException If the interval is not positive.
+     */
+    public LLDJW useMetricsExporter(LLDJWMetricsExporter exporter, long interval) {
+        if(exporter != null && interval <= 0) {
+            throw new IllegalArgumentException("interval is not positive");
+        }
+        synchronized(metricsMutex) {
+            if(metricsScheduler != null) {
+                metricsScheduler.shutdownNow();
+                metricsScheduler = null;
+            }
+            if(exporter == null) {
+                return this;
+            }
+            metricsScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "LLDJW-Metrics");
+                thread.setDaemon(true);
+                return thread;
+            });
+            metricsScheduler.scheduleAtFixedRate(() -> {
+                try {
+                    exporter.export(getMetrics());
+                } catch(Throwable throwable) { // Otherwise, all further exports are cancelled.
+                    getLog().log(LLDJWLogLevel.FATAL, "Metrics exporter threw: %s", throwable);
+                }
+            }, interval, interval, TimeUnit.MILLISECONDS);
+        }
         return this;
     }
 
+    /**
+     * Gets the metrics of the gateway connection and its dispatches.
+     * @return The metrics.
+     */
+    GatewayMetrics getGatewayMetrics() {
+        return gatewayMetrics;
+    }
+
     //
     // Self user related
     //
@@ -172,6 +556,51 @@ public final class LLDJW {
     // Event related.
     //
 
+    /**
+     * Restricts the events that are dispatched to the event handlers.
+     * Dispatches of other types are dropped by the gateway before their data is read, unless the cache needs them;
+     * the same happens to dispatches without any event handler. This is cheap, but Discord still sends these
+     * dispatches; to not receive them at all, see {@link LLDJWGateway#useIntents}.
+     * @param types The allowed event types, or null (default) to allow all types.
+     * @return This, for chaining.
+     */
+    public LLDJW useEventAllowlist(EventType... types) {
+        if(types == null) {
+            this.eventAllowlist = null;
+            return this;
+        }
+        Set<EventType> allowlist = EnumSet.noneOf(EventType.class);
+        for(EventType type : types) {
+            if(type == null) {
+                throw new NullPointerException("type is null");
+            }
+            allowlist.add(type);
+        }
+        this.eventAllowlist = allowlist;
+        return this;
+    }
+
+    /**
+     * Coalesces PRESENCE_UPDATE dispatches: within the window, only the latest presence of every user is processed,
+     * and the earlier ones are merged into it (see {@link MetricsSnapshot#getMergedDispatches()}).
+     * A change of a user is sent once per mutual guild, so this removes most presences for handlers that only need
+     * the latest state per user; the presences of the other guilds are not delivered.
+     * Coalesced presences are delayed by up to the window, and their handlers are invoked on the executor
+     * (see {@link #useExecutor}) rather than the gateway thread, so they run concurrently with the handlers of other
+     * events, and have to be thread safe. Presences are still handled one at a time, and windows in order.
+     * Disabled by default.
+     * @param window The window in milliseconds, or 0 to process every presence directly.
+     * @return This, for chaining.
+     * @throws IllegalArgumentException If the window is negative.
+     */
+    public LLDJW usePresenceCoalescing(long window) {
+        if(window < 0) {
+            throw new IllegalArgumentException("window is negative");
+        }
+        presenceCoalescer.setWindow(window);
+        return this;
+    }
+
     /**
      * Sets the event handlers set type.
      * By default, all event handles are stored in a {@link java.util.HashSet}.
@@ -191,12 +620,15 @@ public final class LLDJW {
             Set<LLDJWEventHandler> copy = new HashSet<>(this.eventHandlers);
             this.eventHandlers = newSet;
             this.eventHandlers.addAll(copy);
+            eventRegistry.rebuild(this.eventHandlers);
         }
         return this;
     }
 
     /**
      * Sets one or more event handlers.
+     * Every event handler receives the events of the {@link LLDJWEventHandler} sub-interfaces it implements.
+     * Registering handlers is relatively expensive, dispatching events to them is not, as it never locks.
      * @param eventHandlers A variadic array of event handlers.
      * @return This, for chaining.
      * @throws NullPointerException If the event handlers are null, or a single specified event handler is null.
@@ -207,6 +639,7 @@ public final class LLDJW {
         }
         synchronized(eventHandlerMutex) {
             Collections.addAll(this.eventHandlers, eventHandlers);
+            eventRegistry.rebuild(this.eventHandlers);
         }
         return this;
     }
@@ -226,10 +659,224 @@ public final class LLDJW {
             for(LLDJWEventHandler eventHandler : eventHandlers) {
                 this.eventHandlers.remove(eventHandler);
             }
+            eventRegistry.rebuild(this.eventHandlers);
+        }
+        return this;
+    }
+
+    /**
+     * Whether or not a dispatch is needed, by the cache or by at least one allowed event handler.
+     * The gateway drops dispatches that are not needed before reading their data.
+     * @param type The event type.
+     * @return True if it is needed, false otherwise.
+     */
+    boolean isDispatchWanted(String type) {
+        if(cacheLevel != CacheLevel.NONE && CacheUpdater.isRelevant(type)) {
+            return true;
+        }
+        EventType eventType = EventType.of(type);
+        Set<EventType> allowlist = eventAllowlist;
+        return eventType != null && (allowlist == null || allowlist.contains(eventType))
+                && eventRegistry.isHandled(eventType);
+    }
+
+    /**
+     * Dispatches an event received by the gateway.
+     * The cache is updated first, then the event handlers are invoked.
+     * The event is only built if there is at least one handler for its type.
+     * Presences may be coalesced instead, see {@link #usePresenceCoalescing(long)}.
+     * @param type The event type, see the API_EVENT constants in {@link LLDJWConstants}.
+     * @param data The event data, only valid for the duration of the call.
+     */
+    void dispatch(String type, PayloadReader data) {
+        getLog().log(LLDJWLogLevel.TRACE, "Received dispatch %s", type);
+        if(LLDJWConstants.API_EVENT_PRESENCE_UPDATE.equals(type) && presenceCoalescer.offer(data)) {
+            return; // Processed once its window is flushed.
+        }
+        process(type, data);
+    }
+
+    /**
+     * Processes a dispatch, see {@link #dispatch(String, PayloadReader)}.
+     * @param type The event type.
+     * @param data The event data.
+     */
+    private void process(String type, PayloadReader data) {
+        int start = data.position();
+        if(cacheLevel != CacheLevel.NONE) {
+            cacheUpdater.update(type, data);
+            data.seek(start);
+        }
+        EventType eventType = EventType.of(type);
+        Set<EventType> allowlist = eventAllowlist;
+        if(eventType == null || (allowlist != null && !allowlist.contains(eventType))) {
+            return;
+        }
+        LLDJWEventHandler[] handlers = eventRegistry.get(eventType);
+        if(handlers.length == 0) {
+            return;
+        }
+        Event event = new Event(this, eventType, data); // Copies the data, the tree is built on demand.
+        for(LLDJWEventHandler handler : handlers) {
+            try {
+                eventType.invoke(handler, event);
+            } catch(Throwable throwable) {
+                getLog().log(LLDJWLogLevel.FATAL, "Event handler threw on %s: %s", type, throwable);
+            }
+        }
+    }
+
+    //
+    // CDN related.
+    //
+
+    /**
+     * Specifies the directory that assets from the CDN are cached in, which is required to fetch them.
+     * Files are evicted in least recently used order once their total size exceeds the maximum.
+     * Files that are already in the directory are reused, so the cache survives restarts.
+     * @param directory The directory, which should not be used by anything else; it is created if needed.
+     * @param maxBytes The maximum total size of the files, in bytes.
+     * @return This, for chaining.
+     * @throws IOException If the directory could not be created or read.
+     * @throws IllegalArgumentException If the maximum size is not positive.
+     */
+    public LLDJW useCdnCache(Path directory, long maxBytes) throws IOException {
+        if(directory == null) {
+            throw new NullPointerException("directory is null");
+        }
+        if(maxBytes <= 0) {
+            throw new IllegalArgumentException("maximum size is not positive");
+        }
+        this.cdnClient = new CdnClient(httpClient, cdnBase, new DiskCache(directory, maxBytes));
+        return this;
+    }
+
+    /**
+     * Specifies the base URL of the CDN.
+     * By default, this is Discord's CDN. Changing it is mostly useful to test against a local server.
+     * @param base The new base URL.
+     * @return This, for chaining.
+     * @throws NullPointerException If the base URL is null.
+     */
+    public LLDJW useCdnBase(String base) {
+        if(base == null) {
+            throw new NullPointerException("base is null");
+        }
+        this.cdnBase = base;
+        CdnClient current = cdnClient;
+        if(current != null) {
+            this.cdnClient = new CdnClient(httpClient, base, current.getCache());
+        }
+        return this;
+    }
+
+    /**
+     * Fetches an asset from the CDN into the cache, see {@link #useCdnCache(Path, long)}.
+     * Cached assets are revalidated with their entity tag once they are older than {@link CdnClient#REVALIDATE_AFTER}
+     * milliseconds, and concurrent fetches of the same asset share a request.
+     * The result is the cached file; it is valid until it is evicted, so it should be opened promptly.
+     * To send it somewhere else, {@link java.nio.channels.FileChannel#transferTo} avoids copying it into the heap.
+     * @param path The path of the asset, relative to the CDN base, for example {@code emojis/1.png}.
+     * @return The request result.
+     * @throws IllegalStateException If there is no CDN cache.
+     */
+    public RequestResult<Path> fetchCdn(String path) {
+        if(path == null) {
+            throw new NullPointerException("path is null");
+        }
+        CdnClient client = cdnClient;
+        if(client == null) {
+            throw new IllegalStateException("CDN cache is not specified");
+        }
+        return new RequestResult<>(() -> client.fetch(path), executor);
+    }
+
+    /**
+     * Fetches the avatar of a user, or their default avatar if they do not have one, see {@link #fetchCdn(String)}.
+     * Animated avatars are fetched as GIF, others as PNG.
+     * @param user The user.
+     * @return The request result.
+     * @throws IllegalStateException If there is no CDN cache.
+     */
+    public RequestResult<Path> fetchAvatar(User user) {
+        if(user == null) {
+            throw new NullPointerException("user is null");
+        }
+        String avatar = user.getAvatar();
+        if(avatar == null) {
+            String discriminator = user.getDiscriminator();
+            int index = discriminator == null ? 0 : Integer.parseInt(discriminator) % 5;
+            return fetchCdn(LLDJWConstants.API_CDN_AVATAR_DEFAULT + index + ".png");
+        }
+        return fetchCdn(LLDJWConstants.API_CDN_AVATAR_CUSTOM + user.getId() + "/" + avatar
+                + (avatar.startsWith("a_") ? ".gif" : ".png"));
+    }
+
+    /**
+     * Fetches the image of an emoji, see {@link #fetchCdn(String)}.
+     * Animated emojis are fetched as GIF, others as PNG.
+     * @param emoji The emoji.
+     * @return The request result.
+     * @throws IllegalStateException If there is no CDN cache.
+     */
+    public RequestResult<Path> fetchEmoji(Emoji emoji) {
+        if(emoji == null) {
+            throw new NullPointerException("emoji is null");
+        }
+        return fetchCdn(LLDJWConstants.API_CDN_EMOJI + emoji.getId() + (emoji.isAnimated() ? ".gif" : ".png"));
+    }
+
+    /**
+     * Fetches the icon of a guild, see {@link #fetchCdn(String)}.
+     * @param guild The guild.
+     * @return The request result, or null if the guild has no icon or it is unknown.
+     * @throws IllegalStateException If there is no CDN cache.
+     */
+    public RequestResult<Path> fetchGuildIcon(Guild guild) {
+        if(guild == null) {
+            throw new NullPointerException("guild is null");
+        }
+        String icon = guild.getIcon();
+        if(icon == null) {
+            return null;
+        }
+        return fetchCdn(LLDJWConstants.API_CDN_ICON + guild.getId() + "/" + icon + (icon.startsWith("a_") ? ".gif" : ".png"));
+    }
+
+    //
+    // Message related.
+    //
+
+    /**
+     * Specifies the window during which message deletions in the same channel are collected, to be sent as a
+     * single bulk delete, see {@link #deleteMessage(long, long)}.
+     * @param window The window in milliseconds, {@link MessageDeleteBatcher#WINDOW_DEFAULT} by default,
+     * or 0 to delete every message with its own request.
+     * @return This, for chaining.
+     * @throws IllegalArgumentException If the window is negative.
+     */
+    public LLDJW useMessageDeleteWindow(long window) {
+        if(window < 0) {
+            throw new IllegalArgumentException("window is negative");
         }
+        messageDeleteBatcher.setWindow(window);
         return this;
     }
 
+    /**
+     * Deletes a message.
+     * Deletions in the same channel within a short window are collected and sent as a single bulk delete, which
+     * costs one request for up to 100 messages; messages older than two weeks are always deleted on their own.
+     * If Discord rejects a bulk delete, its messages are deleted one by one, so that every request fails or
+     * succeeds on its own. The request does not occupy a thread of the executor while it waits for its batch.
+     * @param channel The ID of the channel.
+     * @param message The ID of the message.
+     * @return The request result.
+     */
+    public RequestResult<Void> deleteMessage(long channel, long message) {
+        return new RequestResult<>((AsyncRestTask<Void>) () -> messageDeleteBatcher.delete(channel, message), executor);
+    }
+
     //
     // Entity related.
     //
@@ -241,19 +888,24 @@ public final class LLDJW {
      * @return See {@link Lookup}.
      */
     public Channel lookupChannel(long id, Lookup lookup) {
-        // TODO: implement.
-        return null;
+        return lookup(CacheType.CHANNELS, cached -> {
+            cacheUpdater.materializeChannel(cached);
+            return cache.getChannels().get(cached);
+        }, id, lookup, Channel::new, channel -> "channels/" + channel);
     }
 
     /**
      * Attempts to find an emoji by ID.
+     * Emojis can not be retrieved from the REST API without their guild, {@link Lookup#REST} always returns null.
      * @param id The ID of the emoji.
      * @param lookup The lookup settings.
      * @return See {@link Lookup}.
      */
     public Emoji lookupEmoji(long id, Lookup lookup) {
-        // TODO: implement.
-        return null;
+        return lookup(CacheType.EMOJIS, cached -> {
+            cacheUpdater.materializeEmoji(cached);
+            return cache.getEmojis().get(cached);
+        }, id, lookup, Emoji::new, null);
     }
 
     /**
@@ -263,8 +915,10 @@ public final class LLDJW {
      * @return See {@link Lookup}.
      */
     public Guild lookupGuild(long id, Lookup lookup) {
-        // TODO: implement.
-        return null;
+        return lookup(CacheType.GUILDS, cached -> {
+            cacheUpdater.materialize(cached);
+            return cache.getGuilds().get(cached);
+        }, id, lookup, Guild::new, guild -> "guilds/" + guild);
     }
 
     /**
@@ -275,20 +929,26 @@ public final class LLDJW {
      * @return See {@link Lookup}.
      */
     public GuildMember lookupGuildMember(long guild, long user, Lookup lookup) {
-        // TODO: implement.
-        return null;
+        return lookup(CacheType.MEMBERS, id -> {
+            cacheUpdater.materialize(guild);
+            return cache.getMember(guild, id);
+        }, user, lookup, id -> {
+            User cached = cache.getUsers().get(id);
+            return cached == null ? new GuildMember(guild, id) : new GuildMember(guild, cached);
+        }, id -> "guilds/" + guild + "/members/" + id);
     }
 
     /**
      * Attempts to find an invite by ID.
+     * Invites are retrieved from the REST API by code, {@link Lookup#REST} always returns null.
      * @param id The ID of the invite.
      * @param lookup The lookup settings.
      * @return See {@link Lookup}.
      */
     public Invite lookupInvite(long id, Lookup lookup) {
-        // TODO: implement.
-        return null;
+        return lookup(null, cache.getInvites()::get, id, lookup, Invite::new, null);
     }
+
     /**
      * Attempts to find a user by ID.
      * @param id The ID of the user.
@@ -296,8 +956,7 @@ public final class LLDJW {
      * @return See {@link Lookup}.
      */
     public User lookupUser(long id, Lookup lookup) {
-        // TODO: implement.
-        return null;
+        return lookup(CacheType.USERS, cache.getUsers()::get, id, lookup, User::new, user -> "users/" + user);
     }
 
     /**
@@ -307,8 +966,171 @@ public final class LLDJW {
      * @return See {@link Lookup}.
      */
     public WebHook lookupWebHook(long id, Lookup lookup) {
-        // TODO: implement.
-        return null;
+        return lookup(null, cache.getWebHooks()::get, id, lookup, WebHook::new, webHook -> "webhooks/" + webHook);
+    }
+
+    /**
+     * Finds the cached channels of a guild with a name that starts with a prefix, ignoring case.
+     * Channels are indexed by guild, so this only visits the channels of the guild.
+     * @param guild The ID of the guild.
+     * @param prefix The prefix, an empty prefix matches every channel.
+     * @return A new list of the channels, in no particular order.
+     * @throws NullPointerException If the prefix is null.
+     */
+    public List<Channel> queryChannels(long guild, String prefix) {
+        if(prefix == null) {
+            throw new NullPointerException("prefix is null");
+        }
+        cacheUpdater.materialize(guild);
+        return cache.findChannels(guild, prefix);
+    }
+
+    /**
+     * Finds the cached members of a guild that have a role.
+     * Members are indexed by role, so this only visits the members with the role.
+     * @param guild The ID of the guild.
+     * @param role The ID of the role.
+     * @return A new list of the members, in no particular order.
+     */
+    public List<GuildMember> queryMembersWithRole(long guild, long role) {
+        cacheUpdater.materialize(guild);
+        return cache.findMembersWithRole(guild, role);
+    }
+
+    /**
+     * Finds the cached members of a guild with a name that starts with a prefix, ignoring case.
+     * The name of a member is its nickname, or the name of its user if it has none.
+     * The names of the members of every guild are indexed in sorted order, so this only visits the members it returns.
+     * @param guild The ID of the guild.
+     * @param prefix The prefix, an empty prefix matches every member.
+     * @param limit The maximum amount of members.
+     * @return A new list of the members, in the order of their names.
+     * @throws NullPointerException If the prefix is null.
+     * @throws IllegalArgumentException If the limit is negative.
+     */
+    public List<GuildMember> queryMembers(long guild, String prefix, int limit) {
+        if(prefix == null) {
+            throw new NullPointerException("prefix is null");
+        }
+        if(limit < 0) {
+            throw new IllegalArgumentException("limit is negative");
+        }
+        cacheUpdater.materialize(guild);
+        return cache.findMembers(guild, prefix, limit);
+    }
+
+    /**
+     * Finds the cached users with a name that starts with a prefix, ignoring case.
+     * User names are indexed in sorted order, so this does not visit every user.
+     * @param prefix The prefix, an empty prefix matches every user.
+     * @param limit The maximum amount of users.
+     * @return A new list of the users, in the order of their names.
+     * @throws NullPointerException If the prefix is null.
+     * @throws IllegalArgumentException If the limit is negative.
+     */
+    public List<User> queryUsers(String prefix, int limit) {
+        if(prefix == null) {
+            throw new NullPointerException("prefix is null");
+        }
+        if(limit < 0) {
+            throw new IllegalArgumentException("limit is negative");
+        }
+        return cache.findUsers(prefix, limit);
+    }
+
+    /**
+     * Performs a lookup. Lookups of the cache are counted as hits or misses, see {@link #getCacheStats(CacheType)}.
+     * @param type The type of entity, or null if it is not counted.
+     * @param cached Gets a cached entity by ID.
+     * @param id The ID of the entity.
+     * @param lookup The lookup settings.
+     * @param factory Creates an entity without any data.
+     * @param path Gets the REST path of an entity by ID, null if the entity can not be retrieved by ID.
+     * @param <E> The type of entity.
+     * @return See {@link Lookup}.
+     * @throws NullPointerException If the lookup is null.
+     */
+    private <E extends Assignable<JSON>> E lookup(CacheType type, LongFunction<E> cached, long id, Lookup lookup,
+                                                LongFunction<E> factory, LongFunction<String> path) {
+        if(lookup == null) {
+            throw new NullPointerException("lookup is null");
+        }
+        switch(lookup) {
+            case GLOBAL:
+                E entity = cached(type, cached, id);
+                return entity != null ? entity : request(id, factory, path);
+            case CACHE:
+                return cached(type, cached, id);
+            case REST:
+                return request(id, factory, path);
+            default:
+                return factory.apply(id);
+        }
+    }
+
+    private <E> E cached(CacheType type, LongFunction<E> cached, long id) {
+        E entity = cached.apply(id);
+        if(type != null) {
+            CacheBound bound = cache.getBound(type);
+            if(entity != null) {
+                bound.hit();
+            } else {
+                bound.miss();
+            }
+        }
+        return entity;
+    }
+
+    /**
+     * Retrieves an entity from the REST API.
+     * The result is not cached, since it will not receive any updates from the gateway.
+     * Concurrent lookups of the same entity share a single request, and entities that do not exist are remembered
+     * for a short while, see {@link com.github.lldjw.internal.rest.RestCoalescer}.
+     * @param id The ID of the entity.
+     * @param factory Creates an entity without any data.
+     * @param path Gets the REST path of an entity by ID, null if the entity can not be retrieved by ID.
+     * @param <E> The type of entity.
+     * @return The entity, or null if it does not exist or could not be retrieved.
+     */
+    private <E extends Assignable<JSON>> E request(long id, LongFunction<E> factory, LongFunction<String> path) {
+        if(path == null) {
+            return null;
+        }
+        String route = path.apply(id);
+        try {
+            JSON json = restHandler.lookup(route);
+            if(json == null) {
+                return null;
+            }
+            E entity = factory.apply(id);
+            entity.offer(json);
+            return entity;
+        } catch(RestException exception) {
+            getLog().log(LLDJWLogLevel.INFO, "Could not look up %s: %s", route, exception.getMessage());
+            return null;
+        } catch(IOException exception) {
+            getLog().log(LLDJWLogLevel.INFO, "Could not look up %s: %s", route, exception);
+            return null;
+        }
+    }
+
+    /**
+     * Requests the offline members of large guilds when all members are cached, and reports chunks to the gateway.
+     */
+    private final class CacheListener implements CacheUpdater.Listener {
+
+        @Override
+        public void guildCreated(long guild, boolean large) {
+            if(large && cacheLevel == CacheLevel.ALL) {
+                gateway.requestMembers(guild);
+            }
+        }
+
+        @Override
+        public void membersChunked(long guild, int index, int count, int members) {
+            gateway.membersChunked(guild, index, count, members);
+        }
+
     }
 
 }
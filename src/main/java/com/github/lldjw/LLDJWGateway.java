@@ -16,13 +16,84 @@
  */
 package com.github.lldjw;
 
+import com.github.lldjw.api.gateway.GatewayEncoding;
+import com.github.lldjw.api.gateway.GatewayIntent;
+import com.github.lldjw.api.gateway.MemberChunkProgress;
+import com.github.lldjw.api.log.LLDJWLogLevel;
+import com.github.lldjw.internal.LLDJWConstants;
+import com.github.lldjw.internal.gateway.ControlExecutor;
+import com.github.lldjw.internal.gateway.IdentifyScheduler;
+import com.github.lldjw.internal.gateway.MemberChunker;
+import com.github.lldjw.internal.gateway.SendBudget;
+import com.github.lldjw.internal.payload.PayloadReader;
+import com.github.lldjw.internal.gateway.SessionFile;
+import com.github.lldjw.internal.gateway.TimerWheel;
+import com.github.lldjw.internal.gateway.ZlibStreamDecoder;
+import com.github.lldjw.internal.etf.EtfReader;
+import com.github.lldjw.internal.etf.EtfWriter;
+import com.github.lldjw.internal.json.JsonReader;
+import de.arraying.kotys.JSON;
+import de.arraying.kotys.JSONArray;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.WebSocket;
+import okhttp3.WebSocketListener;
+import okio.ByteString;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.zip.DataFormatException;
+
 /**
  * The gateway represents a wrapper for Discord's websocket gateway.
  * The connection to the gateway, as well as behaviour can be defined.
+ *
+ * The session ID and the last sequence number are tracked, and a lost connection RESUMEs the session, so that only
+ * the missed events are replayed instead of the entire state. Optionally, the session is persisted to a file,
+ * so that a restarted process can resume as well, see {@link #useSessionFile(Path)}.
+ * Close codes that can not be recovered from, such as an invalid token, stop the gateway instead of reconnecting.
+ *
+ * All timers (heartbeats, member requests and reconnections) of all gateways in the process are driven by a single
+ * shared {@link TimerWheel}, so the amount of threads does not grow with the amount of shards. Work that may block
+ * is handed off to the {@link ControlExecutor}, not to the executor of asynchronous requests.
  */
 public final class LLDJWGateway {
 
+    private static final long RECONNECT_DELAY_MIN = 1000;
+    private static final long RECONNECT_DELAY_MAX = 60000;
+    private static final long MEMBER_INTERVAL = 250;
+
     private final LLDJW client;
+    private final Object connectionMutex = new Object();
+    private boolean compress = true;
+    private GatewayEncoding encoding = GatewayEncoding.JSON;
+    private int intents = -1;
+    private String url;
+    private IdentifyScheduler identifyScheduler;
+    private volatile WebSocket socket;
+    private volatile boolean etf; // The encoding of the current connection.
+    private final TimerWheel timers = TimerWheel.shared();
+    private final Executor control = ControlExecutor.shared(); // Runs what the timers hand off, never the REST pool.
+    private TimerWheel.Timeout heartbeat;
+    private TimerWheel.Timeout pendingOpen;
+    private TimerWheel.Timeout pendingIdentify;
+    private int reconnects; // Consecutive reconnections without a new or resumed session.
+    private boolean closing;
+    private volatile long sequence = -1;
+    private volatile String sessionId;
+    private volatile SessionFile sessionFile;
+    private long savedSequence = -1;
+    private volatile boolean acknowledged;
+    private volatile long heartbeatSent; // The time of the last unacknowledged heartbeat, 0 if there is none.
+    private final SendBudget sendBudget = new SendBudget();
+    private final MemberChunker memberChunker = new MemberChunker();
+    private TimerWheel.Timeout memberRequests;
+    private volatile Consumer<MemberChunkProgress> memberChunkListener;
 
     /**
      * Creates a new gateway instance.
@@ -32,20 +103,794 @@ public final class LLDJWGateway {
         this.client = client;
     }
 
+    /**
+     * Specifies whether or not the zlib-stream transport compression should be used.
+     * This is enabled by default, and greatly reduces the size of large payloads such as READY and GUILD_CREATE.
+     * This only takes effect when the connection is (re)opened.
+     * @param compress True to compress, false otherwise.
+     * @return This, for chaining.
+     */
+    public LLDJWGateway useCompression(boolean compress) {
+        synchronized(connectionMutex) {
+            this.compress = compress;
+        }
+        return this;
+    }
+
+    /**
+     * Specifies the encoding of the payloads. ETF payloads are smaller and cheaper to decode than JSON,
+     * and are read into the same entities. This is JSON by default.
+     * This only takes effect when the connection is (re)opened.
+     * @param encoding The encoding.
+     * @return This, for chaining.
+     */
+    public LLDJWGateway useEncoding(GatewayEncoding encoding) {
+        if(encoding == null) {
+            throw new NullPointerException("encoding is null");
+        }
+        synchronized(connectionMutex) {
+            this.encoding = encoding;
+        }
+        return this;
+    }
+
+    /**
+     * Specifies the intents to subscribe to. Discord does not send the dispatches of other intents at all,
+     * which is the cheapest way of ignoring events. By default, no intents are sent, and all dispatches are received.
+     * This only takes effect when the client identifies.
+     * @param intents The intents, or null to not send any.
+     * @return This, for chaining.
+     */
+    public LLDJWGateway useIntents(GatewayIntent... intents) {
+        int value = intents == null ? -1 : 0;
+        if(intents != null) {
+            for(GatewayIntent intent : intents) {
+                if(intent == null) {
+                    throw new NullPointerException("intent is null");
+                }
+                value |= intent.getValue();
+            }
+        }
+        synchronized(connectionMutex) {
+            this.intents = value;
+        }
+        return this;
+    }
+
+    /**
+     * Specifies the URL of the gateway.
+     * By default, the URL is retrieved from the REST API. Changing it is mostly useful to test against a local gateway.
+     * This only takes effect when the connection is (re)opened.
+     * @param url The URL, or null to retrieve it from the REST API.
+     * @return This, for chaining.
+     */
+    public LLDJWGateway useUrl(String url) {
+        synchronized(connectionMutex) {
+            this.url = url;
+        }
+        return this;
+    }
+
+    /**
+     * Specifies the file that the session is persisted to.
+     * When the connection is opened without a session, a session that was saved less than
+     * {@link SessionFile#MAX_AGE} milliseconds ago is resumed instead of identifying; if Discord no longer
+     * accepts it, the client identifies as usual. The session is saved on every heartbeat and by
+     * {@link #closeResumable()}, and deleted when the session ends.
+     *
+     * Note that the cache is not part of the session: after resuming a persisted session,
+     * entities are only cached once they are updated.
+     * Every shard needs its own file.
+     * @param path The path of the file, or null (default) to not persist the session.
+     * @return This, for chaining.
+     */
+    public LLDJWGateway useSessionFile(Path path) {
+        synchronized(connectionMutex) {
+            this.sessionFile = path == null ? null : new SessionFile(path);
+        }
+        return this;
+    }
+
+    /**
+     * Specifies a listener that is notified whenever the members of a large guild were completely loaded,
+     * or given up on. This only happens if the cache level is {@link com.github.lldjw.api.entity.CacheLevel#ALL}.
+     * The listener is invoked on the gateway threads, and should not block.
+     * @param listener The listener, or null to remove it.
+     * @return This, for chaining.
+     */
+    public LLDJWGateway useMemberChunkListener(Consumer<MemberChunkProgress> listener) {
+        this.memberChunkListener = listener;
+        return this;
+    }
+
+    /**
+     * Gets the progress of loading the members of large guilds.
+     * @return A snapshot of the progress.
+     */
+    public MemberChunkProgress getMemberChunkProgress() {
+        return memberChunker.progress();
+    }
+
+    /**
+     * Specifies the scheduler that coordinates the IDENTIFY payloads of multiple shards.
+     * @param identifyScheduler The scheduler, or null to identify immediately.
+     */
+    void useIdentifyScheduler(IdentifyScheduler identifyScheduler) {
+        synchronized(connectionMutex) {
+            this.identifyScheduler = identifyScheduler;
+        }
+    }
+
     /**
      * Opens the connection to the gateway and begins a long handshake and initialization process.
+     * If the connection is already open, this does nothing.
      * @return The client, for chaining.
      */
     public LLDJW open() {
+        synchronized(connectionMutex) {
+            closing = false;
+            if(socket != null) {
+                return client;
+            }
+            if(sessionId == null && sessionFile != null) {
+                try {
+                    SessionFile.Session saved = sessionFile.load(client.getShardId(), client.getShardTotal());
+                    if(saved != null) {
+                        client.getLog().log(LLDJWLogLevel.INFO, "Resuming the saved session at sequence %d", saved.getSequence());
+                        sessionId = saved.getId();
+                        sequence = saved.getSequence();
+                        savedSequence = sequence;
+                    }
+                } catch(IOException exception) {
+                    client.getLog().log(LLDJWLogLevel.INFO, "Could not load the saved session: %s", exception);
+                }
+            }
+            String base;
+            try {
+                base = url == null ? client.getRestHandler().getGatewayUrl(false) : url;
+            } catch(IOException exception) {
+                client.getLog().log(LLDJWLogLevel.FATAL, "Could not retrieve the gateway URL: %s", exception);
+                return client;
+            }
+            String target = base + "?v=" + LLDJWConstants.API_VERSION + "&encoding=" + (encoding == GatewayEncoding.ETF ? "etf" : "json");
+            if(compress) {
+                target += "&compress=zlib-stream";
+            }
+            Request request = new Request.Builder()
+                    .url(target)
+                    .build();
+            sendBudget.clear();
+            etf = encoding == GatewayEncoding.ETF;
+            socket = client.getHttpClient().newWebSocket(request,
+                    new Listener(compress ? new ZlibStreamDecoder() : null, etf));
+        }
         return client;
     }
 
     /**
      * Closes the connection to the gateway.
+     * This ends the session; opening the connection again identifies.
      * @return The client, for chaining.
      */
     public LLDJW close() {
+        return close(LLDJWConstants.API_GATEWAY_CLOSE_GRACE);
+    }
+
+    /**
+     * Closes the connection to the gateway, but keeps the session resumable.
+     * The session is saved, if a session file is used, so that a restarted process can resume it.
+     * This is intended to be called when the process shuts down for a restart.
+     * @return The client, for chaining.
+     */
+    public LLDJW closeResumable() {
+        return close(LLDJWConstants.API_GATEWAY_CLOSE_ERROR);
+    }
+
+    private LLDJW close(int code) {
+        synchronized(connectionMutex) {
+            closing = true;
+            if(socket != null) {
+                socket.close(code, null);
+            }
+            disconnected(socket);
+            if(code == LLDJWConstants.API_GATEWAY_CLOSE_GRACE) { // Discord invalidates the session.
+                invalidate();
+            } else {
+                save();
+            }
+            cancelPending();
+        }
         return client;
     }
 
+    /**
+     * Sends a payload to the gateway.
+     * @param op The opcode.
+     * @param data The data, may be null.
+     * @return True if the payload was enqueued, false if there is no connection.
+     */
+    boolean send(int op, Object data) {
+        WebSocket current = socket;
+        if(current == null) {
+            return false;
+        }
+        JSON payload = new JSON()
+                .put("op", op)
+                .put("d", data);
+        boolean sent = etf ? current.send(ByteString.of(EtfWriter.write(payload))) : current.send(payload.marshal());
+        if(!sent) {
+            return false;
+        }
+        sendBudget.record(now());
+        return true;
+    }
+
+    /**
+     * Queues a request for all members of a guild.
+     * @param guild The ID of the guild.
+     */
+    void requestMembers(long guild) {
+        memberChunker.enqueue(guild, now());
+    }
+
+    /**
+     * Counts a chunk of members that was cached.
+     * @param guild The ID of the guild.
+     * @param index The index of the chunk.
+     * @param count The total amount of chunks, or 0 if unknown.
+     * @param members The amount of members in the chunk.
+     */
+    void membersChunked(long guild, int index, int count, int members) {
+        client.getLog().log(LLDJWLogLevel.TRACE, "Received member chunk %d/%d of %d", index + 1, count, guild);
+        if(memberChunker.chunk(guild, index, count, members, now())) {
+            memberChunksDone();
+        }
+    }
+
+    /**
+     * Handles a single payload received from the gateway.
+     * The envelope is read without building a tree, and the data is passed on as a reader over the same buffer.
+     * Discord sends the op, type and sequence before the data; once they are known, dispatches that neither
+     * the cache nor an event handler wants are dropped without reading the data at all.
+     * This is package-private for the benchmarks.
+     * @param reader The reader over the payload, only valid for the duration of the call.
+     */
+    void handle(PayloadReader reader) {
+        handle(reader, System.nanoTime());
+    }
+
+    /**
+     * Handles a single payload received from the gateway, see {@link #handle(PayloadReader)}.
+     * @param reader The reader over the payload, only valid for the duration of the call.
+     * @param received The time at which the frame was received, in nanoseconds, to measure the dispatch lag.
+     */
+    private void handle(PayloadReader reader, long received) {
+        int op = -1;
+        String type = null;
+        boolean sequenced = false;
+        PayloadReader data = null;
+        reader.beginObject();
+        while(reader.hasNext()) {
+            String field = reader.nextName();
+            if(field.equals("d") && op == LLDJWConstants.API_GATEWAY_OP_DISPATCH && type != null && sequenced
+                    && isDropped(type)) {
+                client.getGatewayMetrics().received(type, true);
+                return;
+            }
+            switch(field) {
+                case "op":
+                    op = reader.nextInt();
+                    break;
+                case "t":
+                    type = reader.nextInterned();
+                    break;
+                case "s":
+                    if(!reader.nextNull()) {
+                        sequence = reader.nextLong();
+                    }
+                    sequenced = true;
+                    break;
+                case "d":
+                    data = reader.slice();
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        switch(op) {
+            case LLDJWConstants.API_GATEWAY_OP_DISPATCH:
+                if(isDropped(type)) { // The data was before the type.
+                    if(type != null) {
+                        client.getGatewayMetrics().received(type, true);
+                    }
+                    break;
+                }
+                client.getGatewayMetrics().received(type, false);
+                if(LLDJWConstants.API_EVENT_READY.equals(type)) {
+                    ready(data);
+                } else if(LLDJWConstants.API_EVENT_RESUMED.equals(type)) {
+                    client.getLog().log(LLDJWLogLevel.INFO, "Resumed the session at sequence %d", sequence);
+                    synchronized(connectionMutex) {
+                        reconnects = 0;
+                    }
+                }
+                client.dispatch(type, data);
+                client.getGatewayMetrics().dispatched(System.nanoTime() - received);
+                break;
+            case LLDJWConstants.API_GATEWAY_OP_HEARTBEAT: // Requested by Discord, does not affect the ACK state.
+                send(LLDJWConstants.API_GATEWAY_OP_HEARTBEAT, sequence < 0 ? null : sequence);
+                break;
+            case LLDJWConstants.API_GATEWAY_OP_RECONNECT:
+                reconnect();
+                break;
+            case LLDJWConstants.API_GATEWAY_OP_INVALIDATE:
+                if(data.nextBoolean() && sessionId != null) {
+                    resume();
+                    break;
+                }
+                client.getLog().log(LLDJWLogLevel.INFO, "The session was invalidated, identifying");
+                invalidate();
+                synchronized(connectionMutex) {
+                    if(!closing) { // Discord expects a random delay of one to five seconds.
+                        WebSocket current = socket;
+                        if(pendingIdentify != null) {
+                            pendingIdentify.cancel();
+                        }
+                        pendingIdentify = timers.schedule(() -> control.execute(() -> scheduleIdentify(current)),
+                                ThreadLocalRandom.current().nextLong(1000, 5001));
+                    }
+                }
+                break;
+            case LLDJWConstants.API_GATEWAY_OP_HELLO:
+                long interval = 0;
+                data.beginObject();
+                while(data.hasNext()) {
+                    if("heartbeat_interval".equals(data.nextName())) {
+                        interval = data.nextLong();
+                    } else {
+                        data.skipValue();
+                    }
+                }
+                synchronized(connectionMutex) {
+                    if(closing) { // Closed in the meantime.
+                        return;
+                    }
+                    if(heartbeat != null) {
+                        heartbeat.cancel();
+                    }
+                    acknowledged = true;
+                    heartbeatSent = 0;
+                    // Discord expects the first heartbeat after a random fraction of the interval,
+                    // which also spreads the heartbeats of many shards over the wheel.
+                    heartbeat = timers.scheduleAtFixedRate(this::heartbeat,
+                            (long) (interval * ThreadLocalRandom.current().nextDouble()), interval);
+                    if(memberRequests == null) {
+                        memberRequests = timers.scheduleAtFixedRate(this::requestMemberBatches,
+                                MEMBER_INTERVAL, MEMBER_INTERVAL);
+                    }
+                }
+                if(sessionId != null) {
+                    resume();
+                } else {
+                    scheduleIdentify(socket);
+                }
+                break;
+            case LLDJWConstants.API_GATEWAY_OP_HEARTBEAT_ACK:
+                long sent = heartbeatSent;
+                if(sent != 0) {
+                    client.getGatewayMetrics().acknowledged(System.nanoTime() - sent);
+                    heartbeatSent = 0;
+                }
+                acknowledged = true;
+                break;
+        }
+    }
+
+    /**
+     * Whether or not a dispatch is dropped before its data is read.
+     * READY and RESUMED are never dropped, they are needed by the gateway itself.
+     * Dispatches without a type are always dropped.
+     * @param type The event type.
+     * @return True if it is dropped, false if it is dispatched.
+     */
+    private boolean isDropped(String type) {
+        if(type == null) { // Malformed.
+            return true;
+        }
+        return !LLDJWConstants.API_EVENT_READY.equals(type) && !LLDJWConstants.API_EVENT_RESUMED.equals(type)
+                && !client.isDispatchWanted(type);
+    }
+
+    /**
+     * Starts a new session, after reading its ID from the READY payload.
+     * @param data The READY data, the reader is moved back to its start.
+     */
+    private void ready(PayloadReader data) {
+        int start = data.position();
+        data.beginObject();
+        while(data.hasNext()) {
+            if("session_id".equals(data.nextName())) {
+                sessionId = data.nextString();
+                break;
+            }
+            data.skipValue();
+        }
+        data.seek(start);
+        memberChunker.clear(); // All guilds are created, and queued, again.
+        synchronized(connectionMutex) {
+            reconnects = 0;
+            save();
+        }
+    }
+
+    /**
+     * Identifies the client, after the other shards in the same bucket, if there is an identify scheduler.
+     * A scheduled IDENTIFY is cancelled when the connection is lost, see {@link #disconnected(WebSocket)}.
+     * @param connection The connection to identify on.
+     */
+    private void scheduleIdentify(WebSocket connection) {
+        synchronized(connectionMutex) {
+            if(connection == null || connection != socket) {
+                return;
+            }
+            if(identifyScheduler != null) {
+                if(pendingIdentify != null) { // The delay after INVALIDATE, which fired, or a queued IDENTIFY.
+                    pendingIdentify.cancel();
+                }
+                pendingIdentify = identifyScheduler.schedule(client.getShardId(),
+                        () -> control.execute(() -> identify(connection)));
+                return;
+            }
+        }
+        identify(connection);
+    }
+
+    /**
+     * Resumes the current session. Discord replays all events after the last sequence number, followed by RESUMED.
+     */
+    private void resume() {
+        JSON data = new JSON()
+                .put("token", client.getToken())
+                .put("session_id", sessionId)
+                .put("seq", sequence);
+        send(LLDJWConstants.API_GATEWAY_OP_RESUME, data);
+    }
+
+    /**
+     * Forgets the current session, so that the next connection identifies.
+     */
+    private void invalidate() {
+        sessionId = null;
+        sequence = -1;
+        memberChunker.clear();
+        synchronized(connectionMutex) {
+            savedSequence = -1;
+            if(sessionFile != null) {
+                try {
+                    sessionFile.delete();
+                } catch(IOException exception) {
+                    client.getLog().log(LLDJWLogLevel.INFO, "Could not delete the saved session: %s", exception);
+                }
+            }
+        }
+    }
+
+    /**
+     * Saves the session to the session file, if it changed since it was last saved.
+     * Must be called while holding the connection mutex.
+     */
+    private void save() {
+        String id = sessionId;
+        long current = sequence;
+        if(sessionFile == null || id == null || current == savedSequence) {
+            return;
+        }
+        try {
+            sessionFile.save(new SessionFile.Session(id, current), client.getShardId(), client.getShardTotal());
+            savedSequence = current;
+        } catch(IOException exception) {
+            client.getLog().log(LLDJWLogLevel.INFO, "Could not save the session: %s", exception);
+        }
+    }
+
+    /**
+     * Identifies the client, unless the connection was replaced in the meantime, which would be closed with 4005
+     * if it already identified or resumed.
+     * @param connection The connection to identify on.
+     */
+    private void identify(WebSocket connection) {
+        JSON properties = new JSON()
+                .put("$os", System.getProperty("os.name"))
+                .put("$browser", "LLDJW")
+                .put("$device", "LLDJW");
+        JSON data = new JSON()
+                .put("token", client.getToken())
+                .put("properties", properties)
+                .put("compress", false)
+                .put("large_threshold", 250);
+        if(client.getShardTotal() > 1) {
+            data.put("shard", new JSONArray().append(client.getShardId(), client.getShardTotal()));
+        }
+        synchronized(connectionMutex) {
+            if(connection != socket) {
+                return;
+            }
+            if(intents >= 0) {
+                data.put("intents", intents);
+            }
+            send(LLDJWConstants.API_GATEWAY_OP_IDENTIFY, data);
+        }
+    }
+
+    /**
+     * Sends a heartbeat. If the previous heartbeat was never acknowledged, the connection is considered dead
+     * (a zombie connection). This runs on the timer thread, so anything that may block is handed off.
+     */
+    private void heartbeat() {
+        if(!acknowledged) {
+            client.getLog().log(LLDJWLogLevel.INFO, "Heartbeat was not acknowledged, reconnecting");
+            control.execute(this::reconnect);
+            return;
+        }
+        acknowledged = false;
+        heartbeatSent = System.nanoTime();
+        send(LLDJWConstants.API_GATEWAY_OP_HEARTBEAT, sequence < 0 ? null : sequence);
+        if(sessionFile != null) {
+            control.execute(() -> {
+                synchronized(connectionMutex) {
+                    save();
+                }
+            });
+        }
+    }
+
+    /**
+     * Sends the member requests that are due, as long as the send budget allows.
+     * Every request contains a batch of guilds, see {@link MemberChunker}.
+     */
+    private void requestMemberBatches() {
+        long now = now();
+        MemberChunkProgress before = memberChunker.progress();
+        long[] batch;
+        while((batch = memberChunker.next(now, sendBudget)) != null) {
+            JSONArray guilds = new JSONArray();
+            for(long guild : batch) {
+                guilds.append(Long.toString(guild));
+            }
+            boolean sent = send(LLDJWConstants.API_GATEWAY_OP_REQUEST_MEMBERS, new JSON()
+                    .put("guild_id", guilds)
+                    .put("query", "")
+                    .put("limit", 0));
+            if(!sent) { // Disconnected in the meantime.
+                memberChunker.unsent(batch, now);
+                break;
+            }
+            client.getLog().log(LLDJWLogLevel.TRACE, "Requested the members of %d guilds", batch.length);
+        }
+        if(memberChunker.progress().getFailed() != before.getFailed()) { // Timed out guilds were given up on.
+            memberChunksDone();
+        }
+    }
+
+    /**
+     * Reports the progress after guilds were completed or given up on.
+     */
+    private void memberChunksDone() {
+        MemberChunkProgress progress = memberChunker.progress();
+        if(progress.isDone()) {
+            client.getLog().log(LLDJWLogLevel.INFO, "Loaded the members of %d guilds (%d failed), %d members in %d chunks",
+                    progress.getCompleted(), progress.getFailed(), progress.getMembers(), progress.getChunks());
+        }
+        Consumer<MemberChunkProgress> listener = memberChunkListener;
+        if(listener != null) {
+            listener.accept(progress);
+        }
+    }
+
+    /**
+     * Closes the current connection, and opens a new one.
+     */
+    private void reconnect() {
+        client.getGatewayMetrics().reconnected();
+        synchronized(connectionMutex) {
+            if(socket != null) {
+                socket.close(LLDJWConstants.API_GATEWAY_CLOSE_ERROR, "reconnect");
+            }
+            disconnected(socket);
+        }
+        open();
+    }
+
+    /**
+     * Cleans up the state of a connection that is no longer used.
+     * If the connection was lost unexpectedly, a new connection is opened after a delay.
+     * @param closed The socket that was closed, stale sockets are ignored.
+     * @return True if the socket was the current connection.
+     */
+    private boolean disconnected(WebSocket closed) {
+        synchronized(connectionMutex) {
+            if(closed == null || closed != socket) {
+                return false;
+            }
+            socket = null;
+            if(heartbeat != null) {
+                heartbeat.cancel();
+                heartbeat = null;
+            }
+            if(memberRequests != null) {
+                memberRequests.cancel();
+                memberRequests = null;
+            }
+            if(pendingIdentify != null) { // Belongs to this connection.
+                pendingIdentify.cancel();
+                pendingIdentify = null;
+            }
+            memberChunker.requeue(now()); // A resumed session does not create the guilds again.
+            return true;
+        }
+    }
+
+    /**
+     * Computes the delay before the next reconnection, which doubles with every consecutive reconnection,
+     * up to a maximum. The delay is randomized by up to half, so that shards that lost their connections at
+     * the same time do not reconnect at the same time. Must be called while holding the connection mutex.
+     * @return The delay in milliseconds.
+     */
+    private long backoff() {
+        long delay = Math.min(RECONNECT_DELAY_MAX, RECONNECT_DELAY_MIN << Math.min(reconnects, 16));
+        reconnects++;
+        return delay - ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+    }
+
+    /**
+     * Cancels the pending reconnection and IDENTIFY, after the gateway was closed.
+     * Must be called while holding the connection mutex.
+     */
+    private void cancelPending() {
+        if(pendingOpen != null) {
+            pendingOpen.cancel();
+            pendingOpen = null;
+        }
+        if(pendingIdentify != null) {
+            pendingIdentify.cancel();
+            pendingIdentify = null;
+        }
+    }
+
+    /**
+     * Listens to a single websocket connection.
+     * Every connection has its own zlib stream, and therefore its own decoder.
+     */
+    private final class Listener extends WebSocketListener {
+
+        private final ZlibStreamDecoder decoder;
+        private final boolean etf;
+
+        Listener(ZlibStreamDecoder decoder, boolean etf) {
+            this.decoder = decoder;
+            this.etf = etf;
+        }
+
+        @Override
+        public void onMessage(WebSocket webSocket, String text) {
+            if(webSocket == socket) {
+                long received = System.nanoTime();
+                byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+                handle(reader(bytes, bytes.length), received);
+            }
+        }
+
+        @Override
+        public void onMessage(WebSocket webSocket, ByteString bytes) {
+            if(webSocket != socket) {
+                return;
+            }
+            long received = System.nanoTime();
+            if(decoder == null) {
+                handle(reader(bytes.toByteArray(), bytes.size()), received);
+                return;
+            }
+            synchronized(decoder) { // Only contended when the connection is closed concurrently.
+                try {
+                    if(decoder.feed(bytes.asByteBuffer())) {
+                        int length = decoder.inflate(); // May replace the output buffer.
+                        handle(reader(decoder.output(), length), received);
+                    }
+                } catch(DataFormatException exception) {
+                    client.getLog().log(LLDJWLogLevel.FATAL, "Could not decompress payload: %s", exception);
+                    webSocket.close(LLDJWConstants.API_GATEWAY_CLOSE_DECODE, "decompression");
+                }
+            }
+        }
+
+        @Override
+        public void onClosing(WebSocket webSocket, int code, String reason) {
+            // Closed by Discord. OkHttp only calls onClosed once the close was echoed, so it is handled here,
+            // before echoing it, which lets onClosed run concurrently.
+            closed(webSocket, code, reason);
+            webSocket.close(code >= LLDJWConstants.API_GATEWAY_CLOSE_ERROR ? code : LLDJWConstants.API_GATEWAY_CLOSE_GRACE, null);
+        }
+
+        @Override
+        public void onClosed(WebSocket webSocket, int code, String reason) {
+            closed(webSocket, code, reason);
+        }
+
+        @Override
+        public void onFailure(WebSocket webSocket, Throwable throwable, Response response) {
+            client.getLog().log(LLDJWLogLevel.FATAL, "Gateway connection failed: %s", throwable);
+            lost(webSocket);
+        }
+
+        private PayloadReader reader(byte[] buffer, int length) {
+            return etf ? new EtfReader(buffer, 0, length) : new JsonReader(buffer, 0, length);
+        }
+
+        /**
+         * Handles a close of the connection, once. Stale connections, including those closed by the client,
+         * are only cleaned up.
+         * @param webSocket The connection.
+         * @param code The close code.
+         * @param reason The close reason.
+         */
+        private void closed(WebSocket webSocket, int code, String reason) {
+            if(webSocket == socket) {
+                client.getLog().log(LLDJWLogLevel.INFO, "Gateway closed with %d: %s", code, reason);
+                if(code == LLDJWConstants.API_GATEWAY_CLOSE_SEQ || code == LLDJWConstants.API_GATEWAY_CLOSE_TIMEOUT) {
+                    invalidate(); // The session can not be resumed.
+                } else if(isFatal(code)) {
+                    client.getLog().log(LLDJWLogLevel.FATAL, "Gateway closed with %d, not reconnecting: %s", code, reason);
+                    invalidate();
+                    synchronized(connectionMutex) {
+                        closing = true;
+                    }
+                }
+            }
+            lost(webSocket);
+        }
+
+        private void lost(WebSocket webSocket) {
+            if(decoder != null) {
+                synchronized(decoder) {
+                    decoder.close();
+                }
+            }
+            synchronized(connectionMutex) {
+                if(!disconnected(webSocket) || closing) {
+                    return;
+                }
+                client.getGatewayMetrics().reconnected();
+                long delay = backoff();
+                client.getLog().log(LLDJWLogLevel.INFO, "Reconnecting in %d ms", delay);
+                pendingOpen = timers.schedule(() -> control.execute(LLDJWGateway.this::open), delay);
+            }
+        }
+
+    }
+
+    /**
+     * Whether or not a close code means that reconnecting can not succeed, because the token, the shard,
+     * the API version or the intents are rejected.
+     * @param code The close code.
+     * @return True if the gateway should not reconnect.
+     */
+    private static boolean isFatal(int code) {
+        switch(code) {
+            case LLDJWConstants.API_GATEWAY_CLOSE_TOKEN:
+            case LLDJWConstants.API_GATEWAY_CLOSE_SHARD_INVALID:
+            case LLDJWConstants.API_GATEWAY_CLOSE_SHARD_REQUIRED:
+            case LLDJWConstants.API_GATEWAY_CLOSE_VERSION_INVALID:
+            case LLDJWConstants.API_GATEWAY_CLOSE_INTENTS_INVALID:
+            case LLDJWConstants.API_GATEWAY_CLOSE_INTENTS_DISALLOWED:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static long now() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime());
+    }
+
 }
@@ -0,0 +1,296 @@
+/*
+ * This file is part of the LLDJW distribution (https://github.com/LLDJW/LLDJW).
+ * Copyright (c) 2020 LLDJW Contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.lldjw;
+
+import com.github.lldjw.internal.LLDJWConstants;
+import com.github.lldjw.internal.gateway.IdentifyScheduler;
+import com.github.lldjw.internal.rest.RestHandler;
+import de.arraying.kotys.JSON;
+import okhttp3.OkHttpClient;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * The shard manager starts and coordinates all shards of a bot, where every shard is its own {@link LLDJW} client.
+ * The recommended amount of shards and the session start limit are retrieved from the REST API.
+ * All shards share a single REST handler, and therefore their rate limits.
+ *
+ * Discord only allows a limited amount of concurrent IDENTIFY payloads (max_concurrency). The shards are connected
+ * all at once, but identify in buckets of max_concurrency shards every five seconds.
+ */
+public final class LLDJWShardManager {
+
+    private final String token;
+    private final Object shardMutex = new Object();
+    private OkHttpClient httpClient = new OkHttpClient();
+    private String apiBase = LLDJWConstants.API_BASE;
+    private String gatewayUrl;
+    private int shardCount;
+    private long identifyInterval = IdentifyScheduler.INTERVAL;
+    private Path sessionDirectory;
+    private Consumer<LLDJW> configurator = shard -> {};
+    private List<LLDJW> shards = Collections.emptyList();
+    private IdentifyScheduler identifyScheduler;
+
+    /**
+     * Creates a new shard manager.
+     * @param token The token to use to authenticate with Discord.
+     * @throws IllegalArgumentException If the token is null or empty.
+     */
+    public LLDJWShardManager(String token) {
+        if(token == null || token.isEmpty()) {
+            throw new IllegalArgumentException("token is null or empty");
+        }
+        this.token = token;
+    }
+
+    /**
+     * Specifies the OkHTTPClient that all shards use.
+     * @param client The new client.
+     * @return This, for chaining.
+     * @throws NullPointerException If the client is null.
+     */
+    public LLDJWShardManager useHttpClient(OkHttpClient client) {
+        if(client == null) {
+            throw new NullPointerException("client is null");
+        }
+        this.httpClient = client;
+        return this;
+    }
+
+    /**
+     * Specifies the base URL of the REST API, see {@link LLDJW#useApiBase(String)}.
+     * @param base The new base URL.
+     * @return This, for chaining.
+     * @throws NullPointerException If the base URL is null.
+     */
+    public LLDJWShardManager useApiBase(String base) {
+        if(base == null) {
+            throw new NullPointerException("base is null");
+        }
+        this.apiBase = base;
+        return this;
+    }
+
+    /**
+     * Specifies the URL of the gateway, see {@link LLDJWGateway#useUrl(String)}.
+     * @param url The URL, or null (default) to use the URL that the REST API returns.
+     * @return This, for chaining.
+     */
+    public LLDJWShardManager useGatewayUrl(String url) {
+        this.gatewayUrl = url;
+        return this;
+    }
+
+    /**
+     * Specifies the amount of shards.
+     * @param shardCount The amount of shards, or 0 (default) to use the amount recommended by Discord.
+     * @return This, for chaining.
+     * @throws IllegalArgumentException If the amount is negative.
+     */
+    public LLDJWShardManager useShardCount(int shardCount) {
+        if(shardCount < 0) {
+            throw new IllegalArgumentException("shard count is negative");
+        }
+        this.shardCount = shardCount;
+        return this;
+    }
+
+    /**
+     * Specifies the time between two IDENTIFY payloads in the same bucket.
+     * This should only be changed when testing against a local gateway.
+     * @param interval The interval in milliseconds, {@link IdentifyScheduler#INTERVAL} by default.
+     * @return This, for chaining.
+     * @throws IllegalArgumentException If the interval is negative.
+     */
+    public LLDJWShardManager useIdentifyInterval(long interval) {
+        if(interval < 0) {
+            throw new IllegalArgumentException("interval is negative");
+        }
+        this.identifyInterval = interval;
+        return this;
+    }
+
+    /**
+     * Specifies the directory that the sessions of the shards are persisted to, see
+     * {@link LLDJWGateway#useSessionFile(Path)}. Every shard uses the file session-&lt;id&gt;.json in the directory.
+     * @param directory The directory, which must exist, or null (default) to not persist sessions.
+     * @return This, for chaining.
+     */
+    public LLDJWShardManager useSessionDirectory(Path directory) {
+        this.sessionDirectory = directory;
+        return this;
+    }
+
+    /**
+     * Specifies a configurator, which is invoked for every shard before it connects.
+     * This is where event handlers, the cache level, the log, etc. should be set.
+     * The HTTP client and API base should not be changed here, as the shards would stop sharing rate limits.
+     * @param configurator The configurator.
+     * @return This, for chaining.
+     * @throws NullPointerException If the configurator is null.
+     */
+    public LLDJWShardManager useConfigurator(Consumer<LLDJW> configurator) {
+        if(configurator == null) {
+            throw new NullPointerException("configurator is null");
+        }
+        this.configurator = configurator;
+        return this;
+    }
+
+    /**
+     * Starts all shards.
+     * This retrieves the shard information, and then opens the gateway connection of every shard.
+     * The method returns once all connections are opening; the shards identify in the background.
+     * If the session start limit does not allow every shard to identify, this blocks until the limit resets
+     * (reset_after, up to a day), and then retrieves the shard information again. Interrupt the thread to give up.
+     * @return This, for chaining.
+     * @throws IOException If the shard information could not be retrieved, or the thread was interrupted while
+     * waiting for the session start limit to reset ({@link InterruptedIOException}).
+     * @throws IllegalStateException If the shards are already started.
+     */
+    public LLDJWShardManager start() throws IOException {
+        synchronized(shardMutex) {
+            if(!shards.isEmpty()) {
+                throw new IllegalStateException("shards are already started");
+            }
+        }
+        RestHandler restHandler = new RestHandler(httpClient, apiBase, token);
+        JSON info;
+        JSON limit;
+        int total;
+        while(true) { // Not holding the mutex, the wait can be long.
+            info = restHandler.execute("GET", LLDJWConstants.API_GATEWAY_BOT, null);
+            limit = info.json("session_start_limit");
+            total = shardCount > 0 ? shardCount : info.integer("shards");
+            if(limit.integer("remaining") >= total) {
+                break;
+            }
+            awaitReset(limit.large("reset_after"));
+        }
+        synchronized(shardMutex) {
+            if(!shards.isEmpty()) { // Started concurrently.
+                throw new IllegalStateException("shards are already started");
+            }
+            int maxConcurrency = limit.has("max_concurrency") ? limit.integer("max_concurrency") : 1;
+            String url = gatewayUrl == null ? info.string("url") : gatewayUrl;
+            identifyScheduler = new IdentifyScheduler(maxConcurrency, identifyInterval);
+            List<LLDJW> started = new ArrayList<>(total);
+            for(int id = 0; id < total; id++) {
+                LLDJW shard = new LLDJW(token)
+                        .useHttpClient(httpClient)
+                        .useShard(id, total);
+                configurator.accept(shard);
+                shard.useRestHandler(restHandler);
+                shard.gateway().useUrl(url);
+                shard.gateway().useIdentifyScheduler(identifyScheduler);
+                if(sessionDirectory != null) {
+                    shard.gateway().useSessionFile(sessionDirectory.resolve("session-" + id + ".json"));
+                }
+                started.add(shard);
+            }
+            shards = Collections.unmodifiableList(started);
+            for(LLDJW shard : shards) {
+                shard.gateway().open();
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Closes the gateway connection of all shards.
+     * The shards are discarded, so the manager can be started again.
+     * @return This, for chaining.
+     */
+    public LLDJWShardManager stop() {
+        return stop(false);
+    }
+
+    /**
+     * Closes the gateway connection of all shards, but keeps their sessions resumable,
+     * see {@link LLDJWGateway#closeResumable()}.
+     * Together with a session directory, this lets a restarted process resume all shards.
+     * @return This, for chaining.
+     */
+    public LLDJWShardManager stopResumable() {
+        return stop(true);
+    }
+
+    private LLDJWShardManager stop(boolean resumable) {
+        synchronized(shardMutex) {
+            for(LLDJW shard : shards) {
+                if(resumable) {
+                    shard.gateway().closeResumable();
+                } else {
+                    shard.gateway().close();
+                }
+            }
+            if(identifyScheduler != null) {
+                identifyScheduler.shutdown();
+                identifyScheduler = null;
+            }
+            shards = Collections.emptyList();
+        }
+        return this;
+    }
+
+    /**
+     * Waits for the session start limit to reset.
+     * @param resetAfter The time until the reset, in milliseconds.
+     * @throws InterruptedIOException If the thread was interrupted.
+     */
+    private static void awaitReset(long resetAfter) throws InterruptedIOException {
+        try {
+            TimeUnit.MILLISECONDS.sleep(Math.max(resetAfter, 1));
+        } catch(InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while waiting for the session start limit to reset");
+        }
+    }
+
+    /**
+     * Gets all shards.
+     * @return An unmodifiable list of shards, indexed by shard ID. Empty if the manager is not started.
+     */
+    public List<LLDJW> getShards() {
+        synchronized(shardMutex) {
+            return shards;
+        }
+    }
+
+    /**
+     * Gets the shard that receives the events of a guild.
+     * @param guild The ID of the guild.
+     * @return The shard, or null if the manager is not started.
+     */
+    public LLDJW getShardFor(long guild) {
+        synchronized(shardMutex) {
+            if(shards.isEmpty()) {
+                return null;
+            }
+            return shards.get((int) ((guild >>> 22) % shards.size()));
+        }
+    }
+
+}
@@ -0,0 +1,108 @@
+/*
+ * This file is part of the LLDJW distribution (https://github.com/LLDJW/LLDJW).
+ * Copyright (c) 2020 LLDJW Contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.lldjw.api.entity;
+
+/**
+ * A snapshot of the statistics of one type of cached entity. Hits and misses count lookups with
+ * {@link Lookup#CACHE} and {@link Lookup#GLOBAL}; a miss of the latter falls back to the REST API.
+ * The counters accumulate over the lifetime of the client.
+ */
+public final class CacheStats {
+
+    private final CacheType type;
+    private final long size;
+    private final long limit;
+    private final long hits;
+    private final long misses;
+    private final long evictions;
+
+    /**
+     * Creates a new snapshot.
+     * @param type The type of entity.
+     * @param size The amount of cached entities.
+     * @param limit The maximum amount of cached entities.
+     * @param hits The amount of lookups that were served by the cache.
+     * @param misses The amount of lookups that were not served by the cache.
+     * @param evictions The amount of entities that were evicted to stay within the limit.
+     */
+    public CacheStats(CacheType type, long size, long limit, long hits, long misses, long evictions) {
+        this.type = type;
+        this.size = size;
+        this.limit = limit;
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+    }
+
+    /**
+     * Gets the type of entity.
+     * @return The type.
+     */
+    public CacheType getType() {
+        return type;
+    }
+
+    /**
+     * Gets the amount of cached entities.
+     * @return The amount, which may briefly exceed the limit while entities are evicted.
+     */
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * Gets the maximum amount of cached entities, which is the lower of the maximum amount and the memory budget.
+     * @return The maximum, {@link Long#MAX_VALUE} if the cache is unbounded.
+     */
+    public long getLimit() {
+        return limit;
+    }
+
+    /**
+     * Gets the amount of lookups that were served by the cache.
+     * @return The amount.
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * Gets the amount of lookups that were not served by the cache.
+     * @return The amount.
+     */
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Gets the ratio of lookups that were served by the cache.
+     * @return The ratio in [0, 1], or 0 if there were no lookups.
+     */
+    public double getHitRate() {
+        long total = hits + misses;
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    /**
+     * Gets the amount of entities that were evicted to stay within the limit.
+     * @return The amount.
+     */
+    public long getEvictions() {
+        return evictions;
+    }
+
+}
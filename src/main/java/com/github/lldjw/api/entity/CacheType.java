@@ -0,0 +1,66 @@
+/*
+ * This file is part of the LLDJW distribution (https://github.com/LLDJW/LLDJW).
+ * Copyright (c) 2020 LLDJW Contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.lldjw.api.entity;
+
+/**
+ * CacheType represents a type of cached entity that can be bounded, see {@link com.github.lldjw.LLDJW#useCacheLimit}.
+ * Every type has an estimated size, which converts a memory budget into an amount of entities. The estimates include
+ * the entry in the cache, and typical strings (names, timestamps); they were measured on a 64-bit JVM with
+ * compressed references.
+ */
+public enum CacheType {
+
+    /**
+     * Channels of guilds.
+     */
+    CHANNELS(192),
+
+    /**
+     * Custom emojis of guilds.
+     */
+    EMOJIS(128),
+
+    /**
+     * Guilds.
+     */
+    GUILDS(256),
+
+    /**
+     * Guild members, over all guilds.
+     */
+    MEMBERS(64),
+
+    /**
+     * Users.
+     */
+    USERS(160);
+
+    private final int estimatedSize;
+
+    CacheType(int estimatedSize) {
+        this.estimatedSize = estimatedSize;
+    }
+
+    /**
+     * Gets the estimated size of a single entity in the cache.
+     * @return The size in bytes.
+     */
+    public int getEstimatedSize() {
+        return estimatedSize;
+    }
+
+}
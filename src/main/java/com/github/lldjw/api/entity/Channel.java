@@ -16,14 +16,162 @@
  */
 package com.github.lldjw.api.entity;
 
+import com.github.lldjw.internal.Snowflake;
+import com.github.lldjw.internal.payload.PayloadReader;
 import de.arraying.kotys.JSON;
 
-// TODO: document.
-public final class Channel implements Assignable<JSON> {
+/**
+ * A Discord channel. This can be a guild channel, a category, or a direct message channel.
+ */
+public final class Channel implements Assignable<JSON>, StreamAssignable {
+
+    private final long id;
+    private long guildId;
+    private long parentId;
+    private int type;
+    private int position;
+    private String name;
+    private String topic;
+
+    /**
+     * Creates a new channel without any data.
+     * @param id The ID of the channel.
+     */
+    public Channel(long id) {
+        this.id = id;
+    }
+
+    /**
+     * Gets the ID.
+     * @return The ID.
+     */
+    public long getId() {
+        return id;
+    }
+
+    /**
+     * Gets the ID of the guild.
+     * @return The ID of the guild, 0 if the channel is not in a guild or it is unknown.
+     */
+    public long getGuildId() {
+        return guildId;
+    }
+
+    /**
+     * Gets the ID of the parent category.
+     * @return The ID of the category, 0 if there is none.
+     */
+    public long getParentId() {
+        return parentId;
+    }
+
+    /**
+     * Gets the type, as defined by Discord (0 is a text channel, 2 a voice channel, 4 a category, etc.).
+     * @return The type.
+     */
+    public int getType() {
+        return type;
+    }
+
+    /**
+     * Gets the sorting position.
+     * @return The position.
+     */
+    public int getPosition() {
+        return position;
+    }
+
+    /**
+     * Gets the name.
+     * @return The name, null if it has none (direct messages) or it is unknown.
+     */
+    public String getName() {
+        return name;
+    }
 
+    /**
+     * Gets the topic.
+     * @return The topic, null if there is none.
+     */
+    public String getTopic() {
+        return topic;
+    }
+
+    /**
+     * Whether or not the offered value is the same channel.
+     * @param from The offered value.
+     * @return True if the IDs match, false otherwise.
+     */
+    @Override
+    public boolean isCompatible(JSON from) {
+        return Snowflake.of(from, "id") == id;
+    }
+
+    /**
+     * Updates the channel. Only the keys that are present are updated.
+     * Channels inside of a GUILD_CREATE do not contain the guild ID, it has to be set by the caller.
+     * @param from The offered value.
+     */
     @Override
     public void offer(JSON from) {
-        // TODO: implement.
+        if(from.has("guild_id")) {
+            guildId = Snowflake.of(from, "guild_id");
+        }
+        if(from.has("parent_id")) {
+            parentId = Snowflake.of(from, "parent_id");
+        }
+        if(from.has("type")) {
+            type = from.integer("type");
+        }
+        if(from.has("position")) {
+            position = from.integer("position");
+        }
+        if(from.has("name")) {
+            name = from.string("name");
+        }
+        if(from.has("topic")) {
+            topic = from.string("topic");
+        }
+    }
+
+    /**
+     * Updates a single field of the channel.
+     * @param field The name of the field.
+     * @param from The reader, positioned at the value of the field.
+     * @return True if the value was consumed, false if it should be skipped.
+     */
+    @Override
+    public boolean offer(String field, PayloadReader from) {
+        switch(field) {
+            case "guild_id":
+                guildId = from.nextSnowflake();
+                return true;
+            case "parent_id":
+                parentId = from.nextSnowflake();
+                return true;
+            case "type":
+                type = from.nextInt();
+                return true;
+            case "position":
+                position = from.nextInt();
+                return true;
+            case "name":
+                name = from.nextString();
+                return true;
+            case "topic":
+                topic = from.nextString();
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Sets the ID of the guild, for channels that are sent as part of their guild.
+     * @param guildId The ID of the guild.
+     */
+    public void setGuildId(long guildId) {
+        this.guildId = guildId;
     }
 
 }
@@ -16,14 +16,110 @@
  */
 package com.github.lldjw.api.entity;
 
+import com.github.lldjw.internal.Snowflake;
+import com.github.lldjw.internal.payload.PayloadReader;
 import de.arraying.kotys.JSON;
 
-// TODO: document.
-public final class Emoji implements Assignable<JSON> {
+/**
+ * A custom emoji of a guild.
+ */
+public final class Emoji implements Assignable<JSON>, StreamAssignable {
+
+    private final long id;
+    private long guildId;
+    private String name;
+    private boolean animated;
+
+    /**
+     * Creates a new emoji without any data.
+     * @param id The ID of the emoji.
+     */
+    public Emoji(long id) {
+        this.id = id;
+    }
+
+    /**
+     * Gets the ID.
+     * @return The ID.
+     */
+    public long getId() {
+        return id;
+    }
+
+    /**
+     * Gets the ID of the guild.
+     * @return The ID of the guild, 0 if unknown.
+     */
+    public long getGuildId() {
+        return guildId;
+    }
+
+    /**
+     * Gets the name.
+     * @return The name, null if unknown.
+     */
+    public String getName() {
+        return name;
+    }
 
+    /**
+     * Whether or not the emoji is animated.
+     * @return True if it is, false otherwise.
+     */
+    public boolean isAnimated() {
+        return animated;
+    }
+
+    /**
+     * Whether or not the offered value is the same emoji.
+     * @param from The offered value.
+     * @return True if the IDs match, false otherwise.
+     */
+    @Override
+    public boolean isCompatible(JSON from) {
+        return Snowflake.of(from, "id") == id;
+    }
+
+    /**
+     * Updates the emoji. Only the keys that are present are updated.
+     * @param from The offered value.
+     */
     @Override
     public void offer(JSON from) {
-        // TODO: implement.
+        if(from.has("name")) {
+            name = from.string("name");
+        }
+        if(from.has("animated")) {
+            animated = Boolean.TRUE.equals(from.bool("animated"));
+        }
+    }
+
+    /**
+     * Updates a single field of the emoji.
+     * @param field The name of the field.
+     * @param from The reader, positioned at the value of the field.
+     * @return True if the value was consumed, false if it should be skipped.
+     */
+    @Override
+    public boolean offer(String field, PayloadReader from) {
+        switch(field) {
+            case "name":
+                name = from.nextString();
+                return true;
+            case "animated":
+                animated = from.nextBoolean();
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Sets the ID of the guild, since emojis are sent as part of their guild.
+     * @param guildId The ID of the guild.
+     */
+    public void setGuildId(long guildId) {
+        this.guildId = guildId;
     }
 
 }
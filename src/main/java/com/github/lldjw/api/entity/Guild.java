@@ -16,14 +16,153 @@
  */
 package com.github.lldjw.api.entity;
 
+import com.github.lldjw.internal.Snowflake;
+import com.github.lldjw.internal.payload.PayloadReader;
 import de.arraying.kotys.JSON;
 
-// TODO: document.
-public final class Guild implements Assignable<JSON> {
+/**
+ * A Discord guild (server).
+ * The channels, members and emojis of a guild are cached separately, and can be looked up by ID.
+ */
+public final class Guild implements Assignable<JSON>, StreamAssignable {
+
+    private final long id;
+    private String name;
+    private String icon;
+    private long ownerId;
+    private int memberCount;
+    private boolean large;
+    private boolean unavailable;
+
+    /**
+     * Creates a new guild without any data.
+     * @param id The ID of the guild.
+     */
+    public Guild(long id) {
+        this.id = id;
+    }
+
+    /**
+     * Gets the ID.
+     * @return The ID.
+     */
+    public long getId() {
+        return id;
+    }
+
+    /**
+     * Gets the name.
+     * @return The name, null if unknown.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Gets the icon hash.
+     * @return The icon hash, null if the guild has no icon or it is unknown.
+     */
+    public String getIcon() {
+        return icon;
+    }
+
+    /**
+     * Gets the ID of the owner.
+     * @return The ID of the owner, 0 if unknown.
+     */
+    public long getOwnerId() {
+        return ownerId;
+    }
 
+    /**
+     * Gets the amount of members, as reported by Discord when the guild was created.
+     * @return The member count, 0 if unknown.
+     */
+    public int getMemberCount() {
+        return memberCount;
+    }
+
+    /**
+     * Whether or not the guild is large, in which case offline members are not sent initially.
+     * @return True if it is, false otherwise.
+     */
+    public boolean isLarge() {
+        return large;
+    }
+
+    /**
+     * Whether or not the guild is unavailable due to an outage.
+     * @return True if it is, false otherwise.
+     */
+    public boolean isUnavailable() {
+        return unavailable;
+    }
+
+    /**
+     * Whether or not the offered value is the same guild.
+     * @param from The offered value.
+     * @return True if the IDs match, false otherwise.
+     */
+    @Override
+    public boolean isCompatible(JSON from) {
+        return Snowflake.of(from, "id") == id;
+    }
+
+    /**
+     * Updates the guild. Only the keys that are present are updated.
+     * @param from The offered value.
+     */
     @Override
     public void offer(JSON from) {
-        // TODO: implement.
+        if(from.has("name")) {
+            name = from.string("name");
+        }
+        if(from.has("icon")) {
+            icon = from.string("icon");
+        }
+        if(from.has("owner_id")) {
+            ownerId = Snowflake.of(from, "owner_id");
+        }
+        if(from.has("member_count")) {
+            memberCount = from.integer("member_count");
+        }
+        if(from.has("large")) {
+            large = Boolean.TRUE.equals(from.bool("large"));
+        }
+        unavailable = from.has("unavailable") && Boolean.TRUE.equals(from.bool("unavailable"));
+    }
+
+    /**
+     * Updates a single field of the guild.
+     * Unlike {@link #offer(JSON)}, the unavailable flag is only changed if the field is present.
+     * @param field The name of the field.
+     * @param from The reader, positioned at the value of the field.
+     * @return True if the value was consumed, false if it should be skipped.
+     */
+    @Override
+    public boolean offer(String field, PayloadReader from) {
+        switch(field) {
+            case "name":
+                name = from.nextString();
+                return true;
+            case "icon":
+                icon = from.nextString();
+                return true;
+            case "owner_id":
+                ownerId = from.nextSnowflake();
+                return true;
+            case "member_count":
+                memberCount = from.nextInt();
+                return true;
+            case "large":
+                large = from.nextBoolean();
+                return true;
+            case "unavailable":
+                unavailable = from.nextBoolean();
+                return true;
+            default:
+                return false;
+        }
     }
 
 }
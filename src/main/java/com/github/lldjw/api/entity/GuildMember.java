@@ -16,14 +16,171 @@
  */
 package com.github.lldjw.api.entity;
 
+import com.github.lldjw.internal.Snowflake;
+import com.github.lldjw.internal.cache.MemberStore;
+import com.github.lldjw.internal.payload.PayloadReader;
 import de.arraying.kotys.JSON;
 
-// TODO: document.
-public final class GuildMember implements Assignable<JSON> {
+import java.util.Arrays;
 
+/**
+ * A member of a guild. The user itself is cached separately, and shared by all members of that user,
+ * see {@link #getUser()}.
+ *
+ * Members are stored by column per guild (see {@link MemberStore}), and an instance is a lightweight view of one
+ * member in such a store: it reads the current values of the member, and updates it in place. A view of a member
+ * that was removed from the cache returns no data. Members that are created directly have their own store.
+ */
+public final class GuildMember implements Assignable<JSON>, StreamAssignable {
+
+    private final MemberStore store;
+    private final int row;
+    private final User user;
+
+    /**
+     * Creates a new guild member without any data.
+     * @param guildId The ID of the guild.
+     * @param userId The ID of the user.
+     */
+    public GuildMember(long guildId, long userId) {
+        this(guildId, new User(userId));
+    }
+
+    /**
+     * Creates a new guild member without any data.
+     * @param guildId The ID of the guild.
+     * @param user The user, which should be the cached instance if there is one.
+     */
+    public GuildMember(long guildId, User user) {
+        if(user == null) {
+            throw new NullPointerException("user is null");
+        }
+        this.store = new MemberStore(guildId);
+        this.row = store.add(user);
+        this.user = user;
+        store.publish(row, user.getId());
+    }
+
+    /**
+     * Creates a view of a member in a store. Used by the cache, see {@link MemberStore#get(long)}.
+     * @param store The store.
+     * @param row The row of the member.
+     * @param user The user.
+     */
+    public GuildMember(MemberStore store, int row, User user) {
+        this.store = store;
+        this.row = row;
+        this.user = user;
+    }
+
+    /**
+     * Gets the ID of the guild.
+     * @return The ID of the guild.
+     */
+    public long getGuildId() {
+        return store.getGuildId();
+    }
+
+    /**
+     * Gets the ID of the user.
+     * @return The ID of the user.
+     */
+    public long getUserId() {
+        return user.getId();
+    }
+
+    /**
+     * Gets the user. For cached members, this is the cached user, which is shared with the members of the user
+     * in other guilds. Otherwise, it may be a user without any data.
+     * @return The user.
+     */
+    public User getUser() {
+        return user;
+    }
+
+    /**
+     * Gets the nickname.
+     * @return The nickname, null if there is none.
+     */
+    public String getNick() {
+        return store.getNick(row, user.getId());
+    }
+
+    /**
+     * Gets the IDs of the roles.
+     * @return A copy of the role IDs.
+     */
+    public long[] getRoles() {
+        return store.getRoles(row, user.getId());
+    }
+
+    /**
+     * Gets the time the member joined the guild.
+     * @return An ISO8601 timestamp in UTC, null if unknown.
+     */
+    public String getJoinedAt() {
+        return store.getJoinedAt(row, user.getId());
+    }
+
+    /**
+     * Whether or not the offered value is the same member. Members are identified by their user.
+     * @param from The offered value.
+     * @return True if the user IDs match, false otherwise.
+     */
+    @Override
+    public boolean isCompatible(JSON from) {
+        return from.has("user") && Snowflake.of(from.json("user"), "id") == user.getId();
+    }
+
+    /**
+     * Updates the member. Only the keys that are present are updated.
+     * @param from The offered value.
+     */
     @Override
     public void offer(JSON from) {
-        // TODO: implement.
+        if(from.has("nick")) {
+            store.setNick(row, user.getId(), from.string("nick"));
+        }
+        if(from.has("roles")) {
+            long[] roles = Snowflake.array(from, "roles");
+            store.setRoles(row, user.getId(), roles, roles.length);
+        }
+        if(from.has("joined_at")) {
+            store.setJoinedAt(row, user.getId(), from.string("joined_at"));
+        }
+    }
+
+    /**
+     * Updates a single field of the member. The user is not consumed, it is cached separately.
+     * @param field The name of the field.
+     * @param from The reader, positioned at the value of the field.
+     * @return True if the value was consumed, false if it should be skipped.
+     */
+    @Override
+    public boolean offer(String field, PayloadReader from) {
+        switch(field) {
+            case "nick":
+                store.setNick(row, user.getId(), from.nextString());
+                return true;
+            case "roles":
+                long[] read = new long[8];
+                int count = 0;
+                from.beginArray();
+                while(from.hasNext()) {
+                    if(count == read.length) {
+                        read = Arrays.copyOf(read, count * 2);
+                    }
+                    read[count++] = from.nextSnowflake();
+                }
+                from.endArray();
+                store.setRoles(row, user.getId(), read, count);
+                return true;
+            case "joined_at":
+                store.setJoinedAt(row, user.getId(), from.nextString());
+                return true;
+            default:
+                return false;
+        }
     }
 
 }
@@ -16,14 +16,74 @@
  */
 package com.github.lldjw.api.entity;
 
+import com.github.lldjw.internal.Snowflake;
 import de.arraying.kotys.JSON;
 
-// TODO: document.
+/**
+ * An invite to a guild channel.
+ */
 public final class Invite implements Assignable<JSON> {
 
+    private final long id;
+    private String code;
+    private long guildId;
+    private long channelId;
+
+    /**
+     * Creates a new invite without any data.
+     * @param id The ID of the invite.
+     */
+    public Invite(long id) {
+        this.id = id;
+    }
+
+    /**
+     * Gets the ID.
+     * @return The ID.
+     */
+    public long getId() {
+        return id;
+    }
+
+    /**
+     * Gets the code, which is used in the invite URL.
+     * @return The code, null if unknown.
+     */
+    public String getCode() {
+        return code;
+    }
+
+    /**
+     * Gets the ID of the guild.
+     * @return The ID of the guild, 0 if unknown.
+     */
+    public long getGuildId() {
+        return guildId;
+    }
+
+    /**
+     * Gets the ID of the channel.
+     * @return The ID of the channel, 0 if unknown.
+     */
+    public long getChannelId() {
+        return channelId;
+    }
+
+    /**
+     * Updates the invite. Only the keys that are present are updated.
+     * @param from The offered value.
+     */
     @Override
     public void offer(JSON from) {
-        // TODO: implement.
+        if(from.has("code")) {
+            code = from.string("code");
+        }
+        if(from.has("guild_id")) {
+            guildId = Snowflake.of(from, "guild_id");
+        }
+        if(from.has("channel_id")) {
+            channelId = Snowflake.of(from, "channel_id");
+        }
     }
 
 }
@@ -0,0 +1,52 @@
+/*
+ * This file is part of the LLDJW distribution (https://github.com/LLDJW/LLDJW).
+ * Copyright (c) 2020 LLDJW Contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.lldjw.api.entity;
+
+import com.github.lldjw.internal.payload.PayloadReader;
+
+/**
+ * StreamAssignable is the streaming counterpart of {@link Assignable}.
+ * Instead of being offered an entire JSON tree, the supertype is offered one field at a time, directly from the
+ * gateway payload. This avoids building a tree for every dispatch.
+ */
+public interface StreamAssignable {
+
+    /**
+     * Change the supertype based off of a single field.
+     * If the field is consumed, exactly one value must be read from the reader.
+     * @param field The name of the field.
+     * @param from The reader, positioned at the value of the field.
+     * @return True if the value was consumed, false if it should be skipped.
+     */
+    boolean offer(String field, PayloadReader from);
+
+    /**
+     * Change the supertype based off of an entire object, by offering every field.
+     * @param from The reader, positioned at the object.
+     */
+    default void offer(PayloadReader from) {
+        from.beginObject();
+        while(from.hasNext()) {
+            String field = from.nextName();
+            if(!offer(field, from)) {
+                from.skipValue();
+            }
+        }
+        from.endObject();
+    }
+
+}
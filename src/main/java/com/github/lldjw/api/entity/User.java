@@ -16,14 +16,126 @@
  */
 package com.github.lldjw.api.entity;
 
+import com.github.lldjw.internal.Snowflake;
+import com.github.lldjw.internal.cache.ReferenceCounted;
+import com.github.lldjw.internal.payload.PayloadReader;
 import de.arraying.kotys.JSON;
 
-// TODO: document.
-public final class User implements Assignable<JSON> {
+/**
+ * A Discord user. Users are global, they are shared by all guilds they are a member of:
+ * every cached {@link GuildMember} of a user references the same cached instance.
+ * The cache counts these references, and removes a user once it has no cached members anymore.
+ */
+public final class User extends ReferenceCounted implements Assignable<JSON>, StreamAssignable {
+
+    private final long id;
+    private String username;
+    private String discriminator;
+    private String avatar;
+    private boolean bot;
+
+    /**
+     * Creates a new user without any data.
+     * @param id The ID of the user.
+     */
+    public User(long id) {
+        this.id = id;
+    }
+
+    /**
+     * Gets the ID.
+     * @return The ID.
+     */
+    public long getId() {
+        return id;
+    }
+
+    /**
+     * Gets the username, which is not unique.
+     * @return The username, null if unknown.
+     */
+    public String getUsername() {
+        return username;
+    }
+
+    /**
+     * Gets the discriminator, the four digits that follow the username.
+     * @return The discriminator, null if unknown.
+     */
+    public String getDiscriminator() {
+        return discriminator;
+    }
 
+    /**
+     * Gets the avatar hash.
+     * @return The avatar hash, null if the user has the default avatar or it is unknown.
+     */
+    public String getAvatar() {
+        return avatar;
+    }
+
+    /**
+     * Whether or not the user is a bot.
+     * @return True if it is, false otherwise.
+     */
+    public boolean isBot() {
+        return bot;
+    }
+
+    /**
+     * Whether or not the offered value is the same user.
+     * @param from The offered value.
+     * @return True if the IDs match, false otherwise.
+     */
+    @Override
+    public boolean isCompatible(JSON from) {
+        return Snowflake.of(from, "id") == id;
+    }
+
+    /**
+     * Updates the user. Only the keys that are present are updated, since partial users are common.
+     * @param from The offered value.
+     */
     @Override
     public void offer(JSON from) {
-        // TODO: implement.
+        if(from.has("username")) {
+            username = from.string("username");
+        }
+        if(from.has("discriminator")) {
+            discriminator = from.string("discriminator");
+        }
+        if(from.has("avatar")) {
+            avatar = from.string("avatar");
+        }
+        if(from.has("bot")) {
+            bot = Boolean.TRUE.equals(from.bool("bot"));
+        }
+    }
+
+    /**
+     * Updates a single field of the user.
+     * @param field The name of the field.
+     * @param from The reader, positioned at the value of the field.
+     * @return True if the value was consumed, false if it should be skipped.
+     */
+    @Override
+    public boolean offer(String field, PayloadReader from) {
+        switch(field) {
+            case "username":
+                username = from.nextString();
+                return true;
+            case "discriminator":
+                discriminator = from.nextString();
+                return true;
+            case "avatar":
+                avatar = from.nextString();
+                return true;
+            case "bot":
+                bot = from.nextBoolean();
+                return true;
+            default:
+                return false;
+        }
     }
 
 }
@@ -16,12 +16,84 @@
  */
 package com.github.lldjw.api.entity;
 
-// TODO: document.
-public final class WebHook implements Assignable<WebHook> {
+import com.github.lldjw.internal.Snowflake;
+import de.arraying.kotys.JSON;
 
+/**
+ * A webhook of a channel.
+ */
+public final class WebHook implements Assignable<JSON> {
+
+    private final long id;
+    private long guildId;
+    private long channelId;
+    private String name;
+
+    /**
+     * Creates a new webhook without any data.
+     * @param id The ID of the webhook.
+     */
+    public WebHook(long id) {
+        this.id = id;
+    }
+
+    /**
+     * Gets the ID.
+     * @return The ID.
+     */
+    public long getId() {
+        return id;
+    }
+
+    /**
+     * Gets the ID of the guild.
+     * @return The ID of the guild, 0 if unknown.
+     */
+    public long getGuildId() {
+        return guildId;
+    }
+
+    /**
+     * Gets the ID of the channel.
+     * @return The ID of the channel, 0 if unknown.
+     */
+    public long getChannelId() {
+        return channelId;
+    }
+
+    /**
+     * Gets the default name.
+     * @return The name, null if unknown.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Whether or not the offered value is the same webhook.
+     * @param from The offered value.
+     * @return True if the IDs match, false otherwise.
+     */
+    @Override
+    public boolean isCompatible(JSON from) {
+        return Snowflake.of(from, "id") == id;
+    }
+
+    /**
+     * Updates the webhook. Only the keys that are present are updated.
+     * @param from The offered value.
+     */
     @Override
-    public void offer(WebHook from) {
-        // TODO: implement.
+    public void offer(JSON from) {
+        if(from.has("guild_id")) {
+            guildId = Snowflake.of(from, "guild_id");
+        }
+        if(from.has("channel_id")) {
+            channelId = Snowflake.of(from, "channel_id");
+        }
+        if(from.has("name")) {
+            name = from.string("name");
+        }
     }
 
 }
@@ -0,0 +1,119 @@
+/*
+ * This file is part of the LLDJW distribution (https://github.com/LLDJW/LLDJW).
+ * Copyright (c) 2020 LLDJW Contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.lldjw.api.event;
+
+import com.github.lldjw.LLDJW;
+import com.github.lldjw.internal.json.JsonReader;
+import com.github.lldjw.internal.payload.PayloadReader;
+import de.arraying.kotys.JSON;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * An event that was dispatched by the gateway.
+ * The cache is updated before the event is dispatched, so entities can be looked up from the cache.
+ *
+ * Events of the gateway keep their data as a copy of the raw payload. It can be read field by field (see
+ * {@link #getReader()}); the Kotys tree is only built once {@link #getData()} is called.
+ */
+public final class Event {
+
+    private final LLDJW client;
+    private final EventType type;
+    private final PayloadReader reader; // At the start of the data, only moved under the lock.
+    private final int start;
+    private volatile JSON data;
+
+    /**
+     * Creates a new event.
+     * @param client The client that received the event.
+     * @param type The event type.
+     * @param data The event data.
+     */
+    public Event(LLDJW client, EventType type, JSON data) {
+        this.client = client;
+        this.type = type;
+        this.reader = null;
+        this.start = 0;
+        this.data = data;
+    }
+
+    /**
+     * Creates a new event, which keeps a copy of its data.
+     * @param client The client that received the event.
+     * @param type The event type.
+     * @param data The reader, positioned at the event data, which is skipped. The reader can be reused afterwards.
+     */
+    public Event(LLDJW client, EventType type, PayloadReader data) {
+        this.client = client;
+        this.type = type;
+        this.reader = data.copy();
+        this.start = reader.position();
+    }
+
+    /**
+     * Gets the client that received the event, which is the shard if the bot is sharded.
+     * @return The client.
+     */
+    public LLDJW getClient() {
+        return client;
+    }
+
+    /**
+     * Gets the event type.
+     * @return The event type.
+     */
+    public EventType getType() {
+        return type;
+    }
+
+    /**
+     * Gets the event data, as sent by Discord.
+     * The data is decoded into a tree on the first call, which is far more expensive than {@link #getReader()}.
+     * @return The data.
+     */
+    public JSON getData() {
+        JSON current = data;
+        if(current == null && reader != null) {
+            synchronized(reader) {
+                current = data;
+                if(current == null) {
+                    current = getReader().nextJSON();
+                    data = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Gets a reader over the event data, which reads it field by field without building a tree.
+     * Every call returns a new reader at the start of the data, which can be used after the event was handled.
+     * @return The reader.
+     */
+    public PayloadReader getReader() {
+        if(reader == null) {
+            JSON current = data;
+            return new JsonReader((current == null ? "null" : current.marshal()).getBytes(StandardCharsets.UTF_8));
+        }
+        synchronized(reader) {
+            reader.seek(start);
+            return reader.slice();
+        }
+    }
+
+}
@@ -0,0 +1,274 @@
+/*
+ * This file is part of the LLDJW distribution (https://github.com/LLDJW/LLDJW).
+ * Copyright (c) 2020 LLDJW Contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.lldjw.api.event;
+
+import com.github.lldjw.internal.LLDJWConstants;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * EventType represents every dispatch that the gateway can send, and the handler interface that receives it.
+ */
+public enum EventType {
+
+    /**
+     * Dispatched when the client is ready; the initial state (guilds are unavailable until created) was received.
+     */
+    READY(LLDJWConstants.API_EVENT_READY, LLDJWEventHandler.Ready.class,
+            (handler, event) -> ((LLDJWEventHandler.Ready) handler).onReady(event)),
+
+    /**
+     * Dispatched when a session was resumed, and all missed events were replayed.
+     */
+    RESUMED(LLDJWConstants.API_EVENT_RESUMED, LLDJWEventHandler.Resumed.class,
+            (handler, event) -> ((LLDJWEventHandler.Resumed) handler).onResumed(event)),
+
+    /**
+     * Dispatched when a channel was created.
+     */
+    CHANNEL_CREATE(LLDJWConstants.API_EVENT_CHANNEL_CREATE, LLDJWEventHandler.ChannelCreate.class,
+            (handler, event) -> ((LLDJWEventHandler.ChannelCreate) handler).onChannelCreate(event)),
+
+    /**
+     * Dispatched when a channel was updated.
+     */
+    CHANNEL_UPDATE(LLDJWConstants.API_EVENT_CHANNEL_UPDADTE, LLDJWEventHandler.ChannelUpdate.class,
+            (handler, event) -> ((LLDJWEventHandler.ChannelUpdate) handler).onChannelUpdate(event)),
+
+    /**
+     * Dispatched when a channel was deleted.
+     */
+    CHANNEL_DELETE(LLDJWConstants.API_EVENT_CHANNEL_DELETE, LLDJWEventHandler.ChannelDelete.class,
+            (handler, event) -> ((LLDJWEventHandler.ChannelDelete) handler).onChannelDelete(event)),
+
+    /**
+     * Dispatched when a message was pinned or unpinned.
+     */
+    CHANNEL_PINS_UPDATE(LLDJWConstants.API_EVENT_CHANNEL_PINS_UPDATE, LLDJWEventHandler.ChannelPinsUpdate.class,
+            (handler, event) -> ((LLDJWEventHandler.ChannelPinsUpdate) handler).onChannelPinsUpdate(event)),
+
+    /**
+     * Dispatched when a guild became available, or the client joined a guild.
+     */
+    GUILD_CREATE(LLDJWConstants.API_EVENT_GUILD_CREATE, LLDJWEventHandler.GuildCreate.class,
+            (handler, event) -> ((LLDJWEventHandler.GuildCreate) handler).onGuildCreate(event)),
+
+    /**
+     * Dispatched when a guild was updated.
+     */
+    GUILD_UPDATE(LLDJWConstants.API_EVENT_GUILD_UPDATE, LLDJWEventHandler.GuildUpdate.class,
+            (handler, event) -> ((LLDJWEventHandler.GuildUpdate) handler).onGuildUpdate(event)),
+
+    /**
+     * Dispatched when a guild became unavailable, or the client left a guild.
+     */
+    GUILD_DELETE(LLDJWConstants.API_EVENT_GUILD_DELETE, LLDJWEventHandler.GuildDelete.class,
+            (handler, event) -> ((LLDJWEventHandler.GuildDelete) handler).onGuildDelete(event)),
+
+    /**
+     * Dispatched when a user was banned from a guild.
+     */
+    GUILD_BAN_ADD(LLDJWConstants.API_EVENT_GUILD_BAN_ADD, LLDJWEventHandler.GuildBanAdd.class,
+            (handler, event) -> ((LLDJWEventHandler.GuildBanAdd) handler).onGuildBanAdd(event)),
+
+    /**
+     * Dispatched when a user was unbanned from a guild.
+     */
+    GUILD_BAN_REMOVE(LLDJWConstants.API_EVENT_GUILD_BAN_REMOVE, LLDJWEventHandler.GuildBanRemove.class,
+            (handler, event) -> ((LLDJWEventHandler.GuildBanRemove) handler).onGuildBanRemove(event)),
+
+    /**
+     * Dispatched when the emojis of a guild were updated.
+     */
+    GUILD_EMOJIS_UPDATE(LLDJWConstants.API_EVENT_GUILD_EMOJI_UPDATE, LLDJWEventHandler.GuildEmojisUpdate.class,
+            (handler, event) -> ((LLDJWEventHandler.GuildEmojisUpdate) handler).onGuildEmojisUpdate(event)),
+
+    /**
+     * Dispatched when the integrations of a guild were updated.
+     */
+    GUILD_INTEGRATIONS_UPDATE(LLDJWConstants.API_EVENT_GUILD_INTEGRATIONS_UPDATE, LLDJWEventHandler.GuildIntegrationsUpdate.class,
+            (handler, event) -> ((LLDJWEventHandler.GuildIntegrationsUpdate) handler).onGuildIntegrationsUpdate(event)),
+
+    /**
+     * Dispatched when a user joined a guild.
+     */
+    GUILD_MEMBER_ADD(LLDJWConstants.API_EVENT_GUILD_MEMBER_ADD, LLDJWEventHandler.GuildMemberAdd.class,
+            (handler, event) -> ((LLDJWEventHandler.GuildMemberAdd) handler).onGuildMemberAdd(event)),
+
+    /**
+     * Dispatched when a user left (or was removed from) a guild.
+     */
+    GUILD_MEMBER_REMOVE(LLDJWConstants.API_EVENT_GUILD_MEMBER_REMOVE, LLDJWEventHandler.GuildMemberRemove.class,
+            (handler, event) -> ((LLDJWEventHandler.GuildMemberRemove) handler).onGuildMemberRemove(event)),
+
+    /**
+     * Dispatched when a guild member was updated.
+     */
+    GUILD_MEMBER_UPDATE(LLDJWConstants.API_EVENT_GUILD_MEMBER_UPDATE, LLDJWEventHandler.GuildMemberUpdate.class,
+            (handler, event) -> ((LLDJWEventHandler.GuildMemberUpdate) handler).onGuildMemberUpdate(event)),
+
+    /**
+     * Dispatched when a chunk of requested guild members was received.
+     */
+    GUILD_MEMBERS_CHUNK(LLDJWConstants.API_EVENT_GUILD_MEMBER_CHUNK, LLDJWEventHandler.GuildMembersChunk.class,
+            (handler, event) -> ((LLDJWEventHandler.GuildMembersChunk) handler).onGuildMembersChunk(event)),
+
+    /**
+     * Dispatched when a role was created.
+     */
+    GUILD_ROLE_CREATE(LLDJWConstants.API_EVENT_GUILD_ROLE_CREATE, LLDJWEventHandler.GuildRoleCreate.class,
+            (handler, event) -> ((LLDJWEventHandler.GuildRoleCreate) handler).onGuildRoleCreate(event)),
+
+    /**
+     * Dispatched when a role was updated.
+     */
+    GUILD_ROLE_UPDATE(LLDJWConstants.API_EVENT_GUILD_ROLE_UPDATE, LLDJWEventHandler.GuildRoleUpdate.class,
+            (handler, event) -> ((LLDJWEventHandler.GuildRoleUpdate) handler).onGuildRoleUpdate(event)),
+
+    /**
+     * Dispatched when a role was deleted.
+     */
+    GUILD_ROLE_DELETE(LLDJWConstants.API_EVENT_GUILD_ROLE_DELETE, LLDJWEventHandler.GuildRoleDelete.class,
+            (handler, event) -> ((LLDJWEventHandler.GuildRoleDelete) handler).onGuildRoleDelete(event)),
+
+    /**
+     * Dispatched when a message was sent.
+     */
+    MESSAGE_CREATE(LLDJWConstants.API_EVENT_MESSAGE_CREATE, LLDJWEventHandler.MessageCreate.class,
+            (handler, event) -> ((LLDJWEventHandler.MessageCreate) handler).onMessageCreate(event)),
+
+    /**
+     * Dispatched when a message was edited.
+     */
+    MESSAGE_UPDATE(LLDJWConstants.API_EVENT_MESSAGE_UPDATE, LLDJWEventHandler.MessageUpdate.class,
+            (handler, event) -> ((LLDJWEventHandler.MessageUpdate) handler).onMessageUpdate(event)),
+
+    /**
+     * Dispatched when a message was deleted.
+     */
+    MESSAGE_DELETE(LLDJWConstants.API_EVENT_MESSAGE_DELETE, LLDJWEventHandler.MessageDelete.class,
+            (handler, event) -> ((LLDJWEventHandler.MessageDelete) handler).onMessageDelete(event)),
+
+    /**
+     * Dispatched when multiple messages were deleted at once.
+     */
+    MESSAGE_DELETE_BULK(LLDJWConstants.API_EVENT_MESSAGE_DELETE_BULK, LLDJWEventHandler.MessageDeleteBulk.class,
+            (handler, event) -> ((LLDJWEventHandler.MessageDeleteBulk) handler).onMessageDeleteBulk(event)),
+
+    /**
+     * Dispatched when a reaction was added to a message.
+     */
+    MESSAGE_REACTION_ADD(LLDJWConstants.API_EVENT_MESSAGE_REACTION_ADD, LLDJWEventHandler.MessageReactionAdd.class,
+            (handler, event) -> ((LLDJWEventHandler.MessageReactionAdd) handler).onMessageReactionAdd(event)),
+
+    /**
+     * Dispatched when a reaction was removed from a message.
+     */
+    MESSAGE_REACTION_REMOVE(LLDJWConstants.API_EVENT_MESSAGE_REACTION_REMOVE, LLDJWEventHandler.MessageReactionRemove.class,
+            (handler, event) -> ((LLDJWEventHandler.MessageReactionRemove) handler).onMessageReactionRemove(event)),
+
+    /**
+     * Dispatched when all reactions were removed from a message.
+     */
+    MESSAGE_REACTION_REMOVE_ALL(LLDJWConstants.API_EVENT_MESSAGE_REACTION_REMOVE_ALL, LLDJWEventHandler.MessageReactionRemoveAll.class,
+            (handler, event) -> ((LLDJWEventHandler.MessageReactionRemoveAll) handler).onMessageReactionRemoveAll(event)),
+
+    /**
+     * Dispatched when the presence of a user was updated.
+     */
+    PRESENCE_UPDATE(LLDJWConstants.API_EVENT_PRESENCE_UPDATE, LLDJWEventHandler.PresenceUpdate.class,
+            (handler, event) -> ((LLDJWEventHandler.PresenceUpdate) handler).onPresenceUpdate(event)),
+
+    /**
+     * Dispatched when a user started typing.
+     */
+    TYPING_START(LLDJWConstants.API_EVENT_TYPING_START, LLDJWEventHandler.TypingStart.class,
+            (handler, event) -> ((LLDJWEventHandler.TypingStart) handler).onTypingStart(event)),
+
+    /**
+     * Dispatched when the user of the client was updated.
+     */
+    USER_UPDATE(LLDJWConstants.API_EVENT_USER_UPDATE, LLDJWEventHandler.UserUpdate.class,
+            (handler, event) -> ((LLDJWEventHandler.UserUpdate) handler).onUserUpdate(event)),
+
+    /**
+     * Dispatched when the webhooks of a channel were updated.
+     */
+    WEBHOOKS_UPDATE(LLDJWConstants.API_EVENT_WEBHOOK_UPDATE, LLDJWEventHandler.WebHooksUpdate.class,
+            (handler, event) -> ((LLDJWEventHandler.WebHooksUpdate) handler).onWebHooksUpdate(event));
+
+    private static final Map<String, EventType> BY_NAME = new HashMap<>();
+
+    static {
+        for(EventType type : values()) {
+            BY_NAME.put(type.name, type);
+        }
+    }
+
+    private final String name;
+    private final Class<? extends LLDJWEventHandler> handler;
+    private final BiConsumer<LLDJWEventHandler, Event> invoker;
+
+    EventType(String name, Class<? extends LLDJWEventHandler> handler, BiConsumer<LLDJWEventHandler, Event> invoker) {
+        this.name = name;
+        this.handler = handler;
+        this.invoker = invoker;
+    }
+
+    /**
+     * Gets the event type of a dispatch.
+     * @param name The name of the dispatch, as sent by Discord.
+     * @return The event type, or null if it is unknown.
+     */
+    public static EventType of(String name) {
+        return name == null ? null : BY_NAME.get(name);
+    }
+
+    /**
+     * Gets the name of the dispatch, as sent by Discord.
+     * @return The name.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Whether or not an event handler handles this event type.
+     * @param handler The event handler.
+     * @return True if it does, false otherwise.
+     */
+    public boolean isHandledBy(LLDJWEventHandler handler) {
+        return this.handler.isInstance(handler) || handler instanceof LLDJWEventHandler.Generic;
+    }
+
+    /**
+     * Invokes an event handler.
+     * @param handler The event handler, which must handle this event type.
+     * @param event The event.
+     */
+    public void invoke(LLDJWEventHandler handler, Event event) {
+        if(this.handler.isInstance(handler)) {
+            invoker.accept(handler, event);
+        }
+        if(handler instanceof LLDJWEventHandler.Generic) {
+            ((LLDJWEventHandler.Generic) handler).onEvent(event);
+        }
+    }
+
+}
@@ -18,11 +18,299 @@ package com.github.lldjw.api.event;
 
 /**
  * LLDJWEventHandler is the event handler.
- * Every method represents an event that can be received by the websocket. By default, all methods are empty,
- * and they can manually be overwritten in order to handle custom events.
+ * Every nested interface represents an event that can be received by the websocket. A handler implements the
+ * interfaces of the events it is interested in; events that no handler implements are never built.
+ * {@link Generic} receives every event, regardless of its type.
  */
 public interface LLDJWEventHandler {
 
+    /**
+     * Handles every event type.
+     * Note that implementing this forces every event to be built.
+     */
+    interface Generic extends LLDJWEventHandler {
 
+        void onEvent(Event event);
+
+    }
+
+    /**
+     * Handles {@link EventType#READY}: the client is ready; the initial state (guilds are unavailable until created) was received.
+     */
+    interface Ready extends LLDJWEventHandler {
+
+        void onReady(Event event);
+
+    }
+
+    /**
+     * Handles {@link EventType#RESUMED}: a session was resumed, and all missed events were replayed.
+     */
+    interface Resumed extends LLDJWEventHandler {
+
+        void onResumed(Event event);
+
+    }
+
+    /**
+     * Handles {@link EventType#CHANNEL_CREATE}: a channel was created.
+     */
+    interface ChannelCreate extends LLDJWEventHandler {
+
+        void onChannelCreate(Event event);
+
+    }
+
+    /**
+     * Handles {@link EventType#CHANNEL_UPDATE}: a channel was updated.
+     */
+    interface ChannelUpdate extends LLDJWEventHandler {
+
+        void onChannelUpdate(Event event);
+
+    }
+
+    /**
+     * Handles {@link EventType#CHANNEL_DELETE}: a channel was deleted.
+     */
+    interface ChannelDelete extends LLDJWEventHandler {
+
+        void onChannelDelete(Event event);
+
+    }
+
+    /**
+     * Handles {@link EventType#CHANNEL_PINS_UPDATE}: a message was pinned or unpinned.
+     */
+    interface ChannelPinsUpdate extends LLDJWEventHandler {
+
+        void onChannelPinsUpdate(Event event);
+
+    }
+
+    /**
+     * Handles {@link EventType#GUILD_CREATE}: a guild became available, or the client joined a guild.
+     */
+    interface GuildCreate extends LLDJWEventHandler {
+
+        void onGuildCreate(Event event);
+
+    }
+
+    /**
+     * Handles {@link EventType#GUILD_UPDATE}: a guild was updated.
+     */
+    interface GuildUpdate extends LLDJWEventHandler {
+
+        void onGuildUpdate(Event event);
+
+    }
+
+    /**
+     * Handles {@link EventType#GUILD_DELETE}: a guild became unavailable, or the client left a guild.
+     */
+    interface GuildDelete extends LLDJWEventHandler {
+
+        void onGuildDelete(Event event);
+
+    }
+
+    /**
+     * Handles {@link EventType#GUILD_BAN_ADD}: a user was banned from a guild.
+     */
+    interface GuildBanAdd extends LLDJWEventHandler {
+
+        void onGuildBanAdd(Event event);
+
+    }
+
+    /**
+     * Handles {@link EventType#GUILD_BAN_REMOVE}: a user was unbanned from a guild.
+     */
+    interface GuildBanRemove extends LLDJWEventHandler {
+
+        void onGuildBanRemove(Event event);
+
+    }
+
+    /**
+     * Handles {@link EventType#GUILD_EMOJIS_UPDATE}: the emojis of a guild were updated.
+     */
+    interface GuildEmojisUpdate extends LLDJWEventHandler {
+
+        void onGuildEmojisUpdate(Event event);
+
+    }
+
+    /**
+     * Handles {@link EventType#GUILD_INTEGRATIONS_UPDATE}: the integrations of a guild were updated.
+     */
+    interface GuildIntegrationsUpdate extends LLDJWEventHandler {
+
+        void onGuildIntegrationsUpdate(Event event);
+
+    }
+
+    /**
+     * Handles {@link EventType#GUILD_MEMBER_ADD}: a user joined a guild.
+     */
+    interface GuildMemberAdd extends LLDJWEventHandler {
+
+        void onGuildMemberAdd(Event event);
+
+    }
+
+    /**
+     * Handles {@link EventType#GUILD_MEMBER_REMOVE}: a user left (or was removed from) a guild.
+     */
+    interface GuildMemberRemove extends LLDJWEventHandler {
+
+        void onGuildMemberRemove(Event event);
+
+    }
+
+    /**
+     * Handles {@link EventType#GUILD_MEMBER_UPDATE}: a guild member was updated.
+     */
+    interface GuildMemberUpdate extends LLDJWEventHandler {
+
+        void onGuildMemberUpdate(Event event);
+
+    }
+
+    /**
+     * Handles {@link EventType#GUILD_MEMBERS_CHUNK}: a chunk of requested guild members was received.
+     */
+    interface GuildMembersChunk extends LLDJWEventHandler {
+
+        void onGuildMembersChunk(Event event);
+
+    }
+
+    /**
+     * Handles {@link EventType#GUILD_ROLE_CREATE}: a role was created.
+     */
+    interface GuildRoleCreate extends LLDJWEventHandler {
+
+        void onGuildRoleCreate(Event event);
+
+    }
+
+    /**
+     * Handles {@link EventType#GUILD_ROLE_UPDATE}: a role was updated.
+     */
+    interface GuildRoleUpdate extends LLDJWEventHandler {
+
+        void onGuildRoleUpdate(Event event);
+
+    }
+
+    /**
+     * Handles {@link EventType#GUILD_ROLE_DELETE}: a role was deleted.
+     */
+    interface GuildRoleDelete extends LLDJWEventHandler {
+
+        void onGuildRoleDelete(Event event);
+
+    }
+
+    /**
+     * Handles {@link EventType#MESSAGE_CREATE}: a message was sent.
+     */
+    interface MessageCreate extends LLDJWEventHandler {
+
+        void onMessageCreate(Event event);
+
+    }
+
+    /**
+     * Handles {@link EventType#MESSAGE_UPDATE}: a message was edited.
+     */
+    interface MessageUpdate extends LLDJWEventHandler {
+
+        void onMessageUpdate(Event event);
+
+    }
+
+    /**
+     * Handles {@link EventType#MESSAGE_DELETE}: a message was deleted.
+     */
+    interface MessageDelete extends LLDJWEventHandler {
+
+        void onMessageDelete(Event event);
+
+    }
+
+    /**
+     * Handles {@link EventType#MESSAGE_DELETE_BULK}: multiple messages were deleted at once.
+     */
+    interface MessageDeleteBulk extends LLDJWEventHandler {
+
+        void onMessageDeleteBulk(Event event);
+
+    }
+
+    /**
+     * Handles {@link EventType#MESSAGE_REACTION_ADD}: a reaction was added to a message.
+     */
+    interface MessageReactionAdd extends LLDJWEventHandler {
+
+        void onMessageReactionAdd(Event event);
+
+    }
+
+    /**
+     * Handles {@link EventType#MESSAGE_REACTION_REMOVE}: a reaction was removed from a message.
+     */
+    interface MessageReactionRemove extends LLDJWEventHandler {
+
+        void onMessageReactionRemove(Event event);
+
+    }
+
+    /**
+     * Handles {@link EventType#MESSAGE_REACTION_REMOVE_ALL}: all reactions were removed from a message.
+     */
+    interface MessageReactionRemoveAll extends LLDJWEventHandler {
+
+        void onMessageReactionRemoveAll(Event event);
+
+    }
+
+    /**
+     * Handles {@link EventType#PRESENCE_UPDATE}: the presence of a user was updated.
+     */
+    interface PresenceUpdate extends LLDJWEventHandler {
+
+        void onPresenceUpdate(Event event);
+
+    }
+
+    /**
+     * Handles {@link EventType#TYPING_START}: a user started typing.
+     */
+    interface TypingStart extends LLDJWEventHandler {
+
+        void onTypingStart(Event event);
+
+    }
+
+    /**
+     * Handles {@link EventType#USER_UPDATE}: the user of the client was updated.
+     */
+    interface UserUpdate extends LLDJWEventHandler {
+
+        void onUserUpdate(Event event);
+
+    }
+
+    /**
+     * Handles {@link EventType#WEBHOOKS_UPDATE}: the webhooks of a channel were updated.
+     */
+    interface WebHooksUpdate extends LLDJWEventHandler {
+
+        void onWebHooksUpdate(Event event);
+
+    }
 
 }
@@ -0,0 +1,34 @@
+/*
+ * This file is part of the LLDJW distribution (https://github.com/LLDJW/LLDJW).
+ * Copyright (c) 2020 LLDJW Contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.lldjw.api.gateway;
+
+/**
+ * The encoding of the payloads that are exchanged with the gateway.
+ */
+public enum GatewayEncoding {
+
+    /**
+     * JSON text (default). Snowflakes are sent as strings.
+     */
+    JSON,
+
+    /**
+     * The Erlang External Term Format. Payloads are smaller, and cheaper to decode; snowflakes are sent as integers.
+     */
+    ETF
+
+}
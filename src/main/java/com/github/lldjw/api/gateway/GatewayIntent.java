@@ -0,0 +1,115 @@
+/*
+ * This file is part of the LLDJW distribution (https://github.com/LLDJW/LLDJW).
+ * Copyright (c) 2020 LLDJW Contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.lldjw.api.gateway;
+
+/**
+ * Gateway intents are groups of dispatches that the client subscribes to when identifying.
+ * Discord does not send the dispatches of intents that are not subscribed to, which saves bandwidth and decoding.
+ */
+public enum GatewayIntent {
+
+    /**
+     * GUILD_CREATE, GUILD_UPDATE, GUILD_DELETE, GUILD_ROLE_*, CHANNEL_CREATE, CHANNEL_UPDATE, CHANNEL_DELETE
+     * and CHANNEL_PINS_UPDATE.
+     */
+    GUILDS(0),
+
+    /**
+     * GUILD_MEMBER_ADD, GUILD_MEMBER_UPDATE and GUILD_MEMBER_REMOVE. This intent is privileged.
+     */
+    GUILD_MEMBERS(1),
+
+    /**
+     * GUILD_BAN_ADD and GUILD_BAN_REMOVE.
+     */
+    GUILD_BANS(2),
+
+    /**
+     * GUILD_EMOJIS_UPDATE.
+     */
+    GUILD_EMOJIS(3),
+
+    /**
+     * GUILD_INTEGRATIONS_UPDATE.
+     */
+    GUILD_INTEGRATIONS(4),
+
+    /**
+     * WEBHOOKS_UPDATE.
+     */
+    GUILD_WEBHOOKS(5),
+
+    /**
+     * INVITE_CREATE and INVITE_DELETE.
+     */
+    GUILD_INVITES(6),
+
+    /**
+     * VOICE_STATE_UPDATE.
+     */
+    GUILD_VOICE_STATES(7),
+
+    /**
+     * PRESENCE_UPDATE. This intent is privileged.
+     */
+    GUILD_PRESENCES(8),
+
+    /**
+     * MESSAGE_CREATE, MESSAGE_UPDATE, MESSAGE_DELETE and MESSAGE_DELETE_BULK in guilds.
+     */
+    GUILD_MESSAGES(9),
+
+    /**
+     * MESSAGE_REACTION_* in guilds.
+     */
+    GUILD_MESSAGE_REACTIONS(10),
+
+    /**
+     * TYPING_START in guilds.
+     */
+    GUILD_MESSAGE_TYPING(11),
+
+    /**
+     * MESSAGE_CREATE, MESSAGE_UPDATE, MESSAGE_DELETE and CHANNEL_PINS_UPDATE in direct messages.
+     */
+    DIRECT_MESSAGES(12),
+
+    /**
+     * MESSAGE_REACTION_* in direct messages.
+     */
+    DIRECT_MESSAGE_REACTIONS(13),
+
+    /**
+     * TYPING_START in direct messages.
+     */
+    DIRECT_MESSAGE_TYPING(14);
+
+    private final int bit;
+
+    GatewayIntent(int bit) {
+        this.bit = bit;
+    }
+
+    /**
+     * Gets the value of the intent, as sent to Discord.
+     * @return The value, a single bit.
+     */
+    public int getValue() {
+        return 1 << bit;
+    }
+
+}
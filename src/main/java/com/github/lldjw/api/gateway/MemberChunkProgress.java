@@ -0,0 +1,106 @@
+/*
+ * This file is part of the LLDJW distribution (https://github.com/LLDJW/LLDJW).
+ * Copyright (c) 2020 LLDJW Contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.lldjw.api.gateway;
+
+/**
+ * A snapshot of the progress of loading the members of large guilds, when the cache level requests offline members.
+ * The counters accumulate over the lifetime of the gateway, including reconnects.
+ */
+public final class MemberChunkProgress {
+
+    private final int queued;
+    private final int inFlight;
+    private final int completed;
+    private final int failed;
+    private final long chunks;
+    private final long members;
+
+    /**
+     * Creates a new snapshot.
+     * @param queued The amount of guilds waiting to be requested.
+     * @param inFlight The amount of guilds requested, but not completely received.
+     * @param completed The amount of guilds that were completely received.
+     * @param failed The amount of guilds that were given up on.
+     * @param chunks The amount of chunks received.
+     * @param members The amount of members received.
+     */
+    public MemberChunkProgress(int queued, int inFlight, int completed, int failed, long chunks, long members) {
+        this.queued = queued;
+        this.inFlight = inFlight;
+        this.completed = completed;
+        this.failed = failed;
+        this.chunks = chunks;
+        this.members = members;
+    }
+
+    /**
+     * Gets the amount of guilds waiting to be requested.
+     * @return The amount.
+     */
+    public int getQueued() {
+        return queued;
+    }
+
+    /**
+     * Gets the amount of guilds that were requested, but not completely received.
+     * @return The amount.
+     */
+    public int getInFlight() {
+        return inFlight;
+    }
+
+    /**
+     * Gets the amount of guilds whose members were completely received.
+     * @return The amount.
+     */
+    public int getCompleted() {
+        return completed;
+    }
+
+    /**
+     * Gets the amount of guilds that were given up on, after repeatedly timing out.
+     * @return The amount.
+     */
+    public int getFailed() {
+        return failed;
+    }
+
+    /**
+     * Gets the amount of member chunks received.
+     * @return The amount.
+     */
+    public long getChunks() {
+        return chunks;
+    }
+
+    /**
+     * Gets the amount of members received.
+     * @return The amount.
+     */
+    public long getMembers() {
+        return members;
+    }
+
+    /**
+     * Whether or not all requested guilds are done.
+     * @return True if nothing is queued or in flight, false otherwise.
+     */
+    public boolean isDone() {
+        return queued == 0 && inFlight == 0;
+    }
+
+}
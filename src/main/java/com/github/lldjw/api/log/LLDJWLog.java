@@ -16,8 +16,13 @@
  */
 package com.github.lldjw.api.log;
 
+import java.util.function.Supplier;
+
 /**
  * LLDJWLog is the logger wrapper that can be specified when logging.
+ * Messages are formatted lazily: implementations should only format messages that will actually be logged,
+ * and callers can use {@link #isEnabled(LLDJWLogLevel)}, or the parameterized and supplier overloads,
+ * to avoid building messages (and argument arrays) that are discarded.
  */
 public interface LLDJWLog {
 
@@ -28,6 +33,16 @@ public interface LLDJWLog {
      */
     void setLevel(LLDJWLogLevel level);
 
+    /**
+     * Whether or not messages on a level will be logged.
+     * This is true by default, implementations should override it to be cheap and accurate.
+     * @param level The log level that LLDJW has assigned to the message.
+     * @return True if they will, false otherwise.
+     */
+    default boolean isEnabled(LLDJWLogLevel level) {
+        return true;
+    }
+
     /**
      * Logs a message.
      * All log events call this method; it is up to the implementation to decide whether or not the specific log
@@ -38,4 +53,42 @@ public interface LLDJWLog {
      */
     void log(LLDJWLogLevel level, String message, Object... format);
 
+    /**
+     * Logs a message with a single formatting object.
+     * Unlike the variadic method, the argument array is only created if the level is enabled.
+     * @param level The log level that LLDJW has assigned to this message.
+     * @param message The message.
+     * @param argument The formatting object.
+     */
+    default void log(LLDJWLogLevel level, String message, Object argument) {
+        if(isEnabled(level)) {
+            log(level, message, new Object[] {argument});
+        }
+    }
+
+    /**
+     * Logs a message with two formatting objects.
+     * Unlike the variadic method, the argument array is only created if the level is enabled.
+     * @param level The log level that LLDJW has assigned to this message.
+     * @param message The message.
+     * @param first The first formatting object.
+     * @param second The second formatting object.
+     */
+    default void log(LLDJWLogLevel level, String message, Object first, Object second) {
+        if(isEnabled(level)) {
+            log(level, message, new Object[] {first, second});
+        }
+    }
+
+    /**
+     * Logs a message that is only built if the level is enabled.
+     * @param level The log level that LLDJW has assigned to this message.
+     * @param message The supplier of the message, which is not formatted any further.
+     */
+    default void log(LLDJWLogLevel level, Supplier<String> message) {
+        if(isEnabled(level)) {
+            log(level, "%s", new Object[] {message.get()});
+        }
+    }
+
 }
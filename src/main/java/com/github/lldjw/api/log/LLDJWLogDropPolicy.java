@@ -0,0 +1,34 @@
+/*
+ * This file is part of the LLDJW distribution (https://github.com/LLDJW/LLDJW).
+ * Copyright (c) 2020 LLDJW Contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.lldjw.api.log;
+
+/**
+ * LLDJWLogDropPolicy represents what an asynchronous logger does when its buffer is full.
+ */
+public enum LLDJWLogDropPolicy {
+
+    /**
+     * The message is discarded. The amount of discarded messages is logged once there is space again.
+     */
+    DROP,
+
+    /**
+     * The message is formatted and written by the calling thread, which slows it down instead of losing the message.
+     */
+    CALLER_RUNS
+
+}
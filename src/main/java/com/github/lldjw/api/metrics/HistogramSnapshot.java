@@ -0,0 +1,122 @@
+/*
+ * This file is part of the LLDJW distribution (https://github.com/LLDJW/LLDJW).
+ * Copyright (c) 2020 LLDJW Contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.lldjw.api.metrics;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A snapshot of a histogram of durations, in nanoseconds.
+ * Percentiles are accurate to about 3%, and are never higher than the maximum.
+ * The values accumulate over the lifetime of the client.
+ */
+public final class HistogramSnapshot {
+
+    private final long count;
+    private final long mean;
+    private final long max;
+    private final long p50;
+    private final long p90;
+    private final long p99;
+    private final long p999;
+
+    /**
+     * Creates a new snapshot.
+     * @param count The amount of recorded durations.
+     * @param mean The mean duration.
+     * @param max The maximum duration.
+     * @param p50 The median duration.
+     * @param p90 The 90th percentile.
+     * @param p99 The 99th percentile.
+     * @param p999 The 99.9th percentile.
+     */
+    public HistogramSnapshot(long count, long mean, long max, long p50, long p90, long p99, long p999) {
+        this.count = count;
+        this.mean = mean;
+        this.max = max;
+        this.p50 = p50;
+        this.p90 = p90;
+        this.p99 = p99;
+        this.p999 = p999;
+    }
+
+    /**
+     * Gets the amount of recorded durations.
+     * @return The amount.
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Gets the mean duration.
+     * @return The duration in nanoseconds, or 0 if nothing was recorded.
+     */
+    public long getMean() {
+        return mean;
+    }
+
+    /**
+     * Gets the maximum duration.
+     * @return The duration in nanoseconds, or 0 if nothing was recorded.
+     */
+    public long getMax() {
+        return max;
+    }
+
+    /**
+     * Gets the median duration.
+     * @return The duration in nanoseconds, or 0 if nothing was recorded.
+     */
+    public long getP50() {
+        return p50;
+    }
+
+    /**
+     * Gets the duration that 90% of the durations do not exceed.
+     * @return The duration in nanoseconds, or 0 if nothing was recorded.
+     */
+    public long getP90() {
+        return p90;
+    }
+
+    /**
+     * Gets the duration that 99% of the durations do not exceed.
+     * @return The duration in nanoseconds, or 0 if nothing was recorded.
+     */
+    public long getP99() {
+        return p99;
+    }
+
+    /**
+     * Gets the duration that 99.9% of the durations do not exceed.
+     * @return The duration in nanoseconds, or 0 if nothing was recorded.
+     */
+    public long getP999() {
+        return p999;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("count=%d mean=%.3fms p50=%.3fms p90=%.3fms p99=%.3fms p999=%.3fms max=%.3fms",
+                count, millis(mean), millis(p50), millis(p90), millis(p99), millis(p999), millis(max));
+    }
+
+    private static double millis(long nanos) {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+}
@@ -0,0 +1,76 @@
+/*
+ * This file is part of the LLDJW distribution (https://github.com/LLDJW/LLDJW).
+ * Copyright (c) 2020 LLDJW Contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.lldjw.api.metrics;
+
+import com.github.lldjw.api.entity.CacheStats;
+import com.github.lldjw.api.log.LLDJWLog;
+import com.github.lldjw.api.log.LLDJWLogLevel;
+
+import java.util.Map;
+
+/**
+ * An exporter receives snapshots of the metrics of a client at a fixed interval, see
+ * {@link com.github.lldjw.LLDJW#useMetricsExporter(LLDJWMetricsExporter, long)}.
+ * An exporter may, for example, log the snapshot or write it to a file that is scraped by a monitoring system;
+ * {@link #log(LLDJWLog, LLDJWLogLevel)} is a simple exporter that does not need anything else.
+ */
+@FunctionalInterface
+public interface LLDJWMetricsExporter {
+
+    /**
+     * Exports a snapshot. This is invoked on a single background thread, and should not block for long,
+     * since it delays the next export.
+     * @param snapshot The snapshot.
+     */
+    void export(MetricsSnapshot snapshot);
+
+    /**
+     * Creates an exporter that logs a summary of every snapshot, one line per metric.
+     * @param log The log to write to.
+     * @param level The log level of the summary.
+     * @return The exporter.
+     * @throws NullPointerException If the log or level is null.
+     */
+    static LLDJWMetricsExporter log(LLDJWLog log, LLDJWLogLevel level) {
+        if(log == null) {
+            throw new NullPointerException("log is null");
+        }
+        if(level == null) {
+            throw new NullPointerException("level is null");
+        }
+        return snapshot -> {
+            if(!log.isEnabled(level)) {
+                return;
+            }
+            for(Map.Entry<String, HistogramSnapshot> entry : snapshot.getRestLatencies().entrySet()) {
+                Long rateLimited = snapshot.getRestRateLimited().get(entry.getKey());
+                log.log(level, "rest %s: %s rate_limited=%d", entry.getKey(), entry.getValue(),
+                        rateLimited == null ? 0 : rateLimited);
+            }
+            log.log(level, "rest waits: %s", snapshot.getRestWaits());
+            log.log(level, "heartbeats: %s reconnects=%d", snapshot.getHeartbeatLatencies(), snapshot.getReconnects());
+            log.log(level, "dispatch lags: %s dropped=%d merged=%d", snapshot.getDispatchLags(),
+                    snapshot.getDroppedDispatches(), snapshot.getMergedDispatches());
+            log.log(level, "dispatches: %s", snapshot.getDispatches());
+            for(CacheStats stats : snapshot.getCacheStats().values()) {
+                log.log(level, "cache %s: size=%d hit_rate=%.3f evictions=%d", stats.getType(), stats.getSize(),
+                        stats.getHitRate(), stats.getEvictions());
+            }
+        };
+    }
+
+}
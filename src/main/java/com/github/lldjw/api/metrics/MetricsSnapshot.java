@@ -0,0 +1,167 @@
+/*
+ * This file is part of the LLDJW distribution (https://github.com/LLDJW/LLDJW).
+ * Copyright (c) 2020 LLDJW Contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.lldjw.api.metrics;
+
+import com.github.lldjw.api.entity.CacheStats;
+import com.github.lldjw.api.entity.CacheType;
+
+import java.util.Map;
+
+/**
+ * A snapshot of the metrics of a client. All durations are in nanoseconds, and all values accumulate over
+ * the lifetime of the client; rates can be computed from the difference between two snapshots.
+ * REST metrics are shared by all shards that share rate limits, see {@link com.github.lldjw.LLDJWShardManager}.
+ */
+public final class MetricsSnapshot {
+
+    private final long time;
+    private final Map<String, HistogramSnapshot> restLatencies;
+    private final Map<String, Long> restRateLimited;
+    private final HistogramSnapshot restWaits;
+    private final HistogramSnapshot heartbeatLatencies;
+    private final long reconnects;
+    private final HistogramSnapshot dispatchLags;
+    private final Map<String, Long> dispatches;
+    private final long droppedDispatches;
+    private final long mergedDispatches;
+    private final Map<CacheType, CacheStats> cacheStats;
+
+    /**
+     * Creates a new snapshot.
+     * @param time The time of the snapshot, in milliseconds since the epoch.
+     * @param restLatencies The latencies of REST requests by template.
+     * @param restRateLimited The amounts of REST responses with status 429 by template.
+     * @param restWaits The time REST requests waited for the rate limits.
+     * @param heartbeatLatencies The latencies of heartbeat acknowledgements.
+     * @param reconnects The amount of gateway reconnections.
+     * @param dispatchLags The time from receiving a dispatch until it was processed.
+     * @param dispatches The amounts of received dispatches by event type.
+     * @param droppedDispatches The amount of dispatches that were dropped before their data was read.
+     * @param mergedDispatches The amount of dispatches that were merged into a later dispatch.
+     * @param cacheStats The statistics of the caches by type.
+     */
+    public MetricsSnapshot(long time, Map<String, HistogramSnapshot> restLatencies, Map<String, Long> restRateLimited,
+                           HistogramSnapshot restWaits, HistogramSnapshot heartbeatLatencies, long reconnects,
+                           HistogramSnapshot dispatchLags, Map<String, Long> dispatches, long droppedDispatches,
+                           long mergedDispatches, Map<CacheType, CacheStats> cacheStats) {
+        this.time = time;
+        this.restLatencies = restLatencies;
+        this.restRateLimited = restRateLimited;
+        this.restWaits = restWaits;
+        this.heartbeatLatencies = heartbeatLatencies;
+        this.reconnects = reconnects;
+        this.dispatchLags = dispatchLags;
+        this.dispatches = dispatches;
+        this.droppedDispatches = droppedDispatches;
+        this.mergedDispatches = mergedDispatches;
+        this.cacheStats = cacheStats;
+    }
+
+    /**
+     * Gets the time of the snapshot.
+     * @return The time in milliseconds since the epoch.
+     */
+    public long getTime() {
+        return time;
+    }
+
+    /**
+     * Gets the latencies of REST requests, without the time spent waiting for the rate limits.
+     * Requests are grouped by template, in which all IDs are replaced, for example {@code GET channels/:id}.
+     * @return An unmodifiable map of latencies by template.
+     */
+    public Map<String, HistogramSnapshot> getRestLatencies() {
+        return restLatencies;
+    }
+
+    /**
+     * Gets the amount of REST responses with the status 429 (rate limited), which are retried.
+     * @return An unmodifiable map of amounts by template.
+     */
+    public Map<String, Long> getRestRateLimited() {
+        return restRateLimited;
+    }
+
+    /**
+     * Gets the time REST requests waited for their bucket and the global rate limit, before every attempt.
+     * @return The snapshot.
+     */
+    public HistogramSnapshot getRestWaits() {
+        return restWaits;
+    }
+
+    /**
+     * Gets the time between heartbeats and their acknowledgements, which is roughly the round trip time.
+     * @return The snapshot.
+     */
+    public HistogramSnapshot getHeartbeatLatencies() {
+        return heartbeatLatencies;
+    }
+
+    /**
+     * Gets the amount of times the gateway connection was opened again, because it was lost or Discord
+     * requested it.
+     * @return The amount.
+     */
+    public long getReconnects() {
+        return reconnects;
+    }
+
+    /**
+     * Gets the time from receiving a dispatch (before it is decompressed) until the cache and all event handlers
+     * processed it. Dropped dispatches are not included.
+     * @return The snapshot.
+     */
+    public HistogramSnapshot getDispatchLags() {
+        return dispatchLags;
+    }
+
+    /**
+     * Gets the amount of received dispatches, including dropped ones.
+     * @return An unmodifiable map of amounts by event type.
+     */
+    public Map<String, Long> getDispatches() {
+        return dispatches;
+    }
+
+    /**
+     * Gets the amount of dispatches that were dropped before their data was read, because neither the cache
+     * nor an event handler needed them.
+     * @return The amount.
+     */
+    public long getDroppedDispatches() {
+        return droppedDispatches;
+    }
+
+    /**
+     * Gets the amount of dispatches that were merged into a later dispatch of the same kind, and were not processed
+     * themselves, see {@link com.github.lldjw.LLDJW#usePresenceCoalescing(long)}.
+     * @return The amount.
+     */
+    public long getMergedDispatches() {
+        return mergedDispatches;
+    }
+
+    /**
+     * Gets the statistics of the caches, including the hit ratios of lookups.
+     * @return An unmodifiable map of statistics by type.
+     */
+    public Map<CacheType, CacheStats> getCacheStats() {
+        return cacheStats;
+    }
+
+}
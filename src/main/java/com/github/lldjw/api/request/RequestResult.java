@@ -16,8 +16,12 @@
  */
 package com.github.lldjw.api.request;
 
+import com.github.lldjw.internal.rest.AsyncRestTask;
+import com.github.lldjw.internal.rest.RestExecutors;
 import com.github.lldjw.internal.rest.RestTask;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import java.util.function.Consumer;
 
 /**
@@ -30,25 +34,43 @@ import java.util.function.Consumer;
  * Requests can be queried synchronously or asynchronously, depending on the use case.
  * It is recommended to send most, if possible all, requests asynchronously to avoid unnecessary thread blocking
  * for if the bot has to block the thread to avoid being rate-limited.
+ * Asynchronous requests are run on the executor of the client, see {@link com.github.lldjw.LLDJW#useExecutor}.
+ * Requests that are batched with others (see {@link AsyncRestTask}) do not occupy a thread of the executor while
+ * they wait for their batch; every caller still gets its own result.
  *
  * @param <T> The type of the result object.
  */
 public class RequestResult<T> {
 
     private final RestTask<T> task;
+    private final Executor executor;
     private Consumer<T> successConsumer;
     private Consumer<Throwable> errorConsumer;
 
     /**
-     * Creates a new request result.
+     * Creates a new request result, which will run asynchronously on the shared executor.
      * @param task The task that will generate a result.
      * @throws NullPointerException If the task is null.
      */
     public RequestResult(RestTask<T> task) {
+        this(task, RestExecutors.shared());
+    }
+
+    /**
+     * Creates a new request result.
+     * @param task The task that will generate a result.
+     * @param executor The executor that will run the task asynchronously.
+     * @throws NullPointerException If the task or executor is null.
+     */
+    public RequestResult(RestTask<T> task, Executor executor) {
         if(task == null) {
             throw new NullPointerException("REST task is null");
         }
+        if(executor == null) {
+            throw new NullPointerException("executor is null");
+        }
         this.task = task;
+        this.executor = executor;
     }
 
     /**
@@ -76,7 +98,56 @@ public class RequestResult<T> {
      * Executes the request asynchronously.
      */
     public void async() {
-        new Thread(this::execute).start();
+        submit();
+    }
+
+    /**
+     * Executes the request asynchronously, and returns a future that can be composed.
+     * The success and error consumers are invoked before the future completes. The future completes even if
+     * a consumer throws: exceptionally with the exception of the success consumer, or with the original error.
+     * @return The future, which completes exceptionally if there was an error.
+     */
+    public CompletableFuture<T> submit() {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        if(task instanceof AsyncRestTask) {
+            ((AsyncRestTask<T>) task).start().whenComplete((result, throwable) -> {
+                if(throwable == null) {
+                    try {
+                        succeed(result);
+                    } catch(Throwable consumerThrowable) {
+                        throwable = consumerThrowable;
+                    }
+                } else {
+                    throwable = AsyncRestTask.unwrap(throwable);
+                }
+                if(throwable != null) {
+                    try {
+                        fail(throwable);
+                    } finally { // Even if the error consumer throws, so that composed stages do not hang.
+                        future.completeExceptionally(throwable);
+                    }
+                    return;
+                }
+                future.complete(result);
+            });
+            return future;
+        }
+        executor.execute(() -> {
+            T result;
+            try {
+                result = task.execute();
+                succeed(result);
+            } catch(Throwable throwable) {
+                try {
+                    fail(throwable);
+                } finally {
+                    future.completeExceptionally(throwable);
+                }
+                return;
+            }
+            future.complete(result);
+        });
+        return future;
     }
 
     /**
@@ -91,15 +162,25 @@ public class RequestResult<T> {
         T result;
         try {
             result = task.execute();
-            if(successConsumer != null) {
-                successConsumer.accept(result);
-            }
+            succeed(result);
             return result;
         } catch(Throwable throwable) {
-            // TODO: log.
-            errorConsumer.accept(throwable);
+            fail(throwable);
             return null;
         }
     }
 
+    private void succeed(T result) {
+        if(successConsumer != null) {
+            successConsumer.accept(result);
+        }
+    }
+
+    private void fail(Throwable throwable) {
+        // TODO: log.
+        if(errorConsumer != null) {
+            errorConsumer.accept(throwable);
+        }
+    }
+
 }
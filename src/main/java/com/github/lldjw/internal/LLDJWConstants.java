@@ -24,6 +24,7 @@ public final class LLDJWConstants {
     public static final int API_VERSION = 6;
     public static final String API_BASE = "https://discordapp.com/api/v" + API_VERSION + "/";
     public static final String API_GATEWAY = "gateway";
+    public static final String API_GATEWAY_BOT = "gateway/bot";
     public static final int API_GATEWAY_CLOSE_GRACE = 1000;
     public static final int API_GATEWAY_CLOSE_CLOUD_FLARE = 1001;
     public static final int API_GATEWAY_CLOSE_INTERNAL = 1006;
@@ -38,6 +39,9 @@ public final class LLDJWConstants {
     public static final int API_GATEWAY_CLOSE_TIMEOUT = 4009;
     public static final int API_GATEWAY_CLOSE_SHARD_INVALID = 4010;
     public static final int API_GATEWAY_CLOSE_SHARD_REQUIRED = 4011;
+    public static final int API_GATEWAY_CLOSE_VERSION_INVALID = 4012;
+    public static final int API_GATEWAY_CLOSE_INTENTS_INVALID = 4013;
+    public static final int API_GATEWAY_CLOSE_INTENTS_DISALLOWED = 4014;
     public static final int API_GATEWAY_OP_DISPATCH = 0;
     public static final int API_GATEWAY_OP_HEARTBEAT = 1;
     public static final int API_GATEWAY_OP_IDENTIFY = 2;
@@ -0,0 +1,84 @@
+/*
+ * This file is part of the LLDJW distribution (https://github.com/LLDJW/LLDJW).
+ * Copyright (c) 2020 LLDJW Contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.lldjw.internal;
+
+import de.arraying.kotys.JSON;
+import de.arraying.kotys.JSONArray;
+
+/**
+ * A utility class to read snowflakes (Discord IDs), which are sent as strings to avoid precision loss.
+ */
+public final class Snowflake {
+
+    /**
+     * The Discord epoch, the first second of 2015, in milliseconds since the Unix epoch.
+     */
+    public static final long EPOCH = 1420070400000L;
+
+    private Snowflake() {}
+
+    /**
+     * Gets the time at which a snowflake was created.
+     * @param snowflake The snowflake.
+     * @return The time in milliseconds since the Unix epoch.
+     */
+    public static long timestamp(long snowflake) {
+        return (snowflake >>> 22) + EPOCH;
+    }
+
+    /**
+     * Reads a snowflake.
+     * @param json The JSON object.
+     * @param key The key of the snowflake.
+     * @return The snowflake, or 0 if the key does not exist or is null.
+     */
+    public static long of(JSON json, String key) {
+        return json.has(key) ? parse(json.object(key)) : 0;
+    }
+
+    /**
+     * Reads an array of snowflakes.
+     * @param json The JSON object.
+     * @param key The key of the array.
+     * @return The snowflakes, empty if the key does not exist or is null.
+     */
+    public static long[] array(JSON json, String key) {
+        JSONArray array = json.has(key) ? json.array(key) : null;
+        if(array == null) {
+            return new long[0];
+        }
+        long[] snowflakes = new long[array.length()];
+        for(int i = 0; i < snowflakes.length; i++) {
+            snowflakes[i] = parse(array.object(i));
+        }
+        return snowflakes;
+    }
+
+    /**
+     * Parses a snowflake.
+     * @param value The value, a string or a number.
+     * @return The snowflake, or 0 if the value is null.
+     * @throws NumberFormatException If the value is not a valid snowflake.
+     */
+    public static long parse(Object value) {
+        if(value instanceof Number) {
+            return ((Number) value).longValue();
+        }
+        return value == null ? 0 : Long.parseLong(value.toString());
+    }
+
+}
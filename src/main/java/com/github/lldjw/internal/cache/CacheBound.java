@@ -0,0 +1,170 @@
+/*
+ * This file is part of the LLDJW distribution (https://github.com/LLDJW/LLDJW).
+ * Copyright (c) 2020 LLDJW Contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.lldjw.internal.cache;
+
+import com.github.lldjw.api.entity.CacheStats;
+import com.github.lldjw.api.entity.CacheType;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bound limits the amount of entries of one type of entity, over one or more maps (members are stored per guild).
+ * The limit is the lower of a maximum amount of entries and a memory budget, which is converted with the
+ * estimated size of an entity, see {@link CacheType#getEstimatedSize()}.
+ *
+ * Once an insertion exceeds the limit, entries are evicted until the bound is a little below it, so that evictions
+ * happen in batches. Every map evicts a share proportional to its size, with its own CLOCK sweep, see
+ * {@link LongMap} and {@link MemberStore}. Evictions are performed by one thread at a time, outside of any lock
+ * of the maps.
+ * The bound also counts cache hits and misses of lookups, which are recorded by the client.
+ */
+public final class CacheBound {
+
+    private final CacheType type;
+    private final Set<Evictable> maps = ConcurrentHashMap.newKeySet();
+    private final AtomicLong size = new AtomicLong();
+    private final AtomicBoolean evicting = new AtomicBoolean();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private volatile long maxEntries = Long.MAX_VALUE;
+    private volatile long maxBytes = Long.MAX_VALUE;
+    private volatile long limit = Long.MAX_VALUE;
+
+    /**
+     * Creates a new, unlimited bound.
+     * @param type The type of entity.
+     */
+    public CacheBound(CacheType type) {
+        this.type = type;
+    }
+
+    /**
+     * Sets the maximum amount of entries, and evicts entries if there are more.
+     * @param maxEntries The maximum, or {@link Long#MAX_VALUE} for no maximum.
+     */
+    public void setMaxEntries(long maxEntries) {
+        this.maxEntries = maxEntries;
+        update();
+    }
+
+    /**
+     * Sets the memory budget, and evicts entries if it is exceeded.
+     * @param maxBytes The budget in bytes, or {@link Long#MAX_VALUE} for no budget.
+     */
+    public void setMaxBytes(long maxBytes) {
+        this.maxBytes = maxBytes;
+        update();
+    }
+
+    /**
+     * Counts a lookup that was served by the cache.
+     */
+    public void hit() {
+        hits.increment();
+    }
+
+    /**
+     * Counts a lookup that was not served by the cache.
+     */
+    public void miss() {
+        misses.increment();
+    }
+
+    /**
+     * Gets the statistics of the bound.
+     * @return A snapshot of the statistics.
+     */
+    public CacheStats stats() {
+        return new CacheStats(type, size.get(), limit, hits.sum(), misses.sum(), evictions.sum());
+    }
+
+    /**
+     * Adds a map to the bound. Maps and member stores add themselves when they are created.
+     * @param map The map.
+     */
+    void register(Evictable map) {
+        maps.add(map);
+    }
+
+    /**
+     * Removes a map from the bound, and removes its entries.
+     * @param map The map.
+     */
+    void unregister(Evictable map) {
+        map.clear();
+        maps.remove(map);
+    }
+
+    /**
+     * Counts an inserted entry, and evicts entries if the limit is exceeded.
+     */
+    void added() {
+        if(size.incrementAndGet() > limit) {
+            evict();
+        }
+    }
+
+    /**
+     * Counts removed entries.
+     * @param count The amount of entries.
+     */
+    void removed(long count) {
+        size.addAndGet(-count);
+    }
+
+    private void update() {
+        limit = Math.min(maxEntries, maxBytes / type.getEstimatedSize());
+        evict();
+    }
+
+    /**
+     * Evicts entries until the size is 1/64 below the limit. If another thread is already evicting, this returns
+     * immediately; the bound may briefly be exceeded.
+     */
+    private void evict() {
+        if(!evicting.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            long target = limit - limit / 64;
+            while(size.get() > target) {
+                long total = Math.max(1, size.get());
+                long excess = total - target;
+                long evicted = 0;
+                for(Evictable map : maps) {
+                    int share = (int) Math.min(Integer.MAX_VALUE, (excess * map.size() + total - 1) / total);
+                    if(share > 0) {
+                        evicted += map.evict(share);
+                    }
+                }
+                if(evicted == 0) { // The remaining entries are in maps that were removed concurrently.
+                    break;
+                }
+                size.addAndGet(-evicted);
+                evictions.add(evicted);
+            }
+        } finally {
+            evicting.set(false);
+        }
+    }
+
+}
@@ -0,0 +1,410 @@
+/*
+ * This file is part of the LLDJW distribution (https://github.com/LLDJW/LLDJW).
+ * Copyright (c) 2020 LLDJW Contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.lldjw.internal.cache;
+
+import com.github.lldjw.api.entity.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Saves the entity cache to a compact binary file, and restores it, so that a restarted process can serve
+ * cached lookups immediately instead of waiting for READY, GUILD_CREATE and member chunks.
+ *
+ * The file starts with a header (magic, format version, time of saving) and a table of field names, followed by
+ * sections of guilds, channels, emojis, users and members. Every entity is a record of its ID(s) and an object of
+ * fields, named as on the gateway. A snapshot is restored by mapping the file, and offering every object to a new
+ * entity through {@link StreamAssignable}, the same way the gateway populates entities. Fields that are unknown
+ * to the entity are skipped, so the name table keeps old snapshots readable when fields are added.
+ *
+ * Invites and webhooks are not part of snapshots.
+ */
+public final class CacheSnapshot {
+
+    /**
+     * The current version of the format. Snapshots of other versions are rejected.
+     */
+    public static final int VERSION = 1;
+
+    private static final int MAGIC = 0x4C4C534E; // LLSN.
+    private static final int END = 0;
+    private static final int RECORD = 1;
+    private static final int GUILDS = 1;
+    private static final int CHANNELS = 2;
+    private static final int EMOJIS = 3;
+    private static final int USERS = 4;
+    private static final int MEMBERS = 5;
+    private static final String[] NAMES = {
+            "name", "icon", "owner_id", "member_count", "large", "unavailable",
+            "guild_id", "parent_id", "type", "position", "topic",
+            "animated",
+            "username", "discriminator", "avatar", "bot",
+            "nick", "roles", "joined_at"
+    };
+
+    private CacheSnapshot() {}
+
+    /**
+     * Saves a snapshot of the cache. The file is replaced atomically.
+     * Entities that are updated while the snapshot is saved may or may not include the update.
+     * @param cache The cache.
+     * @param path The path of the file.
+     * @throws IOException If the file could not be written.
+     */
+    public static void save(EntityCache cache, Path path) throws IOException {
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        try(Output out = new Output(Files.newOutputStream(temporary))) {
+            write(cache, out);
+        } catch(UncheckedIOException exception) {
+            throw exception.getCause();
+        }
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void write(EntityCache cache, Output out) {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeLong(System.currentTimeMillis());
+        out.writeVarInt(NAMES.length);
+        for(String name : NAMES) {
+            out.writeString(name);
+        }
+        out.writeByte(GUILDS);
+        cache.getGuilds().forEach((id, guild) -> {
+            out.writeByte(RECORD);
+            out.writeLong(id);
+            out.beginObject(6);
+            out.field("name").writeNullableString(guild.getName());
+            out.field("icon").writeNullableString(guild.getIcon());
+            out.field("owner_id").writeTaggedLong(guild.getOwnerId());
+            out.field("member_count").writeTaggedInt(guild.getMemberCount());
+            out.field("large").writeTaggedBoolean(guild.isLarge());
+            out.field("unavailable").writeTaggedBoolean(guild.isUnavailable());
+        });
+        out.writeByte(END);
+        out.writeByte(CHANNELS);
+        cache.getChannels().forEach((id, channel) -> {
+            out.writeByte(RECORD);
+            out.writeLong(id);
+            out.beginObject(6);
+            out.field("guild_id").writeTaggedLong(channel.getGuildId());
+            out.field("parent_id").writeTaggedLong(channel.getParentId());
+            out.field("type").writeTaggedInt(channel.getType());
+            out.field("position").writeTaggedInt(channel.getPosition());
+            out.field("name").writeNullableString(channel.getName());
+            out.field("topic").writeNullableString(channel.getTopic());
+        });
+        out.writeByte(END);
+        out.writeByte(EMOJIS);
+        cache.getEmojis().forEach((id, emoji) -> {
+            out.writeByte(RECORD);
+            out.writeLong(id);
+            out.writeLong(emoji.getGuildId());
+            out.beginObject(2);
+            out.field("name").writeNullableString(emoji.getName());
+            out.field("animated").writeTaggedBoolean(emoji.isAnimated());
+        });
+        out.writeByte(END);
+        out.writeByte(USERS);
+        cache.getUsers().forEach((id, user) -> {
+            out.writeByte(RECORD);
+            out.writeLong(id);
+            out.beginObject(4);
+            out.field("username").writeNullableString(user.getUsername());
+            out.field("discriminator").writeNullableString(user.getDiscriminator());
+            out.field("avatar").writeNullableString(user.getAvatar());
+            out.field("bot").writeTaggedBoolean(user.isBot());
+        });
+        out.writeByte(END);
+        out.writeByte(MEMBERS);
+        cache.getAllMembers().forEach((guild, members) -> {
+            out.writeByte(RECORD);
+            out.writeLong(guild);
+            members.forEach((id, member) -> {
+                out.writeByte(RECORD);
+                out.writeLong(id);
+                out.beginObject(3);
+                out.field("nick").writeNullableString(member.getNick());
+                long[] roles = member.getRoles();
+                out.field("roles").writeByte(SnapshotReader.ARRAY);
+                out.writeVarInt(roles.length);
+                for(long role : roles) {
+                    out.writeTaggedLong(role);
+                }
+                out.field("joined_at").writeNullableString(member.getJoinedAt());
+            });
+            out.writeByte(END);
+        });
+        out.writeByte(END);
+        out.writeByte(END);
+    }
+
+    /**
+     * Restores a snapshot into the cache. Entities that are already cached are kept, since they are newer.
+     * @param cache The cache.
+     * @param path The path of the file.
+     * @return The amount of restored entities.
+     * @throws IOException If the file could not be read, is not a snapshot, or has an unsupported version.
+     */
+    public static int restore(EntityCache cache, Path path) throws IOException {
+        MappedByteBuffer buffer;
+        try(FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if(channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("snapshot " + path + " is too large");
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()); // Remains valid after closing.
+        }
+        try {
+            return restore(cache, buffer);
+        } catch(RuntimeException exception) { // Truncated or corrupt.
+            throw new IOException("malformed snapshot " + path, exception);
+        }
+    }
+
+    private static int restore(EntityCache cache, ByteBuffer buffer) throws IOException {
+        if(buffer.remaining() < 16 || buffer.getInt() != MAGIC) {
+            throw new IOException("not a snapshot");
+        }
+        int version = buffer.getInt();
+        if(version != VERSION) {
+            throw new IOException("unsupported snapshot version " + version);
+        }
+        buffer.getLong(); // Saved at.
+        SnapshotReader reader = new SnapshotReader(buffer, new String[0]);
+        String[] names = new String[reader.readVarInt()];
+        for(int i = 0; i < names.length; i++) {
+            byte[] name = new byte[reader.readVarInt()];
+            buffer.get(name);
+            names[i] = new String(name, StandardCharsets.UTF_8).intern();
+        }
+        reader = new SnapshotReader(buffer, names);
+        int restored = 0;
+        int section;
+        while((section = buffer.get()) != END) {
+            while(buffer.get() == RECORD) {
+                restored += record(cache, section, buffer.getLong(), buffer, reader);
+            }
+        }
+        return restored;
+    }
+
+    /**
+     * Restores a single record.
+     * @return The amount of restored entities, which is the amount of members for a guild in the members section.
+     */
+    private static int record(EntityCache cache, int section, long id, ByteBuffer buffer, SnapshotReader reader)
+            throws IOException {
+        switch(section) {
+            case GUILDS:
+                Guild guild = new Guild(id);
+                guild.offer(reader);
+                cache.getGuilds().putIfAbsent(id, guild);
+                return 1;
+            case CHANNELS:
+                Channel channel = new Channel(id);
+                channel.offer(reader);
+                if(cache.getChannels().putIfAbsent(id, channel) == null) {
+                    cache.indexChannel(channel);
+                }
+                return 1;
+            case EMOJIS:
+                Emoji emoji = new Emoji(id);
+                emoji.setGuildId(buffer.getLong());
+                emoji.offer(reader);
+                if(cache.getEmojis().putIfAbsent(id, emoji) == null) {
+                    cache.indexEmoji(emoji);
+                }
+                return 1;
+            case USERS:
+                User user = new User(id);
+                user.offer(reader);
+                if(cache.getUsers().putIfAbsent(id, user) == null) {
+                    cache.indexUser(user, null);
+                }
+                return 1;
+            case MEMBERS:
+                MemberStore members = cache.getMembers(id);
+                int restored = 0;
+                while(buffer.get() == RECORD) { // Users are restored first, so members reference the cached user.
+                    long userId = buffer.getLong();
+                    if(members.contains(userId)) {
+                        reader.skipValue();
+                    } else {
+                        User memberUser;
+                        int row;
+                        do {
+                            User cached = cache.getUsers().get(userId);
+                            memberUser = cached == null ? new User(userId) : cached;
+                            row = members.add(memberUser);
+                            if(row < 0) { // Released concurrently, get the user that is cached now.
+                                cache.removeReleased(memberUser);
+                            }
+                        } while(row < 0);
+                        new GuildMember(members, row, memberUser).offer(reader);
+                        members.publish(row, userId);
+                    }
+                    restored++;
+                }
+                return restored;
+            default:
+                throw new IOException("unknown snapshot section " + section);
+        }
+    }
+
+    /**
+     * A buffered output of the primitives of the format. Values are tagged, see {@link SnapshotReader}.
+     */
+    private static final class Output implements AutoCloseable {
+
+        private static final Map<String, Integer> INDICES = new HashMap<>();
+
+        static {
+            for(int i = 0; i < NAMES.length; i++) {
+                INDICES.put(NAMES[i], i);
+            }
+        }
+
+        private final OutputStream out;
+        private final byte[] buffer = new byte[65536];
+        private int size;
+
+        private Output(OutputStream out) {
+            this.out = out;
+        }
+
+        private void beginObject(int fields) {
+            writeByte(SnapshotReader.OBJECT);
+            writeVarInt(fields);
+        }
+
+        private Output field(String name) {
+            writeVarInt(INDICES.get(name));
+            return this;
+        }
+
+        private void writeNullableString(String value) {
+            if(value == null) {
+                writeByte(SnapshotReader.NULL);
+                return;
+            }
+            writeByte(SnapshotReader.STRING);
+            writeString(value);
+        }
+
+        private void writeTaggedLong(long value) {
+            writeByte(SnapshotReader.LONG);
+            writeLong(value);
+        }
+
+        private void writeTaggedInt(int value) {
+            if(value < 0) { // Variable-length integers are unsigned.
+                writeTaggedLong(value);
+                return;
+            }
+            writeByte(SnapshotReader.INT);
+            writeVarInt(value);
+        }
+
+        private void writeTaggedBoolean(boolean value) {
+            writeByte(value ? SnapshotReader.TRUE : SnapshotReader.FALSE);
+        }
+
+        private void writeString(String value) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarInt(bytes.length);
+            ensure(bytes.length);
+            if(bytes.length > buffer.length) {
+                write(bytes);
+                return;
+            }
+            System.arraycopy(bytes, 0, buffer, size, bytes.length);
+            size += bytes.length;
+        }
+
+        private void writeVarInt(int value) {
+            ensure(5);
+            while((value & ~0x7F) != 0) {
+                buffer[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[size++] = (byte) value;
+        }
+
+        private void writeByte(int value) {
+            ensure(1);
+            buffer[size++] = (byte) value;
+        }
+
+        private void writeInt(int value) {
+            ensure(4);
+            for(int shift = 24; shift >= 0; shift -= 8) {
+                buffer[size++] = (byte) (value >>> shift);
+            }
+        }
+
+        private void writeLong(long value) {
+            ensure(8);
+            for(int shift = 56; shift >= 0; shift -= 8) {
+                buffer[size++] = (byte) (value >>> shift);
+            }
+        }
+
+        /**
+         * Makes room in the buffer, flushing it if needed.
+         * Visitors can not throw checked exceptions, so write failures are rethrown unchecked, and unwrapped by close.
+         */
+        private void ensure(int length) {
+            if(size + length > buffer.length) {
+                write(null);
+            }
+        }
+
+        private void write(byte[] direct) {
+            try {
+                out.write(buffer, 0, size);
+                size = 0;
+                if(direct != null) {
+                    out.write(direct);
+                }
+            } catch(IOException exception) {
+                throw new UncheckedIOException(exception);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                out.write(buffer, 0, size);
+            } finally {
+                out.close();
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,642 @@
+/*
+ * This file is part of the LLDJW distribution (https://github.com/LLDJW/LLDJW).
+ * Copyright (c) 2020 LLDJW Contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.lldjw.internal.cache;
+
+import com.github.lldjw.api.entity.*;
+import com.github.lldjw.internal.LLDJWConstants;
+import com.github.lldjw.internal.payload.PayloadReader;
+
+import java.util.Arrays;
+import java.util.function.LongFunction;
+
+/**
+ * The cache updater applies gateway dispatches to the entity cache.
+ * It is invoked by the gateway thread before the event handlers, so handlers always see the updated cache.
+ *
+ * Dispatches are read with a {@link PayloadReader}, and entities are populated field by field
+ * (see {@link StreamAssignable}), so no JSON tree is built. Some values, such as the ID of an entity,
+ * are needed before the rest of the object can be applied; these are found first, after which the object is read
+ * again from its start.
+ *
+ * Guilds can be created lazily (see {@link #setLazyGuilds(boolean)}): the fields of a GUILD_CREATE that are applied
+ * are then kept as copies of their encoded values, and only applied once the guild or one of its entities is looked up, or an update for the guild arrives.
+ * Users in a lazy GUILD_CREATE are only applied if they are not cached yet, since the cached instance may be newer.
+ */
+public final class CacheUpdater {
+
+    private static final long[] EMPTY = new long[0];
+    private static final String[] LAZY_FIELDS = { // The fields that apply() consumes, see Guild#offer(String, PayloadReader).
+            "name", "icon", "owner_id", "member_count", "large", "unavailable", "channels", "emojis", "members"
+    };
+
+    private final EntityCache cache;
+    private final Listener listener;
+    private volatile boolean lazyGuilds;
+
+    /**
+     * Creates a new cache updater.
+     * @param cache The cache to update.
+     * @param listener The listener, which is notified of guilds and member chunks.
+     */
+    public CacheUpdater(EntityCache cache, Listener listener) {
+        this.cache = cache;
+        this.listener = listener;
+    }
+
+    /**
+     * Sets whether or not guilds are created lazily. Guilds that are already lazy stay lazy until they are needed.
+     * @param lazyGuilds True if they are, false otherwise.
+     */
+    public void setLazyGuilds(boolean lazyGuilds) {
+        this.lazyGuilds = lazyGuilds;
+    }
+
+    /**
+     * Applies a dispatch to the cache. Dispatches that do not affect the cache are ignored.
+     * @param type The event type.
+     * @param data The event data, the reader is consumed.
+     */
+    public void update(String type, PayloadReader data) {
+        switch(type) {
+            case LLDJWConstants.API_EVENT_READY:
+                ready(data);
+                break;
+            case LLDJWConstants.API_EVENT_GUILD_CREATE:
+                guildCreate(data);
+                break;
+            case LLDJWConstants.API_EVENT_GUILD_UPDATE:
+                materialize(find(data, "id"));
+                guild(data);
+                break;
+            case LLDJWConstants.API_EVENT_GUILD_DELETE:
+                int start = data.position();
+                if(find(data, "unavailable") != 0) {
+                    materialize(find(data, "id"));
+                    guild(data); // Outage, the guild will be created again.
+                } else {
+                    cache.removeGuild(find(data, "id"));
+                }
+                data.seek(start);
+                break;
+            case LLDJWConstants.API_EVENT_GUILD_EMOJI_UPDATE:
+                long guild = find(data, "guild_id");
+                materialize(guild);
+                cache.removeEmojis(guild);
+                if(into(data, "emojis")) {
+                    emojis(guild, data);
+                }
+                break;
+            case LLDJWConstants.API_EVENT_CHANNEL_CREATE:
+            case LLDJWConstants.API_EVENT_CHANNEL_UPDADTE:
+                materializeChannel(find(data, "id"));
+                channel(data, 0);
+                break;
+            case LLDJWConstants.API_EVENT_CHANNEL_DELETE:
+                long channel = find(data, "id");
+                materializeChannel(channel);
+                cache.removeChannel(channel);
+                break;
+            case LLDJWConstants.API_EVENT_GUILD_MEMBER_ADD:
+            case LLDJWConstants.API_EVENT_GUILD_MEMBER_UPDATE:
+                long to = find(data, "guild_id");
+                materialize(to);
+                member(to, data, true);
+                break;
+            case LLDJWConstants.API_EVENT_GUILD_MEMBER_REMOVE:
+                long from = find(data, "guild_id");
+                materialize(from);
+                if(into(data, "user")) {
+                    cache.removeMember(from, find(data, "id"));
+                }
+                break;
+            case LLDJWConstants.API_EVENT_GUILD_MEMBER_CHUNK:
+                chunk(data);
+                break;
+            case LLDJWConstants.API_EVENT_USER_UPDATE:
+                user(data);
+                break;
+        }
+    }
+
+    /**
+     * Whether or not a dispatch affects the cache. This must match the dispatches handled by {@link #update}.
+     * @param type The event type.
+     * @return True if it does, false if it is ignored.
+     */
+    public static boolean isRelevant(String type) {
+        switch(type) {
+            case LLDJWConstants.API_EVENT_READY:
+            case LLDJWConstants.API_EVENT_GUILD_CREATE:
+            case LLDJWConstants.API_EVENT_GUILD_UPDATE:
+            case LLDJWConstants.API_EVENT_GUILD_DELETE:
+            case LLDJWConstants.API_EVENT_GUILD_EMOJI_UPDATE:
+            case LLDJWConstants.API_EVENT_CHANNEL_CREATE:
+            case LLDJWConstants.API_EVENT_CHANNEL_UPDADTE:
+            case LLDJWConstants.API_EVENT_CHANNEL_DELETE:
+            case LLDJWConstants.API_EVENT_GUILD_MEMBER_ADD:
+            case LLDJWConstants.API_EVENT_GUILD_MEMBER_UPDATE:
+            case LLDJWConstants.API_EVENT_GUILD_MEMBER_REMOVE:
+            case LLDJWConstants.API_EVENT_GUILD_MEMBER_CHUNK:
+            case LLDJWConstants.API_EVENT_USER_UPDATE:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private void ready(PayloadReader data) {
+        data.beginObject();
+        while(data.hasNext()) {
+            switch(data.nextName()) {
+                case "user":
+                    user(data);
+                    break;
+                case "guilds":
+                    long[] guilds = new long[16];
+                    int count = 0;
+                    data.beginArray();
+                    while(data.hasNext()) {
+                        if(count == guilds.length) {
+                            guilds = Arrays.copyOf(guilds, count * 2);
+                        }
+                        guilds[count++] = guild(data);
+                    }
+                    data.endArray();
+                    prune(Arrays.copyOf(guilds, count));
+                    break;
+                default:
+                    data.skipValue();
+                    break;
+            }
+        }
+        data.endObject();
+    }
+
+    /**
+     * Materializes a lazy guild, if the guild is lazy.
+     * @param guild The ID of the guild.
+     */
+    public void materialize(long guild) {
+        LazyGuild lazy = cache.getLazyGuild(guild);
+        if(lazy != null) {
+            materialize(lazy);
+        }
+    }
+
+    /**
+     * Materializes the lazy guild of a channel, if the channel is part of a lazy guild.
+     * @param channel The ID of the channel.
+     */
+    public void materializeChannel(long channel) {
+        LazyGuild lazy = cache.getLazyGuildOfChannel(channel);
+        if(lazy != null) {
+            materialize(lazy);
+        }
+    }
+
+    /**
+     * Materializes the lazy guild of an emoji, if the emoji is part of a lazy guild.
+     * @param emoji The ID of the emoji.
+     */
+    public void materializeEmoji(long emoji) {
+        LazyGuild lazy = cache.getLazyGuildOfEmoji(emoji);
+        if(lazy != null) {
+            materialize(lazy);
+        }
+    }
+
+    /**
+     * Materializes all lazy guilds.
+     */
+    public void materializeAll() {
+        cache.getLazyGuilds().forEach((id, lazy) -> materialize(lazy));
+    }
+
+    /**
+     * Materializes a lazy guild. This may be called by any thread, concurrently with the gateway thread.
+     * @param lazy The lazy guild.
+     */
+    private void materialize(LazyGuild lazy) {
+        synchronized(lazy) {
+            PayloadReader[] values = lazy.take();
+            if(values != null) { // Otherwise it was materialized or discarded already.
+                long id = lazy.getId();
+                Guild guild = entity(cache.getGuilds(), id, Guild::new);
+                String[] fields = lazy.getFields();
+                for(int i = 0; i < fields.length; i++) {
+                    field(id, guild, fields[i], values[i], false);
+                }
+                cache.getGuilds().putIfAbsent(id, guild);
+                cache.removeLazyGuild(lazy);
+            }
+        }
+    }
+
+    private void guildCreate(PayloadReader data) {
+        long id = find(data, "id");
+        if(lazyGuilds) {
+            Guild cached = cache.getGuilds().get(id);
+            if(cached == null || cached.isUnavailable()) {
+                listener.guildCreated(id, defer(id, data));
+                return;
+            }
+        }
+        Guild guild = apply(id, data, true);
+        listener.guildCreated(id, guild.isLarge());
+    }
+
+    /**
+     * Keeps a GUILD_CREATE to be materialized later. Only the IDs of its channels and emojis are read, and only
+     * the fields that are applied are copied.
+     * @param id The ID of the guild.
+     * @param data The guild, the reader is consumed.
+     * @return Whether or not the guild is large.
+     */
+    private boolean defer(long id, PayloadReader data) {
+        boolean large = false;
+        long[] channels = EMPTY;
+        long[] emojis = EMPTY;
+        String[] fields = new String[LAZY_FIELDS.length];
+        PayloadReader[] values = new PayloadReader[LAZY_FIELDS.length];
+        int kept = 0;
+        data.beginObject();
+        while(data.hasNext()) {
+            String field = lazyField(data.nextName());
+            if(field == null || kept == fields.length) { // Not applied, or a duplicate.
+                data.skipValue();
+                continue;
+            }
+            int start = data.position();
+            switch(field) {
+                case "large":
+                    large = data.peek() == PayloadReader.Token.BOOLEAN && data.nextBoolean();
+                    break;
+                case "channels":
+                    channels = ids(data);
+                    break;
+                case "emojis":
+                    emojis = ids(data);
+                    break;
+                default:
+                    data.skipValue();
+                    break;
+            }
+            data.seek(start);
+            fields[kept] = field;
+            values[kept++] = data.copy();
+        }
+        data.endObject();
+        cache.putLazyGuild(new LazyGuild(id, channels, emojis, Arrays.copyOf(fields, kept), Arrays.copyOf(values, kept)));
+        return large;
+    }
+
+    /**
+     * Finds a field that is kept for a lazy guild.
+     * @param name The name of the field.
+     * @return The constant of the same name in {@link #LAZY_FIELDS}, or null if the field is not kept.
+     */
+    private static String lazyField(String name) {
+        for(String field : LAZY_FIELDS) {
+            if(field.equals(name)) {
+                return field;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Applies a GUILD_CREATE.
+     * @param id The ID of the guild.
+     * @param data The guild, the reader is consumed.
+     * @param fresh Whether or not the data is current, otherwise cached users are not updated.
+     * @return The guild.
+     */
+    private Guild apply(long id, PayloadReader data, boolean fresh) {
+        Guild guild = entity(cache.getGuilds(), id, Guild::new);
+        data.beginObject();
+        while(data.hasNext()) {
+            field(id, guild, data.nextName(), data, fresh);
+        }
+        data.endObject();
+        Guild existing = cache.getGuilds().putIfAbsent(id, guild);
+        return existing == null ? guild : existing;
+    }
+
+    /**
+     * Applies a field of a GUILD_CREATE.
+     * @param id The ID of the guild.
+     * @param guild The guild.
+     * @param field The name of the field.
+     * @param data The reader, positioned at the value of the field, which is consumed.
+     * @param fresh Whether or not the data is current, see {@link #apply(long, PayloadReader, boolean)}.
+     */
+    private void field(long id, Guild guild, String field, PayloadReader data, boolean fresh) {
+        switch(field) {
+            case "channels":
+                data.beginArray();
+                while(data.hasNext()) {
+                    channel(data, id);
+                }
+                data.endArray();
+                break;
+            case "emojis":
+                emojis(id, data);
+                break;
+            case "members":
+                members(id, data, fresh);
+                break;
+            default:
+                if(!guild.offer(field, data)) {
+                    data.skipValue();
+                }
+                break;
+        }
+    }
+
+    private long guild(PayloadReader data) {
+        long id = find(data, "id");
+        Guild guild = entity(cache.getGuilds(), id, Guild::new);
+        guild.offer(data);
+        cache.getGuilds().putIfAbsent(id, guild);
+        return id;
+    }
+
+    /**
+     * Removes the guilds that are not part of a new session, such as guilds that were left while disconnected,
+     * or restored from a snapshot.
+     * @param guilds The IDs of the guilds in READY.
+     */
+    private void prune(long[] guilds) {
+        Arrays.sort(guilds);
+        cache.getGuilds().forEach((id, guild) -> {
+            if(Arrays.binarySearch(guilds, id) < 0) {
+                cache.removeGuild(id);
+            }
+        });
+        cache.getLazyGuilds().forEach((id, guild) -> {
+            if(Arrays.binarySearch(guilds, id) < 0) {
+                cache.removeGuild(id);
+            }
+        });
+    }
+
+    private void channel(PayloadReader data, long guild) {
+        long id = find(data, "id");
+        Channel channel = entity(cache.getChannels(), id, Channel::new);
+        channel.offer(data);
+        if(guild != 0) {
+            channel.setGuildId(guild);
+        }
+        cache.getChannels().putIfAbsent(id, channel);
+        cache.indexChannel(channel);
+    }
+
+    private void emojis(long guild, PayloadReader data) {
+        data.beginArray();
+        while(data.hasNext()) {
+            long id = find(data, "id");
+            Emoji emoji = new Emoji(id);
+            emoji.offer(data);
+            emoji.setGuildId(guild);
+            cache.getEmojis().put(id, emoji);
+            cache.indexEmoji(emoji);
+        }
+        data.endArray();
+    }
+
+    /**
+     * Applies a GUILD_MEMBERS_CHUNK. The members are cached one by one as they are read,
+     * and the chunk position is passed on to the listener.
+     * @param data The chunk.
+     */
+    private void chunk(PayloadReader data) {
+        long guild = find(data, "guild_id");
+        materialize(guild);
+        int index = 0;
+        int count = 0;
+        int members = 0;
+        data.beginObject();
+        while(data.hasNext()) {
+            switch(data.nextName()) {
+                case "members":
+                    members = members(guild, data, true);
+                    break;
+                case "chunk_index":
+                    index = data.nextInt();
+                    break;
+                case "chunk_count":
+                    count = data.nextInt();
+                    break;
+                default:
+                    data.skipValue();
+                    break;
+            }
+        }
+        data.endObject();
+        listener.membersChunked(guild, index, count, members);
+    }
+
+    private int members(long guild, PayloadReader data, boolean fresh) {
+        int count = 0;
+        data.beginArray();
+        while(data.hasNext()) {
+            member(guild, data, fresh);
+            count++;
+        }
+        data.endArray();
+        return count;
+    }
+
+    /**
+     * Applies a member. The member references the cached user; if it referenced another instance (evicted by a bound),
+     * that is replaced, so that members of the same user always share one instance.
+     * New members are only published once they are populated.
+     * @param guild The ID of the guild.
+     * @param data The member.
+     * @param fresh Whether or not the data is current, otherwise a cached user is not updated.
+     */
+    private void member(long guild, PayloadReader data, boolean fresh) {
+        User user = memberUser(data, fresh);
+        if(user == null) {
+            data.skipValue();
+            return;
+        }
+        MemberStore members = cache.getMembers(guild);
+        int row = members.add(user);
+        while(row < 0) { // The user lost its last member concurrently, and is no longer cached.
+            cache.removeReleased(user);
+            user = memberUser(data, fresh);
+            row = members.add(user);
+        }
+        new GuildMember(members, row, user).offer(data);
+        members.publish(row, user.getId());
+    }
+
+    /**
+     * Applies the user of a member.
+     * @param data The member, the reader is positioned back at its start.
+     * @param fresh Whether or not the data is current, otherwise a cached user is not updated.
+     * @return The cached user, or null if the member has no user.
+     */
+    private User memberUser(PayloadReader data, boolean fresh) {
+        int start = data.position();
+        User user = null;
+        data.beginObject();
+        while(data.hasNext()) {
+            if("user".equals(data.nextName())) {
+                user = fresh ? user(data) : cachedUser(data);
+            } else {
+                data.skipValue();
+            }
+        }
+        data.endObject();
+        data.seek(start);
+        return user;
+    }
+
+    /**
+     * Applies a user.
+     * @param data The user.
+     * @return The cached user.
+     */
+    private User user(PayloadReader data) {
+        long id = find(data, "id");
+        User user = entity(cache.getUsers(), id, User::new);
+        String previous = user.getUsername();
+        user.offer(data);
+        User existing = cache.getUsers().putIfAbsent(id, user);
+        if(existing != null && existing != user) { // Cached concurrently, by the materialization of a lazy guild.
+            return existing;
+        }
+        cache.indexUser(user, previous);
+        return user;
+    }
+
+    /**
+     * Applies a user, unless it is cached already.
+     * @param data The user.
+     * @return The cached user.
+     */
+    private User cachedUser(PayloadReader data) {
+        User cached = cache.getUsers().get(find(data, "id"));
+        if(cached == null) {
+            return user(data);
+        }
+        data.skipValue();
+        return cached;
+    }
+
+    /**
+     * Reads the IDs of an array of objects.
+     * @param data The array.
+     * @return The IDs.
+     */
+    private static long[] ids(PayloadReader data) {
+        long[] ids = new long[16];
+        int count = 0;
+        data.beginArray();
+        while(data.hasNext()) {
+            if(count == ids.length) {
+                ids = Arrays.copyOf(ids, count * 2);
+            }
+            ids[count++] = find(data, "id");
+            data.skipValue();
+        }
+        data.endArray();
+        return Arrays.copyOf(ids, count);
+    }
+
+    /**
+     * Gets a cached entity, or creates a new one. New entities are not inserted yet,
+     * so that they are only visible once they are populated.
+     * @param cached The cached entities.
+     * @param id The ID of the entity.
+     * @param factory Creates a new entity.
+     * @param <E> The type of the entity.
+     * @return The entity.
+     */
+    private static <E> E entity(LongMap<E> cached, long id, LongFunction<E> factory) {
+        E entity = cached.get(id);
+        return entity == null ? factory.apply(id) : entity;
+    }
+
+    /**
+     * Finds a snowflake (or number, or boolean as 1) in the object the reader is positioned at.
+     * The reader is moved back to the start of the object afterwards.
+     * @param data The reader.
+     * @param key The key.
+     * @return The value, or 0 if it does not exist.
+     */
+    private static long find(PayloadReader data, String key) {
+        int start = data.position();
+        long value = 0;
+        data.beginObject();
+        while(data.hasNext()) {
+            if(key.equals(data.nextName())) {
+                PayloadReader.Token token = data.peek();
+                value = token == PayloadReader.Token.BOOLEAN ? (data.nextBoolean() ? 1 : 0) : data.nextSnowflake();
+                break;
+            }
+            data.skipValue();
+        }
+        data.seek(start);
+        return value;
+    }
+
+    /**
+     * Positions the reader at the value of a key, in the object the reader is positioned at.
+     * The rest of the object is not read.
+     * @param data The reader.
+     * @param key The key.
+     * @return True if the key exists, false otherwise.
+     */
+    private static boolean into(PayloadReader data, String key) {
+        data.beginObject();
+        while(data.hasNext()) {
+            if(key.equals(data.nextName())) {
+                return true;
+            }
+            data.skipValue();
+        }
+        return false;
+    }
+
+    /**
+     * Is notified of cache updates that require further action, such as requesting members.
+     * Invoked on the gateway thread, after the cache was updated.
+     */
+    public interface Listener {
+
+        /**
+         * A guild was created (joined, or became available).
+         * @param guild The ID of the guild.
+         * @param large Whether or not the guild is large, in which case offline members were not sent.
+         */
+        void guildCreated(long guild, boolean large);
+
+        /**
+         * A chunk of members was cached.
+         * @param guild The ID of the guild.
+         * @param index The index of the chunk.
+         * @param count The total amount of chunks, or 0 if it was not sent.
+         * @param members The amount of members in the chunk.
+         */
+        void membersChunked(long guild, int index, int count, int members);
+
+    }
+
+}
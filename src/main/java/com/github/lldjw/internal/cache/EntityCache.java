@@ -0,0 +1,442 @@
+/*
+ * This file is part of the LLDJW distribution (https://github.com/LLDJW/LLDJW).
+ * Copyright (c) 2020 LLDJW Contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.lldjw.internal.cache;
+
+import com.github.lldjw.api.entity.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The entity cache holds all cached entities of a client, keyed by their snowflake.
+ * Guild members are stored by column per guild, see {@link MemberStore}.
+ * All maps support lock-free reads, see {@link LongMap}; member stores read optimistically.
+ * Channels, emojis, guilds, members and users can be bounded, see {@link CacheBound}; all members share one bound.
+ *
+ * Cached members reference the cached instance of their user, so a user that is a member of many guilds is only
+ * held once. Users count the members that reference them (see {@link ReferenceCounted}), and are removed once their
+ * last member is removed or evicted from the member stores. Releasing the last reference is final, so a member that
+ * is added concurrently gets the user that is cached afterwards, see {@link #removeReleased(User)}.
+ *
+ * Guilds can be kept lazily, as their raw GUILD_CREATE, until they are needed (see {@link LazyGuild}).
+ * Lazy guilds are indexed by their ID and the IDs of their channels and emojis; they are not part of any bound.
+ *
+ * Besides their IDs, entities can be found with secondary indexes, which are updated as the entities are cached:
+ * channels and emojis by guild (see {@link LongIndex}), users by name (see {@link NameIndex}), and members by role and
+ * name (see {@link MemberStore}). Entities that are evicted by a bound are removed from the indexes lazily,
+ * when a query finds them missing.
+ */
+public final class EntityCache {
+
+    private final CacheBound[] bounds = createBounds(); // Before the maps.
+    private final LongMap<Channel> channels = new LongMap<>(getBound(CacheType.CHANNELS));
+    private final LongMap<Emoji> emojis = new LongMap<>(getBound(CacheType.EMOJIS));
+    private final LongMap<Guild> guilds = new LongMap<>(getBound(CacheType.GUILDS));
+    private final LongMap<MemberStore> members = new LongMap<>();
+    private final LongMap<Invite> invites = new LongMap<>();
+    private final LongMap<User> users = new LongMap<>(getBound(CacheType.USERS));
+    private final LongMap<WebHook> webHooks = new LongMap<>();
+    private final LongMap<LazyGuild> lazyGuilds = new LongMap<>();
+    private final LongMap<LazyGuild> lazyChannels = new LongMap<>(); // By the IDs of their channels.
+    private final LongMap<LazyGuild> lazyEmojis = new LongMap<>(); // By the IDs of their emojis.
+    private final LongIndex guildChannels = new LongIndex();
+    private final LongIndex guildEmojis = new LongIndex();
+    private final NameIndex userNames = new NameIndex();
+
+    public LongMap<Channel> getChannels() {
+        return channels;
+    }
+
+    public LongMap<Emoji> getEmojis() {
+        return emojis;
+    }
+
+    public LongMap<Guild> getGuilds() {
+        return guilds;
+    }
+
+    public LongMap<Invite> getInvites() {
+        return invites;
+    }
+
+    public LongMap<User> getUsers() {
+        return users;
+    }
+
+    public LongMap<WebHook> getWebHooks() {
+        return webHooks;
+    }
+
+    /**
+     * Gets the bound of a type of entity.
+     * @param type The type.
+     * @return The bound.
+     */
+    public CacheBound getBound(CacheType type) {
+        return bounds[type.ordinal()];
+    }
+
+    /**
+     * Gets the members of all guilds, keyed by guild.
+     * @return The members.
+     */
+    LongMap<MemberStore> getAllMembers() {
+        return members;
+    }
+
+    /**
+     * Gets the lazy guilds, keyed by guild.
+     * @return The lazy guilds.
+     */
+    LongMap<LazyGuild> getLazyGuilds() {
+        return lazyGuilds;
+    }
+
+    /**
+     * Gets a lazy guild.
+     * @param guild The ID of the guild.
+     * @return The lazy guild, or null if the guild is not lazy.
+     */
+    LazyGuild getLazyGuild(long guild) {
+        return lazyGuilds.get(guild);
+    }
+
+    /**
+     * Gets the lazy guild that a channel belongs to.
+     * @param channel The ID of the channel.
+     * @return The lazy guild, or null if the channel is not part of a lazy guild.
+     */
+    LazyGuild getLazyGuildOfChannel(long channel) {
+        return lazyChannels.get(channel);
+    }
+
+    /**
+     * Gets the lazy guild that an emoji belongs to.
+     * @param emoji The ID of the emoji.
+     * @return The lazy guild, or null if the emoji is not part of a lazy guild.
+     */
+    LazyGuild getLazyGuildOfEmoji(long emoji) {
+        return lazyEmojis.get(emoji);
+    }
+
+    /**
+     * Adds a lazy guild, which replaces (and discards) the previous lazy guild of the same ID.
+     * The channels and emojis are indexed before the guild is published.
+     * @param guild The lazy guild.
+     */
+    void putLazyGuild(LazyGuild guild) {
+        for(long channel : guild.getChannels()) {
+            lazyChannels.put(channel, guild);
+        }
+        for(long emoji : guild.getEmojis()) {
+            lazyEmojis.put(emoji, guild);
+        }
+        LazyGuild previous = lazyGuilds.put(guild.getId(), guild);
+        if(previous != null) {
+            discard(previous);
+        }
+    }
+
+    /**
+     * Removes a lazy guild that was materialized. Must be called while holding its lock.
+     * @param guild The lazy guild.
+     */
+    void removeLazyGuild(LazyGuild guild) {
+        lazyGuilds.remove(guild.getId(), guild);
+        unindex(guild);
+    }
+
+    /**
+     * Indexes a channel, after it was cached or updated.
+     * @param channel The channel.
+     */
+    void indexChannel(Channel channel) {
+        if(channel.getGuildId() != 0) {
+            guildChannels.add(channel.getGuildId(), channel.getId());
+        }
+    }
+
+    /**
+     * Indexes an emoji, after it was cached or updated.
+     * @param emoji The emoji.
+     */
+    void indexEmoji(Emoji emoji) {
+        if(emoji.getGuildId() != 0) {
+            guildEmojis.add(emoji.getGuildId(), emoji.getId());
+        }
+    }
+
+    /**
+     * Indexes a user, after it was cached or updated. If it was renamed, the name indexes of all member stores are
+     * updated, which costs a lookup per guild; renames are rare.
+     * @param user The user.
+     * @param previous The name of the user before the update, or null if it was not cached.
+     */
+    void indexUser(User user, String previous) {
+        userNames.update(previous, user.getUsername(), user.getId());
+        if(previous != null && !previous.equals(user.getUsername())) {
+            members.forEach((guild, guildMembers) -> guildMembers.renamed(user, previous));
+        }
+    }
+
+    /**
+     * Removes a channel.
+     * @param channel The ID of the channel.
+     */
+    public void removeChannel(long channel) {
+        Channel removed = channels.remove(channel);
+        if(removed != null && removed.getGuildId() != 0) {
+            guildChannels.remove(removed.getGuildId(), channel);
+        }
+    }
+
+    /**
+     * Removes the emojis of a guild.
+     * @param guild The ID of the guild.
+     */
+    public void removeEmojis(long guild) {
+        for(long id : guildEmojis.removeAll(guild)) {
+            Emoji emoji = emojis.get(id);
+            if(emoji != null && emoji.getGuildId() == guild) {
+                emojis.remove(id, emoji);
+            }
+        }
+    }
+
+    /**
+     * Finds the channels of a guild with a name that starts with a prefix, ignoring case.
+     * This only visits the channels of the guild.
+     * @param guild The ID of the guild.
+     * @param prefix The prefix, an empty prefix matches every channel.
+     * @return The channels, in no particular order.
+     */
+    public List<Channel> findChannels(long guild, String prefix) {
+        List<Channel> found = new ArrayList<>();
+        for(long id : guildChannels.get(guild)) {
+            Channel channel = channels.get(id);
+            if(channel == null || channel.getGuildId() != guild) { // Evicted.
+                guildChannels.remove(guild, id);
+            } else if(startsWith(channel.getName(), prefix)) {
+                found.add(channel);
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Finds the users with a name that starts with a prefix, ignoring case.
+     * This costs O(log n), plus the users that are visited.
+     * @param prefix The prefix, an empty prefix matches every user.
+     * @param limit The maximum amount of users.
+     * @return The users, in the order of their names.
+     */
+    public List<User> findUsers(String prefix, int limit) {
+        List<User> found = new ArrayList<>();
+        if(limit == 0) {
+            return found;
+        }
+        userNames.forEach(prefix, (id, name) -> {
+            User user = users.get(id);
+            if(user == null || !name.equals(user.getUsername())) { // Evicted, or renamed since.
+                userNames.remove(name, id);
+                return true;
+            }
+            found.add(user);
+            return found.size() < limit;
+        });
+        return found;
+    }
+
+    /**
+     * Finds the members of a guild with a name that starts with a prefix, ignoring case.
+     * The name of a member is its nickname, or the name of its user if it has none.
+     * This costs O(log n) in the members of the guild, plus the members that are returned.
+     * @param guild The ID of the guild.
+     * @param prefix The prefix, an empty prefix matches every member.
+     * @param limit The maximum amount of members.
+     * @return The members, in the order of their names.
+     */
+    public List<GuildMember> findMembers(long guild, String prefix, int limit) {
+        MemberStore guildMembers = members.get(guild);
+        if(guildMembers == null || limit == 0) {
+            return new ArrayList<>();
+        }
+        return guildMembers.findByName(prefix, limit);
+    }
+
+    /**
+     * Finds the members of a guild that have a role.
+     * This only visits the members with the role.
+     * @param guild The ID of the guild.
+     * @param role The ID of the role.
+     * @return The members, in no particular order.
+     */
+    public List<GuildMember> findMembersWithRole(long guild, long role) {
+        MemberStore guildMembers = members.get(guild);
+        return guildMembers == null ? new ArrayList<>() : guildMembers.findWithRole(role);
+    }
+
+    /**
+     * Gets a guild member.
+     * @param guild The ID of the guild.
+     * @param user The ID of the user.
+     * @return The member, or null if it is not cached.
+     */
+    public GuildMember getMember(long guild, long user) {
+        MemberStore guildMembers = members.get(guild);
+        return guildMembers == null ? null : guildMembers.get(user);
+    }
+
+    /**
+     * Gets the members of a guild, creating the store if it does not exist.
+     * @param guild The ID of the guild.
+     * @return The members, never null.
+     */
+    public MemberStore getMembers(long guild) {
+        MemberStore guildMembers = members.get(guild);
+        if(guildMembers == null) {
+            MemberStore created = new MemberStore(guild, getBound(CacheType.MEMBERS), this::release);
+            guildMembers = members.putIfAbsent(guild, created);
+            if(guildMembers == null) {
+                guildMembers = created;
+            } else {
+                getBound(CacheType.MEMBERS).unregister(created); // Lost the race.
+            }
+        }
+        return guildMembers;
+    }
+
+    /**
+     * Removes a guild member.
+     * @param guild The ID of the guild.
+     * @param user The ID of the user.
+     * @return True if the member was removed, false if it was not cached.
+     */
+    public boolean removeMember(long guild, long user) {
+        MemberStore guildMembers = members.get(guild);
+        return guildMembers != null && guildMembers.remove(user);
+    }
+
+    /**
+     * Removes a guild, including its channels, emojis and members.
+     * Users that are no longer a member of any cached guild are removed as well.
+     * @param guild The ID of the guild.
+     */
+    public void removeGuild(long guild) {
+        LazyGuild lazy = lazyGuilds.remove(guild);
+        if(lazy != null) {
+            discard(lazy); // Waits for a materialization in progress, whose entities are removed below.
+        }
+        guilds.remove(guild);
+        MemberStore guildMembers = members.remove(guild);
+        if(guildMembers != null) {
+            getBound(CacheType.MEMBERS).unregister(guildMembers); // Clearing the store releases its users.
+        }
+        for(long id : guildChannels.removeAll(guild)) {
+            Channel channel = channels.get(id);
+            if(channel != null && channel.getGuildId() == guild) {
+                channels.remove(id, channel);
+            }
+        }
+        removeEmojis(guild);
+    }
+
+    /**
+     * Removes all entities.
+     */
+    public void clear() {
+        channels.clear();
+        emojis.clear();
+        guilds.clear();
+        members.forEach((guild, guildMembers) -> getBound(CacheType.MEMBERS).unregister(guildMembers));
+        members.clear();
+        invites.clear();
+        users.clear();
+        webHooks.clear();
+        lazyGuilds.clear();
+        lazyChannels.clear();
+        lazyEmojis.clear();
+        guildChannels.clear();
+        guildEmojis.clear();
+        userNames.clear();
+    }
+
+    /**
+     * Discards a lazy guild, so that it is never materialized.
+     * @param guild The lazy guild.
+     */
+    private void discard(LazyGuild guild) {
+        synchronized(guild) {
+            guild.take();
+        }
+        unindex(guild);
+    }
+
+    /**
+     * Removes the channels and emojis of a lazy guild from the indexes, unless they were indexed again since.
+     * @param guild The lazy guild.
+     */
+    private void unindex(LazyGuild guild) {
+        for(long channel : guild.getChannels()) {
+            lazyChannels.remove(channel, guild);
+        }
+        for(long emoji : guild.getEmojis()) {
+            lazyEmojis.remove(emoji, guild);
+        }
+    }
+
+    /**
+     * Removes a reference to a user, and removes the user once it has no references.
+     * The user is only removed if it is still the cached instance.
+     * @param user The user.
+     */
+    private void release(User user) {
+        if(((ReferenceCounted) user).release()) { // Not accessible through User.
+            removeReleased(user);
+        }
+    }
+
+    /**
+     * Removes a user whose last reference was released, if it is still the cached instance. A member store that
+     * failed to add a member with this user (see {@link MemberStore#add(User)}) calls this before getting the user
+     * again, so that it does not get the released instance.
+     * @param user The released user.
+     */
+    void removeReleased(User user) {
+        if(users.remove(user.getId(), user)) {
+            userNames.remove(user.getUsername(), user.getId());
+            User current = users.get(user.getId());
+            if(current != null) { // Cached again before its name was removed, which removed the name of the new one.
+                userNames.update(null, current.getUsername(), current.getId());
+            }
+        }
+    }
+
+    private static boolean startsWith(String name, String prefix) {
+        return name != null && name.regionMatches(true, 0, prefix, 0, prefix.length());
+    }
+
+    private static CacheBound[] createBounds() {
+        CacheType[] types = CacheType.values();
+        CacheBound[] bounds = new CacheBound[types.length];
+        for(CacheType type : types) {
+            bounds[type.ordinal()] = new CacheBound(type);
+        }
+        return bounds;
+    }
+
+}
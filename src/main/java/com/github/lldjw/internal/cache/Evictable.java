@@ -0,0 +1,43 @@
+/*
+ * This file is part of the LLDJW distribution (https://github.com/LLDJW/LLDJW).
+ * Copyright (c) 2020 LLDJW Contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.lldjw.internal.cache;
+
+/**
+ * Storage of entities that can be part of a {@link CacheBound}.
+ */
+interface Evictable {
+
+    /**
+     * Gets the amount of entries.
+     * @return The size, which may be outdated under concurrent modification.
+     */
+    int size();
+
+    /**
+     * Evicts entries, preferring entries that were not read recently.
+     * Must only be called by the bound, which serializes evictions, and counts the evicted entries itself.
+     * @param count The amount of entries to evict.
+     * @return The amount of evicted entries, which may be less if there are fewer entries.
+     */
+    int evict(int count);
+
+    /**
+     * Removes all entries, and counts them as removed from the bound.
+     */
+    void clear();
+
+}
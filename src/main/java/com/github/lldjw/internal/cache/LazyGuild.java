@@ -0,0 +1,82 @@
+/*
+ * This file is part of the LLDJW distribution (https://github.com/LLDJW/LLDJW).
+ * Copyright (c) 2020 LLDJW Contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.lldjw.internal.cache;
+
+import com.github.lldjw.internal.payload.PayloadReader;
+
+/**
+ * The raw GUILD_CREATE of a guild that was not materialized yet, see {@link CacheUpdater#setLazyGuilds(boolean)}.
+ * Only the fields that are applied to the cache are kept, each as a copy of its encoded value
+ * (see {@link PayloadReader#copy()}), without any entities; the others, such as presences and roles, are dropped.
+ * The IDs of its channels and emojis are kept as well, so that a lookup of one of those can find the guild that has
+ * to be materialized.
+ *
+ * A lazy guild is materialized or discarded at most once. Both happen while holding its lock, so a guild that is
+ * being materialized by one thread is complete before another thread can observe it as gone.
+ */
+final class LazyGuild {
+
+    private final long id;
+    private final long[] channels;
+    private final long[] emojis;
+    private final String[] fields;
+    private PayloadReader[] values; // Guarded by this, null once materialized or discarded.
+
+    /**
+     * Creates a new lazy guild.
+     * @param id The ID of the guild.
+     * @param channels The IDs of its channels.
+     * @param emojis The IDs of its emojis.
+     * @param fields The names of the kept fields.
+     * @param values Copies of the values of the kept fields, in the same order.
+     */
+    LazyGuild(long id, long[] channels, long[] emojis, String[] fields, PayloadReader[] values) {
+        this.id = id;
+        this.channels = channels;
+        this.emojis = emojis;
+        this.fields = fields;
+        this.values = values;
+    }
+
+    long getId() {
+        return id;
+    }
+
+    long[] getChannels() {
+        return channels;
+    }
+
+    long[] getEmojis() {
+        return emojis;
+    }
+
+    String[] getFields() {
+        return fields;
+    }
+
+    /**
+     * Takes the values of the fields. Must be called while holding the lock, which must be held until they were applied.
+     * @return The values, in the order of {@link #getFields()}, or null if the guild was already materialized
+     * or discarded.
+     */
+    PayloadReader[] take() {
+        PayloadReader[] taken = values;
+        values = null;
+        return taken;
+    }
+
+}
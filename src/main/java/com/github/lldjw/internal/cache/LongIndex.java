@@ -0,0 +1,175 @@
+/*
+ * This file is part of the LLDJW distribution (https://github.com/LLDJW/LLDJW).
+ * Copyright (c) 2020 LLDJW Contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.lldjw.internal.cache;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A secondary index from a key to a set of IDs, such as the channels of a guild, or the members that have a role.
+ * Every set is an open-addressed table of unboxed IDs with linear probing (0 marks an empty slot, which is never
+ * a snowflake), so an ID costs 8 to 16 bytes; only the keys are boxed, and there are few of them.
+ *
+ * The index is maintained incrementally by the owner of the entities. Some entities can disappear without the index
+ * being told, such as entities that are evicted by a bound, so queries check the IDs they get against the cache,
+ * and remove the ones that are gone. All methods are synchronized.
+ */
+final class LongIndex {
+
+    private static final long[] EMPTY = new long[0];
+
+    private final Map<Long, IdSet> sets = new HashMap<>(); // Guarded by this.
+
+    /**
+     * Adds an ID to the set of a key.
+     * @param key The key.
+     * @param id The ID, not 0.
+     */
+    synchronized void add(long key, long id) {
+        sets.computeIfAbsent(key, k -> new IdSet()).add(id);
+    }
+
+    /**
+     * Removes an ID from the set of a key. Sets are removed once they are empty.
+     * @param key The key.
+     * @param id The ID.
+     */
+    synchronized void remove(long key, long id) {
+        IdSet set = sets.get(key);
+        if(set != null && set.remove(id) && set.size == 0) {
+            sets.remove(key);
+        }
+    }
+
+    /**
+     * Gets the set of a key.
+     * @param key The key.
+     * @return A copy of the IDs, in no particular order.
+     */
+    synchronized long[] get(long key) {
+        IdSet set = sets.get(key);
+        return set == null ? EMPTY : set.toArray();
+    }
+
+    /**
+     * Removes the set of a key.
+     * @param key The key.
+     * @return The IDs that were in the set.
+     */
+    synchronized long[] removeAll(long key) {
+        IdSet set = sets.remove(key);
+        return set == null ? EMPTY : set.toArray();
+    }
+
+    /**
+     * Removes all sets.
+     */
+    synchronized void clear() {
+        sets.clear();
+    }
+
+    /**
+     * A set of IDs, with a capacity that is a power of two and a load factor of at most 3/4.
+     */
+    private static final class IdSet {
+
+        private long[] slots = new long[4];
+        private int size;
+
+        private void add(long id) {
+            int slot = find(slots, id);
+            if(slot >= 0) {
+                return;
+            }
+            slots[~slot] = id;
+            if(++size > slots.length - (slots.length >>> 2)) {
+                long[] old = slots;
+                slots = new long[old.length * 2];
+                for(long moved : old) {
+                    if(moved != 0) {
+                        slots[~find(slots, moved)] = moved;
+                    }
+                }
+            }
+        }
+
+        /**
+         * Removes an ID, and shifts the following slots of the probe sequence back, so the set needs no tombstones.
+         * @param id The ID.
+         * @return True if it was removed, false if it was not in the set.
+         */
+        private boolean remove(long id) {
+            int slot = find(slots, id);
+            if(slot < 0) {
+                return false;
+            }
+            int mask = slots.length - 1;
+            int gap = slot;
+            int next = slot;
+            while(true) {
+                next = (next + 1) & mask;
+                long entry = slots[next];
+                if(entry == 0) {
+                    break;
+                }
+                int home = (int) LongMap.hash(entry) & mask;
+                if(((next - home) & mask) >= ((next - gap) & mask)) { // The entry may move back into the gap.
+                    slots[gap] = entry;
+                    gap = next;
+                }
+            }
+            slots[gap] = 0;
+            size--;
+            return true;
+        }
+
+        private long[] toArray() {
+            long[] ids = new long[size];
+            int count = 0;
+            for(long id : slots) {
+                if(id != 0) {
+                    ids[count++] = id;
+                }
+            }
+            return count == ids.length ? ids : Arrays.copyOf(ids, count);
+        }
+
+        /**
+         * Finds the slot of an ID.
+         * @param slots The slots.
+         * @param id The ID.
+         * @return The slot if the ID is in the set, otherwise the bitwise complement of the first empty slot.
+         */
+        private static int find(long[] slots, long id) {
+            int mask = slots.length - 1;
+            int slot = (int) LongMap.hash(id) & mask;
+            while(true) {
+                long entry = slots[slot];
+                if(entry == 0) {
+                    return ~slot;
+                }
+                if(entry == id) {
+                    return slot;
+                }
+                slot = (slot + 1) & mask;
+            }
+        }
+
+    }
+
+}
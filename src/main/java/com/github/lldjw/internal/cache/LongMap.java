@@ -0,0 +1,423 @@
+/*
+ * This file is part of the LLDJW distribution (https://github.com/LLDJW/LLDJW).
+ * Copyright (c) 2020 LLDJW Contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.lldjw.internal.cache;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A concurrent map with primitive long keys, such as snowflakes.
+ * Keys are stored unboxed in open-addressed tables with linear probing, which costs roughly 12 bytes per slot
+ * (at a load factor of at most 3/4), instead of a boxed key and node per entry.
+ *
+ * The map is split into segments by hash. Writes lock their segment, reads never lock.
+ * A slot is published by writing its key before its value, and the value is written and read with volatile semantics;
+ * a reader that observes a value therefore also observes its key. Removed slots become tombstones
+ * and are never reused in the same table, so the key of a used slot never changes. Tombstones are purged when
+ * the segment is rehashed, which publishes a new table.
+ *
+ * Iteration is weakly consistent, and null values are not permitted.
+ *
+ * A map can be bounded, see {@link CacheBound}. Every slot of a bounded map then has a small reference counter,
+ * which is incremented (up to 3) by reads, and used to pick entries to evict with a CLOCK sweep: the hand of a
+ * segment decrements the counters it passes, and evicts the first entry it finds with a counter of 0.
+ * New entries start at 0, so entries that are never read again are evicted first, and entries that are read
+ * repeatedly survive several sweeps; this approximates a segmented LRU, without reordering anything on reads.
+ * @param <V> The type of the values.
+ */
+public final class LongMap<V> implements Evictable {
+
+    private static final int SEGMENT_BITS = 4;
+    private static final int INITIAL_CAPACITY = 16;
+    private static final Object TOMBSTONE = new Object();
+
+    private final Segment[] segments = new Segment[1 << SEGMENT_BITS];
+    private final CacheBound bound;
+    private int evictionSegment; // Guarded by the eviction of the bound.
+
+    /**
+     * Creates a new, empty map.
+     */
+    public LongMap() {
+        this(null);
+    }
+
+    /**
+     * Creates a new, empty map.
+     * @param bound The bound that the map is part of, or null if it is unbounded.
+     */
+    public LongMap(CacheBound bound) {
+        this.bound = bound;
+        for(int i = 0; i < segments.length; i++) {
+            segments[i] = new Segment(bound != null);
+        }
+        if(bound != null) {
+            bound.register(this);
+        }
+    }
+
+    /**
+     * Gets the value of a key.
+     * @param key The key.
+     * @return The value, or null if there is none.
+     */
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        long hash = hash(key);
+        Table table = segmentFor(hash).table;
+        long[] keys = table.keys;
+        AtomicReferenceArray<Object> values = table.values;
+        int index = (int) hash & table.mask;
+        while(true) {
+            Object value = values.get(index); // Must be read before the key.
+            if(value == null) {
+                return null;
+            }
+            if(value != TOMBSTONE && keys[index] == key) {
+                byte[] references = table.references;
+                if(references != null && references[index] < 3) { // A lost increment does not matter.
+                    references[index]++;
+                }
+                return (V) value;
+            }
+            index = (index + 1) & table.mask;
+        }
+    }
+
+    /**
+     * Checks whether or not the map contains a key.
+     * @param key The key.
+     * @return True if it does, false otherwise.
+     */
+    public boolean containsKey(long key) {
+        return get(key) != null;
+    }
+
+    /**
+     * Associates a value with a key.
+     * @param key The key.
+     * @param value The value.
+     * @return The previous value, or null if there was none.
+     * @throws NullPointerException If the value is null.
+     */
+    public V put(long key, V value) {
+        return insert(key, value, false);
+    }
+
+    /**
+     * Associates a value with a key, if the key is not associated with a value yet.
+     * @param key The key.
+     * @param value The value.
+     * @return The existing value, or null if the value was inserted.
+     * @throws NullPointerException If the value is null.
+     */
+    public V putIfAbsent(long key, V value) {
+        return insert(key, value, true);
+    }
+
+    /**
+     * Removes the value of a key.
+     * @param key The key.
+     * @return The removed value, or null if there was none.
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(long key) {
+        return (V) delete(key, null);
+    }
+
+    /**
+     * Removes the value of a key, if it is the given instance.
+     * @param key The key.
+     * @param value The value.
+     * @return True if it was removed, false otherwise.
+     */
+    public boolean remove(long key, V value) {
+        return value != null && delete(key, value) != null;
+    }
+
+    /**
+     * Removes the value of a key.
+     * @param key The key.
+     * @param expected The value that must be associated with the key, or null for any value.
+     * @return The removed value, or null if nothing was removed.
+     */
+    private Object delete(long key, Object expected) {
+        long hash = hash(key);
+        Segment segment = segmentFor(hash);
+        synchronized(segment) {
+            Table table = segment.table;
+            int index = table.find(key, hash);
+            if(index < 0) {
+                return null;
+            }
+            Object previous = table.values.get(index);
+            if(expected != null && previous != expected) {
+                return null;
+            }
+            table.values.set(index, TOMBSTONE);
+            segment.size--;
+            if(bound != null) {
+                bound.removed(1);
+            }
+            return previous;
+        }
+    }
+
+    /**
+     * Gets the amount of entries.
+     * @return The size, which may be outdated under concurrent modification.
+     */
+    @Override
+    public int size() {
+        int size = 0;
+        for(Segment segment : segments) {
+            synchronized(segment) {
+                size += segment.size;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Removes all entries.
+     */
+    @Override
+    public void clear() {
+        for(Segment segment : segments) {
+            synchronized(segment) {
+                if(bound != null) {
+                    bound.removed(segment.size);
+                }
+                segment.table = new Table(INITIAL_CAPACITY, bound != null);
+                segment.size = 0;
+                segment.used = 0;
+                segment.hand = 0;
+            }
+        }
+    }
+
+    /**
+     * Visits every entry. Entries inserted or removed during the iteration may or may not be visited.
+     * @param visitor The visitor.
+     */
+    @SuppressWarnings("unchecked")
+    public void forEach(Visitor<? super V> visitor) {
+        for(Segment segment : segments) {
+            Table table = segment.table;
+            for(int i = 0; i < table.keys.length; i++) {
+                Object value = table.values.get(i);
+                if(value != null && value != TOMBSTONE) {
+                    visitor.visit(table.keys[i], (V) value);
+                }
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private V insert(long key, V value, boolean onlyIfAbsent) {
+        if(value == null) {
+            throw new NullPointerException("value is null");
+        }
+        long hash = hash(key);
+        Segment segment = segmentFor(hash);
+        synchronized(segment) {
+            Table table = segment.table;
+            int index = table.find(key, hash);
+            if(index >= 0) {
+                Object previous = table.values.get(index);
+                if(!onlyIfAbsent) {
+                    table.values.set(index, value);
+                }
+                return (V) previous;
+            }
+            index = ~index;
+            table.keys[index] = key;
+            if(table.references != null) {
+                table.references[index] = 0;
+            }
+            table.values.set(index, value); // Publishes the key.
+            segment.size++;
+            if(++segment.used > table.threshold) {
+                segment.rehash();
+            }
+        }
+        if(bound != null) {
+            bound.added(); // Outside of the segment lock, since it may evict from other segments and maps.
+        }
+        return null;
+    }
+
+    /**
+     * Evicts entries with the CLOCK sweep, starting at the segment after the previous eviction.
+     * Must only be called by the bound, which serializes evictions.
+     * @param count The amount of entries to evict.
+     * @return The amount of evicted entries, which may be less if the map has fewer entries.
+     */
+    @Override
+    public int evict(int count) {
+        int evicted = 0;
+        for(int i = 0; i < segments.length && evicted < count; i++) {
+            Segment segment = segments[evictionSegment];
+            evictionSegment = (evictionSegment + 1) & (segments.length - 1);
+            int quota = (count - evicted + segments.length - 1 - i) / (segments.length - i); // Spread over the segments.
+            synchronized(segment) {
+                evicted += segment.evict(Math.max(1, quota));
+            }
+        }
+        return evicted;
+    }
+
+    private Segment segmentFor(long hash) {
+        return segments[(int) (hash >>> (64 - SEGMENT_BITS))];
+    }
+
+    /**
+     * Spreads the bits of a key, since the low bits of snowflakes (increment, process) are poorly distributed.
+     * @param key The key.
+     * @return The hash.
+     */
+    static long hash(long key) {
+        key ^= key >>> 33;
+        key *= 0xFF51AFD7ED558CCDL;
+        key ^= key >>> 33;
+        key *= 0xC4CEB9FE1A85EC53L;
+        return key ^ (key >>> 33);
+    }
+
+    /**
+     * Visits the entries of a map.
+     * @param <V> The type of the values.
+     */
+    public interface Visitor<V> {
+
+        /**
+         * Visits a single entry.
+         * @param key The key.
+         * @param value The value.
+         */
+        void visit(long key, V value);
+
+    }
+
+    /**
+     * A segment owns a table, and serializes all writes to it.
+     */
+    private static final class Segment {
+
+        private volatile Table table;
+        private int size; // Live entries.
+        private int used; // Live entries and tombstones.
+        private int hand; // The position of the CLOCK sweep, if bounded.
+
+        private Segment(boolean bounded) {
+            this.table = new Table(INITIAL_CAPACITY, bounded);
+        }
+
+        /**
+         * Evicts entries with a CLOCK sweep. Every slot is passed at most four times, which brings any counter to 0.
+         * @param count The amount of entries to evict.
+         * @return The amount of evicted entries.
+         */
+        private int evict(int count) {
+            Table current = table;
+            int evicted = 0;
+            int steps = current.keys.length * 4;
+            while(evicted < count && size > 0 && steps-- > 0) {
+                int index = hand;
+                hand = (hand + 1) & current.mask;
+                Object value = current.values.get(index);
+                if(value == null || value == TOMBSTONE) {
+                    continue;
+                }
+                if(current.references[index] > 0) {
+                    current.references[index]--;
+                    continue;
+                }
+                current.values.set(index, TOMBSTONE);
+                size--;
+                evicted++;
+            }
+            return evicted;
+        }
+
+        /**
+         * Copies all live entries into a new table, and publishes it.
+         * The capacity doubles if the table is mostly live, otherwise only the tombstones are purged.
+         */
+        private void rehash() {
+            Table old = table;
+            int capacity = size >= old.threshold / 2 ? old.keys.length * 2 : old.keys.length;
+            Table rehashed = new Table(capacity, old.references != null);
+            for(int i = 0; i < old.keys.length; i++) {
+                Object value = old.values.get(i);
+                if(value != null && value != TOMBSTONE) {
+                    int index = ~rehashed.find(old.keys[i], hash(old.keys[i]));
+                    rehashed.keys[index] = old.keys[i];
+                    if(old.references != null) {
+                        rehashed.references[index] = old.references[i];
+                    }
+                    rehashed.values.lazySet(index, value); // Published by the volatile write below.
+                }
+            }
+            used = size;
+            hand = 0;
+            table = rehashed;
+        }
+
+    }
+
+    /**
+     * A table of keys and values, with a capacity that is a power of two.
+     */
+    private static final class Table {
+
+        private final long[] keys;
+        private final AtomicReferenceArray<Object> values;
+        private final byte[] references; // Null if unbounded.
+        private final int mask;
+        private final int threshold;
+
+        private Table(int capacity, boolean bounded) {
+            this.keys = new long[capacity];
+            this.values = new AtomicReferenceArray<>(capacity);
+            this.references = bounded ? new byte[capacity] : null;
+            this.mask = capacity - 1;
+            this.threshold = capacity - (capacity >>> 2);
+        }
+
+        /**
+         * Finds the slot of a key.
+         * @param key The key.
+         * @param hash The hash of the key.
+         * @return The index if the key is live, otherwise the bitwise complement of the first empty slot.
+         */
+        private int find(long key, long hash) {
+            int index = (int) hash & mask;
+            while(true) {
+                Object value = values.get(index);
+                if(value == null) {
+                    return ~index;
+                }
+                if(value != TOMBSTONE && keys[index] == key) {
+                    return index;
+                }
+                index = (index + 1) & mask;
+            }
+        }
+
+    }
+
+}
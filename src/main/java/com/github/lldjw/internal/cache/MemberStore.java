@@ -0,0 +1,1008 @@
+/*
+ * This file is part of the LLDJW distribution (https://github.com/LLDJW/LLDJW).
+ * Copyright (c) 2020 LLDJW Contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.lldjw.internal.cache;
+
+import com.github.lldjw.api.entity.GuildMember;
+import com.github.lldjw.api.entity.User;
+
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
+
+/**
+ * The members of a single guild, stored by column: every member is a row, and every field is a primitive array
+ * indexed by row. Join timestamps are stored as epoch microseconds, and the role IDs of all members are packed into
+ * one pool, in which every member has a range. This avoids an object, a role array and a timestamp string per member;
+ * only nicknames remain objects. {@link GuildMember} instances are views of a row, which are created on access.
+ *
+ * Rows are found by user ID with an open-addressed index of rows, which uses the hash of {@link LongMap}.
+ * Removed rows are reused, and the rows are compacted into smaller arrays once at most a quarter of them is live;
+ * views remember their row, and find it again by user ID if it moved. Role ranges are updated in place if the
+ * new roles fit, and are appended to the pool otherwise; the pool is compacted when it has to grow.
+ *
+ * Writes hold the write lock of a {@link StampedLock}. Reads are optimistic: they read without locking, and only
+ * read again with the read lock if a write happened concurrently. All arrays are replaced together (see
+ * {@link Columns}), and every read is bounds checked, so inconsistent values from an optimistic read are discarded
+ * rather than throwing.
+ *
+ * New members are hidden until they are published (see {@link #publish}), so that they are only visible once they
+ * are populated. A store can be bounded, in which case rows have CLOCK reference counters, like {@link LongMap}.
+ * Stores of the cache count the references to their users, see {@link ReferenceCounted}; standalone stores,
+ * which back members that are not cached, do not.
+ *
+ * Stores of the cache also index their members by role (see {@link LongIndex}) and by name, which is the nickname
+ * of a member, or the name of its user if it has none (see {@link NameIndex}). Both indexes are updated while holding
+ * the write lock, and always match the rows; the cache reports renamed users with {@link #renamed}.
+ */
+public final class MemberStore implements Evictable {
+
+    private static final int INITIAL_CAPACITY = 4;
+    private static final byte LIVE = 1; // The row holds a member.
+    private static final byte VISIBLE = 2; // The member was published.
+    private static final byte JOINED = 4; // The join timestamp is known.
+    private static final DateTimeFormatter JOINED_FORMAT =
+            DateTimeFormatter.ofPattern("uuuu-MM-dd'T'HH:mm:ss.SSSSSS'+00:00'");
+
+    private final long guildId;
+    private final CacheBound bound;
+    private final Consumer<User> released;
+    private final LongIndex roleIndex; // Null if standalone.
+    private final NameIndex nameIndex; // Null if standalone.
+    private final StampedLock lock = new StampedLock();
+    private Columns columns; // Guarded by the lock, as are the fields below.
+    private int rows; // Rows that were used since the last compaction, the rest of the arrays is spare capacity.
+    private int size; // Live rows.
+    private int[] free = new int[0]; // Removed rows, which are reused first.
+    private int freeCount;
+    private int poolSize; // The used part of the role pool.
+    private int hand; // The position of the CLOCK sweep, if bounded.
+
+    /**
+     * Creates a new, standalone store, which is not bounded and does not count references to users.
+     * @param guildId The ID of the guild.
+     */
+    public MemberStore(long guildId) {
+        this(guildId, null, null);
+    }
+
+    /**
+     * Creates a new store.
+     * @param guildId The ID of the guild.
+     * @param bound The bound that the store is part of, or null if it is unbounded.
+     * @param released Releases the references to users of removed members, or null to not count references.
+     */
+    public MemberStore(long guildId, CacheBound bound, Consumer<User> released) {
+        this.guildId = guildId;
+        this.bound = bound;
+        this.released = released;
+        this.roleIndex = released == null ? null : new LongIndex();
+        this.nameIndex = released == null ? null : new NameIndex();
+        this.columns = new Columns(INITIAL_CAPACITY, bound != null);
+        if(bound != null) {
+            bound.register(this);
+        }
+    }
+
+    /**
+     * Gets the ID of the guild.
+     * @return The ID of the guild.
+     */
+    public long getGuildId() {
+        return guildId;
+    }
+
+    /**
+     * Gets a published member.
+     * @param user The ID of the user.
+     * @return A view of the member, or null if it is not stored.
+     */
+    public GuildMember get(long user) {
+        long stamp = lock.tryOptimisticRead();
+        Columns columns = this.columns;
+        int row = visible(columns, user);
+        User instance = row < 0 ? null : columns.users[row];
+        if(!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                columns = this.columns;
+                row = visible(columns, user);
+                instance = row < 0 ? null : columns.users[row];
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        if(row < 0 || instance == null) {
+            return null;
+        }
+        byte[] references = columns.references;
+        if(references != null && references[row] < 3) { // A lost increment does not matter.
+            references[row]++;
+        }
+        return new GuildMember(this, row, instance);
+    }
+
+    /**
+     * Checks whether or not a member is stored, and published.
+     * @param user The ID of the user.
+     * @return True if it is, false otherwise.
+     */
+    public boolean contains(long user) {
+        long stamp = lock.tryOptimisticRead();
+        boolean contains = visible(columns, user) >= 0;
+        if(!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                contains = visible(columns, user) >= 0;
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return contains;
+    }
+
+    /**
+     * Gets the amount of members, including members that are not published yet.
+     * @return The size, which may be outdated under concurrent modification.
+     */
+    @Override
+    public int size() {
+        long stamp = lock.tryOptimisticRead();
+        int size = this.size;
+        if(!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                size = this.size;
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Visits every published member. The members are collected first, so the visitor may modify the store.
+     * @param visitor The visitor, which receives the user ID and a view of the member.
+     */
+    public void forEach(LongMap.Visitor<? super GuildMember> visitor) {
+        int[] visited;
+        User[] users;
+        int count = 0;
+        long stamp = lock.readLock();
+        try {
+            Columns columns = this.columns;
+            visited = new int[size];
+            users = new User[size];
+            for(int row = 0; row < rows && count < visited.length; row++) {
+                if((columns.flags[row] & VISIBLE) != 0) {
+                    visited[count] = row;
+                    users[count++] = columns.users[row];
+                }
+            }
+        } finally {
+            lock.unlockRead(stamp);
+        }
+        for(int i = 0; i < count; i++) {
+            visitor.visit(users[i].getId(), new GuildMember(this, visited[i], users[i]));
+        }
+    }
+
+    /**
+     * Finds the published members that have a role, with the role index.
+     * @param role The ID of the role.
+     * @return Views of the members, in no particular order. Empty if the store is standalone.
+     */
+    public List<GuildMember> findWithRole(long role) {
+        return roleIndex == null ? new ArrayList<>() : views(roleIndex.get(role));
+    }
+
+    /**
+     * Finds the published members with a name that starts with a prefix, ignoring case, with the name index.
+     * The name of a member is its nickname, or the name of its user if it has none.
+     * @param prefix The prefix.
+     * @param limit The maximum amount of members.
+     * @return Views of the members, in the order of their names. Empty if the store is standalone.
+     */
+    public List<GuildMember> findByName(String prefix, int limit) {
+        return nameIndex == null ? new ArrayList<>() : views(nameIndex.find(prefix, limit));
+    }
+
+    /**
+     * Adds a member without any data, or replaces the user of an existing member if it is another instance
+     * (which happens if the cached user was evicted, and cached again). New members are not published yet.
+     * @param user The user, which should be the cached instance.
+     * @return The row of the member, or -1 if the store counts references and the user was released concurrently
+     * (see {@link ReferenceCounted}), in which case the member is not changed, and has to be added with the user
+     * that is cached now.
+     */
+    public int add(User user) {
+        if(user == null) {
+            throw new NullPointerException("user is null");
+        }
+        User previous = null;
+        boolean added = false;
+        int row;
+        long stamp = lock.writeLock();
+        try {
+            Columns columns = this.columns;
+            int slot = find(columns, user.getId());
+            if(slot >= 0) {
+                row = columns.index[slot] - 1;
+                if(columns.users[row] != user) {
+                    if(!retain(user)) {
+                        return -1;
+                    }
+                    previous = columns.users[row];
+                    if(nameIndex != null && columns.nicks[row] == null) {
+                        nameIndex.update(previous.getUsername(), user.getUsername(), user.getId());
+                    }
+                    columns.users[row] = user;
+                }
+            } else if(retain(user)) {
+                row = allocate(user);
+                added = true;
+            } else {
+                return -1;
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        if(previous != null) {
+            release(previous);
+        }
+        if(added && bound != null) {
+            bound.added(); // Outside of the lock, since it may evict from other stores.
+        }
+        return row;
+    }
+
+    /**
+     * Updates the name index after a user was renamed. Only members without a nickname are affected.
+     * @param user The user, which already has its new name.
+     * @param previous The name of the user before it was renamed.
+     */
+    public void renamed(User user, String previous) {
+        if(nameIndex == null) {
+            return;
+        }
+        long stamp = lock.writeLock();
+        try {
+            Columns columns = this.columns;
+            int slot = find(columns, user.getId());
+            if(slot >= 0) {
+                int row = columns.index[slot] - 1;
+                if(columns.users[row] == user && columns.nicks[row] == null) { // Otherwise the name did not change.
+                    nameIndex.update(previous, user.getUsername(), user.getId());
+                }
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Publishes a member, which makes it visible to {@link #get}, {@link #contains} and {@link #forEach}.
+     * @param row The row of the member.
+     * @param user The ID of the user.
+     */
+    public void publish(int row, long user) {
+        long stamp = lock.writeLock();
+        try {
+            Columns columns = this.columns;
+            row = locate(columns, row, user);
+            if(row >= 0) {
+                columns.flags[row] |= VISIBLE;
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Removes a member.
+     * @param user The ID of the user.
+     * @return True if the member was removed, false if it was not stored.
+     */
+    public boolean remove(long user) {
+        User removed;
+        long stamp = lock.writeLock();
+        try {
+            Columns columns = this.columns;
+            int slot = find(columns, user);
+            if(slot < 0) {
+                return false;
+            }
+            removed = delete(columns, slot);
+            shrink();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        if(bound != null) {
+            bound.removed(1);
+        }
+        release(removed);
+        return true;
+    }
+
+    /**
+     * Removes all members.
+     */
+    @Override
+    public void clear() {
+        User[] removed;
+        int count = 0;
+        long stamp = lock.writeLock();
+        try {
+            Columns columns = this.columns;
+            removed = new User[size];
+            for(int row = 0; row < rows && count < removed.length; row++) {
+                if((columns.flags[row] & LIVE) != 0) {
+                    removed[count++] = columns.users[row];
+                }
+            }
+            this.columns = new Columns(INITIAL_CAPACITY, bound != null);
+            if(roleIndex != null) {
+                roleIndex.clear();
+                nameIndex.clear();
+            }
+            rows = 0;
+            size = 0;
+            freeCount = 0;
+            poolSize = 0;
+            hand = 0;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        if(bound != null) {
+            bound.removed(count);
+        }
+        for(int i = 0; i < count; i++) {
+            release(removed[i]);
+        }
+    }
+
+    /**
+     * Evicts published members with a CLOCK sweep. Every row is passed at most four times,
+     * which brings any counter to 0.
+     * Must only be called by the bound, which serializes evictions.
+     * @param count The amount of members to evict.
+     * @return The amount of evicted members.
+     */
+    @Override
+    public int evict(int count) {
+        User[] evicted = new User[Math.min(count, Math.max(0, size()))];
+        int evictedCount = 0;
+        long stamp = lock.writeLock();
+        try {
+            Columns columns = this.columns;
+            int steps = rows * 4;
+            while(evictedCount < evicted.length && size > 0 && steps-- > 0) {
+                int row = hand;
+                hand = hand + 1 < rows ? hand + 1 : 0;
+                if((columns.flags[row] & VISIBLE) == 0) {
+                    continue;
+                }
+                if(columns.references[row] > 0) {
+                    columns.references[row]--;
+                    continue;
+                }
+                evicted[evictedCount++] = delete(columns, find(columns, columns.userIds[row]));
+            }
+            shrink();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        for(int i = 0; i < evictedCount; i++) {
+            release(evicted[i]);
+        }
+        return evictedCount;
+    }
+
+    /**
+     * Gets the nickname of a member.
+     * @param row The row of the member.
+     * @param user The ID of the user.
+     * @return The nickname, null if there is none or the member is not stored.
+     */
+    public String getNick(int row, long user) {
+        long stamp = lock.tryOptimisticRead();
+        Columns columns = this.columns;
+        int at = locate(columns, row, user);
+        String nick = at < 0 ? null : columns.nicks[at];
+        if(!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                columns = this.columns;
+                at = locate(columns, row, user);
+                nick = at < 0 ? null : columns.nicks[at];
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return nick;
+    }
+
+    /**
+     * Gets the role IDs of a member.
+     * @param row The row of the member.
+     * @param user The ID of the user.
+     * @return A copy of the role IDs, empty if the member is not stored.
+     */
+    public long[] getRoles(int row, long user) {
+        long stamp = lock.tryOptimisticRead();
+        long[] roles = roles(columns, row, user);
+        if(!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                roles = roles(columns, row, user);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return roles;
+    }
+
+    /**
+     * Gets the time a member joined the guild.
+     * @param row The row of the member.
+     * @param user The ID of the user.
+     * @return An ISO8601 timestamp in UTC, with microseconds. Null if unknown, or the member is not stored.
+     */
+    public String getJoinedAt(int row, long user) {
+        long stamp = lock.tryOptimisticRead();
+        Columns columns = this.columns;
+        int at = locate(columns, row, user);
+        boolean joined = at >= 0 && (columns.flags[at] & JOINED) != 0;
+        long joinedAt = at < 0 ? 0 : columns.joinedAt[at];
+        if(!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                columns = this.columns;
+                at = locate(columns, row, user);
+                joined = at >= 0 && (columns.flags[at] & JOINED) != 0;
+                joinedAt = at < 0 ? 0 : columns.joinedAt[at];
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        if(!joined) {
+            return null;
+        }
+        long seconds = Math.floorDiv(joinedAt, 1_000_000L);
+        int nanos = (int) Math.floorMod(joinedAt, 1_000_000L) * 1000;
+        return JOINED_FORMAT.format(LocalDateTime.ofEpochSecond(seconds, nanos, ZoneOffset.UTC));
+    }
+
+    /**
+     * Sets the nickname of a member.
+     * @param row The row of the member.
+     * @param user The ID of the user.
+     * @param nick The nickname, or null.
+     */
+    public void setNick(int row, long user, String nick) {
+        long stamp = lock.writeLock();
+        try {
+            Columns columns = this.columns;
+            row = locate(columns, row, user);
+            if(row >= 0) {
+                if(nameIndex != null) {
+                    nameIndex.update(name(columns, row), nick != null ? nick : columns.users[row].getUsername(), user);
+                }
+                columns.nicks[row] = nick;
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Sets the role IDs of a member.
+     * @param row The row of the member.
+     * @param user The ID of the user.
+     * @param roles The role IDs, which are copied.
+     * @param count The amount of role IDs, at most {@link Short#MAX_VALUE}.
+     */
+    public void setRoles(int row, long user, long[] roles, int count) {
+        long stamp = lock.writeLock();
+        try {
+            Columns columns = this.columns;
+            row = locate(columns, row, user);
+            if(row < 0) {
+                return;
+            }
+            if(roleIndex != null) {
+                for(int i = 0; i < columns.roleCounts[row]; i++) {
+                    roleIndex.remove(columns.roles[columns.roleOffsets[row] + i], user);
+                }
+                for(int i = 0; i < count; i++) {
+                    roleIndex.add(roles[i], user);
+                }
+            }
+            if(count > columns.roleCounts[row]) {
+                columns.roleCounts[row] = 0; // Not copied by a compaction.
+                reserve(count);
+                columns = this.columns;
+                columns.roleOffsets[row] = poolSize;
+                poolSize += count;
+            }
+            System.arraycopy(roles, 0, columns.roles, columns.roleOffsets[row], count);
+            columns.roleCounts[row] = (short) count;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Sets the time a member joined the guild.
+     * @param row The row of the member.
+     * @param user The ID of the user.
+     * @param joinedAt An ISO8601 timestamp, or null. Timestamps that can not be parsed are treated as null.
+     */
+    public void setJoinedAt(int row, long user, String joinedAt) {
+        long micros = joinedAt == null ? Long.MIN_VALUE : parseTimestamp(joinedAt);
+        long stamp = lock.writeLock();
+        try {
+            Columns columns = this.columns;
+            row = locate(columns, row, user);
+            if(row < 0) {
+                return;
+            }
+            if(micros == Long.MIN_VALUE) {
+                columns.flags[row] &= ~JOINED;
+            } else {
+                columns.flags[row] |= JOINED;
+                columns.joinedAt[row] = micros;
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Allocates and indexes a row for a new member. Must hold the write lock.
+     * @param user The user.
+     * @return The row.
+     */
+    private int allocate(User user) {
+        Columns columns = this.columns;
+        if(size + 1 > columns.index.length - (columns.index.length >>> 2)) {
+            columns = this.columns = columns.withIndex(index(columns, columns.index.length * 2));
+        }
+        int row = freeCount > 0 ? free[--freeCount] : rows++;
+        if(row == columns.userIds.length) {
+            columns = this.columns = columns.grow(row + (row >>> 1) + 1);
+        }
+        columns.userIds[row] = user.getId();
+        columns.users[row] = user;
+        columns.nicks[row] = null;
+        columns.flags[row] = LIVE;
+        columns.roleOffsets[row] = 0;
+        columns.roleCounts[row] = 0;
+        if(columns.references != null) {
+            columns.references[row] = 0;
+        }
+        columns.index[~find(columns, user.getId())] = row + 1;
+        if(nameIndex != null) {
+            nameIndex.update(null, user.getUsername(), user.getId());
+        }
+        size++;
+        return row;
+    }
+
+    /**
+     * Removes a row, and frees it for reuse. Must hold the write lock.
+     * @param columns The columns.
+     * @param slot The slot of the row in the index.
+     * @return The user of the removed member.
+     */
+    private User delete(Columns columns, int slot) {
+        int row = columns.index[slot] - 1;
+        User user = columns.users[row];
+        if(roleIndex != null) {
+            for(int i = 0; i < columns.roleCounts[row]; i++) {
+                roleIndex.remove(columns.roles[columns.roleOffsets[row] + i], columns.userIds[row]);
+            }
+            nameIndex.remove(name(columns, row), columns.userIds[row]);
+        }
+        columns.users[row] = null;
+        columns.nicks[row] = null;
+        columns.flags[row] = 0;
+        columns.roleOffsets[row] = 0;
+        columns.roleCounts[row] = 0;
+        unindex(columns, slot);
+        if(freeCount == free.length) {
+            free = Arrays.copyOf(free, Math.max(4, freeCount * 2));
+        }
+        free[freeCount++] = row;
+        size--;
+        return user;
+    }
+
+    /**
+     * Moves the live rows to the start of smaller arrays, if at most a quarter of the capacity is live.
+     * Must hold the write lock.
+     */
+    private void shrink() {
+        Columns columns = this.columns;
+        int capacity = columns.userIds.length;
+        if(capacity <= INITIAL_CAPACITY * 4 || size > capacity >>> 2) {
+            return;
+        }
+        Columns shrunk = new Columns(Math.max(INITIAL_CAPACITY, size * 2), columns.references != null);
+        int pooled = 0;
+        for(int row = 0; row < rows; row++) {
+            pooled += columns.roleCounts[row];
+        }
+        long[] pool = new long[pooled];
+        int moved = 0;
+        int used = 0;
+        for(int row = 0; row < rows; row++) {
+            if((columns.flags[row] & LIVE) != 0) {
+                shrunk.userIds[moved] = columns.userIds[row];
+                shrunk.users[moved] = columns.users[row];
+                shrunk.nicks[moved] = columns.nicks[row];
+                shrunk.joinedAt[moved] = columns.joinedAt[row];
+                shrunk.flags[moved] = columns.flags[row];
+                if(columns.references != null) {
+                    shrunk.references[moved] = columns.references[row];
+                }
+                int roles = columns.roleCounts[row];
+                System.arraycopy(columns.roles, columns.roleOffsets[row], pool, used, roles);
+                shrunk.roleOffsets[moved] = used;
+                shrunk.roleCounts[moved] = (short) roles;
+                used += roles;
+                moved++;
+            }
+        }
+        rows = moved;
+        freeCount = 0;
+        free = new int[0];
+        poolSize = used;
+        hand = 0;
+        shrunk = shrunk.withRoles(pool);
+        this.columns = shrunk.withIndex(index(shrunk, Integer.highestOneBit(Math.max(1, moved)) * 4));
+    }
+
+    /**
+     * Makes room for role IDs at the end of the pool. If the pool has to grow, the ranges of all live rows are
+     * compacted into the new pool, which drops the ranges that were replaced. Must hold the write lock.
+     * @param count The amount of role IDs.
+     */
+    private void reserve(int count) {
+        Columns columns = this.columns;
+        if(poolSize + count <= columns.roles.length) {
+            return;
+        }
+        int live = count;
+        for(int row = 0; row < rows; row++) {
+            live += columns.roleCounts[row];
+        }
+        long[] pool = new long[Math.max(16, live + (live >>> 1))];
+        int used = 0;
+        for(int row = 0; row < rows; row++) { // Rows without roles are moved too, so no offset exceeds the pool.
+            int roles = columns.roleCounts[row];
+            System.arraycopy(columns.roles, columns.roleOffsets[row], pool, used, roles);
+            columns.roleOffsets[row] = used;
+            used += roles;
+        }
+        poolSize = used;
+        this.columns = columns.withRoles(pool);
+    }
+
+    /**
+     * Creates views of the published members of users.
+     * @param users The IDs of the users.
+     * @return The views, in the same order.
+     */
+    /**
+     * Gets the name of a member, as it is indexed. Must hold the lock.
+     * @param columns The columns.
+     * @param row The row of the member.
+     * @return The nickname, or the name of its user if it has none.
+     */
+    private static String name(Columns columns, int row) {
+        String nick = columns.nicks[row];
+        return nick != null ? nick : columns.users[row].getUsername();
+    }
+
+    private List<GuildMember> views(long[] users) {
+        int[] rows = new int[users.length];
+        User[] instances = new User[users.length];
+        int count = 0;
+        long stamp = lock.readLock();
+        try {
+            Columns columns = this.columns;
+            for(long user : users) {
+                int row = visible(columns, user);
+                if(row >= 0) {
+                    rows[count] = row;
+                    instances[count++] = columns.users[row];
+                }
+            }
+        } finally {
+            lock.unlockRead(stamp);
+        }
+        List<GuildMember> views = new ArrayList<>(count);
+        for(int i = 0; i < count; i++) {
+            views.add(new GuildMember(this, rows[i], instances[i]));
+        }
+        return views;
+    }
+
+    /**
+     * Adds a reference to a user, if the store counts references.
+     * @param user The user.
+     * @return True if it was added or is not counted, false if the user was released.
+     */
+    private boolean retain(User user) {
+        return released == null || ((ReferenceCounted) user).retain(); // Not accessible through User.
+    }
+
+    private void release(User user) {
+        if(released != null) {
+            released.accept(user);
+        }
+    }
+
+    /**
+     * Finds the row of a published member.
+     * @param columns The columns.
+     * @param user The ID of the user.
+     * @return The row, or -1 if the member is not stored or not published.
+     */
+    private static int visible(Columns columns, long user) {
+        int row = rowOf(columns, user);
+        return row >= 0 && (columns.flags[row] & VISIBLE) != 0 ? row : -1;
+    }
+
+    /**
+     * Finds the row of a member, starting with the row of a view, which is still correct unless the member was
+     * removed.
+     * @param columns The columns.
+     * @param row The row of the view.
+     * @param user The ID of the user.
+     * @return The row, or -1 if the member is not stored.
+     */
+    private static int locate(Columns columns, int row, long user) {
+        if(row >= 0 && row < columns.userIds.length && columns.userIds[row] == user
+                && (columns.flags[row] & LIVE) != 0) {
+            return row;
+        }
+        return rowOf(columns, user);
+    }
+
+    private static long[] roles(Columns columns, int row, long user) {
+        int at = locate(columns, row, user);
+        if(at < 0) {
+            return new long[0];
+        }
+        int offset = columns.roleOffsets[at];
+        int count = columns.roleCounts[at];
+        if(offset < 0 || count < 0 || offset + count > columns.roles.length) { // Inconsistent optimistic read.
+            return new long[0];
+        }
+        return Arrays.copyOfRange(columns.roles, offset, offset + count);
+    }
+
+    /**
+     * Finds the row of a user with the index. The probe is limited to the length of the index, and rows are
+     * bounds checked, since optimistic reads may observe an index that is being modified.
+     * @param columns The columns.
+     * @param user The ID of the user.
+     * @return The row, or -1 if the user is not indexed.
+     */
+    private static int rowOf(Columns columns, long user) {
+        int[] index = columns.index;
+        int mask = index.length - 1;
+        int slot = (int) LongMap.hash(user) & mask;
+        for(int probes = 0; probes < index.length; probes++) {
+            int entry = index[slot];
+            if(entry == 0) {
+                return -1;
+            }
+            if(entry <= columns.userIds.length && columns.userIds[entry - 1] == user) {
+                return entry - 1;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * Finds the slot of a user in the index. Must hold the write lock.
+     * @param columns The columns.
+     * @param user The ID of the user.
+     * @return The slot if the user is indexed, otherwise the bitwise complement of the first empty slot.
+     */
+    private static int find(Columns columns, long user) {
+        int[] index = columns.index;
+        int mask = index.length - 1;
+        int slot = (int) LongMap.hash(user) & mask;
+        while(true) {
+            int entry = index[slot];
+            if(entry == 0) {
+                return ~slot;
+            }
+            if(columns.userIds[entry - 1] == user) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    /**
+     * Builds an index of all live rows.
+     * @param columns The columns.
+     * @param capacity The capacity, a power of two.
+     * @return The index.
+     */
+    private int[] index(Columns columns, int capacity) {
+        int[] index = new int[capacity];
+        int mask = capacity - 1;
+        for(int row = 0; row < rows; row++) {
+            if((columns.flags[row] & LIVE) != 0) {
+                int slot = (int) LongMap.hash(columns.userIds[row]) & mask;
+                while(index[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                index[slot] = row + 1;
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Removes a slot from the index, and shifts the following slots of the probe sequence back,
+     * so the index needs no tombstones.
+     * @param columns The columns.
+     * @param slot The slot.
+     */
+    private static void unindex(Columns columns, int slot) {
+        int[] index = columns.index;
+        int mask = index.length - 1;
+        int gap = slot;
+        int next = slot;
+        while(true) {
+            next = (next + 1) & mask;
+            int entry = index[next];
+            if(entry == 0) {
+                break;
+            }
+            int home = (int) LongMap.hash(columns.userIds[entry - 1]) & mask;
+            if(((next - home) & mask) >= ((next - gap) & mask)) { // The entry may move back into the gap.
+                index[gap] = entry;
+                gap = next;
+            }
+        }
+        index[gap] = 0;
+    }
+
+    /**
+     * Parses an ISO8601 timestamp with an offset, such as 2020-01-01T00:00:00.000000+00:00.
+     * Timestamps in this exact form, as sent by Discord, are parsed without the formatter.
+     * @param timestamp The timestamp.
+     * @return The epoch microseconds, or {@link Long#MIN_VALUE} if it could not be parsed.
+     */
+    static long parseTimestamp(String timestamp) {
+        if(timestamp.length() == 32 && timestamp.endsWith("+00:00") && timestamp.charAt(4) == '-'
+                && timestamp.charAt(7) == '-' && timestamp.charAt(10) == 'T' && timestamp.charAt(13) == ':'
+                && timestamp.charAt(16) == ':' && timestamp.charAt(19) == '.') {
+            int year = digits(timestamp, 0, 4);
+            int month = digits(timestamp, 5, 2);
+            int day = digits(timestamp, 8, 2);
+            int hour = digits(timestamp, 11, 2);
+            int minute = digits(timestamp, 14, 2);
+            int second = digits(timestamp, 17, 2);
+            int micros = digits(timestamp, 20, 6);
+            if((year | month | day | hour | minute | second | micros) >= 0 && hour < 24 && minute < 60
+                    && second < 60) {
+                try {
+                    long days = LocalDate.of(year, month, day).toEpochDay();
+                    return ((days * 24 + hour) * 3600 + minute * 60 + second) * 1_000_000L + micros;
+                } catch(DateTimeException ignored) {
+                }
+            }
+        }
+        try {
+            OffsetDateTime time = OffsetDateTime.parse(timestamp);
+            return time.toEpochSecond() * 1_000_000L + time.getNano() / 1000;
+        } catch(DateTimeException exception) {
+            return Long.MIN_VALUE;
+        }
+    }
+
+    private static int digits(String text, int start, int length) {
+        int value = 0;
+        for(int i = start; i < start + length; i++) {
+            char c = text.charAt(i);
+            if(c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + c - '0';
+        }
+        return value;
+    }
+
+    /**
+     * The arrays of a store. They are replaced together, so that an optimistic read always observes arrays of
+     * the same capacity. The contents are shared by the copies, and written in place.
+     */
+    private static final class Columns {
+
+        private final long[] userIds;
+        private final User[] users;
+        private final String[] nicks;
+        private final long[] joinedAt;
+        private final byte[] flags;
+        private final byte[] references; // Null if unbounded.
+        private final int[] roleOffsets;
+        private final short[] roleCounts;
+        private final long[] roles; // The pool.
+        private final int[] index; // The row + 1 by hash of the user ID, 0 if empty.
+
+        private Columns(int capacity, boolean bounded) {
+            this(new long[capacity], new User[capacity], new String[capacity], new long[capacity], new byte[capacity],
+                    bounded ? new byte[capacity] : null, new int[capacity], new short[capacity], new long[0],
+                    new int[Integer.highestOneBit(capacity) * 2]);
+        }
+
+        private Columns(long[] userIds, User[] users, String[] nicks, long[] joinedAt, byte[] flags,
+                        byte[] references, int[] roleOffsets, short[] roleCounts, long[] roles, int[] index) {
+            this.userIds = userIds;
+            this.users = users;
+            this.nicks = nicks;
+            this.joinedAt = joinedAt;
+            this.flags = flags;
+            this.references = references;
+            this.roleOffsets = roleOffsets;
+            this.roleCounts = roleCounts;
+            this.roles = roles;
+            this.index = index;
+        }
+
+        /**
+         * Copies the rows into arrays with a larger capacity.
+         * @param capacity The capacity.
+         * @return The new columns.
+         */
+        private Columns grow(int capacity) {
+            return new Columns(Arrays.copyOf(userIds, capacity), Arrays.copyOf(users, capacity),
+                    Arrays.copyOf(nicks, capacity), Arrays.copyOf(joinedAt, capacity), Arrays.copyOf(flags, capacity),
+                    references == null ? null : Arrays.copyOf(references, capacity),
+                    Arrays.copyOf(roleOffsets, capacity), Arrays.copyOf(roleCounts, capacity), roles, index);
+        }
+
+        private Columns withRoles(long[] roles) {
+            return new Columns(userIds, users, nicks, joinedAt, flags, references, roleOffsets, roleCounts, roles,
+                    index);
+        }
+
+        private Columns withIndex(int[] index) {
+            return new Columns(userIds, users, nicks, joinedAt, flags, references, roleOffsets, roleCounts, roles,
+                    index);
+        }
+
+    }
+
+}
@@ -0,0 +1,158 @@
+/*
+ * This file is part of the LLDJW distribution (https://github.com/LLDJW/LLDJW).
+ * Copyright (c) 2020 LLDJW Contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.lldjw.internal.cache;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * A secondary index of names, for case insensitive prefix queries such as the users whose name starts with "abc".
+ * Entries are kept sorted by their lower case name (then ID) in a concurrent skip list, so the entries with a prefix
+ * are a contiguous range: a query costs O(log n) to find the range, plus the entries it returns. This is what a
+ * trie would give, without a node per character.
+ *
+ * Like {@link LongIndex}, the index is maintained incrementally, and queries check every entry they visit against the
+ * cache, and remove the entries that are no longer current. Reads do not lock.
+ */
+final class NameIndex {
+
+    private final ConcurrentSkipListSet<Entry> entries = new ConcurrentSkipListSet<>();
+
+    /**
+     * Updates the name of an ID.
+     * @param previous The previous name, or null if it had none.
+     * @param name The name, or null if it has none.
+     * @param id The ID.
+     */
+    void update(String previous, String name, long id) {
+        if(previous != null && !previous.equals(name)) {
+            entries.remove(new Entry(previous, id));
+        }
+        if(name != null && !name.equals(previous)) {
+            entries.add(new Entry(name, id));
+        }
+    }
+
+    /**
+     * Removes the name of an ID.
+     * @param name The name, or null if it has none.
+     * @param id The ID.
+     */
+    void remove(String name, long id) {
+        if(name != null) {
+            entries.remove(new Entry(name, id));
+        }
+    }
+
+    /**
+     * Finds the IDs with names that start with a prefix, ignoring case, in the order of their names.
+     * The entries are not checked, so this is only suitable for indexes that are always current.
+     * @param prefix The prefix, an empty prefix matches every name.
+     * @param limit The maximum amount of IDs.
+     * @return The IDs.
+     */
+    long[] find(String prefix, int limit) {
+        String key = normalize(prefix);
+        long[] ids = new long[Math.min(limit, 16)];
+        int count = 0;
+        for(Entry entry : entries.tailSet(new Entry(key, null, Long.MIN_VALUE))) {
+            if(count == limit || !entry.key.startsWith(key)) {
+                break;
+            }
+            if(count == ids.length) {
+                ids = Arrays.copyOf(ids, Math.min(limit, count * 2));
+            }
+            ids[count++] = entry.id;
+        }
+        return count == ids.length ? ids : Arrays.copyOf(ids, count);
+    }
+
+    /**
+     * Visits the entries with names that start with a prefix, ignoring case, in the order of their names.
+     * @param prefix The prefix, an empty prefix matches every name.
+     * @param visitor The visitor, which may remove the entry it visits.
+     */
+    void forEach(String prefix, Visitor visitor) {
+        String key = normalize(prefix);
+        for(Entry entry : entries.tailSet(new Entry(key, null, Long.MIN_VALUE))) {
+            if(!entry.key.startsWith(key) || !visitor.visit(entry.id, entry.name)) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Removes all entries.
+     */
+    void clear() {
+        entries.clear();
+    }
+
+    private static String normalize(String name) {
+        return name.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Visits entries of the index.
+     */
+    interface Visitor {
+
+        /**
+         * Visits a single entry.
+         * @param id The ID.
+         * @param name The name, as it was indexed.
+         * @return True to continue, false to stop.
+         */
+        boolean visit(long id, String name);
+
+    }
+
+    /**
+     * An entry, ordered by its lower case name, then by ID.
+     */
+    private static final class Entry implements Comparable<Entry> {
+
+        private final String key;
+        private final String name;
+        private final long id;
+
+        private Entry(String name, long id) {
+            this(normalize(name), name, id);
+        }
+
+        /**
+         * Creates an entry.
+         * @param key The lower case name.
+         * @param name The name as it was indexed, so that queries can compare it to the current name.
+         * @param id The ID.
+         */
+        private Entry(String key, String name, long id) {
+            this.key = key;
+            this.name = name;
+            this.id = id;
+        }
+
+        @Override
+        public int compareTo(Entry other) {
+            int compared = key.compareTo(other.key);
+            return compared != 0 ? compared : Long.compare(id, other.id);
+        }
+
+    }
+
+}
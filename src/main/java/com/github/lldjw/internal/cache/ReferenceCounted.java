@@ -0,0 +1,74 @@
+/*
+ * This file is part of the LLDJW distribution (https://github.com/LLDJW/LLDJW).
+ * Copyright (c) 2020 LLDJW Contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.lldjw.internal.cache;
+
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+/**
+ * An entity that the cache removes once nothing references it anymore, such as a user without cached members.
+ * The count is only accessible to the cache.
+ *
+ * Releasing the last reference is terminal: the count becomes {@link #RELEASED}, and the entity can not be retained
+ * anymore. A store that wants to reference a released entity has to get the cached entity again, which is a new
+ * instance; two instances of an entity are therefore never referenced by the cache at the same time.
+ */
+public abstract class ReferenceCounted {
+
+    private static final int RELEASED = -1;
+    private static final AtomicIntegerFieldUpdater<ReferenceCounted> REFERENCES =
+            AtomicIntegerFieldUpdater.newUpdater(ReferenceCounted.class, "references");
+
+    private volatile int references;
+
+    /**
+     * Creates a new entity without references.
+     */
+    protected ReferenceCounted() {}
+
+    /**
+     * Adds a reference.
+     * @return True if the reference was added, false if the entity was released.
+     */
+    boolean retain() {
+        while(true) {
+            int current = references;
+            if(current == RELEASED) {
+                return false;
+            }
+            if(REFERENCES.compareAndSet(this, current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Removes a reference.
+     * @return True if it was the last reference, in which case the entity is released, false otherwise.
+     */
+    boolean release() {
+        while(true) {
+            int current = references;
+            if(current <= 0) { // Not retained, or released already.
+                return false;
+            }
+            if(REFERENCES.compareAndSet(this, current, current == 1 ? RELEASED : current - 1)) {
+                return current == 1;
+            }
+        }
+    }
+
+}
@@ -0,0 +1,308 @@
+/*
+ * This file is part of the LLDJW distribution (https://github.com/LLDJW/LLDJW).
+ * Copyright (c) 2020 LLDJW Contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.lldjw.internal.cache;
+
+import com.github.lldjw.internal.payload.PayloadReader;
+import de.arraying.kotys.JSON;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * A {@link PayloadReader} over the entity records of a cache snapshot, see {@link CacheSnapshot}.
+ * Entities are restored through {@link com.github.lldjw.api.entity.StreamAssignable}, the same way they are
+ * populated from the gateway. Field names are indices into the name table of the snapshot, so reading a name
+ * never allocates.
+ *
+ * Snapshots are only read sequentially: {@link #seek(int)}, {@link #slice()}, {@link #copy()} and
+ * {@link #nextJSON()} are not supported.
+ */
+final class SnapshotReader implements PayloadReader {
+
+    static final int NULL = 0;
+    static final int FALSE = 1;
+    static final int TRUE = 2;
+    static final int LONG = 3;
+    static final int INT = 4;
+    static final int STRING = 5;
+    static final int OBJECT = 6;
+    static final int ARRAY = 7;
+
+    private final ByteBuffer buffer;
+    private final String[] names;
+    private int depth;
+    private int[] remaining = new int[8];
+    private boolean[] objects = new boolean[8];
+
+    /**
+     * Creates a new reader.
+     * @param buffer The buffer, positioned at the first value.
+     * @param names The name table.
+     */
+    SnapshotReader(ByteBuffer buffer, String[] names) {
+        this.buffer = buffer;
+        this.names = names;
+    }
+
+    @Override
+    public int position() {
+        return buffer.position();
+    }
+
+    @Override
+    public void seek(int position) {
+        throw new UnsupportedOperationException("snapshots are read sequentially");
+    }
+
+    @Override
+    public PayloadReader slice() {
+        throw new UnsupportedOperationException("snapshots are read sequentially");
+    }
+
+    @Override
+    public PayloadReader copy() {
+        throw new UnsupportedOperationException("snapshots are read sequentially");
+    }
+
+    @Override
+    public JSON nextJSON() {
+        throw new UnsupportedOperationException("snapshots do not contain trees");
+    }
+
+    @Override
+    public Token peek() {
+        if(depth > 0 && remaining[depth - 1] == 0) {
+            return objects[depth - 1] ? Token.END_OBJECT : Token.END_ARRAY;
+        }
+        if(!buffer.hasRemaining()) {
+            return Token.END;
+        }
+        switch(buffer.get(buffer.position())) {
+            case NULL:
+                return Token.NULL;
+            case FALSE:
+            case TRUE:
+                return Token.BOOLEAN;
+            case LONG:
+            case INT:
+                return Token.NUMBER;
+            case OBJECT:
+                return Token.BEGIN_OBJECT;
+            case ARRAY:
+                return Token.BEGIN_ARRAY;
+            default:
+                return Token.STRING;
+        }
+    }
+
+    @Override
+    public void beginObject() {
+        begin(OBJECT);
+    }
+
+    @Override
+    public void endObject() {
+        end(true);
+    }
+
+    @Override
+    public void beginArray() {
+        begin(ARRAY);
+    }
+
+    @Override
+    public void endArray() {
+        end(false);
+    }
+
+    @Override
+    public boolean hasNext() {
+        return depth == 0 ? buffer.hasRemaining() : remaining[depth - 1] > 0;
+    }
+
+    @Override
+    public String nextName() {
+        if(depth == 0 || !objects[depth - 1] || remaining[depth - 1] == 0) {
+            throw malformed("name");
+        }
+        return names[readVarInt()];
+    }
+
+    @Override
+    public String nextInterned() {
+        return nextString();
+    }
+
+    @Override
+    public String nextString() {
+        if(nextNull()) {
+            return null;
+        }
+        expect(STRING);
+        int length = readVarInt();
+        String value;
+        if(buffer.hasArray()) {
+            value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+            buffer.position(buffer.position() + length);
+        } else {
+            byte[] bytes = new byte[length];
+            buffer.get(bytes);
+            value = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return value;
+    }
+
+    @Override
+    public long nextLong() {
+        if(nextNull()) {
+            return 0;
+        }
+        int tag = tag();
+        if(tag == LONG) {
+            expect(LONG);
+            return buffer.getLong();
+        }
+        expect(INT);
+        return readVarInt();
+    }
+
+    @Override
+    public boolean nextBoolean() {
+        if(nextNull()) {
+            return false;
+        }
+        int tag = tag();
+        if(tag != TRUE && tag != FALSE) {
+            throw malformed("boolean");
+        }
+        expect(tag);
+        return tag == TRUE;
+    }
+
+    @Override
+    public boolean nextNull() {
+        if(tag() != NULL) {
+            return false;
+        }
+        expect(NULL);
+        return true;
+    }
+
+    @Override
+    public void skipValue() {
+        tag();
+        element();
+        skipTerm();
+    }
+
+    /**
+     * Reads an unsigned variable-length integer, 7 bits per byte.
+     * @return The integer.
+     */
+    int readVarInt() {
+        int value = 0;
+        int shift = 0;
+        while(true) {
+            byte next = buffer.get();
+            value |= (next & 0x7F) << shift;
+            if(next >= 0) {
+                return value;
+            }
+            shift += 7;
+        }
+    }
+
+    /**
+     * Skips a value, including all nested values.
+     */
+    private void skipTerm() {
+        int tag = buffer.get();
+        switch(tag) {
+            case LONG:
+                buffer.position(buffer.position() + 8);
+                break;
+            case INT:
+                readVarInt();
+                break;
+            case STRING:
+                int length = readVarInt();
+                buffer.position(buffer.position() + length);
+                break;
+            case OBJECT:
+                int fields = readVarInt();
+                for(int i = 0; i < fields; i++) {
+                    readVarInt(); // The name.
+                    skipTerm();
+                }
+                break;
+            case ARRAY:
+                int elements = readVarInt();
+                for(int i = 0; i < elements; i++) {
+                    skipTerm();
+                }
+                break;
+        }
+    }
+
+    private void begin(int tag) {
+        expect(tag);
+        if(depth == remaining.length) {
+            remaining = Arrays.copyOf(remaining, depth * 2);
+            objects = Arrays.copyOf(objects, depth * 2);
+        }
+        remaining[depth] = readVarInt();
+        objects[depth] = tag == OBJECT;
+        depth++;
+    }
+
+    private void end(boolean object) {
+        if(depth == 0 || objects[depth - 1] != object || remaining[depth - 1] != 0) {
+            throw malformed(object ? "end of object" : "end of array");
+        }
+        depth--;
+    }
+
+    private int tag() {
+        if(!buffer.hasRemaining()) {
+            throw malformed("value");
+        }
+        return buffer.get(buffer.position());
+    }
+
+    /**
+     * Consumes the tag of the next value, and counts the value as read in the current object or array.
+     */
+    private void expect(int tag) {
+        if(tag() != tag) {
+            throw malformed("tag " + tag);
+        }
+        element();
+        buffer.get();
+    }
+
+    private void element() {
+        if(depth > 0 && remaining[depth - 1]-- <= 0) {
+            throw malformed("end of container");
+        }
+    }
+
+    private IllegalStateException malformed(String expected) {
+        return new IllegalStateException("malformed snapshot, expected " + expected + " at position " + buffer.position());
+    }
+
+}
@@ -0,0 +1,157 @@
+/*
+ * This file is part of the LLDJW distribution (https://github.com/LLDJW/LLDJW).
+ * Copyright (c) 2020 LLDJW Contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.lldjw.internal.cdn;
+
+import com.github.lldjw.internal.rest.RestException;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fetches assets (avatars, emojis, icons) from the CDN into a {@link DiskCache}.
+ *
+ * A cached asset is served from the disk without a request while it was validated less than
+ * {@link #REVALIDATE_AFTER} milliseconds ago. After that, it is revalidated with a conditional request
+ * ({@code If-None-Match}), which costs a request but no body if the asset did not change (304).
+ * Concurrent fetches of the same asset share a single request (single flight).
+ */
+public final class CdnClient {
+
+    /**
+     * How long a cached asset is served without revalidating it, in milliseconds.
+     * Assets are addressed by their hash, so they rarely change.
+     */
+    public static final long REVALIDATE_AFTER = TimeUnit.HOURS.toMillis(1);
+
+    private final OkHttpClient client;
+    private final String base;
+    private final DiskCache cache;
+    private final ConcurrentHashMap<String, CompletableFuture<Path>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a new CDN client.
+     * @param client The HTTP client.
+     * @param base The base URL of the CDN.
+     * @param cache The cache.
+     */
+    public CdnClient(OkHttpClient client, String base, DiskCache cache) {
+        this.client = client;
+        this.base = base.endsWith("/") ? base : base + "/";
+        this.cache = cache;
+    }
+
+    /**
+     * Gets the cache.
+     * @return The cache.
+     */
+    public DiskCache getCache() {
+        return cache;
+    }
+
+    /**
+     * Fetches an asset, from the cache if possible.
+     * @param path The path of the asset, relative to the CDN base.
+     * @return The cached file.
+     * @throws IOException If the asset could not be fetched, a {@link RestException} if the CDN responded with an error.
+     */
+    public Path fetch(String path) throws IOException {
+        DiskCache.Entry entry = cache.get(path);
+        if(entry != null && isFresh(entry, System.nanoTime())) {
+            return entry.getFile();
+        }
+        CompletableFuture<Path> flight = new CompletableFuture<>();
+        CompletableFuture<Path> existing = inFlight.putIfAbsent(path, flight);
+        if(existing != null) {
+            return await(existing);
+        }
+        try {
+            Path file = request(path);
+            flight.complete(file);
+            return file;
+        } catch(Throwable throwable) {
+            flight.completeExceptionally(throwable);
+            throw throwable;
+        } finally {
+            inFlight.remove(path, flight);
+        }
+    }
+
+    /**
+     * Requests an asset, conditionally if it is cached with an entity tag.
+     * @param path The path of the asset.
+     * @return The cached file.
+     * @throws IOException If the asset could not be fetched.
+     */
+    private Path request(String path) throws IOException {
+        DiskCache.Entry entry = cache.get(path); // May have been fetched by a flight that just ended.
+        long now = System.nanoTime();
+        if(entry != null && isFresh(entry, now)) {
+            return entry.getFile();
+        }
+        Request.Builder request = new Request.Builder().url(base + path);
+        if(entry != null && entry.getEtag() != null) {
+            request.header("If-None-Match", entry.getEtag());
+        }
+        try(Response response = client.newCall(request.build()).execute()) {
+            if(response.code() == 304 && entry != null) {
+                entry.setValidated(now);
+                return entry.getFile();
+            }
+            ResponseBody body = response.body();
+            if(!response.isSuccessful() || body == null) {
+                throw new RestException("GET " + path, response.code(), body == null ? "" : body.string());
+            }
+            return cache.put(path, body.source(), response.header("ETag"), now).getFile();
+        }
+    }
+
+    private static boolean isFresh(DiskCache.Entry entry, long now) {
+        long validated = entry.getValidated();
+        return validated != 0 && now - validated < TimeUnit.MILLISECONDS.toNanos(REVALIDATE_AFTER);
+    }
+
+    private static Path await(CompletableFuture<Path> flight) throws IOException {
+        try {
+            return flight.get();
+        } catch(InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while waiting for a coalesced fetch");
+        } catch(ExecutionException exception) {
+            Throwable cause = exception.getCause();
+            if(cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if(cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if(cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+}
@@ -0,0 +1,247 @@
+/*
+ * This file is part of the LLDJW distribution (https://github.com/LLDJW/LLDJW).
+ * Copyright (c) 2020 LLDJW Contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.lldjw.internal.cdn;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A size-bounded cache of files in a directory, evicted in least recently used order.
+ * Every entry is a file named after its key, with an optional sidecar file that holds its entity tag (ETag).
+ * The index is kept in memory; when the cache is opened, it is rebuilt from the directory, ordered by the
+ * time the files were last modified.
+ *
+ * Bodies are streamed into a temporary file in the directory with {@link FileChannel#transferFrom}, without a copy
+ * in the heap, and moved into place atomically, so a file that exists is always complete. A path returned by the
+ * cache is valid until its entry is evicted or replaced; callers should open it promptly (an open file can still
+ * be read after it was deleted on POSIX systems).
+ */
+public final class DiskCache {
+
+    private static final String ETAG_SUFFIX = ".etag";
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final long TRANSFER_CHUNK = 1 << 20;
+
+    private final Path directory;
+    private final long maxBytes;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true); // Guarded by this.
+    private long bytes; // Guarded by this.
+
+    /**
+     * Opens a cache, and creates its directory if it does not exist.
+     * Files that exceed the maximum size are evicted immediately, and leftover temporary files are deleted.
+     * @param directory The directory, which should not be used by anything else.
+     * @param maxBytes The maximum total size of the files.
+     * @throws IOException If the directory could not be created or read.
+     */
+    public DiskCache(Path directory, long maxBytes) throws IOException {
+        this.directory = Files.createDirectories(directory);
+        this.maxBytes = maxBytes;
+        List<Path> files = new ArrayList<>();
+        try(DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+            for(Path file : stream) {
+                String name = file.getFileName().toString();
+                if(name.endsWith(TEMP_SUFFIX)) {
+                    Files.deleteIfExists(file);
+                } else if(!name.endsWith(ETAG_SUFFIX) && Files.isRegularFile(file)) {
+                    files.add(file);
+                }
+            }
+        }
+        files.sort(Comparator.comparing(DiskCache::lastModified));
+        synchronized(this) {
+            for(Path file : files) {
+                Path sidecar = sidecar(file);
+                String etag = Files.exists(sidecar) ? new String(Files.readAllBytes(sidecar), StandardCharsets.UTF_8) : null;
+                Entry entry = new Entry(file, Files.size(file), etag, 0); // Revalidated on the first use.
+                entries.put(file.getFileName().toString(), entry);
+                bytes += entry.size;
+            }
+            evict();
+        }
+    }
+
+    /**
+     * Gets an entry, and marks it as used.
+     * @param key The key.
+     * @return The entry, or null if there is none.
+     */
+    public synchronized Entry get(String key) {
+        return entries.get(name(key));
+    }
+
+    /**
+     * Streams a body into the cache, and replaces the previous entry.
+     * Other entries are evicted in least recently used order if the cache gets too large; a body that is larger
+     * than the entire cache is still returned, but evicted immediately.
+     * @param key The key.
+     * @param body The body, which is read until its end, but not closed.
+     * @param etag The entity tag, or null if there is none.
+     * @param validated The time the body was received, in {@link System#nanoTime()}.
+     * @return The new entry.
+     * @throws IOException If the body could not be read or written.
+     */
+    public Entry put(String key, ReadableByteChannel body, String etag, long validated) throws IOException {
+        String name = name(key);
+        Path temp = Files.createTempFile(directory, name, TEMP_SUFFIX);
+        try {
+            long size = 0;
+            try(FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                long transferred;
+                while((transferred = channel.transferFrom(body, size, TRANSFER_CHUNK)) > 0) {
+                    size += transferred;
+                }
+            }
+            Path file = directory.resolve(name);
+            synchronized(this) {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                Path sidecar = sidecar(file);
+                if(etag == null) {
+                    Files.deleteIfExists(sidecar);
+                } else {
+                    Files.write(sidecar, etag.getBytes(StandardCharsets.UTF_8));
+                }
+                Entry entry = new Entry(file, size, etag, validated);
+                Entry previous = entries.put(name, entry);
+                if(previous != null) {
+                    bytes -= previous.size;
+                }
+                bytes += size;
+                evict();
+                return entry;
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Gets the total size of the files.
+     * @return The size in bytes.
+     */
+    public synchronized long size() {
+        return bytes;
+    }
+
+    /**
+     * Evicts the least recently used entries until the cache is within its maximum size.
+     * Must be called while holding the lock.
+     * @throws IOException If a file could not be deleted.
+     */
+    private void evict() throws IOException {
+        Iterator<Entry> iterator = entries.values().iterator();
+        while(bytes > maxBytes && iterator.hasNext()) {
+            Entry entry = iterator.next();
+            iterator.remove();
+            bytes -= entry.size;
+            Files.deleteIfExists(entry.file);
+            Files.deleteIfExists(sidecar(entry.file));
+        }
+    }
+
+    /**
+     * Gets the file name of a key. Characters that are not safe in file names are replaced.
+     * CDN paths only consist of IDs, hashes and a few directory names, so this does not cause collisions.
+     * @param key The key.
+     * @return The file name.
+     */
+    static String name(String key) {
+        StringBuilder name = new StringBuilder(key.length());
+        for(int i = 0; i < key.length(); i++) {
+            char next = key.charAt(i);
+            boolean safe = (next >= 'a' && next <= 'z') || (next >= 'A' && next <= 'Z') || (next >= '0' && next <= '9')
+                    || next == '-' || next == '_' || (next == '.' && i > 0);
+            name.append(safe ? next : '_');
+        }
+        return name.toString();
+    }
+
+    private static Path sidecar(Path file) {
+        return file.resolveSibling(file.getFileName() + ETAG_SUFFIX);
+    }
+
+    private static FileTime lastModified(Path file) {
+        try {
+            return Files.readAttributes(file, BasicFileAttributes.class).lastModifiedTime();
+        } catch(IOException exception) {
+            return FileTime.fromMillis(0);
+        }
+    }
+
+    /**
+     * A cached file.
+     */
+    public static final class Entry {
+
+        private final Path file;
+        private final long size;
+        private final String etag;
+        private volatile long validated;
+
+        private Entry(Path file, long size, String etag, long validated) {
+            this.file = file;
+            this.size = size;
+            this.etag = etag;
+            this.validated = validated;
+        }
+
+        /**
+         * Gets the file.
+         * @return The path of the file.
+         */
+        public Path getFile() {
+            return file;
+        }
+
+        /**
+         * Gets the entity tag, which is sent to revalidate the file.
+         * @return The entity tag, or null if there is none.
+         */
+        public String getEtag() {
+            return etag;
+        }
+
+        /**
+         * Gets the time the file was last validated.
+         * @return The time in {@link System#nanoTime()}, or 0 if it was never validated by this process.
+         */
+        public long getValidated() {
+            return validated;
+        }
+
+        /**
+         * Marks the file as validated, after the server confirmed it did not change.
+         * @param validated The time in {@link System#nanoTime()}.
+         */
+        public void setValidated(long validated) {
+            this.validated = validated;
+        }
+
+    }
+
+}
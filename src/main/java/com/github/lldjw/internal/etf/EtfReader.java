@@ -0,0 +1,615 @@
+/*
+ * This file is part of the LLDJW distribution (https://github.com/LLDJW/LLDJW).
+ * Copyright (c) 2020 LLDJW Contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.lldjw.internal.etf;
+
+import com.github.lldjw.internal.payload.NameCache;
+import com.github.lldjw.internal.payload.PayloadReader;
+import de.arraying.kotys.JSON;
+import de.arraying.kotys.JSONArray;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * A {@link PayloadReader} that reads the Erlang External Term Format (ETF), as sent by the gateway with
+ * {@code encoding=etf}. Maps are read as objects (keys are atoms or binaries), lists as arrays, binaries as strings,
+ * and the atoms nil, true and false as null and booleans.
+ *
+ * Snowflakes are sent as integers, so they are read directly into longs. Unlike JSON, terms are length prefixed,
+ * so skipping a value does not need to scan strings, and maps have no end marker: the reader keeps the amount of
+ * remaining terms of every open map and list. Because of this, {@link #seek(int)} only supports positions that were
+ * recently returned by {@link #position()}; this covers reading a value again, as the cache does.
+ */
+public final class EtfReader implements PayloadReader {
+
+    private static final int MAP = 0;
+    private static final int LIST = 1; // Followed by a tail, usually nil.
+    private static final int BYTES = 2; // A string of small integers, every element is a single byte.
+    private static final int EMPTY = 3;
+    private static final int MARKS = 4; // Per depth.
+
+    private final byte[] buffer;
+    private final int end;
+    private int position;
+    private int depth;
+    private int[] remaining = new int[16];
+    private byte[] kinds = new byte[16];
+    private int[] markPositions = new int[16 * MARKS];
+    private int[] markRemaining = new int[16 * MARKS];
+    private int[] markNext = new int[16];
+
+    /**
+     * Creates a new reader.
+     * @param buffer The buffer.
+     * @param offset The offset of the term in the buffer, which may start with the version byte.
+     * @param length The length of the term.
+     */
+    public EtfReader(byte[] buffer, int offset, int length) {
+        this.buffer = buffer;
+        this.position = offset;
+        this.end = offset + length;
+        if(length > 0 && (buffer[offset] & 0xFF) == EtfTag.VERSION) {
+            position++;
+        }
+    }
+
+    /**
+     * Creates a new reader.
+     * @param buffer The buffer, which only contains the term.
+     */
+    public EtfReader(byte[] buffer) {
+        this(buffer, 0, buffer.length);
+    }
+
+    @Override
+    public int position() {
+        int slot = depth * MARKS + markNext[depth];
+        markPositions[slot] = position;
+        markRemaining[slot] = depth > 0 ? remaining[depth - 1] : 0;
+        markNext[depth] = (markNext[depth] + 1) % MARKS;
+        return position;
+    }
+
+    @Override
+    public void seek(int position) {
+        for(int level = depth; level >= 0; level--) {
+            for(int i = 0; i < MARKS; i++) {
+                int slot = level * MARKS + i;
+                if(markPositions[slot] == position) {
+                    this.position = position;
+                    this.depth = level;
+                    if(level > 0) {
+                        remaining[level - 1] = markRemaining[slot];
+                    }
+                    return;
+                }
+            }
+        }
+        throw new IllegalStateException("position " + position + " was not marked");
+    }
+
+    @Override
+    public EtfReader slice() {
+        int start = position;
+        skipValue();
+        return new EtfReader(buffer, start, position - start);
+    }
+
+    @Override
+    public EtfReader copy() {
+        int start = position;
+        skipValue();
+        return new EtfReader(Arrays.copyOfRange(buffer, start, position));
+    }
+
+    @Override
+    public JSON nextJSON() {
+        if(nextNull()) {
+            return null;
+        }
+        element();
+        if(tag() != EtfTag.MAP) {
+            throw malformed("map");
+        }
+        return (JSON) term();
+    }
+
+    @Override
+    public Token peek() {
+        if(depth > 0 && remaining[depth - 1] == 0) {
+            return kinds[depth - 1] == MAP ? Token.END_OBJECT : Token.END_ARRAY;
+        }
+        if(position >= end) {
+            return Token.END;
+        }
+        if(inBytes()) {
+            return Token.NUMBER;
+        }
+        switch(tag()) {
+            case EtfTag.MAP:
+                return Token.BEGIN_OBJECT;
+            case EtfTag.LIST:
+            case EtfTag.NIL:
+            case EtfTag.STRING:
+                return Token.BEGIN_ARRAY;
+            case EtfTag.SMALL_INTEGER:
+            case EtfTag.INTEGER:
+            case EtfTag.SMALL_BIG:
+            case EtfTag.LARGE_BIG:
+            case EtfTag.NEW_FLOAT:
+                return Token.NUMBER;
+            case EtfTag.ATOM:
+            case EtfTag.SMALL_ATOM:
+            case EtfTag.ATOM_UTF8:
+            case EtfTag.SMALL_ATOM_UTF8:
+                if(isAtom("nil")) {
+                    return Token.NULL;
+                }
+                return isAtom("true") || isAtom("false") ? Token.BOOLEAN : Token.STRING;
+            default:
+                return Token.STRING;
+        }
+    }
+
+    @Override
+    public void beginObject() {
+        element();
+        if(tag() != EtfTag.MAP) {
+            throw malformed("map");
+        }
+        position++;
+        push(MAP, readInt() * 2);
+    }
+
+    @Override
+    public void endObject() {
+        pop(MAP);
+    }
+
+    @Override
+    public void beginArray() {
+        element();
+        switch(tag()) {
+            case EtfTag.LIST:
+                position++;
+                push(LIST, readInt());
+                break;
+            case EtfTag.NIL:
+                position++;
+                push(EMPTY, 0);
+                break;
+            case EtfTag.STRING:
+                position++;
+                push(BYTES, readShort());
+                break;
+            default:
+                throw malformed("list");
+        }
+    }
+
+    @Override
+    public void endArray() {
+        if(depth == 0 || kinds[depth - 1] == MAP) {
+            throw malformed("list");
+        }
+        boolean tail = kinds[depth - 1] == LIST;
+        pop(kinds[depth - 1]);
+        if(tail) {
+            skipTerm();
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        return depth == 0 ? position < end : remaining[depth - 1] > 0;
+    }
+
+    @Override
+    public String nextName() {
+        return nextInterned();
+    }
+
+    @Override
+    public String nextInterned() {
+        if(nextNull()) {
+            return null;
+        }
+        element();
+        int tag = tag();
+        switch(tag) {
+            case EtfTag.BINARY:
+                position++;
+                int length = readInt();
+                position += length;
+                return NameCache.get(buffer, position - length, length);
+            case EtfTag.ATOM:
+            case EtfTag.SMALL_ATOM:
+            case EtfTag.ATOM_UTF8:
+            case EtfTag.SMALL_ATOM_UTF8:
+                position++;
+                length = tag == EtfTag.ATOM || tag == EtfTag.ATOM_UTF8 ? readShort() : readByte();
+                position += length;
+                return NameCache.get(buffer, position - length, length);
+            default:
+                return string();
+        }
+    }
+
+    @Override
+    public String nextString() {
+        if(nextNull()) {
+            return null;
+        }
+        element();
+        return string();
+    }
+
+    @Override
+    public long nextLong() {
+        if(nextNull()) {
+            return 0;
+        }
+        element();
+        if(inBytes()) {
+            return readByte();
+        }
+        switch(tag()) {
+            case EtfTag.BINARY: // Snowflakes that were sent as strings.
+            case EtfTag.STRING:
+                String string = string();
+                int dot = string.indexOf('.');
+                return Long.parseLong(dot < 0 ? string : string.substring(0, dot));
+            default:
+                Object number = term();
+                if(!(number instanceof Number)) {
+                    throw malformed("number");
+                }
+                return ((Number) number).longValue();
+        }
+    }
+
+    @Override
+    public long nextSnowflake() {
+        if(nextNull()) {
+            return 0;
+        }
+        if(!inBytes() && tag() == EtfTag.SMALL_BIG) { // The common case, read without boxing.
+            element();
+            position++;
+            return readBig(readByte());
+        }
+        return nextLong();
+    }
+
+    @Override
+    public boolean nextBoolean() {
+        if(nextNull()) {
+            return false;
+        }
+        element();
+        if(isAtom("true")) {
+            skipTerm();
+            return true;
+        }
+        if(isAtom("false")) {
+            skipTerm();
+            return false;
+        }
+        throw malformed("boolean");
+    }
+
+    @Override
+    public boolean nextNull() {
+        if(depth > 0 ? remaining[depth - 1] <= 0 : position >= end) {
+            throw malformed("value");
+        }
+        if(inBytes() || !isAtom("nil")) {
+            return false;
+        }
+        element();
+        skipTerm();
+        return true;
+    }
+
+    @Override
+    public void skipValue() {
+        if(depth > 0 ? remaining[depth - 1] <= 0 : position >= end) {
+            throw malformed("value");
+        }
+        boolean raw = inBytes();
+        element();
+        if(raw) {
+            position++;
+        } else {
+            skipTerm();
+        }
+    }
+
+    /**
+     * Counts the next value as read in the current map or list.
+     */
+    private void element() {
+        if(depth > 0 && remaining[depth - 1]-- <= 0) {
+            throw malformed("end of container");
+        }
+    }
+
+    private void push(int kind, int count) {
+        if(depth == remaining.length) {
+            remaining = Arrays.copyOf(remaining, depth * 2);
+            kinds = Arrays.copyOf(kinds, depth * 2);
+            markPositions = Arrays.copyOf(markPositions, depth * 2 * MARKS);
+            markRemaining = Arrays.copyOf(markRemaining, depth * 2 * MARKS);
+            markNext = Arrays.copyOf(markNext, depth * 2 + 1);
+        }
+        remaining[depth] = count;
+        kinds[depth] = (byte) kind;
+        depth++;
+    }
+
+    private void pop(int kind) {
+        if(depth == 0 || kinds[depth - 1] != kind || remaining[depth - 1] != 0) {
+            throw malformed("end of " + (kind == MAP ? "map" : "list"));
+        }
+        depth--;
+    }
+
+    private boolean inBytes() {
+        return depth > 0 && kinds[depth - 1] == BYTES;
+    }
+
+    private int tag() {
+        if(position >= end) {
+            throw malformed("term");
+        }
+        return buffer[position] & 0xFF;
+    }
+
+    /**
+     * Checks whether the next term is a specific atom, without consuming it.
+     */
+    private boolean isAtom(String name) {
+        int tag = tag();
+        int length;
+        int start;
+        if(tag == EtfTag.SMALL_ATOM || tag == EtfTag.SMALL_ATOM_UTF8) {
+            length = buffer[position + 1] & 0xFF;
+            start = position + 2;
+        } else if(tag == EtfTag.ATOM || tag == EtfTag.ATOM_UTF8) {
+            length = ((buffer[position + 1] & 0xFF) << 8) | (buffer[position + 2] & 0xFF);
+            start = position + 3;
+        } else {
+            return false;
+        }
+        if(length != name.length()) {
+            return false;
+        }
+        for(int i = 0; i < length; i++) {
+            if(buffer[start + i] != name.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Reads a term as a string. Binaries are UTF-8, numbers are formatted.
+     */
+    private String string() {
+        int tag = tag();
+        switch(tag) {
+            case EtfTag.BINARY:
+                position++;
+                int length = readInt();
+                position += length;
+                return new String(buffer, position - length, length, StandardCharsets.UTF_8);
+            case EtfTag.STRING:
+                position++;
+                length = readShort();
+                position += length;
+                return new String(buffer, position - length, length, StandardCharsets.ISO_8859_1);
+            case EtfTag.ATOM:
+            case EtfTag.SMALL_ATOM:
+            case EtfTag.ATOM_UTF8:
+            case EtfTag.SMALL_ATOM_UTF8:
+                position++;
+                length = tag == EtfTag.ATOM || tag == EtfTag.ATOM_UTF8 ? readShort() : readByte();
+                position += length;
+                return new String(buffer, position - length, length, StandardCharsets.UTF_8);
+            default:
+                Object value = term();
+                if(!(value instanceof Number) && !(value instanceof String)) {
+                    throw malformed("string");
+                }
+                return value.toString();
+        }
+    }
+
+    /**
+     * Reads a term into a Kotys value. Big integers (snowflakes) become strings, as they are in JSON.
+     * @return The value.
+     */
+    private Object term() {
+        int tag = tag();
+        position++;
+        switch(tag) {
+            case EtfTag.SMALL_INTEGER:
+                return readByte();
+            case EtfTag.INTEGER:
+                return readInt();
+            case EtfTag.SMALL_BIG:
+            case EtfTag.LARGE_BIG:
+                int length = tag == EtfTag.SMALL_BIG ? readByte() : readInt();
+                return Long.toString(readBig(length));
+            case EtfTag.NEW_FLOAT:
+                long bits = ((long) readInt() << 32) | (readInt() & 0xFFFFFFFFL);
+                return Double.longBitsToDouble(bits);
+            case EtfTag.ATOM:
+            case EtfTag.SMALL_ATOM:
+            case EtfTag.ATOM_UTF8:
+            case EtfTag.SMALL_ATOM_UTF8:
+                position--;
+                if(isAtom("nil")) {
+                    skipTerm();
+                    return null;
+                }
+                if(isAtom("true") || isAtom("false")) {
+                    boolean value = isAtom("true");
+                    skipTerm();
+                    return value;
+                }
+                return string();
+            case EtfTag.BINARY:
+                position--;
+                return string();
+            case EtfTag.STRING: // A list of small integers.
+                length = readShort();
+                JSONArray bytes = new JSONArray();
+                for(int i = 0; i < length; i++) {
+                    Object value = readByte();
+                    bytes.append(value);
+                }
+                return bytes;
+            case EtfTag.NIL:
+                return new JSONArray();
+            case EtfTag.LIST:
+                length = readInt();
+                JSONArray array = new JSONArray();
+                for(int i = 0; i < length; i++) {
+                    Object value = term();
+                    array.append(value);
+                }
+                skipTerm(); // Tail.
+                return array;
+            case EtfTag.MAP:
+                length = readInt();
+                JSON json = new JSON();
+                for(int i = 0; i < length; i++) {
+                    Object key = term();
+                    json.put(String.valueOf(key), term());
+                }
+                return json;
+            default:
+                throw malformed("supported term, found tag " + tag);
+        }
+    }
+
+    /**
+     * Skips a term, including all nested terms, without decoding it.
+     */
+    private void skipTerm() {
+        int pending = 1;
+        while(pending > 0) {
+            pending--;
+            int tag = tag();
+            position++;
+            int length; // Read before the position is advanced, which reads the position.
+            switch(tag) {
+                case EtfTag.SMALL_INTEGER:
+                    position += 1;
+                    break;
+                case EtfTag.INTEGER:
+                    position += 4;
+                    break;
+                case EtfTag.NEW_FLOAT:
+                    position += 8;
+                    break;
+                case EtfTag.SMALL_BIG:
+                    length = readByte();
+                    position += length + 1;
+                    break;
+                case EtfTag.LARGE_BIG:
+                    length = readInt();
+                    position += length + 1;
+                    break;
+                case EtfTag.ATOM:
+                case EtfTag.ATOM_UTF8:
+                case EtfTag.STRING:
+                    length = readShort();
+                    position += length;
+                    break;
+                case EtfTag.SMALL_ATOM:
+                case EtfTag.SMALL_ATOM_UTF8:
+                    length = readByte();
+                    position += length;
+                    break;
+                case EtfTag.BINARY:
+                    length = readInt();
+                    position += length;
+                    break;
+                case EtfTag.NIL:
+                    break;
+                case EtfTag.LIST:
+                    pending += readInt() + 1;
+                    break;
+                case EtfTag.MAP:
+                    pending += readInt() * 2;
+                    break;
+                case EtfTag.SMALL_TUPLE:
+                    pending += readByte();
+                    break;
+                case EtfTag.LARGE_TUPLE:
+                    pending += readInt();
+                    break;
+                default:
+                    throw malformed("supported term, found tag " + tag);
+            }
+        }
+        if(position > end) {
+            throw malformed("end of term");
+        }
+    }
+
+    /**
+     * Reads the sign and digits of a big integer, which must fit into a long.
+     * @param length The amount of digits (bytes), little endian.
+     */
+    private long readBig(int length) {
+        boolean negative = buffer[position++] != 0;
+        if(length > 8) {
+            throw malformed("integer of at most 8 bytes");
+        }
+        long value = 0;
+        for(int i = 0; i < length; i++) {
+            value |= (buffer[position + i] & 0xFFL) << (8 * i);
+        }
+        position += length;
+        return negative ? -value : value;
+    }
+
+    private int readByte() {
+        return buffer[position++] & 0xFF;
+    }
+
+    private int readShort() {
+        int value = ((buffer[position] & 0xFF) << 8) | (buffer[position + 1] & 0xFF);
+        position += 2;
+        return value;
+    }
+
+    private int readInt() {
+        int value = ((buffer[position] & 0xFF) << 24) | ((buffer[position + 1] & 0xFF) << 16)
+                | ((buffer[position + 2] & 0xFF) << 8) | (buffer[position + 3] & 0xFF);
+        position += 4;
+        return value;
+    }
+
+    private IllegalStateException malformed(String expected) {
+        return new IllegalStateException("malformed ETF, expected " + expected + " at position " + position);
+    }
+
+}
@@ -0,0 +1,45 @@
+/*
+ * This file is part of the LLDJW distribution (https://github.com/LLDJW/LLDJW).
+ * Copyright (c) 2020 LLDJW Contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.lldjw.internal.etf;
+
+/**
+ * The tags of the Erlang External Term Format that are used by the gateway.
+ * See <a href="https://erlang.org/doc/apps/erts/erl_ext_dist.html">the specification</a>.
+ */
+final class EtfTag {
+
+    static final int VERSION = 131;
+    static final int NEW_FLOAT = 70;
+    static final int SMALL_INTEGER = 97;
+    static final int INTEGER = 98;
+    static final int ATOM = 100;
+    static final int SMALL_TUPLE = 104;
+    static final int LARGE_TUPLE = 105;
+    static final int NIL = 106;
+    static final int STRING = 107;
+    static final int LIST = 108;
+    static final int BINARY = 109;
+    static final int SMALL_BIG = 110;
+    static final int LARGE_BIG = 111;
+    static final int SMALL_ATOM = 115;
+    static final int MAP = 116;
+    static final int ATOM_UTF8 = 118;
+    static final int SMALL_ATOM_UTF8 = 119;
+
+    private EtfTag() {}
+
+}
@@ -0,0 +1,169 @@
+/*
+ * This file is part of the LLDJW distribution (https://github.com/LLDJW/LLDJW).
+ * Copyright (c) 2020 LLDJW Contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.lldjw.internal.etf;
+
+import de.arraying.kotys.JSON;
+import de.arraying.kotys.JSONArray;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Encodes payloads in the Erlang External Term Format, for gateway connections with {@code encoding=etf}.
+ * Kotys objects become maps with binary keys, arrays become lists, strings become binaries,
+ * and null and booleans become the atoms nil, true and false. Longs that do not fit into an int are
+ * encoded as big integers, which is how Discord expects snowflakes.
+ */
+public final class EtfWriter {
+
+    private byte[] buffer = new byte[256];
+    private int size;
+
+    private EtfWriter() {}
+
+    /**
+     * Encodes a value.
+     * @param value The value: a Kotys object or array, a map, collection or array, a string, a number, a boolean or null.
+     * @return The encoded term, including the version byte.
+     * @throws IllegalArgumentException If the value, or a nested value, can not be encoded.
+     */
+    public static byte[] write(Object value) {
+        EtfWriter writer = new EtfWriter();
+        writer.writeByte(EtfTag.VERSION);
+        writer.term(value);
+        return Arrays.copyOf(writer.buffer, writer.size);
+    }
+
+    private void term(Object value) {
+        if(value == null) {
+            atom("nil");
+        } else if(value instanceof Boolean) {
+            atom(value.toString());
+        } else if(value instanceof String) {
+            byte[] bytes = ((String) value).getBytes(StandardCharsets.UTF_8);
+            writeByte(EtfTag.BINARY);
+            writeInt(bytes.length);
+            writeBytes(bytes);
+        } else if(value instanceof Double || value instanceof Float) {
+            writeByte(EtfTag.NEW_FLOAT);
+            long bits = Double.doubleToLongBits(((Number) value).doubleValue());
+            writeInt((int) (bits >>> 32));
+            writeInt((int) bits);
+        } else if(value instanceof Number) {
+            integer(((Number) value).longValue());
+        } else if(value instanceof JSON) {
+            map(((JSON) value).raw());
+        } else if(value instanceof Map) {
+            map((Map<?, ?>) value);
+        } else if(value instanceof JSONArray) {
+            JSONArray array = (JSONArray) value;
+            if(array.length() == 0) {
+                writeByte(EtfTag.NIL);
+                return;
+            }
+            writeByte(EtfTag.LIST);
+            writeInt(array.length());
+            for(int i = 0; i < array.length(); i++) {
+                term(array.object(i));
+            }
+            writeByte(EtfTag.NIL);
+        } else if(value instanceof Collection) {
+            list(((Collection<?>) value).toArray());
+        } else if(value instanceof Object[]) {
+            list((Object[]) value);
+        } else {
+            throw new IllegalArgumentException("can not encode " + value.getClass().getName());
+        }
+    }
+
+    private void map(Map<?, ?> map) {
+        writeByte(EtfTag.MAP);
+        writeInt(map.size());
+        for(Map.Entry<?, ?> entry : map.entrySet()) {
+            term(String.valueOf(entry.getKey()));
+            term(entry.getValue());
+        }
+    }
+
+    private void list(Object[] values) {
+        if(values.length == 0) {
+            writeByte(EtfTag.NIL);
+            return;
+        }
+        writeByte(EtfTag.LIST);
+        writeInt(values.length);
+        for(Object value : values) {
+            term(value);
+        }
+        writeByte(EtfTag.NIL);
+    }
+
+    private void integer(long value) {
+        if(value >= 0 && value <= 0xFF) {
+            writeByte(EtfTag.SMALL_INTEGER);
+            writeByte((int) value);
+        } else if(value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE) {
+            writeByte(EtfTag.INTEGER);
+            writeInt((int) value);
+        } else {
+            writeByte(EtfTag.SMALL_BIG);
+            long magnitude = Math.abs(value); // Long.MIN_VALUE is not a valid snowflake.
+            int length = (64 - Long.numberOfLeadingZeros(magnitude) + 7) / 8;
+            writeByte(length);
+            writeByte(value < 0 ? 1 : 0);
+            for(int i = 0; i < length; i++) {
+                writeByte((int) (magnitude >>> (8 * i)));
+            }
+        }
+    }
+
+    private void atom(String name) {
+        writeByte(EtfTag.SMALL_ATOM_UTF8);
+        writeByte(name.length());
+        for(int i = 0; i < name.length(); i++) {
+            writeByte(name.charAt(i));
+        }
+    }
+
+    private void ensure(int extra) {
+        if(size + extra > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + extra));
+        }
+    }
+
+    private void writeByte(int value) {
+        ensure(1);
+        buffer[size++] = (byte) value;
+    }
+
+    private void writeInt(int value) {
+        ensure(4);
+        buffer[size++] = (byte) (value >>> 24);
+        buffer[size++] = (byte) (value >>> 16);
+        buffer[size++] = (byte) (value >>> 8);
+        buffer[size++] = (byte) value;
+    }
+
+    private void writeBytes(byte[] bytes) {
+        ensure(bytes.length);
+        System.arraycopy(bytes, 0, buffer, size, bytes.length);
+        size += bytes.length;
+    }
+
+}
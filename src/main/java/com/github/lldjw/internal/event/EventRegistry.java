@@ -0,0 +1,77 @@
+/*
+ * This file is part of the LLDJW distribution (https://github.com/LLDJW/LLDJW).
+ * Copyright (c) 2020 LLDJW Contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.lldjw.internal.event;
+
+import com.github.lldjw.api.event.EventType;
+import com.github.lldjw.api.event.LLDJWEventHandler;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The event registry holds the event handlers of every event type, in an array indexed by the ordinal.
+ * The arrays are copied on write: registering a handler builds and publishes new arrays, while dispatching only
+ * performs a volatile read and never locks. Event types without handlers map to an empty array.
+ */
+public final class EventRegistry {
+
+    private static final LLDJWEventHandler[] NONE = new LLDJWEventHandler[0];
+
+    private volatile LLDJWEventHandler[][] handlers = build(new ArrayList<>());
+
+    /**
+     * Replaces all event handlers. The order of the handlers is kept per event type.
+     * @param ordered The event handlers, in the order that they should be invoked.
+     */
+    public void rebuild(Iterable<LLDJWEventHandler> ordered) {
+        handlers = build(ordered);
+    }
+
+    /**
+     * Gets the event handlers of an event type.
+     * @param type The event type.
+     * @return The event handlers, which must not be modified. Empty if there are none.
+     */
+    public LLDJWEventHandler[] get(EventType type) {
+        return handlers[type.ordinal()];
+    }
+
+    /**
+     * Whether or not an event type has at least one handler.
+     * @param type The event type.
+     * @return True if it does, false otherwise.
+     */
+    public boolean isHandled(EventType type) {
+        return handlers[type.ordinal()].length > 0;
+    }
+
+    private static LLDJWEventHandler[][] build(Iterable<LLDJWEventHandler> ordered) {
+        EventType[] types = EventType.values();
+        LLDJWEventHandler[][] built = new LLDJWEventHandler[types.length][];
+        for(EventType type : types) {
+            List<LLDJWEventHandler> matching = new ArrayList<>();
+            for(LLDJWEventHandler handler : ordered) {
+                if(type.isHandledBy(handler)) {
+                    matching.add(handler);
+                }
+            }
+            built[type.ordinal()] = matching.isEmpty() ? NONE : matching.toArray(NONE);
+        }
+        return built;
+    }
+
+}
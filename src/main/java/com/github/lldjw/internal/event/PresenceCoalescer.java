@@ -0,0 +1,214 @@
+/*
+ * This file is part of the LLDJW distribution (https://github.com/LLDJW/LLDJW).
+ * Copyright (c) 2020 LLDJW Contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.lldjw.internal.event;
+
+import com.github.lldjw.internal.gateway.ControlExecutor;
+import com.github.lldjw.internal.gateway.TimerWheel;
+import com.github.lldjw.internal.metrics.GatewayMetrics;
+import com.github.lldjw.internal.payload.PayloadReader;
+
+import java.util.ArrayDeque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces PRESENCE_UPDATE dispatches over a short window: only the latest presence of every user in the window
+ * is processed, the earlier ones are merged into it (and counted, see {@link GatewayMetrics#merges()}).
+ * Presences are by far the most frequent dispatch, and a change of a user is sent once per mutual guild,
+ * so most of them are redundant for handlers that only need the latest state.
+ *
+ * The data of a presence is copied, since the gateway reuses its buffer. Windows are flushed by the shared
+ * {@link TimerWheel} (through the {@link ControlExecutor}, never on the timer thread itself), or as soon as
+ * {@link #PENDING_MAX} users are pending, and processed on the executor in the
+ * order in which the users first appeared in the window. A presence without a user ID is not coalesced.
+ *
+ * Flushed windows are queued, and processed one at a time and in order: a window is only handed to the executor
+ * once the previous one was processed, so a multi-threaded executor never processes two windows concurrently.
+ */
+public final class PresenceCoalescer {
+
+    /**
+     * The maximum amount of pending users, after which the window is flushed early.
+     */
+    public static final int PENDING_MAX = 16_384;
+
+    private final Consumer<PayloadReader> processor;
+    private final Supplier<Executor> executor;
+    private final GatewayMetrics metrics;
+    private final TimerWheel timers = TimerWheel.shared();
+    private final Executor control = ControlExecutor.shared();
+    private volatile long window;
+    private Map<Long, PayloadReader> pending = new LinkedHashMap<>(); // Guarded by this, as is the timeout.
+    private TimerWheel.Timeout timeout;
+    private final Queue<Map<Long, PayloadReader>> flushed = new ArrayDeque<>(); // Guarded by this, as is processing.
+    private boolean processing;
+
+    /**
+     * Creates a new coalescer, which is disabled until a window is set.
+     * @param processor Processes the latest presence of a user, on the executor.
+     * @param executor Gets the current executor.
+     * @param metrics The metrics, which count the merged presences.
+     */
+    public PresenceCoalescer(Consumer<PayloadReader> processor, Supplier<Executor> executor, GatewayMetrics metrics) {
+        this.processor = processor;
+        this.executor = executor;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Sets the window, during which the presences of a user are merged.
+     * @param window The window in milliseconds, 0 to disable coalescing.
+     */
+    public void setWindow(long window) {
+        this.window = window;
+    }
+
+    /**
+     * Whether or not coalescing is enabled.
+     * @return True if it is, false otherwise.
+     */
+    public boolean isEnabled() {
+        return window > 0;
+    }
+
+    /**
+     * Offers a presence. The reader is positioned back at the start of the presence if it is not coalesced.
+     * @param data The data of the PRESENCE_UPDATE, only valid for the duration of the call.
+     * @return True if the presence was taken, false if coalescing is disabled or the presence has no user ID,
+     * in which case it has to be processed directly.
+     */
+    public boolean offer(PayloadReader data) {
+        long window = this.window;
+        if(window <= 0) {
+            return false;
+        }
+        int start = data.position();
+        long user = user(data);
+        data.seek(start);
+        if(user == 0) {
+            return false;
+        }
+        PayloadReader copy = data.copy();
+        boolean process = false;
+        synchronized(this) {
+            if(pending.put(user, copy) != null) {
+                metrics.merged();
+            }
+            if(pending.size() >= PENDING_MAX) {
+                process = flush();
+            } else if(timeout == null) {
+                timeout = timers.schedule(() -> control.execute(this::expire), window);
+            }
+        }
+        if(process) {
+            executor.get().execute(this::process);
+        }
+        return true;
+    }
+
+    private void expire() {
+        boolean process;
+        synchronized(this) {
+            process = flush();
+        }
+        if(process) {
+            executor.get().execute(this::process);
+        }
+    }
+
+    /**
+     * Queues the pending presences as a window, and cancels the timeout. Must be called while holding the lock.
+     * @return True if no windows are being processed, in which case the caller has to start processing them.
+     */
+    private boolean flush() {
+        if(timeout != null) {
+            timeout.cancel();
+            timeout = null;
+        }
+        if(pending.isEmpty()) {
+            return false;
+        }
+        flushed.add(pending);
+        pending = new LinkedHashMap<>();
+        if(processing) {
+            return false;
+        }
+        processing = true;
+        return true;
+    }
+
+    /**
+     * Processes the queued windows in order, until none is left.
+     */
+    private void process() {
+        boolean done = false;
+        try {
+            while(true) {
+                Map<Long, PayloadReader> window;
+                synchronized(this) {
+                    window = flushed.poll();
+                    if(window == null) { // Atomically with the check in flush(), so no window is left behind.
+                        processing = false;
+                        done = true;
+                        return;
+                    }
+                }
+                for(PayloadReader presence : window.values()) {
+                    processor.accept(presence);
+                }
+            }
+        } finally {
+            if(!done) {
+                synchronized(this) {
+                    processing = false; // The processor threw, the next flush processes the remaining windows.
+                }
+            }
+        }
+    }
+
+    /**
+     * Finds the ID of the user of a presence.
+     * @param data The presence.
+     * @return The ID, or 0 if there is none.
+     */
+    private static long user(PayloadReader data) {
+        data.beginObject();
+        while(data.hasNext()) {
+            if(!"user".equals(data.nextName())) {
+                data.skipValue();
+                continue;
+            }
+            if(data.peek() != PayloadReader.Token.BEGIN_OBJECT) {
+                return 0;
+            }
+            data.beginObject();
+            while(data.hasNext()) {
+                if("id".equals(data.nextName())) {
+                    return data.nextSnowflake();
+                }
+                data.skipValue();
+            }
+            return 0;
+        }
+        return 0;
+    }
+
+}
@@ -0,0 +1,71 @@
+/*
+ * This file is part of the LLDJW distribution (https://github.com/LLDJW/LLDJW).
+ * Copyright (c) 2020 LLDJW Contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.lldjw.internal.gateway;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the work that timers of the {@link TimerWheel} hand off because it may block, such as reconnecting,
+ * identifying and saving session files.
+ *
+ * This work has its own few threads, instead of running on the executor of asynchronous requests: it must not wait
+ * behind queued requests (which may be sleeping on rate limits), and handing it off must never run it on the timer
+ * thread, which a full caller-runs executor would do. The queue is therefore unbounded; the work is rare and short.
+ */
+public final class ControlExecutor {
+
+    /**
+     * The amount of threads.
+     */
+    public static final int THREADS = 2;
+
+    private ControlExecutor() {}
+
+    /**
+     * Gets the executor shared by all gateways. It is created lazily, and its idle threads terminate.
+     * @return The shared executor.
+     */
+    public static Executor shared() {
+        return SharedHolder.EXECUTOR;
+    }
+
+    /**
+     * Holds the shared executor, so it is only created when it is actually used.
+     */
+    private static final class SharedHolder {
+
+        private static final Executor EXECUTOR = create();
+
+        private static Executor create() {
+            AtomicInteger counter = new AtomicInteger();
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(THREADS, THREADS, 60, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(), runnable -> {
+                        Thread thread = new Thread(runnable, "LLDJW-Control-" + counter.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+            executor.allowCoreThreadTimeOut(true);
+            return executor;
+        }
+
+    }
+
+}
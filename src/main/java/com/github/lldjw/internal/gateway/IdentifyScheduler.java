@@ -0,0 +1,87 @@
+/*
+ * This file is part of the LLDJW distribution (https://github.com/LLDJW/LLDJW).
+ * Copyright (c) 2020 LLDJW Contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.lldjw.internal.gateway;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Schedules the IDENTIFY payloads of multiple shards.
+ * Discord allows one IDENTIFY per rate limit key every five seconds, where the key is {@code shard % max_concurrency}.
+ * Shards with different keys identify in parallel, so starting N shards takes {@code N / max_concurrency}
+ * intervals instead of N. The IDENTIFY payloads are scheduled on the shared {@link TimerWheel}, and the tasks
+ * must therefore not block.
+ */
+public final class IdentifyScheduler {
+
+    /**
+     * The time between two IDENTIFY payloads with the same rate limit key, in milliseconds.
+     */
+    public static final long INTERVAL = 5000;
+
+    private final long[] next; // In System#nanoTime, per rate limit key.
+    private final long interval;
+    private final TimerWheel timers = TimerWheel.shared();
+    private volatile boolean shutdown;
+
+    /**
+     * Creates a new identify scheduler.
+     * @param maxConcurrency The max_concurrency of the session start limit.
+     * @param interval The time between two IDENTIFY payloads with the same key, in milliseconds.
+     * @throws IllegalArgumentException If the max concurrency is not positive, or the interval is negative.
+     */
+    public IdentifyScheduler(int maxConcurrency, long interval) {
+        if(maxConcurrency <= 0 || interval < 0) {
+            throw new IllegalArgumentException("max concurrency is not positive or interval is negative");
+        }
+        this.next = new long[maxConcurrency];
+        this.interval = TimeUnit.MILLISECONDS.toNanos(interval);
+        long now = System.nanoTime();
+        for(int i = 0; i < next.length; i++) {
+            next[i] = now;
+        }
+    }
+
+    /**
+     * Schedules an IDENTIFY.
+     * @param shard The ID of the shard.
+     * @param identify The task that sends the IDENTIFY payload, which must not block.
+     * @return The timeout, which is cancelled if the IDENTIFY is no longer wanted, for example after a disconnect.
+     */
+    public TimerWheel.Timeout schedule(int shard, Runnable identify) {
+        int key = shard % next.length;
+        long delay;
+        synchronized(next) {
+            long now = System.nanoTime();
+            long at = Math.max(now, next[key]);
+            next[key] = at + interval;
+            delay = at - now;
+        }
+        return timers.schedule(() -> {
+            if(!shutdown) {
+                identify.run();
+            }
+        }, TimeUnit.NANOSECONDS.toMillis(delay));
+    }
+
+    /**
+     * Stops the scheduler; pending IDENTIFY payloads are discarded.
+     */
+    public void shutdown() {
+        shutdown = true;
+    }
+
+}
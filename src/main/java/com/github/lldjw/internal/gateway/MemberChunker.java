@@ -0,0 +1,218 @@
+/*
+ * This file is part of the LLDJW distribution (https://github.com/LLDJW/LLDJW).
+ * Copyright (c) 2020 LLDJW Contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.lldjw.internal.gateway;
+
+import com.github.lldjw.api.gateway.MemberChunkProgress;
+import com.github.lldjw.internal.cache.LongMap;
+
+import java.util.ArrayDeque;
+
+/**
+ * Schedules the REQUEST_GUILD_MEMBERS payloads (opcode 8) that load the offline members of large guilds.
+ *
+ * Guilds are queued as they are created, and requested in batches of up to {@link #BATCH} guilds per payload,
+ * once the batch is full or the oldest guild has waited {@link #LINGER} milliseconds. Requests are pipelined:
+ * new batches go out while the chunks of earlier ones are still arriving, limited by the gateway send budget
+ * (see {@link SendBudget}) and by {@link #IN_FLIGHT} guilds in flight. A guild is complete once all of its chunks
+ * arrived; a guild that does not receive a chunk for {@link #TIMEOUT} milliseconds is requested again,
+ * up to {@link #ATTEMPTS} times.
+ *
+ * The chunks themselves are streamed into the cache by the cache updater; this class only counts them.
+ * All methods are thread safe.
+ */
+public final class MemberChunker {
+
+    public static final int BATCH = 50;
+    public static final int CHUNK = 1000;
+    public static final int IN_FLIGHT = 4 * BATCH;
+    public static final int RESERVE = 20;
+    public static final long LINGER = 500;
+    public static final long TIMEOUT = 60_000;
+    public static final int ATTEMPTS = 3;
+
+    private final LongMap<State> guilds = new LongMap<>(); // Queued and in flight.
+    private final ArrayDeque<State> queue = new ArrayDeque<>();
+    private int inFlight;
+    private int completed;
+    private int failed;
+    private long chunks;
+    private long members;
+
+    /**
+     * Queues a guild, unless it is already queued or in flight.
+     * @param guild The ID of the guild.
+     * @param now The current time, in milliseconds.
+     */
+    public synchronized void enqueue(long guild, long now) {
+        if(guilds.containsKey(guild)) {
+            return;
+        }
+        State state = new State(guild, now);
+        guilds.put(guild, state);
+        queue.add(state);
+    }
+
+    /**
+     * Takes the next batch of guilds to request, if it is due and can be sent.
+     * This also re-queues guilds that timed out.
+     * @param now The current time, in milliseconds.
+     * @param budget The send budget of the connection.
+     * @return The IDs of the guilds, or null if nothing should be sent now.
+     */
+    public synchronized long[] next(long now, SendBudget budget) {
+        if(inFlight > 0) {
+            guilds.forEach((id, state) -> {
+                if(state.requested && now - state.updated >= TIMEOUT) {
+                    inFlight--;
+                    if(state.attempts >= ATTEMPTS) {
+                        failed++;
+                        guilds.remove(id);
+                    } else {
+                        state.requested = false;
+                        state.received = 0;
+                        state.queued = now - LINGER; // Due immediately.
+                        queue.addFirst(state);
+                    }
+                }
+            });
+        }
+        if(queue.isEmpty()) {
+            return null;
+        }
+        int size = Math.min(Math.min(queue.size(), BATCH), IN_FLIGHT - inFlight);
+        if(size <= 0
+                || (size < BATCH && now - queue.peekFirst().queued < LINGER)
+                || budget.available(now) <= RESERVE) {
+            return null;
+        }
+        long[] batch = new long[size];
+        for(int i = 0; i < size; i++) {
+            State state = queue.pollFirst();
+            state.requested = true;
+            state.attempts++;
+            state.updated = now;
+            batch[i] = state.guild;
+        }
+        inFlight += size;
+        return batch;
+    }
+
+    /**
+     * Counts a received chunk.
+     * @param guild The ID of the guild.
+     * @param index The index of the chunk.
+     * @param count The total amount of chunks, or 0 if unknown; the last chunk is then the first one that is not full.
+     * @param received The amount of members in the chunk.
+     * @param now The current time, in milliseconds.
+     * @return True if this completed the guild, false otherwise.
+     */
+    public synchronized boolean chunk(long guild, int index, int count, int received, long now) {
+        chunks++;
+        members += received;
+        State state = guilds.get(guild);
+        if(state == null || !state.requested) { // Requested by someone else, or a late chunk of a timed out request.
+            return false;
+        }
+        state.updated = now;
+        state.received++;
+        boolean last = count > 0 ? state.received >= count : received < CHUNK;
+        if(!last) {
+            return false;
+        }
+        guilds.remove(guild);
+        inFlight--;
+        completed++;
+        return true;
+    }
+
+    /**
+     * Puts a batch back at the front of the queue, after it could not be sent.
+     * The attempt is not counted, and guilds that were re-queued in the meantime are skipped.
+     * @param batch The IDs of the guilds, as returned by {@link #next(long, SendBudget)}.
+     * @param now The current time, in milliseconds.
+     */
+    public synchronized void unsent(long[] batch, long now) {
+        for(int i = batch.length - 1; i >= 0; i--) {
+            State state = guilds.get(batch[i]);
+            if(state == null || !state.requested) {
+                continue;
+            }
+            state.requested = false;
+            state.attempts--;
+            state.received = 0;
+            state.queued = now - LINGER;
+            queue.addFirst(state);
+            inFlight--;
+        }
+    }
+
+    /**
+     * Queues all guilds in flight again, since their remaining chunks are lost with the connection.
+     * This is used when a session is resumed, as the guilds are not created again.
+     * @param now The current time, in milliseconds.
+     */
+    public synchronized void requeue(long now) {
+        guilds.forEach((id, state) -> {
+            if(state.requested) {
+                state.requested = false;
+                state.attempts--; // Not the fault of the request.
+                state.received = 0;
+                state.queued = now - LINGER;
+                queue.addFirst(state);
+            }
+        });
+        inFlight = 0;
+    }
+
+    /**
+     * Forgets all queued and in flight guilds, for a new session.
+     * The counters are kept.
+     */
+    public synchronized void clear() {
+        guilds.clear();
+        queue.clear();
+        inFlight = 0;
+    }
+
+    /**
+     * Gets the current progress.
+     * @return A snapshot of the progress.
+     */
+    public synchronized MemberChunkProgress progress() {
+        return new MemberChunkProgress(queue.size(), inFlight, completed, failed, chunks, members);
+    }
+
+    /**
+     * The state of a queued or in flight guild.
+     */
+    private static final class State {
+
+        private final long guild;
+        private long queued;
+        private long updated;
+        private boolean requested;
+        private int attempts;
+        private int received;
+
+        private State(long guild, long queued) {
+            this.guild = guild;
+            this.queued = queued;
+        }
+
+    }
+
+}
@@ -0,0 +1,73 @@
+/*
+ * This file is part of the LLDJW distribution (https://github.com/LLDJW/LLDJW).
+ * Copyright (c) 2020 LLDJW Contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.lldjw.internal.gateway;
+
+/**
+ * Tracks the payloads sent over a gateway connection, which may send at most {@link #LIMIT} payloads per
+ * {@link #WINDOW} milliseconds; exceeding this closes the connection.
+ * Every payload is recorded, and optional payloads (such as member requests) only go out while enough of the
+ * budget remains for the ones that cannot wait, such as heartbeats.
+ */
+public final class SendBudget {
+
+    public static final int LIMIT = 120;
+    public static final long WINDOW = 60_000;
+
+    private final long[] sent = new long[LIMIT]; // Ring of send times, oldest at head.
+    private int head;
+    private int size;
+
+    /**
+     * Records a payload that was sent.
+     * @param now The current time, in milliseconds.
+     */
+    public synchronized void record(long now) {
+        expire(now);
+        if(size == LIMIT) { // Over budget; only the most recent sends matter.
+            head = (head + 1) % LIMIT;
+            size--;
+        }
+        sent[(head + size) % LIMIT] = now;
+        size++;
+    }
+
+    /**
+     * Gets the amount of payloads that can still be sent in the current window.
+     * @param now The current time, in milliseconds.
+     * @return The amount.
+     */
+    public synchronized int available(long now) {
+        expire(now);
+        return LIMIT - size;
+    }
+
+    /**
+     * Forgets all sends, for a new connection.
+     */
+    public synchronized void clear() {
+        head = 0;
+        size = 0;
+    }
+
+    private void expire(long now) {
+        while(size > 0 && sent[head] <= now - WINDOW) {
+            head = (head + 1) % LIMIT;
+            size--;
+        }
+    }
+
+}
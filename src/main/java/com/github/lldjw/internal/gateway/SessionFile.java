@@ -0,0 +1,149 @@
+/*
+ * This file is part of the LLDJW distribution (https://github.com/LLDJW/LLDJW).
+ * Copyright (c) 2020 LLDJW Contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.lldjw.internal.gateway;
+
+import de.arraying.kotys.JSON;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Persists the state that is needed to resume a gateway session (the session ID and the last sequence number),
+ * so that a restarted process can RESUME instead of IDENTIFY.
+ * The file is small, and replaced atomically when it is saved, so a crash never leaves a partially written file.
+ */
+public final class SessionFile {
+
+    /**
+     * The maximum age of a saved session, in milliseconds. Discord does not document how long a session can be
+     * resumed; older sessions are unlikely to be valid, and are not worth the failed attempt.
+     */
+    public static final long MAX_AGE = 300_000;
+
+    private final Path path;
+
+    /**
+     * Creates a new session file.
+     * @param path The path of the file, which does not need to exist.
+     */
+    public SessionFile(Path path) {
+        this.path = path;
+    }
+
+    /**
+     * Loads the saved session.
+     * @param shard The ID of the shard.
+     * @param total The total amount of shards.
+     * @return The session, or null if there is none, it belongs to another shard, or it is too old.
+     * @throws IOException If the file exists, but could not be read.
+     */
+    public Session load(int shard, int total) throws IOException {
+        byte[] bytes;
+        try {
+            bytes = Files.readAllBytes(path);
+        } catch(NoSuchFileException exception) {
+            return null;
+        }
+        JSON json;
+        try {
+            json = new JSON(new String(bytes, StandardCharsets.UTF_8));
+        } catch(RuntimeException exception) {
+            throw new IOException("malformed session file " + path, exception);
+        }
+        if(!json.has("session_id") || !json.has("sequence") || !json.has("saved")
+                || !json.has("shard") || !json.has("total")
+                || json.integer("shard") != shard || json.integer("total") != total
+                || System.currentTimeMillis() - json.large("saved") > MAX_AGE) {
+            return null;
+        }
+        return new Session(json.string("session_id"), json.large("sequence"));
+    }
+
+    /**
+     * Saves a session, replacing the previous one.
+     * @param session The session.
+     * @param shard The ID of the shard.
+     * @param total The total amount of shards.
+     * @throws IOException If the file could not be written.
+     */
+    public void save(Session session, int shard, int total) throws IOException {
+        String json = new JSON()
+                .put("session_id", session.getId())
+                .put("sequence", session.getSequence())
+                .put("shard", shard)
+                .put("total", total)
+                .put("saved", System.currentTimeMillis())
+                .marshal();
+        Path parent = path.toAbsolutePath().getParent();
+        Path temporary = Files.createTempFile(parent, path.getFileName().toString(), ".tmp");
+        try {
+            Files.write(temporary, json.getBytes(StandardCharsets.UTF_8));
+            Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * Deletes the saved session, if there is one.
+     * @throws IOException If the file could not be deleted.
+     */
+    public void delete() throws IOException {
+        Files.deleteIfExists(path);
+    }
+
+    /**
+     * A resumable session.
+     */
+    public static final class Session {
+
+        private final String id;
+        private final long sequence;
+
+        /**
+         * Creates a new session.
+         * @param id The session ID.
+         * @param sequence The last sequence number that was received.
+         */
+        public Session(String id, long sequence) {
+            this.id = id;
+            this.sequence = sequence;
+        }
+
+        /**
+         * Gets the session ID.
+         * @return The session ID.
+         */
+        public String getId() {
+            return id;
+        }
+
+        /**
+         * Gets the last sequence number that was received.
+         * @return The sequence number.
+         */
+        public long getSequence() {
+            return sequence;
+        }
+
+    }
+
+}
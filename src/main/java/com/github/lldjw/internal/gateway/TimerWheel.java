@@ -0,0 +1,269 @@
+/*
+ * This file is part of the LLDJW distribution (https://github.com/LLDJW/LLDJW).
+ * Copyright (c) 2020 LLDJW Contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.lldjw.internal.gateway;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A hashed timer wheel, which drives the timers of all gateways in the process with a single thread,
+ * see "Hashed and Hierarchical Timing Wheels" (Varghese and Lauck).
+ * Time is split into ticks, and every timer is put into the bucket of the tick it expires in; a timer that
+ * expires more than one rotation ahead counts down the rotations it has to wait. Scheduling and cancelling
+ * do not lock, scheduled timers are handed to the timer thread by a queue, and cancelled ones are removed
+ * when their bucket comes up.
+ *
+ * Timers fire at most one tick late. They run on the timer thread, so tasks must be short and must never block,
+ * otherwise they delay all other timers; blocking work (such as opening a connection) has to be handed off.
+ */
+public final class TimerWheel {
+
+    /**
+     * The default duration of a tick, in milliseconds.
+     */
+    public static final long TICK_DEFAULT = 10;
+
+    /**
+     * The default amount of buckets, which makes a rotation roughly 5 seconds with the default tick.
+     */
+    public static final int BUCKETS_DEFAULT = 512;
+
+    private static final int PENDING = 0;
+    private static final int CANCELLED = 1;
+    private static final int EXPIRED = 2;
+
+    private final long tick;
+    private final Timeout[] buckets;
+    private final int mask;
+    private final ConcurrentLinkedQueue<Timeout> scheduled = new ConcurrentLinkedQueue<>();
+    private final String name;
+    private final Object startMutex = new Object();
+    private volatile long start; // The time of tick 0, in nanoseconds.
+    private volatile Thread thread;
+
+    /**
+     * Creates a new timer wheel. Its thread is started when the first timer is scheduled.
+     * @param name The name of the thread.
+     * @param tick The duration of a tick, in milliseconds.
+     * @param buckets The amount of buckets, a power of two.
+     * @throws IllegalArgumentException If the tick is not positive, or the amount of buckets not a power of two.
+     */
+    public TimerWheel(String name, long tick, int buckets) {
+        if(tick <= 0) {
+            throw new IllegalArgumentException("tick is not positive");
+        }
+        if(buckets <= 0 || Integer.bitCount(buckets) != 1) {
+            throw new IllegalArgumentException("buckets is not a power of two");
+        }
+        this.name = name;
+        this.tick = TimeUnit.MILLISECONDS.toNanos(tick);
+        this.buckets = new Timeout[buckets];
+        this.mask = buckets - 1;
+    }
+
+    /**
+     * Gets the timer wheel shared by all gateways.
+     * It is created lazily, with a {@link #TICK_DEFAULT} tick and {@link #BUCKETS_DEFAULT} buckets.
+     * @return The shared timer wheel.
+     */
+    public static TimerWheel shared() {
+        return SharedHolder.WHEEL;
+    }
+
+    /**
+     * Schedules a task once.
+     * @param task The task.
+     * @param delay The delay in milliseconds.
+     * @return The timeout, which can be cancelled.
+     */
+    public Timeout schedule(Runnable task, long delay) {
+        return schedule(task, delay, 0);
+    }
+
+    /**
+     * Schedules a task at a fixed rate: the deadlines are a multiple of the period apart, regardless of
+     * how late the previous executions were, so the timer does not drift.
+     * @param task The task.
+     * @param delay The delay of the first execution, in milliseconds.
+     * @param period The period in milliseconds.
+     * @return The timeout, which can be cancelled to stop all further executions.
+     * @throws IllegalArgumentException If the period is not positive.
+     */
+    public Timeout scheduleAtFixedRate(Runnable task, long delay, long period) {
+        if(period <= 0) {
+            throw new IllegalArgumentException("period is not positive");
+        }
+        return schedule(task, delay, TimeUnit.MILLISECONDS.toNanos(period));
+    }
+
+    private Timeout schedule(Runnable task, long delay, long period) {
+        if(task == null) {
+            throw new NullPointerException("task is null");
+        }
+        startThread();
+        Timeout timeout = new Timeout(task, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(Math.max(0, delay)), period);
+        scheduled.add(timeout);
+        return timeout;
+    }
+
+    private void startThread() {
+        if(thread != null) {
+            return;
+        }
+        synchronized(startMutex) {
+            if(thread != null) {
+                return;
+            }
+            start = System.nanoTime();
+            Thread worker = new Thread(this::run, name);
+            worker.setDaemon(true);
+            worker.start();
+            thread = worker;
+        }
+    }
+
+    /**
+     * Advances the wheel tick by tick, forever.
+     */
+    private void run() {
+        long current = 0;
+        while(true) {
+            long deadline = start + (current + 1) * tick;
+            long now;
+            while((now = System.nanoTime()) < deadline) {
+                LockSupport.parkNanos(this, deadline - now);
+            }
+            transfer(current);
+            expire((int) (current & mask));
+            current++;
+        }
+    }
+
+    /**
+     * Moves the scheduled timers into their buckets.
+     * @param current The current tick.
+     */
+    private void transfer(long current) {
+        Timeout timeout;
+        while((timeout = scheduled.poll()) != null) {
+            if(timeout.state.get() == PENDING) {
+                place(timeout, current);
+            }
+        }
+    }
+
+    /**
+     * Puts a timer into the bucket of the tick it expires in. Timers that are already due go into the current bucket.
+     * @param timeout The timer.
+     * @param current The current tick.
+     */
+    private void place(Timeout timeout, long current) {
+        long expiry = Math.max(0, (timeout.deadline - start) / tick);
+        timeout.rounds = (expiry - current) / buckets.length;
+        int index = (int) (Math.max(expiry, current) & mask);
+        timeout.next = buckets[index];
+        buckets[index] = timeout;
+    }
+
+    /**
+     * Runs the timers of a bucket that are due, and counts down the rotations of the others.
+     * @param index The index of the bucket.
+     */
+    private void expire(int index) {
+        Timeout timeout = buckets[index];
+        buckets[index] = null;
+        Timeout requeue = null;
+        while(timeout != null) {
+            Timeout next = timeout.next;
+            timeout.next = null;
+            if(timeout.state.get() != PENDING) {
+                timeout = next;
+                continue;
+            }
+            if(timeout.rounds > 0) { // Not in this rotation.
+                timeout.rounds--;
+                timeout.next = requeue;
+                requeue = timeout;
+                timeout = next;
+                continue;
+            }
+            timeout.run();
+            if(timeout.period > 0 && timeout.state.get() == PENDING) {
+                timeout.deadline += timeout.period;
+                scheduled.add(timeout); // Placed on the next tick, so a short period can not loop in this one.
+            }
+            timeout = next;
+        }
+        while(requeue != null) {
+            Timeout next = requeue.next;
+            requeue.next = buckets[index];
+            buckets[index] = requeue;
+            requeue = next;
+        }
+    }
+
+    /**
+     * A scheduled task, which can be cancelled.
+     */
+    public static final class Timeout {
+
+        private final Runnable task;
+        private final long period; // In nanoseconds, 0 if the task is only run once.
+        private final AtomicInteger state = new AtomicInteger(PENDING);
+        private long deadline; // Only changed by the timer thread, after the timeout was published.
+        private long rounds;
+        private Timeout next;
+
+        private Timeout(Runnable task, long deadline, long period) {
+            this.task = task;
+            this.deadline = deadline;
+            this.period = period;
+        }
+
+        /**
+         * Cancels the task. Once this returns, the task is not started again, but an execution that already
+         * started may still be running.
+         * @return True if the task was pending, false if it already ran once or was cancelled.
+         */
+        public boolean cancel() {
+            return state.compareAndSet(PENDING, CANCELLED);
+        }
+
+        private void run() {
+            if(period == 0 && !state.compareAndSet(PENDING, EXPIRED)) {
+                return;
+            }
+            try {
+                task.run();
+            } catch(Throwable ignored) { // A failing task must not stop the wheel; the tasks log themselves.
+            }
+        }
+
+    }
+
+    /**
+     * Holds the shared timer wheel, so it is only created when it is actually used.
+     */
+    private static final class SharedHolder {
+
+        private static final TimerWheel WHEEL = new TimerWheel("LLDJW-Timer", TICK_DEFAULT, BUCKETS_DEFAULT);
+
+    }
+
+}
@@ -0,0 +1,165 @@
+/*
+ * This file is part of the LLDJW distribution (https://github.com/LLDJW/LLDJW).
+ * Copyright (c) 2020 LLDJW Contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.lldjw.internal.gateway;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Decodes the zlib-stream transport compression of the gateway.
+ * The entire connection is a single zlib stream, which is why one inflater is kept for the lifetime of the connection.
+ * A message may span multiple frames; it is complete when the last frame ends with the Z_SYNC_FLUSH suffix.
+ *
+ * The input and output buffers are reused for every message, and are taken from (and returned to) a pool that is
+ * shared by all connections. The buffers only grow, so after the first large payloads (READY, GUILD_CREATE)
+ * decoding a message does not allocate. This class is not thread safe; frames of a connection are read sequentially.
+ * A frame that races with closing the connection must still be fed while holding the same lock as {@link #close()}:
+ * once closed, the decoder ignores frames, since its buffers may already be used by another connection.
+ */
+public final class ZlibStreamDecoder {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int POOL_LIMIT = 64;
+    private static final int POOL_BUFFER_LIMIT = 1024 * 1024; // Larger buffers are left to the GC to bound the pool.
+    private static final Queue<byte[]> POOL = new ConcurrentLinkedQueue<>();
+    private static final AtomicInteger POOL_SIZE = new AtomicInteger();
+
+    private final Inflater inflater = new Inflater();
+    private byte[] input = acquire();
+    private int inputLength;
+    private byte[] output = acquire();
+    private boolean closed;
+
+    /**
+     * Appends a frame to the current message.
+     * @param frame The frame, its remaining bytes are consumed.
+     * @return True if the message is complete and can be inflated, false if more frames are required,
+     * or if the decoder is closed.
+     */
+    public boolean feed(ByteBuffer frame) {
+        if(closed) {
+            return false;
+        }
+        int length = frame.remaining();
+        if(inputLength + length > input.length) {
+            input = grow(input, inputLength, inputLength + length);
+        }
+        frame.get(input, inputLength, length);
+        inputLength += length;
+        return inputLength >= 4
+                && input[inputLength - 4] == 0x00
+                && input[inputLength - 3] == 0x00
+                && input[inputLength - 2] == (byte) 0xFF
+                && input[inputLength - 1] == (byte) 0xFF;
+    }
+
+    /**
+     * Inflates the complete message.
+     * The result is written to {@link #output()}, which is only valid until the next call.
+     * @return The length of the inflated message, 0 if the decoder is closed.
+     * @throws DataFormatException If the stream is corrupt.
+     */
+    public int inflate() throws DataFormatException {
+        if(closed) {
+            return 0;
+        }
+        inflater.setInput(input, 0, inputLength);
+        int length = 0;
+        while(true) {
+            if(length == output.length) {
+                output = grow(output, length, output.length * 2);
+            }
+            int inflated = inflater.inflate(output, length, output.length - length);
+            if(inflated == 0 && inflater.needsDictionary()) {
+                throw new DataFormatException("zlib stream requires a dictionary");
+            }
+            length += inflated;
+            if(inflated == 0 && (inflater.needsInput() || inflater.finished())) {
+                break;
+            }
+        }
+        inputLength = 0;
+        return length;
+    }
+
+    /**
+     * Gets the output buffer, which contains the last inflated message.
+     * @return The output buffer, or null if the decoder is closed.
+     */
+    public byte[] output() {
+        return output;
+    }
+
+    /**
+     * Discards the current (partial) message, and resets the zlib stream for a new connection.
+     */
+    public void reset() {
+        if(closed) {
+            return;
+        }
+        inflater.reset();
+        inputLength = 0;
+    }
+
+    /**
+     * Releases the inflater, and returns the buffers to the pool.
+     * Afterwards the decoder ignores frames, see {@link #feed(ByteBuffer)}.
+     */
+    public void close() {
+        if(closed) {
+            return;
+        }
+        closed = true;
+        inflater.end();
+        release(input);
+        release(output);
+        input = null; // Owned by the pool now.
+        output = null;
+        inputLength = 0;
+    }
+
+    private static byte[] grow(byte[] buffer, int used, int required) {
+        byte[] grown = new byte[Math.max(required, buffer.length * 2)];
+        System.arraycopy(buffer, 0, grown, 0, used);
+        return grown;
+    }
+
+    private static byte[] acquire() {
+        byte[] buffer = POOL.poll();
+        if(buffer == null) {
+            return new byte[BUFFER_SIZE];
+        }
+        POOL_SIZE.decrementAndGet();
+        return buffer;
+    }
+
+    private static void release(byte[] buffer) {
+        if(buffer.length > POOL_BUFFER_LIMIT) {
+            return;
+        }
+        if(POOL_SIZE.incrementAndGet() <= POOL_LIMIT) {
+            POOL.offer(buffer);
+        } else {
+            POOL_SIZE.decrementAndGet();
+        }
+    }
+
+}
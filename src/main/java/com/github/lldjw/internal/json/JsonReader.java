@@ -0,0 +1,474 @@
+/*
+ * This file is part of the LLDJW distribution (https://github.com/LLDJW/LLDJW).
+ * Copyright (c) 2020 LLDJW Contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.lldjw.internal.json;
+
+import com.github.lldjw.internal.payload.NameCache;
+import com.github.lldjw.internal.payload.PayloadReader;
+import de.arraying.kotys.JSON;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * A {@link PayloadReader} that reads UTF-8 encoded JSON directly from a byte array, without building a tree.
+ * Values are read one by one, and values that are not needed are skipped without being decoded.
+ * Numbers and snowflakes are parsed without allocating, and object keys are interned, see {@link NameCache}.
+ *
+ * The reader is lenient: it assumes well-formed input (as sent by Discord), and treats the separators
+ * {@code :} and {@code ,} as whitespace. Malformed input results in an {@link IllegalStateException}.
+ * This class is not thread safe, and the underlying buffer must not change while it is being read.
+ */
+public final class JsonReader implements PayloadReader {
+
+    private final byte[] buffer;
+    private final int end;
+    private int position;
+
+    /**
+     * Creates a new reader.
+     * @param buffer The buffer.
+     * @param offset The offset of the JSON value in the buffer.
+     * @param length The length of the JSON value.
+     */
+    public JsonReader(byte[] buffer, int offset, int length) {
+        this.buffer = buffer;
+        this.position = offset;
+        this.end = offset + length;
+    }
+
+    /**
+     * Creates a new reader.
+     * @param buffer The buffer, which only contains the JSON value.
+     */
+    public JsonReader(byte[] buffer) {
+        this(buffer, 0, buffer.length);
+    }
+
+    /**
+     * Gets the underlying buffer.
+     * @return The buffer.
+     */
+    public byte[] buffer() {
+        return buffer;
+    }
+
+    /**
+     * Gets the current position in the buffer.
+     * @return The position.
+     */
+    @Override
+    public int position() {
+        return position;
+    }
+
+    /**
+     * Moves the reader to a position that was previously returned by {@link #position()}.
+     * This allows a value to be read multiple times, for example to find a key that is needed first.
+     * @param position The position.
+     */
+    @Override
+    public void seek(int position) {
+        this.position = position;
+    }
+
+    /**
+     * Creates a reader over the next value, and skips it in this reader.
+     * The new reader shares the buffer.
+     * @return The reader.
+     */
+    @Override
+    public JsonReader slice() {
+        int start = skipWhitespace();
+        skipValue();
+        return new JsonReader(buffer, start, position - start);
+    }
+
+    /**
+     * Creates a reader over a copy of the next value, and skips it in this reader.
+     * @return The reader.
+     */
+    @Override
+    public JsonReader copy() {
+        int start = skipWhitespace();
+        skipValue();
+        return new JsonReader(Arrays.copyOfRange(buffer, start, position));
+    }
+
+    /**
+     * Reads the next value into a Kotys tree. This is mostly useful for values that are rarely needed.
+     * @return The JSON object, or null if the value is null.
+     */
+    @Override
+    public JSON nextJSON() {
+        if(nextNull()) {
+            return null;
+        }
+        int start = skipWhitespace();
+        skipValue();
+        return new JSON(new String(buffer, start, position - start, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Peeks at the type of the next value.
+     * @return The token.
+     */
+    @Override
+    public Token peek() {
+        if(skipWhitespace() >= end) {
+            return Token.END;
+        }
+        switch(buffer[position]) {
+            case '{':
+                return Token.BEGIN_OBJECT;
+            case '}':
+                return Token.END_OBJECT;
+            case '[':
+                return Token.BEGIN_ARRAY;
+            case ']':
+                return Token.END_ARRAY;
+            case '"':
+                return Token.STRING;
+            case 't':
+            case 'f':
+                return Token.BOOLEAN;
+            case 'n':
+                return Token.NULL;
+            default:
+                return Token.NUMBER;
+        }
+    }
+
+    /**
+     * Consumes the start of an object.
+     */
+    @Override
+    public void beginObject() {
+        expect('{');
+    }
+
+    /**
+     * Consumes the end of an object.
+     */
+    @Override
+    public void endObject() {
+        expect('}');
+    }
+
+    /**
+     * Consumes the start of an array.
+     */
+    @Override
+    public void beginArray() {
+        expect('[');
+    }
+
+    /**
+     * Consumes the end of an array.
+     */
+    @Override
+    public void endArray() {
+        expect(']');
+    }
+
+    /**
+     * Whether or not the current object or array has another element.
+     * @return True if it does, false if the end is next.
+     */
+    @Override
+    public boolean hasNext() {
+        if(skipWhitespace() >= end) {
+            return false;
+        }
+        byte next = buffer[position];
+        return next != '}' && next != ']';
+    }
+
+    /**
+     * Reads the next key of an object. Keys are interned, so this does not allocate for known keys.
+     * @return The key.
+     */
+    @Override
+    public String nextName() {
+        return nextInterned();
+    }
+
+    /**
+     * Reads the next string, and interns it. This should only be used for strings with few distinct values,
+     * such as event types.
+     * @return The string, or null if the value is null.
+     */
+    @Override
+    public String nextInterned() {
+        if(nextNull()) {
+            return null;
+        }
+        expect('"');
+        int start = position;
+        boolean escaped = skipString();
+        if(escaped) {
+            return decode(start, position - 1);
+        }
+        return NameCache.get(buffer, start, position - 1 - start);
+    }
+
+    /**
+     * Reads the next string.
+     * @return The string, or null if the value is null.
+     */
+    @Override
+    public String nextString() {
+        if(nextNull()) {
+            return null;
+        }
+        expect('"');
+        int start = position;
+        boolean escaped = skipString();
+        if(escaped) {
+            return decode(start, position - 1);
+        }
+        return new String(buffer, start, position - 1 - start, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Reads the next integer. Quoted integers (snowflakes) are supported, fractions are truncated.
+     * @return The integer, or 0 if the value is null.
+     */
+    @Override
+    public long nextLong() {
+        if(nextNull()) {
+            return 0;
+        }
+        boolean quoted = buffer[position] == '"';
+        if(quoted) {
+            position++;
+        }
+        boolean negative = buffer[position] == '-';
+        if(negative) {
+            position++;
+        }
+        long value = 0;
+        while(position < end) {
+            byte next = buffer[position];
+            if(next < '0' || next > '9') {
+                break;
+            }
+            value = value * 10 + (next - '0');
+            position++;
+        }
+        while(position < end && isNumberPart(buffer[position])) { // Fraction or exponent.
+            position++;
+        }
+        if(quoted) {
+            expect('"');
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * Reads the next snowflake, which is sent as a string.
+     * @return The snowflake, or 0 if the value is null.
+     */
+    @Override
+    public long nextSnowflake() {
+        return nextLong();
+    }
+
+    /**
+     * Reads the next integer.
+     * @return The integer, or 0 if the value is null.
+     */
+    @Override
+    public int nextInt() {
+        return (int) nextLong();
+    }
+
+    /**
+     * Reads the next boolean.
+     * @return The boolean, or false if the value is null.
+     */
+    @Override
+    public boolean nextBoolean() {
+        if(nextNull()) {
+            return false;
+        }
+        if(buffer[position] == 't') {
+            position += 4;
+            return true;
+        }
+        if(buffer[position] == 'f') {
+            position += 5;
+            return false;
+        }
+        throw malformed("boolean");
+    }
+
+    /**
+     * Consumes the next value if it is null.
+     * @return True if the value was null (and consumed), false otherwise.
+     */
+    @Override
+    public boolean nextNull() {
+        if(skipWhitespace() >= end) {
+            throw malformed("value");
+        }
+        if(buffer[position] == 'n') {
+            position += 4;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Skips the next value, including all nested values. The value is not decoded.
+     */
+    @Override
+    public void skipValue() {
+        if(skipWhitespace() >= end) {
+            throw malformed("value");
+        }
+        byte next = buffer[position++];
+        if(next == '"') {
+            skipString();
+            return;
+        }
+        if(next != '{' && next != '[') {
+            while(position < end && (isNumberPart(buffer[position]) || isLetter(buffer[position]))) {
+                position++;
+            }
+            return;
+        }
+        int depth = 1;
+        while(depth > 0) {
+            if(position >= end) {
+                throw malformed("end of value");
+            }
+            next = buffer[position++];
+            if(next == '"') {
+                skipString();
+            } else if(next == '{' || next == '[') {
+                depth++;
+            } else if(next == '}' || next == ']') {
+                depth--;
+            }
+        }
+    }
+
+    /**
+     * Skips the whitespace and separators before the next token.
+     * @return The new position.
+     */
+    private int skipWhitespace() {
+        while(position < end) {
+            byte next = buffer[position];
+            if(next != ' ' && next != '\n' && next != '\r' && next != '\t' && next != ',' && next != ':') {
+                break;
+            }
+            position++;
+        }
+        return position;
+    }
+
+    private void expect(char token) {
+        if(skipWhitespace() >= end || buffer[position] != token) {
+            throw malformed("'" + token + "'");
+        }
+        position++;
+    }
+
+    /**
+     * Skips the rest of a string, after the opening quote.
+     * Multi-byte UTF-8 sequences never contain quotes or backslashes, so they do not need to be decoded.
+     * @return True if the string contained escape sequences.
+     */
+    private boolean skipString() {
+        boolean escaped = false;
+        while(true) {
+            if(position >= end) {
+                throw malformed("end of string");
+            }
+            byte next = buffer[position++];
+            if(next == '"') {
+                return escaped;
+            }
+            if(next == '\\') {
+                escaped = true;
+                position++;
+            }
+        }
+    }
+
+    /**
+     * Decodes a string with escape sequences.
+     * @param start The start of the string, after the opening quote.
+     * @param stop The end of the string, the position of the closing quote.
+     * @return The string.
+     */
+    private String decode(int start, int stop) {
+        StringBuilder builder = new StringBuilder(stop - start);
+        int run = start;
+        int index = start;
+        while(index < stop) {
+            if(buffer[index] != '\\') {
+                index++;
+                continue;
+            }
+            builder.append(new String(buffer, run, index - run, StandardCharsets.UTF_8));
+            char escape = (char) buffer[index + 1];
+            index += 2;
+            switch(escape) {
+                case 'b':
+                    builder.append('\b');
+                    break;
+                case 'f':
+                    builder.append('\f');
+                    break;
+                case 'n':
+                    builder.append('\n');
+                    break;
+                case 'r':
+                    builder.append('\r');
+                    break;
+                case 't':
+                    builder.append('\t');
+                    break;
+                case 'u':
+                    builder.append((char) Integer.parseInt(new String(buffer, index, 4, StandardCharsets.US_ASCII), 16));
+                    index += 4;
+                    break;
+                default: // Quote, backslash and slash.
+                    builder.append(escape);
+                    break;
+            }
+            run = index;
+        }
+        builder.append(new String(buffer, run, stop - run, StandardCharsets.UTF_8));
+        return builder.toString();
+    }
+
+    private IllegalStateException malformed(String expected) {
+        return new IllegalStateException("malformed JSON, expected " + expected + " at position " + position);
+    }
+
+    private static boolean isNumberPart(byte next) {
+        return (next >= '0' && next <= '9') || next == '.' || next == '-' || next == '+' || next == 'e' || next == 'E';
+    }
+
+    private static boolean isLetter(byte next) {
+        return next >= 'a' && next <= 'z';
+    }
+
+}
@@ -17,15 +17,50 @@
 package com.github.lldjw.internal.log;
 
 import com.github.lldjw.api.log.LLDJWLog;
+import com.github.lldjw.api.log.LLDJWLogDropPolicy;
 import com.github.lldjw.api.log.LLDJWLogLevel;
 
 /**
  * This logger prints to STDOUT; it is a very basic implementation.
  * For anything remotely more configurable, consider using Logback/SLF4J and {@link LogSLF4J}.
+ *
+ * By default, messages are printed by the calling thread. Alternatively, messages can be enqueued in a bounded
+ * ring buffer, and formatted and printed by a background thread, see {@link #Log(int, LLDJWLogDropPolicy)}.
+ * Note that the formatting objects are then formatted later, so they should not be mutated after logging.
+ * An asynchronous logger has to be closed (see {@link #close()}) to stop its thread; messages that are logged
+ * afterwards are printed by the calling thread.
  */
 public final class Log implements LLDJWLog {
 
-    private LLDJWLogLevel level = LLDJWLogLevel.INFO;
+    private volatile LLDJWLogLevel level = LLDJWLogLevel.INFO;
+    private final LogRingBuffer buffer;
+    private final LLDJWLogDropPolicy dropPolicy;
+
+    /**
+     * Creates a new synchronous logger.
+     */
+    public Log() {
+        this.buffer = null;
+        this.dropPolicy = null;
+    }
+
+    /**
+     * Creates a new asynchronous logger.
+     * @param capacity The maximum amount of pending messages, rounded up to a power of two.
+     * @param dropPolicy What to do when the buffer is full.
+     * @throws IllegalArgumentException If the capacity is not positive.
+     * @throws NullPointerException If the drop policy is null.
+     */
+    public Log(int capacity, LLDJWLogDropPolicy dropPolicy) {
+        if(capacity <= 0) {
+            throw new IllegalArgumentException("capacity is not positive");
+        }
+        if(dropPolicy == null) {
+            throw new NullPointerException("drop policy is null");
+        }
+        this.buffer = new LogRingBuffer(capacity, slot -> print(slot.level, slot.message, slot.format));
+        this.dropPolicy = dropPolicy;
+    }
 
     /**
      * Sets the log level.
@@ -33,9 +68,25 @@ public final class Log implements LLDJWLog {
      */
     @Override
     public void setLevel(LLDJWLogLevel level) {
+        if(level == null) {
+            throw new NullPointerException("level is null");
+        }
         this.level = level;
     }
 
+    /**
+     * Whether or not the level is included in the current log level.
+     * The hierarchy can be seen in the declaration of {@link LLDJWLogLevel};
+     * every level also includes the levels <b>before</b> (lower ordinal) it. {@link LLDJWLogLevel#NONE} logs nothing.
+     * @param level The log level that LLDJW has assigned to the message.
+     * @return True if it will be logged, false otherwise.
+     */
+    @Override
+    public boolean isEnabled(LLDJWLogLevel level) {
+        LLDJWLogLevel current = this.level;
+        return current != LLDJWLogLevel.NONE && level != LLDJWLogLevel.NONE && level.ordinal() <= current.ordinal();
+    }
+
     /**
      * Logs the message if the current log level is higher than that of the assigned level.
      * For example, a log on {@link LLDJWLogLevel#INFO} will also log {@link LLDJWLogLevel#FATAL}.
@@ -48,13 +99,36 @@ public final class Log implements LLDJWLog {
      */
     @Override
     public void log(LLDJWLogLevel level, String message, Object... format) {
-        if(level.ordinal() <= this.level.ordinal()) {
-            System.out.println(new StringBuilder("[")
-                    .append(level)
-                    .append("] ")
-                    .append(String.format(message, (Object[]) format))
-            );
+        if(!isEnabled(level)) {
+            return;
+        }
+        if(buffer == null || buffer.isClosed()) {
+            print(level, message, format);
+        } else if(!buffer.offer(level, message, format)) {
+            if(dropPolicy == LLDJWLogDropPolicy.CALLER_RUNS) {
+                print(level, message, format);
+            } else {
+                buffer.drop();
+            }
         }
     }
 
+    /**
+     * Prints the pending messages, and stops the background thread of an asynchronous logger.
+     * Does nothing for a synchronous logger.
+     */
+    public void close() {
+        if(buffer != null) {
+            buffer.close();
+        }
+    }
+
+    private static void print(LLDJWLogLevel level, String message, Object[] format) {
+        System.out.println(new StringBuilder("[")
+                .append(level)
+                .append("] ")
+                .append(String.format(message, (Object[]) format))
+        );
+    }
+
 }
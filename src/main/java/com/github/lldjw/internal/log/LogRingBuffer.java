@@ -0,0 +1,199 @@
+/*
+ * This file is part of the LLDJW distribution (https://github.com/LLDJW/LLDJW).
+ * Copyright (c) 2020 LLDJW Contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.lldjw.internal.log;
+
+import com.github.lldjw.api.log.LLDJWLogLevel;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * A bounded, lock-free ring buffer of log messages, with multiple producers and a single consumer thread.
+ * The slots are allocated up front and reused, so enqueueing a message does not allocate;
+ * formatting and writing happen on the consumer thread.
+ *
+ * Every slot has a sequence number that tells producers and the consumer whether it is free or filled
+ * (the bounded queue design by Dmitry Vyukov). When the buffer is full, {@link #offer} fails
+ * and the caller applies its drop policy.
+ *
+ * {@link #close()} stops the consumer once it has written the pending messages; afterwards {@link #offer} fails.
+ * A message that is offered concurrently with closing may not be written.
+ */
+final class LogRingBuffer {
+
+    private static final long IDLE_PARK = 100_000_000L; // 100ms, producers unpark the consumer when it sleeps.
+
+    private final Slot[] slots;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final Consumer<Slot> writer;
+    private final Slot notice = new Slot(); // Only accessed by the consumer.
+    private final Thread consumer;
+    private volatile boolean sleeping;
+    private volatile boolean closed;
+    private long head; // Only accessed by the consumer.
+
+    /**
+     * Creates a new ring buffer, and starts its consumer thread.
+     * @param capacity The capacity, which is rounded up to a power of two.
+     * @param writer Formats and writes a message, invoked on the consumer thread.
+     */
+    LogRingBuffer(int capacity, Consumer<Slot> writer) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.slots = new Slot[size];
+        this.sequences = new AtomicLongArray(size);
+        this.mask = size - 1;
+        for(int i = 0; i < size; i++) {
+            slots[i] = new Slot();
+            sequences.set(i, i);
+        }
+        this.writer = writer;
+        notice.level = LLDJWLogLevel.INFO;
+        notice.message = "%d log messages were dropped, the buffer was full";
+        this.consumer = new Thread(this::consume, "LLDJW-Log");
+        consumer.setDaemon(true);
+        consumer.start();
+    }
+
+    /**
+     * Enqueues a message.
+     * @param level The level.
+     * @param message The message.
+     * @param format The formatting objects.
+     * @return True if it was enqueued, false if the buffer is full or closed.
+     */
+    boolean offer(LLDJWLogLevel level, String message, Object[] format) {
+        if(closed) {
+            return false;
+        }
+        long position = tail.get();
+        while(true) {
+            int index = (int) position & mask;
+            long difference = sequences.get(index) - position;
+            if(difference == 0) {
+                if(tail.compareAndSet(position, position + 1)) {
+                    Slot slot = slots[index];
+                    slot.level = level;
+                    slot.message = message;
+                    slot.format = format;
+                    sequences.set(index, position + 1); // Publishes the slot to the consumer.
+                    if(sleeping) {
+                        LockSupport.unpark(consumer);
+                    }
+                    return true;
+                }
+                position = tail.get();
+            } else if(difference < 0) {
+                return false;
+            } else {
+                position = tail.get();
+            }
+        }
+    }
+
+    /**
+     * Counts a message that was dropped because the buffer was full.
+     */
+    void drop() {
+        dropped.incrementAndGet();
+    }
+
+    /**
+     * Whether or not the buffer was closed.
+     * @return True if it was, false otherwise.
+     */
+    boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Closes the buffer, and waits until the consumer has written the pending messages and stopped.
+     * Does nothing if it is already closed.
+     */
+    void close() {
+        if(closed) {
+            return;
+        }
+        closed = true;
+        LockSupport.unpark(consumer);
+        if(Thread.currentThread() == consumer) { // Closed by the writer, it stops after this message.
+            return;
+        }
+        boolean interrupted = false;
+        while(consumer.isAlive()) {
+            try {
+                consumer.join();
+            } catch(InterruptedException exception) {
+                interrupted = true;
+            }
+        }
+        if(interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void consume() {
+        while(true) {
+            int index = (int) head & mask;
+            if(sequences.get(index) != head + 1) {
+                if(closed) { // Drained.
+                    return;
+                }
+                sleeping = true;
+                if(sequences.get(index) != head + 1) { // Re-check, a producer may not have seen the flag.
+                    LockSupport.parkNanos(this, IDLE_PARK);
+                }
+                sleeping = false;
+                continue;
+            }
+            Slot slot = slots[index];
+            try {
+                writer.accept(slot);
+            } catch(Throwable ignored) { // A faulty toString must not stop the consumer.
+            }
+            slot.level = null;
+            slot.message = null;
+            slot.format = null;
+            sequences.set(index, head + slots.length); // Frees the slot for the next lap.
+            head++;
+            long lost = dropped.getAndSet(0);
+            if(lost > 0) { // Not written to the freed slot, which a producer may already be filling.
+                notice.format = new Object[] {lost};
+                try {
+                    writer.accept(notice);
+                } catch(Throwable ignored) {
+                }
+            }
+        }
+    }
+
+    /**
+     * A reusable slot of the ring buffer.
+     */
+    static final class Slot {
+
+        LLDJWLogLevel level;
+        String message;
+        Object[] format;
+
+    }
+
+}
@@ -64,19 +64,41 @@ public class LogSLF4J implements LLDJWLog {
         ((ch.qos.logback.classic.Logger) logger).setLevel(equivalence); // Set the level at runtime.
     }
 
+    /**
+     * Whether or not Logback's logger is enabled for the mapped level.
+     * @param level The log level that LLDJW has assigned to the message.
+     * @return True if it is, false otherwise.
+     */
+    @Override
+    public boolean isEnabled(LLDJWLogLevel level) {
+        switch(level) {
+            case FATAL:
+                return logger.isErrorEnabled();
+            case INFO:
+                return logger.isInfoEnabled();
+            case TRACE:
+                return logger.isTraceEnabled();
+            default:
+                return false;
+        }
+    }
+
     /**
      * Calls log function in Logback's logger.
      * The following mappings will be used (LLDJW -> Logback):
      * - {@link LLDJWLogLevel#FATAL} -> ERROR
      * - {@link LLDJWLogLevel#INFO} -> INFO
      * - {@link LLDJWLogLevel#TRACE} -> TRACE
-     * {@link LLDJWLogLevel#NONE} will just be ignored.
+     * {@link LLDJWLogLevel#NONE} will just be ignored, and the message is not formatted if the level is disabled.
      * @param level The log level that LLDJW has assigned to this message.
      * @param message The message.
      * @param format Any formatting objects, may be empty.
      */
     @Override
     public void log(LLDJWLogLevel level, String message, Object... format) {
+        if(!isEnabled(level)) {
+            return;
+        }
         // Format manually due to incompatibilities with Logback's format
         String formatted = String.format(message, (Object[]) format);
 
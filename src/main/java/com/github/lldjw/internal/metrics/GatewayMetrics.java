@@ -0,0 +1,136 @@
+/*
+ * This file is part of the LLDJW distribution (https://github.com/LLDJW/LLDJW).
+ * Copyright (c) 2020 LLDJW Contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.lldjw.internal.metrics;
+
+import com.github.lldjw.api.metrics.HistogramSnapshot;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The metrics of a gateway connection and the dispatches it receives.
+ * Event types are interned by the payload readers, so counting a known type does not allocate.
+ */
+public final class GatewayMetrics {
+
+    private final Histogram heartbeats = new Histogram();
+    private final LongAdder reconnects = new LongAdder();
+    private final Histogram lags = new Histogram();
+    private final ConcurrentHashMap<String, LongAdder> dispatches = new ConcurrentHashMap<>();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder merged = new LongAdder();
+
+    /**
+     * Records the time between a heartbeat and its acknowledgement.
+     * @param nanos The time in nanoseconds.
+     */
+    public void acknowledged(long nanos) {
+        heartbeats.record(nanos);
+    }
+
+    /**
+     * Records a connection that is opened again, because it was lost or Discord requested it.
+     */
+    public void reconnected() {
+        reconnects.increment();
+    }
+
+    /**
+     * Records a dispatch that was received.
+     * @param type The event type.
+     * @param drop True if it was dropped before its data was read.
+     */
+    public void received(String type, boolean drop) {
+        LongAdder counter = dispatches.get(type);
+        if(counter == null) {
+            counter = dispatches.computeIfAbsent(type, key -> new LongAdder());
+        }
+        counter.increment();
+        if(drop) {
+            dropped.increment();
+        }
+    }
+
+    /**
+     * Records a dispatch that was merged into a later dispatch of the same kind, and is not processed itself.
+     */
+    public void merged() {
+        merged.increment();
+    }
+
+    /**
+     * Records the time from receiving a dispatch until the cache and all event handlers processed it.
+     * @param nanos The time in nanoseconds.
+     */
+    public void dispatched(long nanos) {
+        lags.record(nanos);
+    }
+
+    /**
+     * Takes a snapshot of the heartbeat acknowledgement latencies.
+     * @return The snapshot.
+     */
+    public HistogramSnapshot heartbeats() {
+        return heartbeats.snapshot();
+    }
+
+    /**
+     * Gets the amount of reconnections.
+     * @return The amount.
+     */
+    public long reconnects() {
+        return reconnects.sum();
+    }
+
+    /**
+     * Takes a snapshot of the dispatch lags.
+     * @return The snapshot.
+     */
+    public HistogramSnapshot lags() {
+        return lags.snapshot();
+    }
+
+    /**
+     * Takes a snapshot of the received dispatches.
+     * @return The amounts by event type, sorted by type.
+     */
+    public Map<String, Long> dispatches() {
+        Map<String, Long> snapshot = new TreeMap<>();
+        dispatches.forEach((type, counter) -> snapshot.put(type, counter.sum()));
+        return Collections.unmodifiableMap(snapshot);
+    }
+
+    /**
+     * Gets the amount of dispatches that were dropped before their data was read.
+     * @return The amount.
+     */
+    public long dropped() {
+        return dropped.sum();
+    }
+
+    /**
+     * Gets the amount of dispatches that were merged into a later dispatch.
+     * @return The amount.
+     */
+    public long merges() {
+        return merged.sum();
+    }
+
+}
@@ -0,0 +1,132 @@
+/*
+ * This file is part of the LLDJW distribution (https://github.com/LLDJW/LLDJW).
+ * Copyright (c) 2020 LLDJW Contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.lldjw.internal.metrics;
+
+import com.github.lldjw.api.metrics.HistogramSnapshot;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A concurrent histogram of durations in nanoseconds, with log-linear buckets in the style of HdrHistogram.
+ * Values below 64 have a bucket each; above that, every power of two is split into 32 linear buckets,
+ * so a recorded value is off by at most 1/32 (about 3%). The buckets cover all positive longs with 1888 counters.
+ *
+ * Recording never allocates and never locks, it increments a counter of the bucket and updates the totals.
+ * A snapshot reads the counters without stopping recorders, so it may miss values recorded concurrently.
+ */
+public final class Histogram {
+
+    private static final int SUB_BITS = 5;
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+    private static final int BUCKETS = (62 - SUB_BITS) * SUB_COUNT + 2 * SUB_COUNT;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Records a single value.
+     * @param value The value, negative values (for example from a clock that went backwards) are recorded as 0.
+     */
+    public void record(long value) {
+        if(value < 0) {
+            value = 0;
+        }
+        counts.incrementAndGet(index(value));
+        count.incrementAndGet();
+        sum.addAndGet(value);
+        long current;
+        while(value > (current = max.get()) && !max.compareAndSet(current, value)) {
+            // Retry, another value was recorded concurrently.
+        }
+    }
+
+    /**
+     * Gets the amount of recorded values.
+     * @return The amount.
+     */
+    public long count() {
+        return count.get();
+    }
+
+    /**
+     * Takes a snapshot of the recorded values.
+     * @return The snapshot.
+     */
+    public HistogramSnapshot snapshot() {
+        long[] copy = new long[BUCKETS];
+        long total = 0;
+        for(int i = 0; i < BUCKETS; i++) {
+            copy[i] = counts.get(i);
+            total += copy[i];
+        }
+        long highest = max.get();
+        return new HistogramSnapshot(total, total == 0 ? 0 : sum.get() / Math.max(1, count.get()), highest,
+                percentile(copy, total, 0.5, highest), percentile(copy, total, 0.9, highest),
+                percentile(copy, total, 0.99, highest), percentile(copy, total, 0.999, highest));
+    }
+
+    /**
+     * Gets the bucket of a value.
+     * @param value The value, not negative.
+     * @return The index of the bucket.
+     */
+    static int index(long value) {
+        int shift = Math.max(0, 63 - Long.numberOfLeadingZeros(value) - SUB_BITS);
+        return (shift << SUB_BITS) + (int) (value >>> shift);
+    }
+
+    /**
+     * Gets the highest value that is recorded in a bucket.
+     * @param index The index of the bucket.
+     * @return The value.
+     */
+    static long highest(int index) {
+        if(index < 2 * SUB_COUNT) {
+            return index;
+        }
+        int shift = (index >>> SUB_BITS) - 1;
+        long lowest = (long) (index - (shift << SUB_BITS)) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+
+    /**
+     * Finds the value below which a ratio of the values lie, as the highest value of its bucket.
+     * @param counts The counts of the buckets.
+     * @param total The amount of values.
+     * @param ratio The ratio, in (0, 1].
+     * @param max The highest recorded value, which caps the result.
+     * @return The value, or 0 if there are no values.
+     */
+    private static long percentile(long[] counts, long total, double ratio, long max) {
+        if(total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(total * ratio));
+        long seen = 0;
+        for(int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if(seen >= rank) {
+                return Math.min(highest(i), max);
+            }
+        }
+        return max;
+    }
+
+}
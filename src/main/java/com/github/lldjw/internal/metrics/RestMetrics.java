@@ -0,0 +1,101 @@
+/*
+ * This file is part of the LLDJW distribution (https://github.com/LLDJW/LLDJW).
+ * Copyright (c) 2020 LLDJW Contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.lldjw.internal.metrics;
+
+import com.github.lldjw.api.metrics.HistogramSnapshot;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The metrics of a REST handler: the latency of every route, and how much the rate limits slow requests down.
+ * Since shards may share a REST handler, they also share these metrics.
+ * Requests are grouped by their template (see {@link com.github.lldjw.internal.rest.RateLimiter#template}),
+ * so that the amount of histograms does not grow with the amount of channels and guilds.
+ */
+public final class RestMetrics {
+
+    private final ConcurrentHashMap<String, Histogram> latencies = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, LongAdder> rateLimited = new ConcurrentHashMap<>();
+    private final Histogram waits = new Histogram();
+
+    /**
+     * Records the latency of a single HTTP call, without the time spent waiting for the rate limits.
+     * Once the template is known, this does not allocate.
+     * @param route The template of the request.
+     * @param nanos The latency in nanoseconds.
+     */
+    public void requested(String route, long nanos) {
+        Histogram histogram = latencies.get(route);
+        if(histogram == null) {
+            histogram = latencies.computeIfAbsent(route, key -> new Histogram());
+        }
+        histogram.record(nanos);
+    }
+
+    /**
+     * Records a response with the status 429.
+     * @param route The template of the request.
+     */
+    public void rateLimited(String route) {
+        LongAdder counter = rateLimited.get(route);
+        if(counter == null) {
+            counter = rateLimited.computeIfAbsent(route, key -> new LongAdder());
+        }
+        counter.increment();
+    }
+
+    /**
+     * Records the time a request waited for its bucket and the global rate limit.
+     * @param nanos The time in nanoseconds.
+     */
+    public void waited(long nanos) {
+        waits.record(nanos);
+    }
+
+    /**
+     * Takes a snapshot of the latencies.
+     * @return The latencies by template, sorted by template.
+     */
+    public Map<String, HistogramSnapshot> latencies() {
+        Map<String, HistogramSnapshot> snapshot = new TreeMap<>();
+        latencies.forEach((route, histogram) -> snapshot.put(route, histogram.snapshot()));
+        return Collections.unmodifiableMap(snapshot);
+    }
+
+    /**
+     * Takes a snapshot of the responses with the status 429.
+     * @return The amounts by template, sorted by template.
+     */
+    public Map<String, Long> rateLimited() {
+        Map<String, Long> snapshot = new TreeMap<>();
+        rateLimited.forEach((route, counter) -> snapshot.put(route, counter.sum()));
+        return Collections.unmodifiableMap(snapshot);
+    }
+
+    /**
+     * Takes a snapshot of the time spent waiting for the rate limits.
+     * @return The snapshot.
+     */
+    public HistogramSnapshot waits() {
+        return waits.snapshot();
+    }
+
+}
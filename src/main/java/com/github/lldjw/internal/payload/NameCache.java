@@ -0,0 +1,90 @@
+/*
+ * This file is part of the LLDJW distribution (https://github.com/LLDJW/LLDJW).
+ * Copyright (c) 2020 LLDJW Contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.lldjw.internal.payload;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Interns short strings, such as object keys and event types, so that reading them does not allocate.
+ * It is shared by all payload readers, as the keys are the same regardless of the encoding.
+ * The cache is a fixed size, direct-mapped table; a collision simply replaces the previous entry.
+ * Entries are immutable, so the table can be read and written concurrently without locking.
+ */
+public final class NameCache {
+
+    private static final int SIZE = 2048;
+    private static final int MAX_LENGTH = 48;
+    private static final Entry[] TABLE = new Entry[SIZE];
+
+    private NameCache() {}
+
+    /**
+     * Gets the string of the UTF-8 bytes.
+     * @param buffer The buffer.
+     * @param offset The offset of the string.
+     * @param length The length of the string, in bytes.
+     * @return The string.
+     */
+    public static String get(byte[] buffer, int offset, int length) {
+        if(length > MAX_LENGTH) {
+            return new String(buffer, offset, length, StandardCharsets.UTF_8);
+        }
+        int hash = length;
+        for(int i = offset; i < offset + length; i++) {
+            hash = 31 * hash + buffer[i];
+        }
+        int index = (hash ^ (hash >>> 16)) & (SIZE - 1);
+        Entry entry = TABLE[index];
+        if(entry != null && entry.hash == hash && entry.matches(buffer, offset, length)) {
+            return entry.value;
+        }
+        entry = new Entry(buffer, offset, length, hash);
+        TABLE[index] = entry;
+        return entry.value;
+    }
+
+    /**
+     * An interned string, and its bytes.
+     */
+    private static final class Entry {
+
+        private final byte[] bytes;
+        private final String value;
+        private final int hash;
+
+        private Entry(byte[] buffer, int offset, int length, int hash) {
+            this.bytes = new byte[length];
+            System.arraycopy(buffer, offset, bytes, 0, length);
+            this.value = new String(bytes, StandardCharsets.UTF_8);
+            this.hash = hash;
+        }
+
+        private boolean matches(byte[] buffer, int offset, int length) {
+            if(bytes.length != length) {
+                return false;
+            }
+            for(int i = 0; i < length; i++) {
+                if(bytes[i] != buffer[offset + i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+    }
+
+}
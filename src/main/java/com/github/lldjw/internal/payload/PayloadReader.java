@@ -0,0 +1,173 @@
+/*
+ * This file is part of the LLDJW distribution (https://github.com/LLDJW/LLDJW).
+ * Copyright (c) 2020 LLDJW Contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.lldjw.internal.payload;
+
+import de.arraying.kotys.JSON;
+
+/**
+ * A pull parser over a gateway payload, independent of its encoding.
+ * Values are read one by one, without building a tree; values that are not needed are skipped.
+ * The payload is modelled as JSON: objects with string keys, arrays, strings, numbers, booleans and null.
+ *
+ * Readers are not thread safe, and the underlying buffer must not change while it is being read.
+ * Malformed input results in an {@link IllegalStateException}.
+ */
+public interface PayloadReader {
+
+    /**
+     * Gets the current position, which can be passed to {@link #seek(int)}.
+     * @return The position.
+     */
+    int position();
+
+    /**
+     * Moves the reader to a position that was previously returned by {@link #position()}, in the same
+     * object or array. This allows a value to be read multiple times, for example to find a key that is needed first.
+     * @param position The position.
+     */
+    void seek(int position);
+
+    /**
+     * Creates a reader over the next value, and skips it in this reader.
+     * The new reader shares the buffer.
+     * @return The reader.
+     */
+    PayloadReader slice();
+
+    /**
+     * Creates a reader over a copy of the next value, and skips it in this reader.
+     * Unlike {@link #slice()}, the new reader does not share the buffer, so it remains valid after the buffer is
+     * reused, for example to process the value later.
+     * @return The reader.
+     */
+    PayloadReader copy();
+
+    /**
+     * Reads the next value into a Kotys tree, as it would be decoded from JSON.
+     * This is mostly useful for values that are rarely needed.
+     * @return The JSON object, or null if the value is null.
+     */
+    JSON nextJSON();
+
+    /**
+     * Peeks at the type of the next value.
+     * @return The token.
+     */
+    Token peek();
+
+    /**
+     * Consumes the start of an object.
+     */
+    void beginObject();
+
+    /**
+     * Consumes the end of an object.
+     */
+    void endObject();
+
+    /**
+     * Consumes the start of an array.
+     */
+    void beginArray();
+
+    /**
+     * Consumes the end of an array.
+     */
+    void endArray();
+
+    /**
+     * Whether or not the current object or array has another element.
+     * @return True if it does, false if the end is next.
+     */
+    boolean hasNext();
+
+    /**
+     * Reads the next key of an object. Keys are interned, so this does not allocate for known keys.
+     * @return The key.
+     */
+    String nextName();
+
+    /**
+     * Reads the next string, and interns it. This should only be used for strings with few distinct values,
+     * such as event types.
+     * @return The string, or null if the value is null.
+     */
+    String nextInterned();
+
+    /**
+     * Reads the next string.
+     * @return The string, or null if the value is null.
+     */
+    String nextString();
+
+    /**
+     * Reads the next integer. Integers sent as strings (snowflakes) are supported, fractions are truncated.
+     * @return The integer, or 0 if the value is null.
+     */
+    long nextLong();
+
+    /**
+     * Reads the next snowflake, which is sent as a string or as an integer, depending on the encoding.
+     * @return The snowflake, or 0 if the value is null.
+     */
+    default long nextSnowflake() {
+        return nextLong();
+    }
+
+    /**
+     * Reads the next integer.
+     * @return The integer, or 0 if the value is null.
+     */
+    default int nextInt() {
+        return (int) nextLong();
+    }
+
+    /**
+     * Reads the next boolean.
+     * @return The boolean, or false if the value is null.
+     */
+    boolean nextBoolean();
+
+    /**
+     * Consumes the next value if it is null.
+     * @return True if the value was null (and consumed), false otherwise.
+     */
+    boolean nextNull();
+
+    /**
+     * Skips the next value, including all nested values. The value is not decoded.
+     */
+    void skipValue();
+
+    /**
+     * The type of a value.
+     */
+    enum Token {
+
+        BEGIN_OBJECT,
+        END_OBJECT,
+        BEGIN_ARRAY,
+        END_ARRAY,
+        STRING,
+        NUMBER,
+        BOOLEAN,
+        NULL,
+        END
+
+    }
+
+}
@@ -0,0 +1,60 @@
+/*
+ * This file is part of the LLDJW distribution (https://github.com/LLDJW/LLDJW).
+ * Copyright (c) 2020 LLDJW Contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.lldjw.internal.rest;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * AsyncRestTask is a REST request that completes by itself, instead of being run on an executor.
+ * This is used for requests that are batched with others: the caller should not occupy a thread while the batch
+ * is collected, the batch is sent by a single thread for all of its callers.
+ * @param <T> The type of the return value.
+ */
+public interface AsyncRestTask<T> extends RestTask<T> {
+
+    /**
+     * Starts the REST request, without blocking.
+     * @return The future of the return value, which completes exceptionally if an error occurs.
+     */
+    CompletableFuture<T> start();
+
+    /**
+     * Starts the REST request, and waits for it.
+     * @return The return value, null if there is no return value.
+     * @throws Throwable If an error occurs.
+     */
+    @Override
+    default T execute() throws Throwable {
+        try {
+            return start().get();
+        } catch(ExecutionException exception) {
+            throw exception.getCause();
+        }
+    }
+
+    /**
+     * Gets the actual error of a future that completed exceptionally.
+     * @param throwable The error passed to a dependent stage of the future.
+     * @return The actual error.
+     */
+    static Throwable unwrap(Throwable throwable) {
+        return throwable instanceof CompletionException && throwable.getCause() != null ? throwable.getCause() : throwable;
+    }
+
+}
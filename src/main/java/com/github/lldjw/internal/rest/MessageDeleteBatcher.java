@@ -0,0 +1,222 @@
+/*
+ * This file is part of the LLDJW distribution (https://github.com/LLDJW/LLDJW).
+ * Copyright (c) 2020 LLDJW Contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.lldjw.internal.rest;
+
+import com.github.lldjw.internal.Snowflake;
+import com.github.lldjw.internal.gateway.ControlExecutor;
+import com.github.lldjw.internal.gateway.TimerWheel;
+import de.arraying.kotys.JSON;
+import de.arraying.kotys.JSONArray;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Collects the deletions of single messages over a short window, and sends the deletions in the same channel
+ * as one bulk delete. A bulk delete costs a single request (and rate limit budget) for up to
+ * {@link #BATCH_MAX} messages, instead of one request each.
+ *
+ * Discord only bulk deletes messages that are younger than two weeks, and rejects the entire batch otherwise,
+ * or if it contains a single invalid message. Older messages (by the time in their snowflake) are therefore
+ * deleted on their own, and a rejected batch (400 Bad Request) is retried message by message, so that every caller
+ * gets the result of its own message. Any other error, such as missing permissions, fails every message of the batch
+ * with it, instead of sending a request per message that would fail the same way.
+ * A window with a single message is deleted on its own as well.
+ *
+ * Callers never wait on a thread: batches are flushed by the shared {@link TimerWheel}, or as soon as they are full,
+ * and sent on the executor. The timer hands the flush to the {@link ControlExecutor}, so that a full caller-runs
+ * executor never runs a batch on the timer thread. A batch is only handed to the executor after its lock is released,
+ * so a batch that a full executor runs on the calling thread does not block the other callers in the channel.
+ */
+public final class MessageDeleteBatcher {
+
+    /**
+     * The default window, in milliseconds.
+     */
+    public static final long WINDOW_DEFAULT = 50;
+
+    /**
+     * The maximum amount of messages in a bulk delete.
+     */
+    public static final int BATCH_MAX = 100;
+
+    private static final long AGE_MAX = TimeUnit.DAYS.toMillis(14) - TimeUnit.MINUTES.toMillis(1); // Some leeway.
+
+    private final Supplier<RestHandler> rest;
+    private final Supplier<Executor> executor;
+    private final TimerWheel timers = TimerWheel.shared();
+    private final Executor control = ControlExecutor.shared();
+    private final ConcurrentHashMap<Long, Batch> batches = new ConcurrentHashMap<>();
+    private volatile long window = WINDOW_DEFAULT;
+
+    /**
+     * Creates a new batcher.
+     * @param rest Gets the current REST handler.
+     * @param executor Gets the current executor, which sends the requests.
+     */
+    public MessageDeleteBatcher(Supplier<RestHandler> rest, Supplier<Executor> executor) {
+        this.rest = rest;
+        this.executor = executor;
+    }
+
+    /**
+     * Sets the window, during which the deletions in a channel are collected.
+     * @param window The window in milliseconds, 0 to delete every message on its own.
+     */
+    public void setWindow(long window) {
+        this.window = window;
+    }
+
+    /**
+     * Deletes a message, in a batch if possible.
+     * @param channel The ID of the channel.
+     * @param message The ID of the message.
+     * @return The future, which completes once the message was deleted.
+     */
+    public CompletableFuture<Void> delete(long channel, long message) {
+        long window = this.window;
+        if(window <= 0 || System.currentTimeMillis() - Snowflake.timestamp(message) > AGE_MAX) {
+            CompletableFuture<Void> future = new CompletableFuture<>();
+            executor.get().execute(() -> deleteSingle(channel, message, future));
+            return future;
+        }
+        while(true) {
+            Batch batch = batches.computeIfAbsent(channel, Batch::new);
+            CompletableFuture<Void> future;
+            synchronized(batch) {
+                if(batch.closed) { // Flushed concurrently, a new batch is needed.
+                    continue;
+                }
+                future = batch.messages.get(message);
+                if(future != null) { // Discord rejects duplicates, the callers share the deletion.
+                    return future;
+                }
+                future = new CompletableFuture<>();
+                batch.messages.put(message, future);
+                if(batch.messages.size() < BATCH_MAX) {
+                    if(batch.timeout == null) {
+                        batch.timeout = timers.schedule(() -> control.execute(() -> expire(batch)), window);
+                    }
+                    return future;
+                }
+                if(batch.timeout != null) {
+                    batch.timeout.cancel();
+                }
+                close(batch);
+            }
+            send(batch);
+            return future;
+        }
+    }
+
+    private void expire(Batch batch) {
+        synchronized(batch) {
+            if(batch.closed) {
+                return;
+            }
+            close(batch);
+        }
+        send(batch);
+    }
+
+    /**
+     * Closes a batch, so that no messages are added anymore. Must be called while holding its lock.
+     * @param batch The batch.
+     */
+    private void close(Batch batch) {
+        batch.closed = true;
+        batches.remove(batch.channel, batch);
+    }
+
+    /**
+     * Sends a closed batch on the executor. Must be called without holding its lock, since a full executor
+     * may run it on the calling thread.
+     * @param batch The batch.
+     */
+    private void send(Batch batch) {
+        executor.get().execute(() -> flush(batch));
+    }
+
+    /**
+     * Sends a closed batch, and completes the futures of its messages.
+     * @param batch The batch.
+     */
+    private void flush(Batch batch) {
+        Map<Long, CompletableFuture<Void>> messages = batch.messages; // No longer modified once closed.
+        if(messages.size() == 1) {
+            Map.Entry<Long, CompletableFuture<Void>> entry = messages.entrySet().iterator().next();
+            deleteSingle(batch.channel, entry.getKey(), entry.getValue());
+            return;
+        }
+        JSONArray ids = new JSONArray();
+        for(long message : messages.keySet()) {
+            ids.append(Long.toString(message));
+        }
+        try {
+            rest.get().execute("POST", "channels/" + batch.channel + "/messages/bulk-delete",
+                    new JSON().put("messages", ids));
+            for(CompletableFuture<Void> future : messages.values()) {
+                future.complete(null);
+            }
+        } catch(RestException exception) {
+            if(exception.getCode() == 400) { // Rejected, find out which messages could not be deleted.
+                for(Map.Entry<Long, CompletableFuture<Void>> entry : messages.entrySet()) {
+                    deleteSingle(batch.channel, entry.getKey(), entry.getValue());
+                }
+                return;
+            }
+            for(CompletableFuture<Void> future : messages.values()) { // Would fail the same way for every message.
+                future.completeExceptionally(exception);
+            }
+        } catch(Throwable throwable) {
+            for(CompletableFuture<Void> future : messages.values()) {
+                future.completeExceptionally(throwable);
+            }
+        }
+    }
+
+    private void deleteSingle(long channel, long message, CompletableFuture<Void> future) {
+        try {
+            rest.get().execute("DELETE", "channels/" + channel + "/messages/" + message, null);
+            future.complete(null);
+        } catch(Throwable throwable) {
+            future.completeExceptionally(throwable);
+        }
+    }
+
+    /**
+     * The messages of a channel that are collected in the current window.
+     */
+    private static final class Batch {
+
+        private final long channel;
+        private final Map<Long, CompletableFuture<Void>> messages = new LinkedHashMap<>();
+        private TimerWheel.Timeout timeout;
+        private boolean closed;
+
+        private Batch(long channel) {
+            this.channel = channel;
+        }
+
+    }
+
+}
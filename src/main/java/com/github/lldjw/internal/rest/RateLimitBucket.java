@@ -0,0 +1,146 @@
+/*
+ * This file is part of the LLDJW distribution (https://github.com/LLDJW/LLDJW).
+ * Copyright (c) 2020 LLDJW Contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.lldjw.internal.rest;
+
+import okhttp3.Response;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A rate limit bucket for a single route and major parameter.
+ * Requests in the same bucket are executed one after another, in the order that they arrived (the lock is fair).
+ * The state is only read and modified while holding the lock.
+ *
+ * Idle buckets are retired by the {@link RateLimiter}, which removes them. A request that still finds a retired
+ * bucket fails to join its queue (see {@link #lock()}), and gets the bucket of its route again.
+ */
+final class RateLimitBucket {
+
+    private final ReentrantLock lock = new ReentrantLock(true);
+    private int limit = 1;
+    private int remaining = 1; // Unknown buckets let a single request through to discover the limit.
+    private long resetAt; // In System#nanoTime.
+    private boolean retired;
+
+    /**
+     * Joins the queue of this bucket.
+     * @return True if the bucket was joined, false if it was retired, in which case it is not locked.
+     * @throws InterruptedException If the thread is interrupted while waiting.
+     */
+    boolean lock() throws InterruptedException {
+        lock.lockInterruptibly();
+        if(retired) {
+            lock.unlock();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Leaves the queue of this bucket, allowing the next request to proceed.
+     */
+    void unlock() {
+        lock.unlock();
+    }
+
+    /**
+     * Retires the bucket if it is idle: no request holds it, and its reset has passed, so a new bucket for the
+     * route would not send more requests than this one. A retired bucket can not be joined anymore.
+     * @param now The current time, in System#nanoTime.
+     * @return True if it was retired, false if it is in use.
+     */
+    boolean retire(long now) {
+        if(!lock.tryLock()) {
+            return false;
+        }
+        try {
+            if(resetAt - now > 0) {
+                return false;
+            }
+            retired = true;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits until a request can be sent in this bucket, and then consumes it.
+     * @return The time waited, in nanoseconds.
+     * @throws InterruptedException If the thread is interrupted while waiting.
+     */
+    long acquire() throws InterruptedException {
+        long waited = 0;
+        if(remaining <= 0) {
+            waited = resetAt - System.nanoTime();
+            if(waited > 0) {
+                TimeUnit.NANOSECONDS.sleep(waited);
+            } else {
+                waited = 0;
+            }
+            remaining = limit;
+        }
+        remaining--;
+        return waited;
+    }
+
+    /**
+     * Updates the bucket based off of the X-RateLimit headers of the response.
+     * Responses without headers are considered to be unlimited.
+     * @param response The response.
+     */
+    void update(Response response) {
+        String remainingHeader = response.header("X-RateLimit-Remaining");
+        String resetAfterHeader = response.header("X-RateLimit-Reset-After");
+        if(remainingHeader == null || resetAfterHeader == null) {
+            limit = 1;
+            remaining = 1;
+            return;
+        }
+        try {
+            String limitHeader = response.header("X-RateLimit-Limit");
+            if(limitHeader != null) {
+                limit = Integer.parseInt(limitHeader);
+            }
+            remaining = Integer.parseInt(remainingHeader);
+            resetAt = System.nanoTime() + secondsToNanos(Double.parseDouble(resetAfterHeader));
+        } catch(NumberFormatException ignored) {
+            limit = 1;
+            remaining = 1;
+        }
+    }
+
+    /**
+     * Exhausts the bucket after a 429 that was not global.
+     * @param retryAfter The time until the bucket resets, in nanoseconds.
+     */
+    void exhaust(long retryAfter) {
+        remaining = 0;
+        resetAt = System.nanoTime() + retryAfter;
+    }
+
+    /**
+     * Converts (fractional) seconds, as sent by Discord, to nanoseconds.
+     * @param seconds The seconds.
+     * @return The nanoseconds.
+     */
+    static long secondsToNanos(double seconds) {
+        return (long) (seconds * TimeUnit.SECONDS.toNanos(1));
+    }
+
+}
@@ -0,0 +1,208 @@
+/*
+ * This file is part of the LLDJW distribution (https://github.com/LLDJW/LLDJW).
+ * Copyright (c) 2020 LLDJW Contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.lldjw.internal.rest;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The rate limiter keeps track of all rate limit buckets, as well as the global rate limit.
+ * Requests wait locally until they are allowed to be sent, instead of being rejected by Discord.
+ *
+ * Buckets are identified by their route, see {@link #route(String, String)}. Since there is a bucket per channel,
+ * guild and webhook, idle buckets are removed at most every {@link #SWEEP_INTERVAL} seconds, when a bucket is
+ * requested; a bucket is idle if no request uses it and its reset has passed.
+ * The global rate limit is enforced in two ways: a fixed window of requests per second,
+ * and a hard stop whenever Discord reports that the global limit has been hit.
+ */
+public final class RateLimiter {
+
+    /**
+     * The default amount of requests per second across all routes.
+     */
+    public static final int GLOBAL_LIMIT_DEFAULT = 50;
+
+    /**
+     * The minimum interval between removals of idle buckets, in seconds.
+     */
+    public static final long SWEEP_INTERVAL = 60;
+
+    private static final long WINDOW = TimeUnit.SECONDS.toNanos(1);
+
+    private final ConcurrentMap<String, RateLimitBucket> buckets = new ConcurrentHashMap<>();
+    private final Object globalMutex = new Object();
+    private final int globalLimit;
+    private final AtomicLong nextSweep = new AtomicLong(System.nanoTime() + TimeUnit.SECONDS.toNanos(SWEEP_INTERVAL));
+    private long windowStart = System.nanoTime();
+    private int windowCount;
+    private long globalResetAt; // In System#nanoTime, guarded by the mutex.
+
+    /**
+     * Creates a new rate limiter.
+     * @param globalLimit The amount of requests per second across all routes.
+     * @throws IllegalArgumentException If the limit is not positive.
+     */
+    public RateLimiter(int globalLimit) {
+        if(globalLimit <= 0) {
+            throw new IllegalArgumentException("global limit is not positive");
+        }
+        this.globalLimit = globalLimit;
+    }
+
+    /**
+     * Gets the bucket for the route, creating it if it does not exist.
+     * @param route The route.
+     * @return The bucket, never null.
+     */
+    RateLimitBucket bucket(String route) {
+        long now = System.nanoTime();
+        long sweep = nextSweep.get();
+        if(now - sweep >= 0 && nextSweep.compareAndSet(sweep, now + TimeUnit.SECONDS.toNanos(SWEEP_INTERVAL))) {
+            sweep(now);
+        }
+        return buckets.computeIfAbsent(route, key -> new RateLimitBucket());
+    }
+
+    /**
+     * Removes the idle buckets.
+     * @param now The current time, in System#nanoTime.
+     */
+    void sweep(long now) {
+        buckets.forEach((route, bucket) -> {
+            if(bucket.retire(now)) {
+                buckets.remove(route, bucket);
+            }
+        });
+    }
+
+    /**
+     * Gets the amount of buckets.
+     * @return The amount of buckets.
+     */
+    int size() {
+        return buckets.size();
+    }
+
+    /**
+     * Waits until the global rate limit allows another request, and then consumes it.
+     * @return The time waited, in nanoseconds.
+     * @throws InterruptedException If the thread is interrupted while waiting.
+     */
+    long acquireGlobal() throws InterruptedException {
+        long waited = 0;
+        while(true) {
+            long wait;
+            synchronized(globalMutex) {
+                long now = System.nanoTime();
+                wait = globalResetAt - now;
+                if(wait <= 0) {
+                    if(now - windowStart >= WINDOW) {
+                        windowStart = now;
+                        windowCount = 0;
+                    }
+                    if(windowCount < globalLimit) {
+                        windowCount++;
+                        return waited;
+                    }
+                    wait = windowStart + WINDOW - now;
+                }
+            }
+            TimeUnit.NANOSECONDS.sleep(wait);
+            waited += wait;
+        }
+    }
+
+    /**
+     * Stops all requests because Discord reported that the global rate limit was hit.
+     * @param retryAfter The time until requests can be sent again, in nanoseconds.
+     */
+    void lockGlobal(long retryAfter) {
+        synchronized(globalMutex) {
+            globalResetAt = Math.max(globalResetAt, System.nanoTime() + retryAfter);
+        }
+    }
+
+    /**
+     * Computes the route of a request, which identifies its bucket.
+     * All snowflakes are replaced by a placeholder, except those of the major parameters (channels, guilds, webhooks),
+     * since Discord rate limits these independently. For example, {@code DELETE channels/1/messages/2}
+     * becomes {@code DELETE channels/1/messages/:id}. The token of a webhook is always replaced (by {@code :token}),
+     * since routes end up in logs and exception messages.
+     * @param method The HTTP method.
+     * @param path The path, relative to the API base.
+     * @return The route.
+     */
+    public static String route(String method, String path) {
+        return route(method, path, true);
+    }
+
+    /**
+     * Computes the template of a request, in which all snowflakes are replaced by a placeholder.
+     * Unlike routes, the amount of templates is bounded, which is what metrics are grouped by.
+     * For example, {@code DELETE channels/1/messages/2} becomes {@code DELETE channels/:id/messages/:id}.
+     * @param method The HTTP method.
+     * @param path The path, relative to the API base.
+     * @return The template.
+     */
+    public static String template(String method, String path) {
+        return route(method, path, false);
+    }
+
+    private static String route(String method, String path, boolean major) {
+        int query = path.indexOf('?');
+        if(query != -1) {
+            path = path.substring(0, query);
+        }
+        StringBuilder route = new StringBuilder(method).append(' ');
+        String beforePrevious = null;
+        String previous = null;
+        for(String segment : path.split("/")) {
+            if(previous != null) {
+                route.append('/');
+            }
+            if(isSnowflake(segment) && !(major && isMajor(previous))) {
+                route.append(":id");
+            } else if("webhooks".equals(beforePrevious) && isSnowflake(previous)) { // webhooks/:id/:token
+                route.append(":token");
+            } else {
+                route.append(segment);
+            }
+            beforePrevious = previous;
+            previous = segment;
+        }
+        return route.toString();
+    }
+
+    private static boolean isMajor(String segment) {
+        return "channels".equals(segment) || "guilds".equals(segment) || "webhooks".equals(segment);
+    }
+
+    private static boolean isSnowflake(String segment) {
+        if(segment.isEmpty()) {
+            return false;
+        }
+        for(int i = 0; i < segment.length(); i++) {
+            if(!Character.isDigit(segment.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+}
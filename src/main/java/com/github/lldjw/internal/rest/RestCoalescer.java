@@ -0,0 +1,130 @@
+/*
+ * This file is part of the LLDJW distribution (https://github.com/LLDJW/LLDJW).
+ * Copyright (c) 2020 LLDJW Contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.lldjw.internal.rest;
+
+import de.arraying.kotys.JSON;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coalesces concurrent GET requests of the same path, and remembers paths that do not exist.
+ *
+ * The first caller for a path executes the request; callers that arrive while it is in flight wait for its result
+ * instead of sending their own request (single flight). A 404 is remembered for {@link #NEGATIVE_TTL} milliseconds,
+ * during which the path is reported missing without a request. Other errors are not remembered.
+ */
+public final class RestCoalescer {
+
+    public static final long NEGATIVE_TTL = 15_000;
+    private static final int NEGATIVE_LIMIT = 4096;
+
+    private final ConcurrentHashMap<String, CompletableFuture<JSON>> inFlight = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Long> missing = new ConcurrentHashMap<>();
+    private final long negativeTtl;
+
+    /**
+     * Creates a new coalescer.
+     * @param negativeTtl How long a missing path is remembered, in milliseconds. 0 disables this.
+     */
+    public RestCoalescer(long negativeTtl) {
+        this.negativeTtl = TimeUnit.MILLISECONDS.toNanos(negativeTtl);
+    }
+
+    /**
+     * Gets the result of a path.
+     * @param path The path, which identifies the request.
+     * @param task Executes the request, if there is no request for the path in flight.
+     * @return The result, or null if the path does not exist (404).
+     * @throws IOException If the request failed, for every caller that shared it.
+     */
+    public JSON fetch(String path, RestTask<JSON> task) throws IOException {
+        Long expiry = missing.get(path);
+        if(expiry != null) {
+            if(System.nanoTime() - expiry < 0) {
+                return null;
+            }
+            missing.remove(path, expiry);
+        }
+        CompletableFuture<JSON> flight = new CompletableFuture<>();
+        CompletableFuture<JSON> existing = inFlight.putIfAbsent(path, flight);
+        if(existing != null) {
+            return await(existing);
+        }
+        try {
+            JSON json = task.execute();
+            flight.complete(json);
+            return json;
+        } catch(RestException exception) {
+            if(exception.getCode() == 404) {
+                miss(path);
+                flight.complete(null);
+                return null;
+            }
+            flight.completeExceptionally(exception);
+            throw exception;
+        } catch(Throwable throwable) {
+            flight.completeExceptionally(throwable);
+            throw rethrow(throwable);
+        } finally {
+            inFlight.remove(path, flight);
+        }
+    }
+
+    private void miss(String path) {
+        if(negativeTtl <= 0) {
+            return;
+        }
+        long now = System.nanoTime();
+        if(missing.size() >= NEGATIVE_LIMIT) {
+            missing.values().removeIf(expiry -> now - expiry >= 0);
+            if(missing.size() >= NEGATIVE_LIMIT) { // Mostly distinct misses, not worth remembering.
+                missing.clear();
+            }
+        }
+        missing.put(path, now + negativeTtl);
+    }
+
+    private static JSON await(CompletableFuture<JSON> flight) throws IOException {
+        try {
+            return flight.get();
+        } catch(InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while waiting for a coalesced request");
+        } catch(ExecutionException exception) {
+            throw rethrow(exception.getCause());
+        }
+    }
+
+    private static IOException rethrow(Throwable throwable) {
+        if(throwable instanceof IOException) {
+            return (IOException) throwable;
+        }
+        if(throwable instanceof RuntimeException) {
+            throw (RuntimeException) throwable;
+        }
+        if(throwable instanceof Error) {
+            throw (Error) throwable;
+        }
+        return new IOException(throwable);
+    }
+
+}
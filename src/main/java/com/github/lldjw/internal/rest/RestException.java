@@ -0,0 +1,49 @@
+/*
+ * This file is part of the LLDJW distribution (https://github.com/LLDJW/LLDJW).
+ * Copyright (c) 2020 LLDJW Contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.lldjw.internal.rest;
+
+import java.io.IOException;
+
+/**
+ * RestException is thrown when Discord responds with an unsuccessful status code.
+ */
+public final class RestException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int code;
+
+    /**
+     * Creates a new REST exception.
+     * @param route The route of the request.
+     * @param code The HTTP status code.
+     * @param body The response body, may be empty.
+     */
+    public RestException(String route, int code, String body) {
+        super(route + " responded with " + code + ": " + body);
+        this.code = code;
+    }
+
+    /**
+     * Gets the HTTP status code.
+     * @return The status code.
+     */
+    public int getCode() {
+        return code;
+    }
+
+}
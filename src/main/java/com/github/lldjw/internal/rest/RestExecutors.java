@@ -0,0 +1,113 @@
+/*
+ * This file is part of the LLDJW distribution (https://github.com/LLDJW/LLDJW).
+ * Copyright (c) 2020 LLDJW Contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.lldjw.internal.rest;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A utility class that creates the executors used to run REST requests asynchronously.
+ */
+public final class RestExecutors {
+
+    /**
+     * The default amount of threads in a pooled executor.
+     */
+    public static final int THREADS_DEFAULT = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+
+    /**
+     * The default amount of requests that can be queued in a pooled executor before the caller runs them.
+     */
+    public static final int QUEUE_DEFAULT = 4096;
+
+    private RestExecutors() {}
+
+    /**
+     * Gets the executor shared by all clients that have not specified their own executor.
+     * It is created lazily, with {@link #THREADS_DEFAULT} threads.
+     * @return The shared executor.
+     */
+    public static Executor shared() {
+        return SharedHolder.EXECUTOR;
+    }
+
+    /**
+     * Creates a bounded executor.
+     * Idle threads are terminated after a minute. If the queue is full, the calling thread runs the request,
+     * which slows down the producer instead of dropping requests.
+     * @param threads The maximum amount of threads.
+     * @param queue The maximum amount of queued requests.
+     * @return The executor.
+     * @throws IllegalArgumentException If the amount of threads or queue size is not positive.
+     */
+    public static ExecutorService pooled(int threads, int queue) {
+        if(threads <= 0 || queue <= 0) {
+            throw new IllegalArgumentException("threads or queue is not positive");
+        }
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queue), new DaemonFactory("LLDJW-REST-"),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * Creates an executor that runs every request in its own virtual thread.
+     * Virtual threads are only available on JDK 21 and later, they are looked up reflectively,
+     * since LLDJW is compiled against Java 8.
+     * @return The executor.
+     * @throws UnsupportedOperationException If the runtime does not support virtual threads.
+     */
+    public static ExecutorService virtual() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch(ReflectiveOperationException exception) {
+            throw new UnsupportedOperationException("virtual threads require JDK 21 or later", exception);
+        }
+    }
+
+    /**
+     * Holds the shared executor, so it is only created when it is actually used.
+     */
+    private static final class SharedHolder {
+
+        private static final ExecutorService EXECUTOR = pooled(THREADS_DEFAULT, QUEUE_DEFAULT);
+
+    }
+
+    /**
+     * Creates named daemon threads, so that pending requests never keep the JVM alive.
+     */
+    static final class DaemonFactory implements ThreadFactory {
+
+        private final AtomicInteger counter = new AtomicInteger();
+        private final String prefix;
+
+        DaemonFactory(String prefix) {
+            this.prefix = prefix;
+        }
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+
+    }
+
+}
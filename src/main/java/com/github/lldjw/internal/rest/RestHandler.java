@@ -17,41 +17,132 @@
 package com.github.lldjw.internal.rest;
 
 import com.github.lldjw.internal.LLDJWConstants;
+import com.github.lldjw.internal.metrics.RestMetrics;
 import de.arraying.kotys.JSON;
 import okhttp3.*;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.TimeUnit;
 
 public class RestHandler {
 
+    private static final MediaType JSON_TYPE = MediaType.get("application/json");
+    private static final int RATE_LIMIT_RETRIES = 5; // A persistent 429 (e.g. a Cloudflare ban) must not hang the route.
+
     private final OkHttpClient client;
+    private final String base;
+    private final String authorization;
+    private final RateLimiter rateLimiter;
+    private final RestCoalescer coalescer = new RestCoalescer(RestCoalescer.NEGATIVE_TTL);
+    private final RestMetrics metrics = new RestMetrics();
     private String gatewayUrl;
 
-    public RestHandler(OkHttpClient client) {
+    public RestHandler(OkHttpClient client, String base, String token) {
+        this(client, base, token, new RateLimiter(RateLimiter.GLOBAL_LIMIT_DEFAULT));
+    }
+
+    public RestHandler(OkHttpClient client, String base, String token, RateLimiter rateLimiter) {
         this.client = client;
+        this.base = base.endsWith("/") ? base : base + "/";
+        this.authorization = "Bot " + token;
+        this.rateLimiter = rateLimiter;
     }
 
     public synchronized String getGatewayUrl(boolean force) throws IOException {
         if(gatewayUrl == null || force) { // Gateway is not cached or it needs to be forced.
-            Request request = getRequest("GET", LLDJWConstants.API_BASE + LLDJWConstants.API_GATEWAY, null);
-            JSON json = sync(request);
+            JSON json = execute("GET", LLDJWConstants.API_GATEWAY, null);
             gatewayUrl = json.string("url");
         }
         return gatewayUrl;
     }
 
+    public RestMetrics getMetrics() {
+        return metrics;
+    }
+
+    public JSON execute(String method, String path, JSON body) throws IOException {
+        RequestBody requestBody = body == null ? null : RequestBody.create(body.marshal(), JSON_TYPE);
+        return sync(getRequest(method, base + path, requestBody), RateLimiter.route(method, path),
+                RateLimiter.template(method, path));
+    }
+
+    public JSON lookup(String path) throws IOException { // Concurrent lookups of the same path share a request.
+        return coalescer.fetch(path, () -> execute("GET", path, null));
+    }
+
     private Request getRequest(String method, String url, RequestBody body) {
         return new Request.Builder()
                 .url(url)
+                .header("Authorization", authorization)
                 .method(method, body)
                 .build();
     }
 
-    private JSON sync(Request request) throws IOException {
-        try(Response response = client.newCall(request).execute()) {
-            ResponseBody body = response.body();
-            return body == null ? new JSON() : new JSON(body.string());
+    private JSON sync(Request request, String route, String template) throws IOException {
+        long waitStart = System.nanoTime();
+        try {
+            RateLimitBucket bucket = rateLimiter.bucket(route);
+            while(!bucket.lock()) { // Wait for our turn in the bucket's queue, unless it was retired meanwhile.
+                bucket = rateLimiter.bucket(route);
+            }
+            try {
+                int limited = 0;
+                while(true) {
+                    bucket.acquire();
+                    rateLimiter.acquireGlobal();
+                    long start = System.nanoTime();
+                    metrics.waited(start - waitStart);
+                    try(Response response = client.newCall(request).execute()) {
+                        bucket.update(response);
+                        ResponseBody body = response.body();
+                        String content = body == null ? "" : body.string();
+                        metrics.requested(template, System.nanoTime() - start);
+                        if(response.code() == 429) { // Should only happen on shared or unknown buckets.
+                            metrics.rateLimited(template);
+                            waitStart = System.nanoTime();
+                            long retryAfter = getRetryAfter(response, content);
+                            if(response.header("X-RateLimit-Global") != null) {
+                                rateLimiter.lockGlobal(retryAfter);
+                            } else {
+                                bucket.exhaust(retryAfter);
+                            }
+                            if(++limited > RATE_LIMIT_RETRIES) {
+                                throw new RestException(route, response.code(), content);
+                            }
+                            continue;
+                        }
+                        if(!response.isSuccessful()) {
+                            throw new RestException(route, response.code(), content);
+                        }
+                        return content.isEmpty() ? new JSON() : new JSON(content);
+                    }
+                }
+            } finally {
+                bucket.unlock();
+            }
+        } catch(InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while rate limited on " + route);
+        }
+    }
+
+    private long getRetryAfter(Response response, String content) {
+        String resetAfter = response.header("X-RateLimit-Reset-After");
+        if(resetAfter == null) {
+            resetAfter = response.header("Retry-After");
+        }
+        try {
+            if(resetAfter != null) {
+                return RateLimitBucket.secondsToNanos(Double.parseDouble(resetAfter));
+            }
+            JSON json = new JSON(content);
+            if(json.has("retry_after")) { // Milliseconds in this API version.
+                return TimeUnit.MILLISECONDS.toNanos(json.large("retry_after"));
+            }
+        } catch(Exception ignored) {
         }
+        return TimeUnit.SECONDS.toNanos(1);
     }
 
 }